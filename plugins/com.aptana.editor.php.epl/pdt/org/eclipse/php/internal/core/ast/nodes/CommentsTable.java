@@ -0,0 +1,189 @@
+package org.eclipse.php.internal.core.ast.nodes;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.eclipse.php.internal.core.compiler.ast.nodes.PHPDocBlock;
+
+/**
+ * An immutable, offset-sorted table of the comments that the lexer collected while parsing a {@link Program}.<br>
+ * The table keeps the comments start and end offsets in primitive arrays, so locating the comment that precedes a
+ * declaration is a binary search instead of a full AST pass. The PHPDoc blocks are kept as they were parsed by the
+ * lexer, so no re-parse is needed to get their tags and descriptions.<br>
+ * Note: This class is an Aptana addition.
+ *
+ * @see Program#getCommentsTable()
+ */
+public final class CommentsTable
+{
+	/**
+	 * An empty comments table.
+	 */
+	public static final CommentsTable EMPTY = new CommentsTable(new Comment[0]);
+
+	private static final Comparator<Comment> START_COMPARATOR = new Comparator<Comment>()
+	{
+		public int compare(Comment c1, Comment c2)
+		{
+			return c1.getStart() - c2.getStart();
+		}
+	};
+
+	private final Comment[] comments;
+	private final int[] starts;
+	private final int[] ends;
+
+	/**
+	 * Constructs a new comments table.<br>
+	 * The comments are expected to arrive in the lexer order (increasing start offset). In case they don't, they are
+	 * sorted.
+	 *
+	 * @param comments
+	 *            The comments collected by the lexer.
+	 */
+	public CommentsTable(List<Comment> comments)
+	{
+		this(comments.toArray(new Comment[comments.size()]));
+	}
+
+	private CommentsTable(Comment[] comments)
+	{
+		this.comments = comments;
+		this.starts = new int[comments.length];
+		this.ends = new int[comments.length];
+		boolean sorted = true;
+		for (int i = 0; i < comments.length; i++)
+		{
+			starts[i] = comments[i].getStart();
+			ends[i] = comments[i].getEnd();
+			if (i > 0 && starts[i] < starts[i - 1])
+			{
+				sorted = false;
+			}
+		}
+		if (!sorted)
+		{
+			Arrays.sort(comments, START_COMPARATOR);
+			for (int i = 0; i < comments.length; i++)
+			{
+				starts[i] = comments[i].getStart();
+				ends[i] = comments[i].getEnd();
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of comments in this table.
+	 *
+	 * @return The comments count.
+	 */
+	public int size()
+	{
+		return comments.length;
+	}
+
+	/**
+	 * Returns the comment at the given index.
+	 *
+	 * @param index
+	 * @return The comment at the given index.
+	 */
+	public Comment get(int index)
+	{
+		return comments[index];
+	}
+
+	/**
+	 * Returns the comments array, sorted by start offset. The returned array is shared and should not be modified.
+	 *
+	 * @return The comments array.
+	 */
+	Comment[] getComments()
+	{
+		return comments;
+	}
+
+	/**
+	 * Returns the index of the last comment that starts before the given offset.
+	 *
+	 * @param offset
+	 * @return The comment index, or -1 if there is no comment that starts before the given offset.
+	 */
+	public int indexBefore(int offset)
+	{
+		int low = 0;
+		int high = starts.length - 1;
+		while (low <= high)
+		{
+			int mid = (low + high) >>> 1;
+			if (starts[mid] < offset)
+			{
+				low = mid + 1;
+			}
+			else
+			{
+				high = mid - 1;
+			}
+		}
+		return low - 1;
+	}
+
+	/**
+	 * Returns the index of the comment that covers the given offset.
+	 *
+	 * @param offset
+	 * @return The comment index, or -1 if the offset is not inside a comment.
+	 */
+	public int indexAt(int offset)
+	{
+		int index = indexBefore(offset + 1);
+		if (index >= 0 && offset < ends[index])
+		{
+			return index;
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the PHPDoc block that appears right above the given declaration offset. In case there is no such
+	 * comment, or there are non-white characters between the comment and the offset, this method returns null.
+	 *
+	 * @param offset
+	 *            The declaration start offset.
+	 * @param content
+	 *            The source that was parsed. In case this is null, the whitespace check between the comment and the
+	 *            offset is skipped.
+	 * @return The {@link PHPDocBlock}, or null.
+	 */
+	public PHPDocBlock getPHPDocBlock(int offset, CharSequence content)
+	{
+		int index = indexBefore(offset);
+		if (index < 0)
+		{
+			return null;
+		}
+		Comment nearestComment = comments[index];
+		if (nearestComment.getCommentType() != Comment.TYPE_PHPDOC || !(nearestComment instanceof PHPDocBlock))
+		{
+			return null;
+		}
+		if (content != null)
+		{
+			int end = ends[index];
+			if (offset - 2 < 0 || end >= content.length() || offset - 2 >= content.length())
+			{
+				return null;
+			}
+			// checking if we have anything but white spaces between comment end and offset
+			for (int i = end + 1; i < offset - 1; i++)
+			{
+				if (!Character.isWhitespace(content.charAt(i)))
+				{
+					return null;
+				}
+			}
+		}
+		return (PHPDocBlock) nearestComment;
+	}
+}
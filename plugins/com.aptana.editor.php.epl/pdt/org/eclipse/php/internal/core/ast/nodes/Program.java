@@ -97,6 +97,10 @@ public class Program extends ASTNode {
 
 	private boolean bindingCompleted;
 
+	private CommentsTable commentsTable;
+
+	private long commentsTableModificationCount = -1;
+
 	@SuppressWarnings("unchecked")
 	private Program(int start, int end, AST ast, Statement[] statements,
 			List comments) {
@@ -287,8 +291,8 @@ public class Program extends ASTNode {
 	 * @since 3.0
 	 */
 	public void initCommentMapper(IDocument document, AstLexer scanner) {
-		this.commentMapper = new DefaultCommentMapper(this.getComments()
-				.toArray(new Comment[this.getComments().size()]));
+		this.commentMapper = new DefaultCommentMapper(getCommentsTable()
+				.getComments());
 		this.commentMapper.initialize(this, scanner, document);
 	}
 
@@ -722,4 +726,21 @@ public class Program extends ASTNode {
 	{
 		return bindingCompleted;
 	}
+
+	/**
+	 * Returns an offset-sorted table of the comments that were collected by the lexer while parsing this program. The
+	 * table is built once and is rebuilt only when the AST is modified.
+	 * 
+	 * @return The {@link CommentsTable} of this program.
+	 */
+	public synchronized CommentsTable getCommentsTable()
+	{
+		long modificationCount = getAST().modificationCount();
+		if (commentsTable == null || commentsTableModificationCount != modificationCount)
+		{
+			commentsTable = comments.isEmpty() ? CommentsTable.EMPTY : new CommentsTable(comments);
+			commentsTableModificationCount = modificationCount;
+		}
+		return commentsTable;
+	}
 }
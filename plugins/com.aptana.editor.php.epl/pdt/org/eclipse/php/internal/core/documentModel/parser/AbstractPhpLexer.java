@@ -54,6 +54,14 @@ public abstract class AbstractPhpLexer implements Scanner, PHPRegionTypes {
 
 	public abstract void reset(Reader reader, char[] buffer, int[] parameters);
 
+	/**
+	 * Continues the scan from the given reader, as if its input followed the
+	 * input that was read so far. The buffer positions are reset to the start
+	 * of the new input, while the line, the lexical state and the states stack
+	 * are kept.
+	 */
+	public abstract void reset(Reader reader);
+
 	public abstract int yystate();
 
 	protected abstract boolean isHeredocState(int state);
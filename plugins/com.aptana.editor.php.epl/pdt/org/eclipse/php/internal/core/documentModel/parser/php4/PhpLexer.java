@@ -1005,6 +1005,16 @@ private static final String ZZ_ACTION_PACKED_0 =
     	initialize(parameters[6]);
     }
 
+    public void reset(java.io.Reader reader){
+    	this.zzReader = reader;
+    	this.zzMarkedPos = 0;
+    	this.zzPushbackPos = 0;
+    	this.zzCurrentPos = 0;
+    	this.zzStartRead = 0;
+    	this.zzEndRead = 0;
+    	this.zzAtEOF = false;
+    }
+
     protected boolean isHeredocState(int state){
     	return state == ST_PHP_HEREDOC;
     }
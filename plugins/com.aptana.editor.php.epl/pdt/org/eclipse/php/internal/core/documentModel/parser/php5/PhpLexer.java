@@ -1109,6 +1109,16 @@ public class PhpLexer extends org.eclipse.php.internal.core.documentModel.parser
     	initialize(parameters[6]);
     }
 
+    public void reset(java.io.Reader reader){
+    	this.zzReader = reader;
+    	this.zzMarkedPos = 0;
+    	this.zzPushbackPos = 0;
+    	this.zzCurrentPos = 0;
+    	this.zzStartRead = 0;
+    	this.zzEndRead = 0;
+    	this.zzAtEOF = false;
+    }
+
     protected boolean isHeredocState(int state){
     	    	return state == ST_PHP_HEREDOC || state == ST_PHP_START_HEREDOC || state == ST_PHP_END_HEREDOC;
     }
@@ -17,6 +17,8 @@ import org.osgi.framework.BundleContext;
 
 import com.aptana.editor.php.indexer.PHPGlobalIndexer;
 import com.aptana.editor.php.internal.indexer.language.PHPBuiltins;
+import com.aptana.editor.php.internal.metrics.MetricsLogJob;
+import com.aptana.editor.php.internal.metrics.PHPMetrics;
 import com.aptana.editor.php.internal.model.ModelManager;
 
 /**
@@ -32,9 +34,12 @@ public class PHPEditorPlugin extends AbstractUIPlugin
 	public static final boolean DEBUG = Boolean.valueOf(Platform.getDebugOption(PLUGIN_ID + "/debug")).booleanValue(); //$NON-NLS-1$
 	public static final boolean INDEXER_DEBUG = Boolean
 			.valueOf(Platform.getDebugOption(PLUGIN_ID + "/indexer_debug")).booleanValue(); //$NON-NLS-1$
+	public static final boolean METRICS_DEBUG = Boolean
+			.valueOf(Platform.getDebugOption(PLUGIN_ID + "/metrics")).booleanValue(); //$NON-NLS-1$
 
 	// The shared instance
 	private static PHPEditorPlugin plugin;
+	private MetricsLogJob metricsLogJob;
 
 	/**
 	 * The constructor
@@ -51,6 +56,12 @@ public class PHPEditorPlugin extends AbstractUIPlugin
 	{
 		super.start(context);
 		plugin = this;
+		PHPMetrics.getInstance().register();
+		if (METRICS_DEBUG)
+		{
+			metricsLogJob = new MetricsLogJob();
+			metricsLogJob.start();
+		}
 		index();
 		Job loadBuiltins = new Job("Index PHP API...") { //$NON-NLS-1$
 			@Override
@@ -107,6 +118,12 @@ public class PHPEditorPlugin extends AbstractUIPlugin
 	public void stop(BundleContext context) throws Exception
 	{
 		PHPGlobalIndexer.getInstance().save();
+		if (metricsLogJob != null)
+		{
+			metricsLogJob.stop();
+			metricsLogJob = null;
+		}
+		PHPMetrics.getInstance().unregister();
 		plugin = null;
 		super.stop(context);
 	}
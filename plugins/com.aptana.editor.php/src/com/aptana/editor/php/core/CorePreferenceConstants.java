@@ -13,6 +13,15 @@ public class CorePreferenceConstants
 	{
 		public static final String PHP_VERSION = IPHPCoreConstants.PHP_OPTIONS_PHP_VERSION;
 		public static final String EDITOR_USE_ASP_TAGS = "use_asp_tags"; //$NON-NLS-1$
+		/**
+		 * A directory that holds prebuilt index files for the external libraries.
+		 */
+		public static final String PREBUILT_INDEX_DIRECTORY = "prebuilt_index_directory"; //$NON-NLS-1$
+		/**
+		 * The interval, in seconds, between two checks of the external libraries for file system changes. Zero
+		 * disables the checks.
+		 */
+		public static final String EXTERNAL_LIBRARIES_POLLING_INTERVAL = "external_libraries_polling_interval"; //$NON-NLS-1$
 	}
 
 	public static IPreferenceStore getPreferenceStore()
@@ -31,6 +40,8 @@ public class CorePreferenceConstants
 		IPreferenceStore store = getPreferenceStore();
 		store.setDefault(Keys.PHP_VERSION, IPHPCoreConstants.PHP5);
 		store.setDefault(Keys.EDITOR_USE_ASP_TAGS, false);
+		store.setDefault(Keys.PREBUILT_INDEX_DIRECTORY, ""); //$NON-NLS-1$
+		store.setDefault(Keys.EXTERNAL_LIBRARIES_POLLING_INTERVAL, 5);
 
 		store.setDefault(IPHPCoreConstants.FORMATTER_USE_TABS, true);
 		store.setDefault(IPHPCoreConstants.FORMATTER_INDENTATION_SIZE, IPHPCoreConstants.DEFAULT_INDENTATION_SIZE);
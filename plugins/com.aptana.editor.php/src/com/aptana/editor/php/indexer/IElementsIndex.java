@@ -76,6 +76,20 @@ public interface IElementsIndex
 	 * @return entries found
 	 */
 	List<IElementEntry> getEntries(int category, String path);
+
+	/**
+	 * Gets the entries which last path name matches the pattern specified as a subsequence
+	 * or by its camel humps, best matches first.
+	 * Filters result by category specified, or skips filtering if category value
+	 * is {@link IElementsIndex#ANY_CETEGORY}
+	 * 
+	 * @param category - category to select entries from.
+	 * @param pattern - the pattern, as typed (at least two characters).
+	 * @param limit - the maximum number of entries to return (positive).
+	 * 
+	 * @return entries found
+	 */
+	List<IElementEntry> getEntriesMatching(int category, String pattern, int limit);
 	
 	/**
 	 * Gets unmodifiable module entries list. 
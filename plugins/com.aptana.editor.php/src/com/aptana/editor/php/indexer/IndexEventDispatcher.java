@@ -0,0 +1,379 @@
+/**
+ * This file Copyright (c) 2005-2008 Aptana, Inc. This program is
+ * dual-licensed under both the Aptana Public License and the GNU General
+ * Public license. You may elect to use one or the other of these licenses.
+ * 
+ * This program is distributed in the hope that it will be useful, but
+ * AS-IS and WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE, TITLE, or
+ * NONINFRINGEMENT. Redistribution, except as permitted by whichever of
+ * the GPL or APL you select, is prohibited.
+ *
+ * 1. For the GPL license (GPL), you can redistribute and/or modify this
+ * program under the terms of the GNU General Public License,
+ * Version 3, as published by the Free Software Foundation.  You should
+ * have received a copy of the GNU General Public License, Version 3 along
+ * with this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Aptana provides a special exception to allow redistribution of this file
+ * with certain other free and open source software ("FOSS") code and certain additional terms
+ * pursuant to Section 7 of the GPL. You may view the exception and these
+ * terms on the web at http://www.aptana.com/legal/gpl/.
+ * 
+ * 2. For the Aptana Public License (APL), this program and the
+ * accompanying materials are made available under the terms of the APL
+ * v1.0 which accompanies this distribution, and is available at
+ * http://www.aptana.com/legal/apl/.
+ * 
+ * You may view the GPL, Aptana's exception and additional terms, and the
+ * APL in the file titled license.html at the root of the corresponding
+ * plugin containing this source file.
+ * 
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.editor.php.indexer;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import com.aptana.editor.php.PHPEditorPlugin;
+import com.aptana.editor.php.internal.core.builder.IDirectory;
+import com.aptana.editor.php.internal.core.builder.IModule;
+
+/**
+ * Dispatches the {@link PHPGlobalIndexer} change events to the {@link IIndexChangeListener}s and the
+ * {@link IModuleIndexListener}s.<br>
+ * The events are dispatched on a dedicated thread, and the events that arrive within a short time window (a burst of
+ * reconciles while typing, several index drain cycles) are merged into a single notification. The module index
+ * listeners may be subscribed with an {@link IModuleIndexFilter}, so they are notified only about the modules (or the
+ * index categories) they care about.<br>
+ * The before-index notifications are delivered synchronously on the indexing thread, without going through the
+ * dispatch thread, since the listeners expect the index to still hold the entries that are about to be replaced.
+ */
+final class IndexEventDispatcher
+{
+	/**
+	 * The time window in which the events are merged.
+	 */
+	private static final long COALESCING_DELAY = 200;
+
+	/**
+	 * A module index listener subscription.
+	 */
+	private static final class Subscription
+	{
+		final IModuleIndexListener listener;
+		final IModuleIndexFilter filter;
+
+		Subscription(IModuleIndexListener listener, IModuleIndexFilter filter)
+		{
+			this.listener = listener;
+			this.filter = filter;
+		}
+	}
+
+	private final PHPGlobalIndexer indexer;
+	private final List<IIndexChangeListener> changeListeners = new CopyOnWriteArrayList<IIndexChangeListener>();
+	private final List<Subscription> subscriptions = new CopyOnWriteArrayList<Subscription>();
+
+	// The pending events (guarded by this)
+	private final Set<IModule> addedModules = new LinkedHashSet<IModule>();
+	private final Set<IModule> changedModules = new LinkedHashSet<IModule>();
+	private final Set<IDirectory> addedDirectories = new LinkedHashSet<IDirectory>();
+	private int modulesLeft = -1;
+	private boolean changeProcessed;
+	private boolean scheduled;
+
+	private ScheduledExecutorService executor;
+
+	private final Runnable flushTask = new Runnable()
+	{
+		public void run()
+		{
+			flush();
+		}
+	};
+
+	/**
+	 * Constructs a new dispatcher.
+	 * 
+	 * @param indexer
+	 */
+	IndexEventDispatcher(PHPGlobalIndexer indexer)
+	{
+		this.indexer = indexer;
+	}
+
+	void addListener(IIndexChangeListener listener)
+	{
+		if (!changeListeners.contains(listener))
+		{
+			changeListeners.add(listener);
+		}
+	}
+
+	void removeListener(IIndexChangeListener listener)
+	{
+		changeListeners.remove(listener);
+	}
+
+	synchronized void addListener(IModuleIndexListener listener, IModuleIndexFilter filter)
+	{
+		removeListener(listener);
+		subscriptions.add(new Subscription(listener, filter));
+	}
+
+	synchronized void removeListener(IModuleIndexListener listener)
+	{
+		for (Subscription subscription : subscriptions)
+		{
+			if (subscription.listener == listener)
+			{
+				subscriptions.remove(subscription);
+			}
+		}
+	}
+
+	/**
+	 * Queues an index state change.
+	 * 
+	 * @param modulesLeft
+	 */
+	synchronized void fireChanged(int modulesLeft)
+	{
+		if (changeListeners.isEmpty())
+		{
+			return;
+		}
+		this.modulesLeft = modulesLeft;
+		schedule();
+	}
+
+	/**
+	 * Queues a processed change notification.
+	 */
+	synchronized void fireChangeProcessed()
+	{
+		if (changeListeners.isEmpty())
+		{
+			return;
+		}
+		changeProcessed = true;
+		schedule();
+	}
+
+	/**
+	 * Queues an after-index notification. The modules are merged with the modules that are already pending.
+	 * 
+	 * @param added
+	 * @param changed
+	 * @param directories
+	 */
+	synchronized void fireAfterIndexing(List<IModule> added, List<IModule> changed, List<IDirectory> directories)
+	{
+		if (subscriptions.isEmpty())
+		{
+			return;
+		}
+		for (IModule module : added)
+		{
+			changedModules.remove(module);
+			addedModules.add(module);
+		}
+		for (IModule module : changed)
+		{
+			if (!addedModules.contains(module))
+			{
+				changedModules.add(module);
+			}
+		}
+		addedDirectories.addAll(directories);
+		schedule();
+	}
+
+	/**
+	 * Delivers a before-index notification on the caller thread. This method returns after the listeners were notified.
+	 * 
+	 * @param changed
+	 * @param removed
+	 * @param removedDirectories
+	 */
+	void fireBeforeIndexing(List<IModule> changed, List<IModule> removed, List<IDirectory> removedDirectories)
+	{
+		if (subscriptions.isEmpty())
+		{
+			return;
+		}
+		notifyBeforeIndexing(changed, removed, removedDirectories);
+	}
+
+	private void schedule()
+	{
+		if (!scheduled)
+		{
+			scheduled = true;
+			getExecutor().schedule(flushTask, COALESCING_DELAY, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/*
+	 * Deliver the pending notifications.
+	 */
+	private void flush()
+	{
+		int left;
+		boolean processed;
+		List<IModule> added;
+		List<IModule> changed;
+		List<IDirectory> directories;
+		synchronized (this)
+		{
+			left = modulesLeft;
+			processed = changeProcessed;
+			added = new ArrayList<IModule>(addedModules);
+			changed = new ArrayList<IModule>(changedModules);
+			directories = new ArrayList<IDirectory>(addedDirectories);
+			modulesLeft = -1;
+			changeProcessed = false;
+			addedModules.clear();
+			changedModules.clear();
+			addedDirectories.clear();
+			scheduled = false;
+		}
+		if (left >= 0)
+		{
+			String message = MessageFormat.format(Messages.PHPGlobalIndexer_ModulesLeft, left);
+			for (IIndexChangeListener listener : changeListeners)
+			{
+				try
+				{
+					listener.stateChanged(left == 0, message);
+				}
+				catch (Throwable t)
+				{
+					PHPEditorPlugin.logError(t);
+				}
+			}
+		}
+		if (processed)
+		{
+			for (IIndexChangeListener listener : changeListeners)
+			{
+				try
+				{
+					listener.changeProcessed();
+				}
+				catch (Throwable t)
+				{
+					PHPEditorPlugin.logError(t);
+				}
+			}
+		}
+		if (added.isEmpty() && changed.isEmpty() && directories.isEmpty())
+		{
+			return;
+		}
+		Map<IModule, Integer> categories = new HashMap<IModule, Integer>();
+		for (Subscription subscription : subscriptions)
+		{
+			List<IModule> acceptedAdded = filter(subscription.filter, added, categories);
+			List<IModule> acceptedChanged = filter(subscription.filter, changed, categories);
+			if (acceptedAdded.isEmpty() && acceptedChanged.isEmpty() && directories.isEmpty())
+			{
+				continue;
+			}
+			try
+			{
+				subscription.listener.afterIndexChange(acceptedAdded, acceptedChanged, directories);
+			}
+			catch (Throwable t)
+			{
+				PHPEditorPlugin.logError(t);
+			}
+		}
+	}
+
+	private void notifyBeforeIndexing(List<IModule> changed, List<IModule> removed, List<IDirectory> removedDirectories)
+	{
+		Map<IModule, Integer> categories = new HashMap<IModule, Integer>();
+		for (Subscription subscription : subscriptions)
+		{
+			List<IModule> acceptedChanged = filter(subscription.filter, changed, categories);
+			List<IModule> acceptedRemoved = filter(subscription.filter, removed, categories);
+			if (subscription.filter != null && acceptedChanged.isEmpty() && acceptedRemoved.isEmpty()
+					&& removedDirectories.isEmpty())
+			{
+				continue;
+			}
+			try
+			{
+				subscription.listener.beforeIndexChange(acceptedChanged, acceptedRemoved, removedDirectories);
+			}
+			catch (Throwable t)
+			{
+				PHPEditorPlugin.logError(t);
+			}
+		}
+	}
+
+	/*
+	 * Returns the modules that are accepted by the filter. The categories of the modules entries are computed once per
+	 * notification.
+	 */
+	private List<IModule> filter(IModuleIndexFilter filter, List<IModule> modules, Map<IModule, Integer> categories)
+	{
+		if (filter == null || modules.isEmpty())
+		{
+			return modules;
+		}
+		List<IModule> result = new ArrayList<IModule>(modules.size());
+		for (IModule module : modules)
+		{
+			Integer mask = categories.get(module);
+			if (mask == null)
+			{
+				int value = 0;
+				for (IElementEntry entry : indexer.getIndex().getModuleEntries(module))
+				{
+					value |= 1 << entry.getCategory();
+				}
+				mask = value;
+				categories.put(module, mask);
+			}
+			if (filter.accept(module, mask))
+			{
+				result.add(module);
+			}
+		}
+		return result.isEmpty() ? Collections.<IModule> emptyList() : result;
+	}
+
+	private synchronized ScheduledExecutorService getExecutor()
+	{
+		if (executor == null)
+		{
+			executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory()
+			{
+				public Thread newThread(Runnable r)
+				{
+					Thread thread = new Thread(r, "PHP Index Events"); //$NON-NLS-1$
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return executor;
+	}
+}
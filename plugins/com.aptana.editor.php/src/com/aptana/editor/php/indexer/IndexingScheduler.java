@@ -0,0 +1,618 @@
+/**
+ * This file Copyright (c) 2005-2008 Aptana, Inc. This program is
+ * dual-licensed under both the Aptana Public License and the GNU General
+ * Public license. You may elect to use one or the other of these licenses.
+ * 
+ * This program is distributed in the hope that it will be useful, but
+ * AS-IS and WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE, TITLE, or
+ * NONINFRINGEMENT. Redistribution, except as permitted by whichever of
+ * the GPL or APL you select, is prohibited.
+ *
+ * 1. For the GPL license (GPL), you can redistribute and/or modify this
+ * program under the terms of the GNU General Public License,
+ * Version 3, as published by the Free Software Foundation.  You should
+ * have received a copy of the GNU General Public License, Version 3 along
+ * with this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Aptana provides a special exception to allow redistribution of this file
+ * with certain other free and open source software ("FOSS") code and certain additional terms
+ * pursuant to Section 7 of the GPL. You may view the exception and these
+ * terms on the web at http://www.aptana.com/legal/gpl/.
+ * 
+ * 2. For the Aptana Public License (APL), this program and the
+ * accompanying materials are made available under the terms of the APL
+ * v1.0 which accompanies this distribution, and is available at
+ * http://www.aptana.com/legal/apl/.
+ * 
+ * You may view the GPL, Aptana's exception and additional terms, and the
+ * APL in the file titled license.html at the root of the corresponding
+ * plugin containing this source file.
+ * 
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.editor.php.indexer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+import com.aptana.editor.php.PHPEditorPlugin;
+import com.aptana.editor.php.internal.core.builder.IBuildPath;
+import com.aptana.editor.php.internal.core.builder.IDirectory;
+import com.aptana.editor.php.internal.core.builder.IModule;
+import com.aptana.editor.php.internal.indexer.IncludePHPEntryValue;
+
+/**
+ * A long-lived job that holds the modules work queue of the {@link PHPGlobalIndexer}.<br>
+ * The queue holds a single work item per module, so a later event for a module supersedes an earlier one that was not
+ * processed yet. The queue is drained in small batches, and the modules that are open in editors (and the modules
+ * they include) are taken first. The index change listeners are notified once per drain cycle.
+ */
+final class IndexingScheduler extends Job
+{
+	/**
+	 * Module work kinds.
+	 */
+	static enum WorkKind
+	{
+		/**
+		 * Index the module. The module is skipped when its content hash did not change.
+		 */
+		INDEX,
+		/**
+		 * Index the module, even when its content did not change.
+		 */
+		FORCED_INDEX,
+		/**
+		 * Remove the module from the index.
+		 */
+		REMOVE
+	}
+
+	/**
+	 * A short delay that lets a burst of events (saving several files, a VCS update) be coalesced into a single drain
+	 * cycle.
+	 */
+	private static final long COALESCING_DELAY = 200;
+
+	/**
+	 * Maximum number of modules that are taken from the queue at once. Small batches let the later events supersede
+	 * the queued items, and let the editor modules jump ahead while a large drain is in progress.
+	 */
+	private static final int BATCH_SIZE = 64;
+
+	/**
+	 * Maximum number of modules in the priority set.
+	 */
+	private static final int MAX_PRIORITY_MODULES = 512;
+
+	private final PHPGlobalIndexer indexer;
+
+	/**
+	 * Pending work, in arrival order.
+	 */
+	private final LinkedHashMap<IModule, WorkKind> queue = new LinkedHashMap<IModule, WorkKind>();
+
+	/**
+	 * Passive build paths that were added and wait for their index to be initialized. Guarded by the queue lock.
+	 */
+	private final Set<IBuildPath> pendingBuildPaths = new LinkedHashSet<IBuildPath>();
+
+	/**
+	 * Notifications that are collected for the module index listeners until the end of the drain cycle.
+	 */
+	private final Set<IModule> addedModules = new LinkedHashSet<IModule>();
+	private final Set<IModule> changedModules = new LinkedHashSet<IModule>();
+	private final Set<IDirectory> addedDirectories = new LinkedHashSet<IDirectory>();
+
+	/**
+	 * Modules that are open in editors, with their open editors count.
+	 */
+	private final Map<IModule, Integer> editorModules = new HashMap<IModule, Integer>();
+
+	/**
+	 * The editor modules and their include closure. Computed lazily, and reset when the editor modules change.
+	 */
+	private Set<IModule> priorityModules;
+
+	/**
+	 * Incremented whenever the editor modules change.
+	 */
+	private int editorModulesStamp;
+
+	/**
+	 * Constructs a new indexing scheduler.
+	 * 
+	 * @param indexer
+	 */
+	IndexingScheduler(PHPGlobalIndexer indexer)
+	{
+		super(Messages.PHPGlobalIndexer_PHP_Index);
+		this.indexer = indexer;
+		setPriority(Job.BUILD);
+	}
+
+	/**
+	 * Queues work for the given modules and schedules a drain cycle.
+	 * 
+	 * @param modules
+	 * @param kind
+	 */
+	void enqueue(List<IModule> modules, WorkKind kind)
+	{
+		enqueue(modules, kind, null, null);
+	}
+
+	/**
+	 * Queues work for the given modules and schedules a drain cycle. The added and changed modules, and the added
+	 * directories, are reported to the module index listeners at the end of the drain cycle.
+	 * 
+	 * @param modules
+	 * @param kind
+	 * @param notifyAs
+	 *            - the notification set the modules should be reported in, or null when no notification is needed.
+	 * @param directories
+	 *            - added directories (may be null).
+	 */
+	private void enqueue(List<IModule> modules, WorkKind kind, Set<IModule> notifyAs, List<IDirectory> directories)
+	{
+		synchronized (queue)
+		{
+			for (IModule module : modules)
+			{
+				WorkKind current = queue.get(module);
+				if (current == WorkKind.FORCED_INDEX && kind == WorkKind.INDEX)
+				{
+					// a forced indexing also covers the plain indexing
+					continue;
+				}
+				queue.put(module, kind);
+				if (kind == WorkKind.REMOVE)
+				{
+					addedModules.remove(module);
+					changedModules.remove(module);
+				}
+				else if (notifyAs != null)
+				{
+					notifyAs.add(module);
+				}
+			}
+			if (directories != null)
+			{
+				addedDirectories.addAll(directories);
+			}
+		}
+		schedule(COALESCING_DELAY);
+	}
+
+	/**
+	 * Queues the index initialization of a passive build path that was added, and schedules a drain cycle. The build
+	 * path prebuilt index is loaded by this job, before its modules are queued.
+	 * 
+	 * @param buildPath
+	 * @see PHPGlobalIndexer#initPassiveBuildPath(IBuildPath)
+	 */
+	void enqueueBuildPath(IBuildPath buildPath)
+	{
+		synchronized (queue)
+		{
+			pendingBuildPaths.add(buildPath);
+		}
+		schedule(COALESCING_DELAY);
+	}
+
+	/**
+	 * Cancels a pending index initialization of a build path that was removed.
+	 * 
+	 * @param buildPath
+	 */
+	void removeBuildPath(IBuildPath buildPath)
+	{
+		synchronized (queue)
+		{
+			pendingBuildPaths.remove(buildPath);
+		}
+	}
+
+	/**
+	 * Queues the changes that were reported by a build path.
+	 * 
+	 * @param added
+	 * @param changed
+	 * @param removed
+	 * @param directories
+	 *            - added directories.
+	 */
+	void enqueueChanges(List<IModule> added, List<IModule> changed, List<IModule> removed,
+			List<IDirectory> directories)
+	{
+		synchronized (queue)
+		{
+			enqueue(removed, WorkKind.REMOVE, null, null);
+			enqueue(changed, WorkKind.INDEX, changedModules, null);
+			enqueue(added, WorkKind.INDEX, addedModules, directories);
+		}
+	}
+
+	/**
+	 * Returns the number of modules that wait for processing.
+	 * 
+	 * @return pending modules count.
+	 */
+	int getPendingCount()
+	{
+		synchronized (queue)
+		{
+			return queue.size();
+		}
+	}
+
+	/**
+	 * Marks the given module as open in an editor.
+	 * 
+	 * @param module
+	 */
+	void addEditorModule(IModule module)
+	{
+		synchronized (editorModules)
+		{
+			Integer count = editorModules.get(module);
+			editorModules.put(module, count == null ? 1 : count + 1);
+			resetPriorityModules();
+		}
+	}
+
+	/**
+	 * Marks the given module as closed in an editor.
+	 * 
+	 * @param module
+	 */
+	void removeEditorModule(IModule module)
+	{
+		synchronized (editorModules)
+		{
+			Integer count = editorModules.get(module);
+			if (count == null)
+			{
+				return;
+			}
+			if (count <= 1)
+			{
+				editorModules.remove(module);
+			}
+			else
+			{
+				editorModules.put(module, count - 1);
+			}
+			resetPriorityModules();
+		}
+	}
+
+	/**
+	 * Returns the modules that are open in editors.
+	 * 
+	 * @return The editor modules.
+	 */
+	List<IModule> getEditorModules()
+	{
+		synchronized (editorModules)
+		{
+			return new ArrayList<IModule>(editorModules.keySet());
+		}
+	}
+
+	private void resetPriorityModules()
+	{
+		synchronized (editorModules)
+		{
+			priorityModules = null;
+			editorModulesStamp++;
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.core.runtime.jobs.Job#belongsTo(java.lang.Object)
+	 */
+	@Override
+	public boolean belongsTo(Object family)
+	{
+		return PHPGlobalIndexer.INDEXING_JOB_FAMILY == family;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.core.runtime.jobs.Job#run(org.eclipse.core.runtime.IProgressMonitor)
+	 */
+	@Override
+	protected IStatus run(IProgressMonitor monitor)
+	{
+		long start = System.currentTimeMillis();
+		int processed = 0;
+		monitor.beginTask(Messages.PHPGlobalIndexer_PHP_Index2, IProgressMonitor.UNKNOWN);
+		indexer.fireChanged(getPendingCount());
+		// the batch that is in progress (kept in case the job is canceled while processing it)
+		List<IModule> toRemove = new ArrayList<IModule>();
+		List<IModule> toIndex = new ArrayList<IModule>();
+		List<IModule> toForce = new ArrayList<IModule>();
+		try
+		{
+			while (!monitor.isCanceled())
+			{
+				initBuildPaths(monitor);
+				if (monitor.isCanceled() || !takeBatch(toRemove, toIndex, toForce))
+				{
+					break;
+				}
+				monitor.subTask(Messages.PHPGlobalIndexer_IndexChanged2);
+				if (!toRemove.isEmpty())
+				{
+					indexer.removeModules(toRemove, monitor);
+				}
+				if (!toIndex.isEmpty())
+				{
+					indexer.indexModules(toIndex, false, monitor);
+				}
+				if (!toForce.isEmpty())
+				{
+					indexer.indexModules(toForce, true, monitor);
+				}
+				if (monitor.isCanceled())
+				{
+					break;
+				}
+				processed += toRemove.size() + toIndex.size() + toForce.size();
+				toRemove.clear();
+				toIndex.clear();
+				toForce.clear();
+			}
+		}
+		finally
+		{
+			List<IModule> added;
+			List<IModule> changed;
+			List<IDirectory> directories;
+			synchronized (queue)
+			{
+				if (monitor.isCanceled())
+				{
+					// The pending work is kept for the next drain cycle, and the batch that was interrupted is queued
+					// again (unless newer work for its modules arrived). Modules of that batch that were already
+					// indexed are skipped by their content hash.
+					requeue(toRemove, WorkKind.REMOVE);
+					requeue(toIndex, WorkKind.INDEX);
+					requeue(toForce, WorkKind.FORCED_INDEX);
+				}
+				added = new ArrayList<IModule>(addedModules);
+				changed = new ArrayList<IModule>(changedModules);
+				directories = new ArrayList<IDirectory>(addedDirectories);
+				addedModules.clear();
+				changedModules.clear();
+				addedDirectories.clear();
+			}
+			monitor.done();
+			// the includes of the editor modules might have changed during this cycle
+			resetPriorityModules();
+			indexer.fireChanged(0);
+			if (processed > 0)
+			{
+				indexer.fireChangeProcessed();
+			}
+			if (!added.isEmpty() || !changed.isEmpty() || !directories.isEmpty())
+			{
+				indexer.fireAfterIndexing(added, changed, directories);
+			}
+		}
+		if (PHPEditorPlugin.INDEXER_DEBUG)
+		{
+			System.out.println("Indexer drained " + processed + " modules [took " //$NON-NLS-1$ //$NON-NLS-2$
+					+ (System.currentTimeMillis() - start) + "ms)"); //$NON-NLS-1$
+		}
+		return monitor.isCanceled() ? Status.CANCEL_STATUS : Status.OK_STATUS;
+	}
+
+	/**
+	 * Initializes the indexes of the pending build paths. The build paths that are left when the job is canceled are
+	 * initialized on the next drain cycle.
+	 * 
+	 * @param monitor
+	 */
+	private void initBuildPaths(IProgressMonitor monitor)
+	{
+		while (!monitor.isCanceled())
+		{
+			IBuildPath buildPath;
+			synchronized (queue)
+			{
+				if (pendingBuildPaths.isEmpty())
+				{
+					return;
+				}
+				buildPath = pendingBuildPaths.iterator().next();
+			}
+			try
+			{
+				indexer.initPassiveBuildPath(buildPath);
+			}
+			finally
+			{
+				synchronized (queue)
+				{
+					pendingBuildPaths.remove(buildPath);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Takes the next batch of work from the queue. The priority modules are taken first.
+	 * 
+	 * @param toRemove
+	 * @param toIndex
+	 * @param toForce
+	 * @return false if the queue is empty.
+	 */
+	private boolean takeBatch(List<IModule> toRemove, List<IModule> toIndex, List<IModule> toForce)
+	{
+		Set<IModule> priority = getPriorityModules();
+		synchronized (queue)
+		{
+			if (queue.isEmpty())
+			{
+				return false;
+			}
+			int taken = 0;
+			if (!priority.isEmpty())
+			{
+				for (IModule module : priority)
+				{
+					WorkKind kind = queue.remove(module);
+					if (kind != null)
+					{
+						add(module, kind, toRemove, toIndex, toForce);
+						if (++taken == BATCH_SIZE)
+						{
+							return true;
+						}
+					}
+				}
+			}
+			Iterator<Map.Entry<IModule, WorkKind>> iterator = queue.entrySet().iterator();
+			while (iterator.hasNext() && taken < BATCH_SIZE)
+			{
+				Map.Entry<IModule, WorkKind> entry = iterator.next();
+				iterator.remove();
+				add(entry.getKey(), entry.getValue(), toRemove, toIndex, toForce);
+				taken++;
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Queues again modules that were taken from the queue and not fully processed. Must be called while holding the
+	 * queue lock.
+	 * 
+	 * @param modules
+	 * @param kind
+	 */
+	private void requeue(List<IModule> modules, WorkKind kind)
+	{
+		for (IModule module : modules)
+		{
+			if (!queue.containsKey(module))
+			{
+				queue.put(module, kind);
+			}
+		}
+	}
+
+	private static void add(IModule module, WorkKind kind, List<IModule> toRemove, List<IModule> toIndex,
+			List<IModule> toForce)
+	{
+		switch (kind)
+		{
+			case REMOVE:
+				toRemove.add(module);
+				break;
+			case FORCED_INDEX:
+				toForce.add(module);
+				break;
+			default:
+				toIndex.add(module);
+		}
+	}
+
+	/**
+	 * Returns the modules that are open in editors, together with the modules they include.
+	 * 
+	 * @return The priority modules.
+	 */
+	private Set<IModule> getPriorityModules()
+	{
+		List<IModule> roots;
+		int stamp;
+		synchronized (editorModules)
+		{
+			if (priorityModules != null)
+			{
+				return priorityModules;
+			}
+			roots = new ArrayList<IModule>(editorModules.keySet());
+			stamp = editorModulesStamp;
+		}
+		Set<IModule> result = new LinkedHashSet<IModule>(roots);
+		IElementsIndex index = indexer.getIndex();
+		LinkedList<IModule> toVisit = new LinkedList<IModule>(roots);
+		Set<IModule> visited = new HashSet<IModule>();
+		while (!toVisit.isEmpty() && result.size() < MAX_PRIORITY_MODULES)
+		{
+			IModule module = toVisit.removeFirst();
+			if (!visited.add(module))
+			{
+				continue;
+			}
+			IBuildPath buildPath = module.getBuildPath();
+			if (buildPath == null)
+			{
+				continue;
+			}
+			for (IElementEntry entry : index.getModuleEntries(module))
+			{
+				if (entry.getCategory() != IPHPIndexConstants.IMPORT_CATEGORY
+						|| !(entry.getValue() instanceof IncludePHPEntryValue))
+				{
+					continue;
+				}
+				String includePath = ((IncludePHPEntryValue) entry.getValue()).getIncludePath();
+				if (includePath == null || includePath.length() == 0)
+				{
+					continue;
+				}
+				try
+				{
+					Path path = new Path(includePath);
+					if (path.isAbsolute())
+					{
+						continue;
+					}
+					IModule included = buildPath.resolveRelativePath(module, path);
+					if (included != null && result.add(included))
+					{
+						toVisit.add(included);
+					}
+				}
+				catch (Exception e)
+				{
+					// skip unresolvable includes
+					PHPEditorPlugin.logError("Unable to resolve the include " + includePath, e); //$NON-NLS-1$
+				}
+			}
+		}
+		synchronized (editorModules)
+		{
+			// the editor modules might have changed while the closure was computed, in which case it's computed
+			// again on the next batch
+			if (stamp == editorModulesStamp)
+			{
+				priorityModules = result;
+			}
+		}
+		return result;
+	}
+}
@@ -42,12 +42,22 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.UnsupportedEncodingException;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
@@ -80,9 +90,17 @@ import com.aptana.editor.php.internal.core.builder.IBuildPathsListener;
 import com.aptana.editor.php.internal.core.builder.IDirectory;
 import com.aptana.editor.php.internal.core.builder.IModule;
 import com.aptana.editor.php.internal.indexer.ComplexIndex;
+import com.aptana.editor.php.internal.indexer.ContentHashUtils;
+import com.aptana.editor.php.internal.indexer.IModifiableElementsIndex;
 import com.aptana.editor.php.internal.indexer.IndexPersistence;
+import com.aptana.editor.php.internal.indexer.PHPDocumentationStore;
+import com.aptana.editor.php.internal.indexer.PrebuiltIndex;
 import com.aptana.editor.php.internal.indexer.UnpackedElementIndex;
+import com.aptana.editor.php.internal.indexer.UnpackedEntry;
 import com.aptana.editor.php.internal.indexer.language.PHPBuiltins;
+import com.aptana.editor.php.internal.metrics.IMetricsProvider;
+import com.aptana.editor.php.internal.metrics.PHPMetrics;
+import com.aptana.editor.php.util.EncodingUtils;
 
 /**
  * PHP global indexer.
@@ -98,7 +116,7 @@ public final class PHPGlobalIndexer
 
 	private static Mutex mutex = new Mutex();
 
-	private final class WrapIndexer implements IModuleIndexer, IProgramIndexer
+	private final class WrapIndexer implements IModuleIndexer, IProgramIndexer, IContentIndexer
 	{
 		private final IConfigurationElement element;
 		private IModuleIndexer indexer;
@@ -122,6 +140,25 @@ public final class PHPGlobalIndexer
 
 		}
 
+		public boolean indexModule(IModule module, byte[] contents, IIndexReporter reporter)
+		{
+			try
+			{
+				initIfNeeded();
+				if (indexer instanceof IContentIndexer)
+				{
+					return ((IContentIndexer) indexer).indexModule(module, contents, reporter);
+				}
+				indexer.indexModule(module, reporter);
+				return true;
+			}
+			catch (CoreException e)
+			{
+				PHPEditorPlugin.logError(e);
+				return false;
+			}
+		}
+
 		private void initIfNeeded() throws CoreException
 		{
 			if (indexer == null)
@@ -150,6 +187,11 @@ public final class PHPGlobalIndexer
 
 	private static final int SAVING_INTERVAL = 10000;
 
+	/**
+	 * Maximum number of build path indexes that are loaded in parallel on startup.
+	 */
+	private static final int MAX_LOADING_THREADS = 4;
+
 	Thread saverThread = new Thread()
 	{
 		public void run()
@@ -193,6 +235,11 @@ public final class PHPGlobalIndexer
 	 */
 	private static final String CLASS_ATTRIBUTE_NAME = "class"; //$NON-NLS-1$
 
+	/**
+	 * The family of the job that processes the indexing work. Join it to wait for the pending work to be indexed.
+	 */
+	public static final Object INDEXING_JOB_FAMILY = new Object();
+
 	/**
 	 * Indexer instance.
 	 */
@@ -213,12 +260,20 @@ public final class PHPGlobalIndexer
 	 */
 	private IBuildPathChangeListener buildPathChangeListener;
 
-	private HashSet<IIndexChangeListener> listeners = new HashSet<IIndexChangeListener>();
+	/**
+	 * Modules work queue.
+	 */
+	private final IndexingScheduler scheduler = new IndexingScheduler(this);
+
+	/**
+	 * Index change and module index listeners dispatcher.
+	 */
+	private final IndexEventDispatcher dispatcher = new IndexEventDispatcher(this);
 
 	/**
-	 * Module index listeners.
+	 * Module entries listeners.
 	 */
-	private HashSet<IModuleIndexListener> moduleIndexListeners = new HashSet<IModuleIndexListener>();
+	private HashSet<IModuleEntriesListener> moduleEntriesListeners = new HashSet<IModuleEntriesListener>();
 
 	/**
 	 * Gets indexer instance.
@@ -266,6 +321,27 @@ public final class PHPGlobalIndexer
 		});
 		collectModuleIndexersInfo();
 		initPersistence();
+		PHPMetrics.getInstance().addProvider(new IMetricsProvider()
+		{
+			public void collectGauges(Map<String, Long> gauges)
+			{
+				gauges.put(PHPMetrics.INDEXER_QUEUE_DEPTH, (long) scheduler.getPendingCount());
+				List<IBuildPath> paths;
+				synchronized (mainIndex)
+				{
+					paths = new ArrayList<IBuildPath>(mainIndex.getPaths());
+				}
+				for (IBuildPath path : paths)
+				{
+					IModifiableElementsIndex index = mainIndex.getElementIndex(path);
+					if (index instanceof UnpackedElementIndex)
+					{
+						gauges.put(PHPMetrics.INDEX_SIZE_PREFIX + path.getHandleIdentifier(),
+								(long) ((UnpackedElementIndex) index).size());
+					}
+				}
+			}
+		});
 		buildPathChangeListener = new IBuildPathChangeListener()
 		{
 			public void changedBefore(List<IModule> changed, List<IModule> removed, List<IDirectory> removedDirectories)
@@ -288,15 +364,14 @@ public final class PHPGlobalIndexer
 			{
 				for (IBuildPath path : removed)
 				{
+					scheduler.removeBuildPath(path);
 					path.removeBuildPathChangeListener(buildPathChangeListener);
 					mainIndex.removeIndex(path);
 					// if build path is passive, we need to initiate
 					// modules indexing manually
 					if (path.isPassive())
 					{
-						Job job = handleModulesRemoved(path.getModules());
-						job.setPriority(Job.BUILD);
-						job.schedule();
+						scheduler.enqueue(path.getModules(), IndexingScheduler.WorkKind.REMOVE);
 					}
 				}
 
@@ -306,12 +381,10 @@ public final class PHPGlobalIndexer
 					path.addBuildPathChangeListener(buildPathChangeListener);
 
 					// if build path is passive, we need to initiate
-					// modules indexing manually
+					// modules indexing manually (the indexing job loads its prebuilt index first)
 					if (path.isPassive())
 					{
-						Job job = handleModulesAdded(path.getModules());
-						job.setPriority(Job.BUILD);
-						job.schedule();
+						scheduler.enqueueBuildPath(path);
 					}
 				}
 			}
@@ -358,50 +431,39 @@ public final class PHPGlobalIndexer
 	}
 
 	/**
-	 * Handles removed modules.
+	 * Removes the given modules from the index. Called by the {@link IndexingScheduler}.
 	 * 
 	 * @param modules
 	 *            - modules.
-	 * @return job that is able to handle the removed modules.
+	 * @param monitor
 	 */
-	private Job handleModulesRemoved(final List<IModule> modules)
+	void removeModules(List<IModule> modules, IProgressMonitor monitor)
 	{
-		Job job = new Job(Messages.PHPGlobalIndexer_RemovingModuleIndex2)
+		long start = System.currentTimeMillis();
+		for (int i = 0; i < modules.size(); i++)
 		{
-			public IStatus run(IProgressMonitor monitor)
+			if (monitor.isCanceled())
 			{
-				long start = System.currentTimeMillis();
-				monitor.beginTask(Messages.PHPGlobalIndexer_RemovingModuleIndex2, modules.size());
-				fireChanged(modules.size());
-				for (int i = 0; i < modules.size(); i++)
-				{
-					if (monitor.isCanceled())
-					{
-						break;
-					}
-					IModule module = modules.get(i);
-					mainIndex.removeModuleEntries(module, module.getBuildPath());
-					monitor.worked(1);
-					UnpackedElementIndex elementIndex = (UnpackedElementIndex) mainIndex.getElementIndex(module
-							.getBuildPath());
-					if (elementIndex != null)
-					{
-						elementIndex.removeTimeStamp(module);
-					}
-				}
-				monitor.done();
-				markDirtyPathes(modules);
-				fireChanged(0);
-				if (PHPEditorPlugin.INDEXER_DEBUG)
-				{
-					System.out.println("Indexer handleModulesRemoved [took " + (System.currentTimeMillis() - start) //$NON-NLS-1$
-							+ "ms)"); //$NON-NLS-1$
-				}
-				return Status.OK_STATUS;
+				break;
 			}
-		};
-
-		return job;
+			IModule module = modules.get(i);
+			mainIndex.removeModuleEntries(module, module.getBuildPath());
+			PHPDocumentationStore.getInstance().removeModule(module);
+			monitor.worked(1);
+			UnpackedElementIndex elementIndex = (UnpackedElementIndex) mainIndex.getElementIndex(module.getBuildPath());
+			if (elementIndex != null)
+			{
+				elementIndex.removeTimeStamp(module);
+			}
+			PHPMetrics.getInstance().increment(PHPMetrics.INDEXER_REMOVED_MODULES, 1);
+		}
+		markDirtyPathes(modules);
+		fireEntriesChanged(modules);
+		if (PHPEditorPlugin.INDEXER_DEBUG)
+		{
+			System.out.println("Indexer removeModules [took " + (System.currentTimeMillis() - start) //$NON-NLS-1$
+					+ "ms)"); //$NON-NLS-1$
+		}
 	}
 
 	private void markDirtyPathes(final List<IModule> modules)
@@ -416,137 +478,128 @@ public final class PHPGlobalIndexer
 	}
 
 	/**
-	 * Handles changed modules.
+	 * Indexes the given modules. The previous entries of the modules are removed from the index first. Called by the
+	 * {@link IndexingScheduler}.
 	 * 
 	 * @param modules
 	 *            - modules.
-	 * @param resource
-	 *            - resource.
-	 * @return job that is able to handle the changed modules.
+	 * @param force
+	 *            - when false, modules which content hash matches the one recorded in the index only get their time
+	 *            stamp updated. The module contents are read once, and the same bytes are hashed and indexed.
+	 * @param monitor
 	 */
-	private Job handleModulesChanged(final List<IModule> modules)
+	void indexModules(List<IModule> modules, boolean force, IProgressMonitor monitor)
 	{
-
-		Job job = new Job(Messages.PHPGlobalIndexer_IndexChanged)
+		long start = System.currentTimeMillis();
+		List<IModule> indexed = new ArrayList<IModule>(modules.size());
+		for (int i = 0; i < modules.size(); i++)
 		{
-			public IStatus run(IProgressMonitor monitor)
+			if (monitor.isCanceled())
 			{
-				long start = System.currentTimeMillis();
-				monitor.beginTask(Messages.PHPGlobalIndexer_IndexChanged2, modules.size());
-				fireChanged(modules.size());
-				for (int i = 0; i < modules.size(); i++)
-				{
-					IModule module = modules.get(i);
-					long l = module.getTimeStamp();
-					mainIndex.removeModuleEntries(module, module.getBuildPath());
+				break;
+			}
+			IModule module = modules.get(i);
+			monitor.subTask(Messages.PHPGlobalIndexer_IndexNew + " - ../" + module.getShortName()); //$NON-NLS-1$
+			long l = module.getTimeStamp();
+			byte[] contents = null;
+			try
+			{
+				contents = ContentHashUtils.readContents(module);
+			}
+			catch (IOException e)
+			{
+				// the indexers read (and report) the module themselves
+			}
+			long hash = (contents != null) ? ContentHashUtils.computeHash(contents) : ContentHashUtils.UNKNOWN_HASH;
+			UnpackedElementIndex elementIndex = (UnpackedElementIndex) mainIndex.getElementIndex(module.getBuildPath());
+			if (!force && elementIndex != null && hash != ContentHashUtils.UNKNOWN_HASH
+					&& hash == elementIndex.getContentHash(module))
+			{
+				// only the time stamp was changed
+				elementIndex.recordTimeStamp(module, l);
+				PHPMetrics.getInstance().increment(PHPMetrics.INDEXER_SKIPPED_MODULES, 1);
+				monitor.worked(1);
+				continue;
+			}
+			mainIndex.removeModuleEntries(module, module.getBuildPath());
 
-					for (IModuleIndexer indexer : moduleIndexers)
-					{
-						if (monitor.isCanceled())
-						{
-							break;
-						}
-						indexer.indexModule(module, new IIndexReporter()
-						{
-							public IElementEntry reportEntry(int category, String entryPath, IReportable value,
-									IModule module)
-							{
-								return mainIndex.addEntry(category, entryPath, value, module, module.getBuildPath());
-							}
-						});
-					}
-					UnpackedElementIndex elementIndex = (UnpackedElementIndex) mainIndex.getElementIndex(module
-							.getBuildPath());
-					if (elementIndex != null)
-					{
-						elementIndex.recordTimeStamp(module, l);
-					}
-					if (monitor.isCanceled())
-					{
-						break;
-					}
-					monitor.worked(1);
+			IIndexReporter reporter = new IIndexReporter()
+			{
+				public IElementEntry reportEntry(int category, String entryPath, IReportable value, IModule module)
+				{
+					return mainIndex.addEntry(category, entryPath, value, module, module.getBuildPath());
 				}
-				fireChanged(0);
-				markDirtyPathes(modules);
-				monitor.done();
-				if (PHPEditorPlugin.INDEXER_DEBUG)
+			};
+			for (IModuleIndexer indexer : moduleIndexers)
+			{
+				if (contents != null && indexer instanceof IContentIndexer)
 				{
-					System.out.println("Indexer handleModulesChanged [took " + (System.currentTimeMillis() - start) //$NON-NLS-1$
-							+ "ms)"); //$NON-NLS-1$
+					((IContentIndexer) indexer).indexModule(module, contents, reporter);
+				}
+				else
+				{
+					indexer.indexModule(module, reporter);
 				}
-				return Status.OK_STATUS;
 			}
-		};
-
-		return job;
+			if (elementIndex != null)
+			{
+				elementIndex.recordTimeStamp(module, l);
+				elementIndex.recordContentHash(module, hash);
+			}
+			indexed.add(module);
+			monitor.worked(1);
+		}
+		markDirtyPathes(modules);
+		if (!indexed.isEmpty())
+		{
+			fireEntriesChanged(indexed);
+		}
+		if (PHPEditorPlugin.INDEXER_DEBUG)
+		{
+			System.out.println("Indexer indexModules [took " + (System.currentTimeMillis() - start) //$NON-NLS-1$
+					+ "ms)"); //$NON-NLS-1$
+		}
 	}
 
 	/**
-	 * Handles added modules.
+	 * Queues the given modules for indexing, even if their content did not change.
 	 * 
 	 * @param modules
 	 *            - modules.
-	 * @param monitor
-	 * @param resource
-	 *            - resource.
-	 * @return job that is able to handle the added modules.
 	 */
-	private Job handleModulesAdded(final List<IModule> modules)
+	public void reindex(List<IModule> modules)
 	{
+		scheduler.enqueue(modules, IndexingScheduler.WorkKind.FORCED_INDEX);
+	}
 
-		Job job = new Job(Messages.PHPGlobalIndexer_IndexNew)
+	/**
+	 * Marks the given module as open in an editor. The work queued for the editor modules, and for the modules they
+	 * include, is processed before any other queued work.
+	 * 
+	 * @param module
+	 *            - module.
+	 */
+	public void addEditorModule(IModule module)
+	{
+		if (module != null)
 		{
+			scheduler.addEditorModule(module);
+		}
+	}
 
-			public IStatus run(IProgressMonitor monitor)
-			{
-				long start = System.currentTimeMillis();
-				fireChanged(modules.size());
-				monitor.beginTask(Messages.PHPGlobalIndexer_IndexNew, modules.size());
-
-				for (int i = 0; i < modules.size(); i++)
-				{
-					if (monitor.isCanceled())
-					{
-						break;
-					}
-					IModule module = modules.get(i);
-					monitor.setTaskName(Messages.PHPGlobalIndexer_IndexNew + " - ../" + module.getShortName()); //$NON-NLS-1$
-
-					long l = module.getTimeStamp();
-					for (IModuleIndexer indexer : moduleIndexers)
-					{
-						indexer.indexModule(module, new IIndexReporter()
-						{
-							public IElementEntry reportEntry(int category, String entryPath, IReportable value,
-									IModule module)
-							{
-								return mainIndex.addEntry(category, entryPath, value, module, module.getBuildPath());
-							}
-						});
-					}
-					UnpackedElementIndex elementIndex = (UnpackedElementIndex) mainIndex.getElementIndex(module
-							.getBuildPath());
-					if (elementIndex != null)
-					{
-						elementIndex.recordTimeStamp(module, l);
-					}
-					monitor.worked(1);
-				}
-				monitor.done();
-				markDirtyPathes(modules);
-				fireChanged(0);
-				if (PHPEditorPlugin.INDEXER_DEBUG)
-				{
-					System.out.println("Indexer handleModulesAdded [took " + (System.currentTimeMillis() - start) //$NON-NLS-1$
-							+ "ms)"); //$NON-NLS-1$
-				}
-				return Status.OK_STATUS;
-			}
-
-		};
-
-		return job;
+	/**
+	 * Marks the given module as closed in an editor.
+	 * 
+	 * @param module
+	 *            - module.
+	 * @see #addEditorModule(IModule)
+	 */
+	public void removeEditorModule(IModule module)
+	{
+		if (module != null)
+		{
+			scheduler.removeEditorModule(module);
+		}
 	}
 
 	/**
@@ -614,7 +667,7 @@ public final class PHPGlobalIndexer
 			File indexFile = getIndexFile(p);
 			if (indexFile != null)
 			{
-				// long l0 = System.currentTimeMillis();
+				long start = System.nanoTime();
 				BufferedOutputStream stream = null;
 				try
 				{
@@ -631,8 +684,6 @@ public final class PHPGlobalIndexer
 				}
 				finally
 				{
-					// long l1 = System.currentTimeMillis();
-					// System.out.println("Saving:" + (l1 - l0));
 					if (stream != null)
 					{
 						try
@@ -644,12 +695,13 @@ public final class PHPGlobalIndexer
 							PHPEditorPlugin.logError(e);
 						}
 					}
+					PHPMetrics.getInstance().addTimeSince(PHPMetrics.INDEX_SAVE, start);
 				}
 			}
 		}
 	}
 
-	private File getIndexFile(IBuildPath p)
+	private synchronized File getIndexFile(IBuildPath p)
 	{
 		if (pathes == null)
 		{
@@ -743,113 +795,68 @@ public final class PHPGlobalIndexer
 	int modulesNum = 0;
 
 	/**
-	 * Indexes local modules.
+	 * Indexes local modules.<br>
+	 * The saved indexes of the build paths are loaded in parallel, and the build paths of the modules that are open in
+	 * editors are loaded first. Each index is published before it's loaded, and the modules become visible as soon
+	 * as they are read, so content assist does not have to wait for all the indexes to load.
 	 */
 	public void indexLocalModules()
 	{
 		Job initializator = new Job(Messages.PHPGlobalIndexer_initializinIndex)
 		{
-			protected IStatus run(IProgressMonitor monitor)
+			protected IStatus run(final IProgressMonitor monitor)
 			{
-
-				List<IBuildPath> paths = BuildPathManager.getInstance().getBuildPaths();
-				for (IBuildPath path : paths)
+				List<IBuildPath> paths = getLoadingOrder(BuildPathManager.getInstance().getBuildPaths());
+				if (paths.isEmpty())
 				{
-					if (monitor.isCanceled())
-					{
-						break;
-					}
-					final ArrayList<IModule> modules = new ArrayList<IModule>();
-					UnpackedElementIndex index = new UnpackedElementIndex();
-					boolean loaded = false;
-					File indexFile = getIndexFile(path);
-					if (indexFile.exists())
-					{
-						DataInputStream di = null;
-						try
-						{
-
-							di = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
-							try
-							{
-								IndexPersistence.load(index, di, path);
-								loaded = true;
-							}
-							catch (Exception e)
-							{
-								indexFile.delete();
-								if (!(e instanceof IOException))
-								{
-									e.printStackTrace();
-								}
+					return Status.OK_STATUS;
+				}
+				int threads = Math.min(paths.size(), Math.min(MAX_LOADING_THREADS, Runtime.getRuntime()
+						.availableProcessors()));
+				ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads), new ThreadFactory()
+				{
+					private int count;
 
-							}
-							di.close();
-						}
-						catch (Exception e1)
-						{
-							PHPEditorPlugin.logError(e1);
-							e1.printStackTrace();
-						}
-					}
-					if (monitor.isCanceled())
+					public Thread newThread(Runnable r)
 					{
-						break;
+						Thread thread = new Thread(r, "PHP Index Loader " + (++count)); //$NON-NLS-1$
+						thread.setDaemon(true);
+						return thread;
 					}
-					path.addBuildPathChangeListener(buildPathChangeListener);
-					modules.addAll(path.getModules());
-					if (!loaded)
-					{
-						mainIndex.addIndex(path, new UnpackedElementIndex());
-						Job addedJob = handleModulesAdded(modules);
-						addedJob.schedule();
-					}
-					else
+				});
+				List<Future<?>> results = new ArrayList<Future<?>>(paths.size());
+				for (final IBuildPath path : paths)
+				{
+					results.add(executor.submit(new Runnable()
 					{
-						mainIndex.addIndex(path, index);
-						ArrayList<IModule> changed = new ArrayList<IModule>();
-						List<IModule> asList = Arrays.asList(index.getAllModules());
-						HashSet<IModule> all = new HashSet<IModule>(asList);
-						for (IModule m : modules)
+						public void run()
 						{
-							if (monitor.isCanceled())
-							{
-								break;
-							}
-							if (all.contains(m))
+							if (!monitor.isCanceled())
 							{
-								long timeStamp = index.getTimeStamp(m);
-								long timeStamp2 = m.getTimeStamp();
-								if (timeStamp != timeStamp2)
-								{
-									changed.add(m);
-								}
+								loadLocalIndex(path, monitor);
 							}
 						}
-						if (!changed.isEmpty())
-						{
-							Job changedJob = handleModulesChanged(changed);
-							changedJob.setPriority(Job.BUILD);
-							changedJob.schedule();
-						}
-						all.removeAll(modules);
-						if (!all.isEmpty())
+					}));
+				}
+				executor.shutdown();
+				try
+				{
+					for (Future<?> result : results)
+					{
+						try
 						{
-							Job removedJob = handleModulesRemoved(new ArrayList<IModule>(all));
-							removedJob.setPriority(Job.BUILD);
-							removedJob.schedule();
+							result.get();
 						}
-						all = new HashSet<IModule>(modules);
-						all.removeAll(asList);
-
-						if (!all.isEmpty())
+						catch (ExecutionException e)
 						{
-							Job addedJob = handleModulesAdded(new ArrayList<IModule>(all));
-							addedJob.setPriority(Job.BUILD);
-							addedJob.schedule();
+							PHPEditorPlugin.logError(e.getCause());
 						}
 					}
-
+				}
+				catch (InterruptedException e)
+				{
+					executor.shutdownNow();
+					Thread.currentThread().interrupt();
 				}
 				return Status.OK_STATUS;
 			}
@@ -861,91 +868,217 @@ public final class PHPGlobalIndexer
 	}
 
 	/**
-	 * @param added
-	 * @param changed
-	 * @param removed
+	 * Returns the build paths in the order their indexes should be loaded: the build paths of the modules that are
+	 * open in editors come first.
+	 * 
+	 * @param paths
+	 * @return The ordered build paths.
 	 */
-	public void processChangedBefore(final List<IModule> changed, final List<IModule> removed,
-			final List<IDirectory> removedDirectories)
+	private List<IBuildPath> getLoadingOrder(List<IBuildPath> paths)
 	{
-		fireBeforeIndexing(changed, removed, removedDirectories);
+		Set<IBuildPath> result = new LinkedHashSet<IBuildPath>();
+		for (IModule module : scheduler.getEditorModules())
+		{
+			IBuildPath buildPath = module.getBuildPath();
+			if (buildPath != null && paths.contains(buildPath))
+			{
+				result.add(buildPath);
+			}
+		}
+		result.addAll(paths);
+		return new ArrayList<IBuildPath>(result);
 	}
 
 	/**
-	 * @param added
-	 * @param changed
-	 * @param removed
+	 * Loads the saved (or the prebuilt) index of the given build path, and queues the modules that changed since it was
+	 * saved. In case there is no index, all the build path modules are queued.
+	 * 
+	 * @param path
+	 *            - build path.
+	 * @param monitor
 	 */
-	public void processChangedAfter(final List<IModule> added, final List<IModule> changed, List<IModule> removed,
-			final List<IDirectory> addedDirectories, final List<IDirectory> removedDirectories)
+	private void loadLocalIndex(IBuildPath path, IProgressMonitor monitor)
 	{
+		final ArrayList<IModule> modules = new ArrayList<IModule>();
+		UnpackedElementIndex index = new UnpackedElementIndex();
+		boolean loaded = false;
+		File indexFile = getIndexFile(path);
+		if (indexFile.exists())
+		{
+			// publish the index, so the modules are available while the rest of the index is loaded
+			mainIndex.addIndex(path, index);
+			DataInputStream di = null;
+			try
+			{
 
-		final List<Job> jobs = new ArrayList<Job>();
-		final List<Integer> sizes = new ArrayList<Integer>();
+				di = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+				try
+				{
+					IndexPersistence.load(index, di, path);
+					loaded = true;
+				}
+				catch (Exception e)
+				{
+					indexFile.delete();
+					if (!(e instanceof IOException))
+					{
+						e.printStackTrace();
+					}
 
-		if (changed.size() != 0)
-		{
-			jobs.add(handleModulesChanged(changed));
-			sizes.add(changed.size());
+				}
+				di.close();
+			}
+			catch (Exception e1)
+			{
+				PHPEditorPlugin.logError(e1);
+				e1.printStackTrace();
+			}
 		}
-
-		if (added.size() != 0)
+		if (!loaded)
 		{
-			jobs.add(handleModulesAdded(added));
-			sizes.add(added.size());
+			UnpackedElementIndex prebuilt = loadPrebuiltIndex(path);
+			if (prebuilt != null)
+			{
+				index = prebuilt;
+				loaded = true;
+			}
 		}
-
-		if (removed.size() != 0)
+		if (monitor.isCanceled())
 		{
-			jobs.add(handleModulesRemoved(removed));
-			sizes.add(removed.size());
+			return;
 		}
-
-		int size = 0;
-		for (int i = 0; i < sizes.size(); i++)
+		path.addBuildPathChangeListener(buildPathChangeListener);
+		modules.addAll(path.getModules());
+		if (!loaded)
 		{
-			size += sizes.get(i);
+			// drop any partially loaded entries
+			mainIndex.addIndex(path, new UnpackedElementIndex());
+			scheduler.enqueue(modules, IndexingScheduler.WorkKind.INDEX);
 		}
-		final int summSize = size;
-		if (size != 0)
+		else
 		{
-			Job complexJob = new Job(Messages.PHPGlobalIndexer_PHP_Index)
+			mainIndex.addIndex(path, index);
+			ArrayList<IModule> changed = new ArrayList<IModule>();
+			List<IModule> asList = Arrays.asList(index.getAllModules());
+			HashSet<IModule> all = new HashSet<IModule>(asList);
+			for (IModule m : modules)
 			{
-
-				@Override
-				protected IStatus run(IProgressMonitor monitor)
+				if (monitor.isCanceled())
 				{
-					monitor.beginTask(Messages.PHPGlobalIndexer_PHP_Index2, summSize);
-
-					IProgressMonitor pgMonitor = getJobManager().createProgressGroup();
-					pgMonitor.setTaskName(Messages.PHPGlobalIndexer_PHP_Index);
-					for (int i = 0; i < jobs.size(); i++)
+					break;
+				}
+				if (all.contains(m))
+				{
+					long timeStamp = index.getTimeStamp(m);
+					long timeStamp2 = m.getTimeStamp();
+					if (timeStamp != timeStamp2)
 					{
-						if (monitor.isCanceled() || pgMonitor.isCanceled())
-						{
-							break;
-						}
-						Job job = jobs.get(i);
-						job.setProgressGroup(pgMonitor, sizes.get(i));
-						job.schedule();
-						try
-						{
-							job.join();
-						}
-						catch (InterruptedException e)
-						{
-						}
+						changed.add(m);
 					}
-					monitor.done();
-					pgMonitor.done();
-					fireChangeProcessed();
-					fireAfterIndexing(added, changed, addedDirectories);
-					return Status.OK_STATUS;
 				}
+			}
+			if (!changed.isEmpty())
+			{
+				// modules which content hash did not change only get their time stamp updated by the indexing
+				scheduler.enqueue(changed, IndexingScheduler.WorkKind.INDEX);
+			}
+			all.removeAll(modules);
+			if (!all.isEmpty())
+			{
+				scheduler.enqueue(new ArrayList<IModule>(all), IndexingScheduler.WorkKind.REMOVE);
+			}
+			all = new HashSet<IModule>(modules);
+			all.removeAll(asList);
 
-			};
-			complexJob.setPriority(Job.BUILD);
-			complexJob.schedule();
+			if (!all.isEmpty())
+			{
+				scheduler.enqueue(new ArrayList<IModule>(all), IndexingScheduler.WorkKind.INDEX);
+			}
+		}
+	}
+
+	/**
+	 * Initializes the index of a passive build path that was added. The prebuilt index of the build path is loaded (in
+	 * case there is one), and the build path modules are queued for indexing. Modules that match the prebuilt index
+	 * content are not indexed again. Called by the indexing job.
+	 * 
+	 * @param path
+	 *            - build path.
+	 */
+	void initPassiveBuildPath(IBuildPath path)
+	{
+		IModifiableElementsIndex current = mainIndex.getElementIndex(path);
+		if (current == null)
+		{
+			// removed meanwhile
+			return;
+		}
+		UnpackedElementIndex prebuilt = loadPrebuiltIndex(path);
+		if (prebuilt != null && !mainIndex.replaceIndex(path, current, prebuilt))
+		{
+			return;
+		}
+		scheduler.enqueue(path.getModules(), IndexingScheduler.WorkKind.INDEX);
+	}
+
+	/**
+	 * Loads the prebuilt index of the given build path, in case one was published to the prebuilt indexes directory.
+	 * The build path is marked for saving, so the index is stored locally from now on.
+	 * 
+	 * @param path
+	 *            - build path.
+	 * @return the loaded index, or null if there is no (valid) prebuilt index for the build path.
+	 * @see PrebuiltIndex
+	 */
+	private UnpackedElementIndex loadPrebuiltIndex(IBuildPath path)
+	{
+		File file = PrebuiltIndex.find(path);
+		if (file == null)
+		{
+			return null;
+		}
+		UnpackedElementIndex index = new UnpackedElementIndex();
+		try
+		{
+			PrebuiltIndex.load(index, path, file);
+		}
+		catch (IOException e)
+		{
+			PHPEditorPlugin.logError(MessageFormat.format("Unable to load the prebuilt index {0}", file), e); //$NON-NLS-1$
+			return null;
+		}
+		synchronized (needSaving)
+		{
+			needSaving.add(path);
+		}
+		return index;
+	}
+
+	/**
+	 * @param added
+	 * @param changed
+	 * @param removed
+	 */
+	public void processChangedBefore(final List<IModule> changed, final List<IModule> removed,
+			final List<IDirectory> removedDirectories)
+	{
+		fireBeforeIndexing(changed, removed, removedDirectories);
+	}
+
+	/**
+	 * Queues the given build path changes. The changes are coalesced with any other pending change, and the module
+	 * index listeners are notified once the queue is drained.
+	 * 
+	 * @param added
+	 * @param changed
+	 * @param removed
+	 */
+	public void processChangedAfter(final List<IModule> added, final List<IModule> changed, List<IModule> removed,
+			final List<IDirectory> addedDirectories, final List<IDirectory> removedDirectories)
+	{
+		if (added.size() + changed.size() + removed.size() != 0)
+		{
+			scheduler.enqueueChanges(added, changed, removed, addedDirectories);
 		}
 		else
 		{
@@ -956,9 +1089,24 @@ public final class PHPGlobalIndexer
 
 	public void processUnsavedModuleUpdate(Program program, IModule module)
 	{
+		processUnsavedModuleUpdate(program, module, null);
+	}
 
-		mainIndex.removeModuleEntries(module, module.getBuildPath());
-		UnpackedElementIndex elementIndex = (UnpackedElementIndex) mainIndex.getElementIndex(module.getBuildPath());
+	/**
+	 * Updates the index with the unsaved contents of a module. The module entries are replaced in a single operation,
+	 * and the index listeners are notified only when the module declarations changed.
+	 * 
+	 * @param program
+	 *            - the parsed unsaved contents.
+	 * @param module
+	 *            - module.
+	 * @param contents
+	 *            - the unsaved contents (may be null). When given, their hash is recorded, so the module is not indexed
+	 *            again once the same contents are saved.
+	 */
+	public void processUnsavedModuleUpdate(Program program, IModule module, String contents)
+	{
+		final List<UnpackedEntry> newEntries = new ArrayList<UnpackedEntry>();
 		for (IModuleIndexer indexer : moduleIndexers)
 		{
 			if (indexer instanceof IProgramIndexer)
@@ -967,45 +1115,82 @@ public final class PHPGlobalIndexer
 				{
 					public IElementEntry reportEntry(int category, String entryPath, IReportable value, IModule module)
 					{
-						return mainIndex.addEntry(category, entryPath, value, module, module.getBuildPath());
+						UnpackedEntry entry = new UnpackedEntry(category, entryPath, value, module);
+						newEntries.add(entry);
+						return entry;
 					}
 				});
 			}
 		}
-
+		boolean changed = false;
+		UnpackedElementIndex elementIndex = (UnpackedElementIndex) mainIndex.getElementIndex(module.getBuildPath());
 		if (elementIndex != null)
 		{
-			// reindex it later
-			elementIndex.recordTimeStamp(module, -1);
+			long hash = computeContentHash(module, contents);
+			// The entries and the time stamp are updated together, so an index that is being loaded sees the module
+			// as a whole and does not add its saved entries over it.
+			synchronized (elementIndex)
+			{
+				changed = elementIndex.replaceModuleEntries(module, newEntries);
+				// The index does not reflect the saved file anymore. The time stamp forces a check on the next save
+				// (or startup), and the hash of the unsaved contents lets that check skip the re-indexing when the
+				// same contents were saved.
+				elementIndex.recordTimeStamp(module, -1);
+				elementIndex.recordContentHash(module, hash);
+			}
+		}
+		// the entries values are updated in place, so the listeners are notified even when no declaration changed
+		fireEntriesChanged(Collections.singletonList(module));
+		if (changed)
+		{
+			fireChanged(0);
+			fireChangeProcessed();
 		}
-		fireChanged(0);
-		fireChangeProcessed();
 	}
 
 	/**
-	 * @param modulesLeft
+	 * Computes the hash of the given module contents, as they would be saved.
+	 * 
+	 * @param module
+	 * @param contents
+	 * @return The hash, or {@link ContentHashUtils#UNKNOWN_HASH}.
 	 */
-	protected synchronized void fireChanged(int modulesLeft)
+	private static long computeContentHash(IModule module, String contents)
 	{
-		for (IIndexChangeListener l : listeners)
+		if (contents == null)
 		{
-			l.stateChanged(modulesLeft == 0, MessageFormat.format(Messages.PHPGlobalIndexer_ModulesLeft, modulesLeft));
+			return ContentHashUtils.UNKNOWN_HASH;
+		}
+		try
+		{
+			return ContentHashUtils.computeHash(contents.getBytes(EncodingUtils.getModuleEncoding(module)));
+		}
+		catch (UnsupportedEncodingException e)
+		{
+			return ContentHashUtils.UNKNOWN_HASH;
 		}
 	}
 
 	/**
+	 * Queues an index state change notification. The notifications are merged and dispatched asynchronously.
+	 * 
 	 * @param modulesLeft
 	 */
-	protected synchronized void fireChangeProcessed()
+	protected void fireChanged(int modulesLeft)
 	{
-		for (IIndexChangeListener l : listeners)
-		{
-			l.changeProcessed();
-		}
+		dispatcher.fireChanged(modulesLeft);
+	}
+
+	/**
+	 * Queues a processed change notification. The notifications are merged and dispatched asynchronously.
+	 */
+	protected void fireChangeProcessed()
+	{
+		dispatcher.fireChangeProcessed();
 	}
 
 	/**
-	 * Fires changes.
+	 * Fires changes. The module index listeners are notified before this method returns.
 	 * 
 	 * @param changed
 	 *            - changed modules.
@@ -1014,20 +1199,11 @@ public final class PHPGlobalIndexer
 	 */
 	protected void fireBeforeIndexing(List<IModule> changed, List<IModule> removed, List<IDirectory> removedDirectories)
 	{
-		List<IModuleIndexListener> listeners = new ArrayList<IModuleIndexListener>();
-		synchronized (moduleIndexListeners)
-		{
-			listeners.addAll(moduleIndexListeners);
-		}
-
-		for (IModuleIndexListener listener : listeners)
-		{
-			listener.beforeIndexChange(changed, removed, removedDirectories);
-		}
+		dispatcher.fireBeforeIndexing(changed, removed, removedDirectories);
 	}
 
 	/**
-	 * Fires changes.
+	 * Fires changes. The changes are merged with the pending changes, and dispatched asynchronously.
 	 * 
 	 * @param added
 	 *            - added.
@@ -1036,32 +1212,23 @@ public final class PHPGlobalIndexer
 	 */
 	protected void fireAfterIndexing(List<IModule> added, List<IModule> changed, List<IDirectory> addedDirectories)
 	{
-		List<IModuleIndexListener> toNotify = new ArrayList<IModuleIndexListener>();
-		synchronized (moduleIndexListeners)
-		{
-			toNotify.addAll(moduleIndexListeners);
-		}
-
-		for (IModuleIndexListener listener : toNotify)
-		{
-			listener.afterIndexChange(added, changed, addedDirectories);
-		}
+		dispatcher.fireAfterIndexing(added, changed, addedDirectories);
 	}
 
 	/**
 	 * @param listener
 	 */
-	public synchronized void addListener(IIndexChangeListener listener)
+	public void addListener(IIndexChangeListener listener)
 	{
-		listeners.add(listener);
+		dispatcher.addListener(listener);
 	}
 
 	/**
 	 * @param listener
 	 */
-	public synchronized void removeListener(IIndexChangeListener listener)
+	public void removeListener(IIndexChangeListener listener)
 	{
-		listeners.remove(listener);
+		dispatcher.removeListener(listener);
 	}
 
 	/**
@@ -1069,20 +1236,75 @@ public final class PHPGlobalIndexer
 	 */
 	public void addListener(IModuleIndexListener listener)
 	{
-		synchronized (moduleIndexListeners)
+		dispatcher.addListener(listener, null);
+	}
+
+	/**
+	 * Adds a module index listener that is notified only about the modules that are accepted by the given filter.
+	 * 
+	 * @param listener
+	 * @param filter
+	 *            - the modules filter (may be null).
+	 */
+	public void addListener(IModuleIndexListener listener, IModuleIndexFilter filter)
+	{
+		dispatcher.addListener(listener, filter);
+	}
+
+	/**
+	 * @param listener
+	 */
+	public void removeListener(IModuleIndexListener listener)
+	{
+		dispatcher.removeListener(listener);
+	}
+
+	/**
+	 * Adds a module entries listener.
+	 * 
+	 * @param listener
+	 */
+	public void addModuleEntriesListener(IModuleEntriesListener listener)
+	{
+		synchronized (moduleEntriesListeners)
 		{
-			moduleIndexListeners.add(listener);
+			moduleEntriesListeners.add(listener);
 		}
 	}
 
 	/**
+	 * Removes a module entries listener.
+	 * 
 	 * @param listener
 	 */
-	public synchronized void removeListener(IModuleIndexListener listener)
+	public void removeModuleEntriesListener(IModuleEntriesListener listener)
+	{
+		synchronized (moduleEntriesListeners)
+		{
+			moduleEntriesListeners.remove(listener);
+		}
+	}
+
+	/**
+	 * Notifies the module entries listeners.
+	 * 
+	 * @param modules
+	 *            - the modules which entries were changed.
+	 */
+	private void fireEntriesChanged(List<IModule> modules)
 	{
-		synchronized (moduleIndexListeners)
+		List<IModuleEntriesListener> toNotify;
+		synchronized (moduleEntriesListeners)
+		{
+			if (moduleEntriesListeners.isEmpty())
+			{
+				return;
+			}
+			toNotify = new ArrayList<IModuleEntriesListener>(moduleEntriesListeners);
+		}
+		for (IModuleEntriesListener listener : toNotify)
 		{
-			moduleIndexListeners.remove(listener);
+			listener.entriesChanged(modules);
 		}
 	}
 
@@ -1140,12 +1362,10 @@ public final class PHPGlobalIndexer
 			BuildPathManager buildPathManager = BuildPathManager.getInstance();
 			final IBuildPath newBuildPath = buildPathManager.getBuildPathByResource(project);
 			mainIndex.addIndex(newBuildPath, new UnpackedElementIndex());
-			Job job = handleModulesAdded(newBuildPath.getModules());
-			job.setPriority(Job.BUILD);
-			job.schedule();
+			scheduler.enqueue(newBuildPath.getModules(), IndexingScheduler.WorkKind.INDEX);
 			try
 			{
-				job.join();
+				scheduler.join();
 			}
 			catch (InterruptedException e)
 			{
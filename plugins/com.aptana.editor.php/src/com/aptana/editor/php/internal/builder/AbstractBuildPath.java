@@ -91,6 +91,19 @@ public abstract class AbstractBuildPath implements IBuildPath
 		}
 	}
 
+	/**
+	 * Returns whether there are listeners attached to this build path.
+	 * 
+	 * @return True if there is at least one listener; False otherwise.
+	 */
+	protected boolean hasBuildPathChangeListeners()
+	{
+		synchronized (listeners)
+		{
+			return !listeners.isEmpty();
+		}
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -43,6 +43,11 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.eclipse.core.resources.IFolder;
 import org.eclipse.core.resources.IProject;
@@ -591,41 +596,60 @@ public final class BuildPathManager
 
 	private void indexLocalProjects(IWorkspace workspace)
 	{
-		// creating build path for each project
+		// creating build path for each project. The projects are scanned concurrently, and the build paths are
+		// registered by this thread once they are ready.
 		IWorkspaceRoot root = workspace.getRoot();
-		try
+		List<IProject> projects = new ArrayList<IProject>();
+		for (IProject project : root.getProjects())
 		{
-			root.accept(new IResourceVisitor()
+			// not visiting inaccessible resources
+			if (project.isAccessible() && !buildPaths.containsKey(project))
 			{
-				public boolean visit(IResource resource) throws CoreException
+				projects.add(project);
+			}
+		}
+		if (!projects.isEmpty())
+		{
+			int threads = Math.min(projects.size(), Math.max(1, Runtime.getRuntime().availableProcessors()));
+			ExecutorService executor = Executors.newFixedThreadPool(threads);
+			try
+			{
+				List<Future<IBuildPath>> futures = new ArrayList<Future<IBuildPath>>(projects.size());
+				for (final IProject project : projects)
 				{
-					// not visiting inaccessible resources
-					if (!resource.isAccessible())
+					futures.add(executor.submit(new Callable<IBuildPath>()
 					{
-						return false;
-					}
-
-					if (resource instanceof IProject)
+						public IBuildPath call() throws Exception
+						{
+							return createBuildPathByResource(project);
+						}
+					}));
+				}
+				for (int i = 0; i < projects.size(); i++)
+				{
+					try
 					{
-						if (!buildPaths.containsKey(resource))
+						IBuildPath path = futures.get(i).get();
+						if (path != null)
 						{
-							IBuildPath path = createBuildPathByResource(resource);
-							if (path != null)
-							{
-								buildPaths.put(resource, path);
-							}
+							buildPaths.put(projects.get(i), path);
 						}
-						return false;
 					}
-
-					return true;
+					catch (ExecutionException e)
+					{
+						PHPEditorPlugin.logError(e.getCause());
+					}
+					catch (InterruptedException e)
+					{
+						Thread.currentThread().interrupt();
+						break;
+					}
 				}
-
-			});
-		}
-		catch (CoreException e)
-		{
-			PHPEditorPlugin.logError(e);
+			}
+			finally
+			{
+				executor.shutdown();
+			}
 		}
 
 		updateProjectsDependencies(root);
@@ -37,13 +37,17 @@ package com.aptana.editor.php.internal.builder;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.Path;
 
 import com.aptana.editor.php.PHPEditorPlugin;
+import com.aptana.editor.php.internal.core.builder.IBuildPathChangeListener;
 import com.aptana.editor.php.internal.core.builder.IBuildPathResource;
 import com.aptana.editor.php.internal.core.builder.IDirectory;
 import com.aptana.editor.php.internal.core.builder.IModule;
@@ -63,12 +67,24 @@ public class FileSystemBuildPath extends AbstractBuildPath
 	/**
 	 * Modules.
 	 */
-	private Map<File, IModule> modules = new HashMap<File, IModule>();
+	private Map<File, IModule> modules = new ConcurrentHashMap<File, IModule>();
 
 	/**
 	 * Modules.
 	 */
-	private Map<File, IDirectory> directories = new HashMap<File, IDirectory>();
+	private Map<File, IDirectory> directories = new ConcurrentHashMap<File, IDirectory>();
+
+	/**
+	 * The last known modification time of the modules files.
+	 */
+	private Map<File, Long> moduleStamps = new ConcurrentHashMap<File, Long>();
+
+	/**
+	 * The last known modification time of the directories. A directory modification time changes when entries are
+	 * added to it or removed from it, so only directories that have a new time stamp are listed again when checking for
+	 * changes.
+	 */
+	private Map<File, Long> directoryStamps = new ConcurrentHashMap<File, Long>();
 
 	/**
 	 * FileSystemBuildPath constructor.
@@ -87,6 +103,32 @@ public class FileSystemBuildPath extends AbstractBuildPath
 	 */
 	public void close()
 	{
+		FileSystemBuildPathWatcher.getInstance().unwatch(this);
+	}
+
+	/**
+	 * {@inheritDoc}<br>
+	 * The build path is watched for file system changes while there are listeners attached to it.
+	 */
+	@Override
+	public void addBuildPathChangeListener(IBuildPathChangeListener listener)
+	{
+		super.addBuildPathChangeListener(listener);
+		FileSystemBuildPathWatcher.getInstance().watch(this);
+	}
+
+	/**
+	 * {@inheritDoc}<br>
+	 * The build path is no longer watched once its last listener is removed.
+	 */
+	@Override
+	public synchronized void removeBuildPathChangeListener(IBuildPathChangeListener listener)
+	{
+		super.removeBuildPathChangeListener(listener);
+		if (!hasBuildPathChangeListeners())
+		{
+			FileSystemBuildPathWatcher.getInstance().unwatch(this);
+		}
 	}
 
 	/**
@@ -299,7 +341,27 @@ public class FileSystemBuildPath extends AbstractBuildPath
 			return;
 		}
 		long timeMillis = System.currentTimeMillis();
-		addResourcesRecursively(file);
+		ParallelDirectoryWalker.walk(file, new ParallelDirectoryWalker.IFileVisitor()
+		{
+			public boolean visit(File child)
+			{
+				// the name checks come first, so most entries cost a single file system access
+				String name = child.getName();
+				if (PHPFileSystemModuleFactory.isModuleName(name) && child.isFile())
+				{
+					modules.put(child, new FileSystemModule(child, FileSystemBuildPath.this));
+					moduleStamps.put(child, child.lastModified());
+					return false;
+				}
+				if (FolderFilteringManager.acceptFolderName(name) && child.isDirectory())
+				{
+					directories.put(child, new FileSystemDirectory(child, FileSystemBuildPath.this));
+					directoryStamps.put(child, child.lastModified());
+					return true;
+				}
+				return false;
+			}
+		});
 		if (PHPEditorPlugin.DEBUG)
 		{
 			System.out.println("FileSystemBuildPath.collectInitialResources(" + file.getName() + ") -> " //$NON-NLS-1$ //$NON-NLS-2$
@@ -308,12 +370,16 @@ public class FileSystemBuildPath extends AbstractBuildPath
 	}
 
 	/**
-	 * Adds resources recursively.
+	 * Adds resources recursively, and collects the added modules and directories.
 	 * 
 	 * @param inputFile
 	 *            - file to handle.
+	 * @param addedModules
+	 *            - list to collect the added modules into (may be null).
+	 * @param addedDirectories
+	 *            - list to collect the added directories into (may be null).
 	 */
-	private void addResourcesRecursively(File inputFile)
+	private void addResourcesRecursively(File inputFile, List<IModule> addedModules, List<IDirectory> addedDirectories)
 	{
 		if (inputFile.isFile())
 		{
@@ -321,25 +387,178 @@ public class FileSystemBuildPath extends AbstractBuildPath
 			if (module != null)
 			{
 				modules.put(inputFile, module);
+				moduleStamps.put(inputFile, inputFile.lastModified());
+				if (addedModules != null)
+				{
+					addedModules.add(module);
+				}
 			}
 		}
 		else if (inputFile.isDirectory())
 		{
 			if (FolderFilteringManager.acceptFolder(inputFile))
 			{
-				directories.put(inputFile, new FileSystemDirectory(inputFile, this));
+				FileSystemDirectory directory = new FileSystemDirectory(inputFile, this);
+				directories.put(inputFile, directory);
+				directoryStamps.put(inputFile, inputFile.lastModified());
+				if (addedDirectories != null)
+				{
+					addedDirectories.add(directory);
+				}
 				File[] listFiles = inputFile.listFiles();
 				if (listFiles != null)
 				{
 					for (File child : listFiles)
 					{
-						addResourcesRecursively(child);
+						addResourcesRecursively(child, addedModules, addedDirectories);
 					}
 				}
 			}
 		}
 	}
 
+	/**
+	 * Checks the file system for changes since the last check, and notifies the build path listeners about the added,
+	 * changed and removed modules and directories.<br>
+	 * Directories are listed again only when their own modification time changed (which happens when a direct child is
+	 * added, removed or renamed, and so also when a file is saved by writing a new file over it). A quick check only
+	 * looks for a modification time change of the modules in these directories; a full check also looks at all the
+	 * other known modules, to catch files that were rewritten in place.
+	 * 
+	 * @param fullCheck
+	 *            - whether to check the modification time of all the known modules.
+	 * @return True if a change was found; False otherwise.
+	 */
+	synchronized boolean checkForChanges(boolean fullCheck)
+	{
+		if (!file.exists())
+		{
+			// The root might be temporarily unavailable (e.g. an unmounted network drive). Keep the current state.
+			return false;
+		}
+		List<IModule> added = new ArrayList<IModule>();
+		List<IModule> changed = new ArrayList<IModule>();
+		List<IModule> removed = new ArrayList<IModule>();
+		List<IDirectory> addedDirectories = new ArrayList<IDirectory>();
+		List<IDirectory> removedDirectories = new ArrayList<IDirectory>();
+
+		// directories that had a direct child added or removed
+		List<File> changedDirectories = new ArrayList<File>();
+		Set<File> removedDirectoryFiles = new HashSet<File>();
+		for (Map.Entry<File, Long> entry : directoryStamps.entrySet())
+		{
+			File directory = entry.getKey();
+			if (!directory.isDirectory())
+			{
+				removedDirectoryFiles.add(directory);
+			}
+			else if (directory.lastModified() != entry.getValue())
+			{
+				changedDirectories.add(directory);
+			}
+		}
+
+		// changed modules
+		Map<File, Long> newModuleStamps = new HashMap<File, Long>();
+		if (fullCheck || !changedDirectories.isEmpty())
+		{
+			Set<File> checkedDirectories = fullCheck ? null : new HashSet<File>(changedDirectories);
+			for (Map.Entry<File, Long> entry : moduleStamps.entrySet())
+			{
+				File moduleFile = entry.getKey();
+				if (checkedDirectories != null && !checkedDirectories.contains(moduleFile.getParentFile()))
+				{
+					continue;
+				}
+				long lastModified = moduleFile.lastModified();
+				if (lastModified != 0L && lastModified != entry.getValue())
+				{
+					changed.add(modules.get(moduleFile));
+					newModuleStamps.put(moduleFile, lastModified);
+				}
+			}
+		}
+
+		// removed files (a removed file always changes, or removes, its parent directory)
+		Set<File> removedModuleFiles = new HashSet<File>();
+		if (!changedDirectories.isEmpty() || !removedDirectoryFiles.isEmpty())
+		{
+			Set<File> affectedDirectories = new HashSet<File>(changedDirectories);
+			affectedDirectories.addAll(removedDirectoryFiles);
+			for (File moduleFile : modules.keySet())
+			{
+				if (affectedDirectories.contains(moduleFile.getParentFile()) && !moduleFile.isFile())
+				{
+					removedModuleFiles.add(moduleFile);
+				}
+			}
+		}
+		for (File moduleFile : removedModuleFiles)
+		{
+			removed.add(modules.get(moduleFile));
+			newModuleStamps.remove(moduleFile);
+			changed.remove(modules.get(moduleFile));
+		}
+		for (File directory : removedDirectoryFiles)
+		{
+			removedDirectories.add(directories.get(directory));
+		}
+
+		if (changed.isEmpty() && removed.isEmpty() && removedDirectories.isEmpty() && changedDirectories.isEmpty())
+		{
+			return false;
+		}
+
+		if (!changed.isEmpty() || !removed.isEmpty() || !removedDirectories.isEmpty())
+		{
+			notifyChangedBefore(changed, removed, removedDirectories);
+		}
+
+		for (File moduleFile : removedModuleFiles)
+		{
+			modules.remove(moduleFile);
+			moduleStamps.remove(moduleFile);
+		}
+		for (File directory : removedDirectoryFiles)
+		{
+			directories.remove(directory);
+			directoryStamps.remove(directory);
+		}
+		moduleStamps.putAll(newModuleStamps);
+
+		// new children of the changed directories
+		for (File directory : changedDirectories)
+		{
+			directoryStamps.put(directory, directory.lastModified());
+			File[] listFiles = directory.listFiles();
+			if (listFiles == null)
+			{
+				continue;
+			}
+			for (File child : listFiles)
+			{
+				if (!modules.containsKey(child) && !directories.containsKey(child))
+				{
+					addResourcesRecursively(child, added, addedDirectories);
+				}
+			}
+		}
+
+		if (PHPEditorPlugin.DEBUG)
+		{
+			System.out.println("FileSystemBuildPath.checkForChanges(" + file.getName() + ") -> added: " //$NON-NLS-1$ //$NON-NLS-2$
+					+ added.size() + ", changed: " + changed.size() + ", removed: " + removed.size()); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		if (added.isEmpty() && changed.isEmpty() && removed.isEmpty() && addedDirectories.isEmpty()
+				&& removedDirectories.isEmpty())
+		{
+			// only directory time stamps changed
+			return false;
+		}
+		notifyChangedAfter(added, changed, removed, addedDirectories, removedDirectories);
+		return true;
+	}
+
 	public String getHandleIdentifier()
 	{
 		return file.getAbsolutePath();
@@ -0,0 +1,188 @@
+/**
+ * This file Copyright (c) 2005-2008 Aptana, Inc. This program is
+ * dual-licensed under both the Aptana Public License and the GNU General
+ * Public license. You may elect to use one or the other of these licenses.
+ * 
+ * This program is distributed in the hope that it will be useful, but
+ * AS-IS and WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE, TITLE, or
+ * NONINFRINGEMENT. Redistribution, except as permitted by whichever of
+ * the GPL or APL you select, is prohibited.
+ *
+ * 1. For the GPL license (GPL), you can redistribute and/or modify this
+ * program under the terms of the GNU General Public License,
+ * Version 3, as published by the Free Software Foundation.  You should
+ * have received a copy of the GNU General Public License, Version 3 along
+ * with this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Aptana provides a special exception to allow redistribution of this file
+ * with certain other free and open source software ("FOSS") code and certain additional terms
+ * pursuant to Section 7 of the GPL. You may view the exception and these
+ * terms on the web at http://www.aptana.com/legal/gpl/.
+ * 
+ * 2. For the Aptana Public License (APL), this program and the
+ * accompanying materials are made available under the terms of the APL
+ * v1.0 which accompanies this distribution, and is available at
+ * http://www.aptana.com/legal/apl/.
+ * 
+ * You may view the GPL, Aptana's exception and additional terms, and the
+ * APL in the file titled license.html at the root of the corresponding
+ * plugin containing this source file.
+ * 
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.editor.php.internal.builder;
+
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+import com.aptana.editor.php.PHPEditorPlugin;
+import com.aptana.editor.php.core.CorePreferenceConstants;
+import com.aptana.editor.php.core.CorePreferenceConstants.Keys;
+
+/**
+ * Polls the watched {@link FileSystemBuildPath}s for file system changes, so edits in external libraries are picked up
+ * without a manual clean of the libraries.<br>
+ * Most polls only look at the directories modification times (and at the modules of the directories that changed);
+ * every few polls all the known modules are checked. The polling interval is the
+ * {@link Keys#EXTERNAL_LIBRARIES_POLLING_INTERVAL} preference, and it grows while nothing changes. The polling thread
+ * runs only while there are watched build paths (build paths with listeners).
+ * 
+ * @see FileSystemBuildPath#checkForChanges(boolean)
+ */
+final class FileSystemBuildPathWatcher
+{
+	/**
+	 * The maximal factor the polling interval grows by while nothing changes.
+	 */
+	private static final int MAX_BACKOFF = 8;
+
+	/**
+	 * The number of polls between two checks of all the known modules.
+	 */
+	private static final int FULL_CHECK_POLLS = 6;
+
+	private static FileSystemBuildPathWatcher instance;
+
+	private final Set<FileSystemBuildPath> buildPaths = new CopyOnWriteArraySet<FileSystemBuildPath>();
+	private Thread pollingThread;
+
+	/**
+	 * Returns the watcher instance.
+	 * 
+	 * @return FileSystemBuildPathWatcher
+	 */
+	static synchronized FileSystemBuildPathWatcher getInstance()
+	{
+		if (instance == null)
+		{
+			instance = new FileSystemBuildPathWatcher();
+		}
+		return instance;
+	}
+
+	private FileSystemBuildPathWatcher()
+	{
+	}
+
+	/**
+	 * Starts watching the given build path.
+	 * 
+	 * @param buildPath
+	 */
+	void watch(FileSystemBuildPath buildPath)
+	{
+		buildPaths.add(buildPath);
+		startPolling();
+	}
+
+	/**
+	 * Stops watching the given build path. The polling thread stops once no build path is watched.
+	 * 
+	 * @param buildPath
+	 */
+	void unwatch(FileSystemBuildPath buildPath)
+	{
+		buildPaths.remove(buildPath);
+	}
+
+	/**
+	 * Returns the polling interval preference.
+	 * 
+	 * @return The interval in milliseconds, or 0 when the polling is disabled.
+	 */
+	private static long getPollingInterval()
+	{
+		PHPEditorPlugin plugin = PHPEditorPlugin.getDefault();
+		if (plugin == null)
+		{
+			return 0L;
+		}
+		int seconds = CorePreferenceConstants.getPreferenceStore().getInt(Keys.EXTERNAL_LIBRARIES_POLLING_INTERVAL);
+		return Math.max(0, seconds) * 1000L;
+	}
+
+	/**
+	 * Marks the polling thread as stopped, in case there is nothing left to poll.
+	 * 
+	 * @return True if the polling thread should stop; False otherwise.
+	 */
+	private synchronized boolean stopIfIdle()
+	{
+		if (buildPaths.isEmpty() || getPollingInterval() == 0L)
+		{
+			pollingThread = null;
+			return true;
+		}
+		return false;
+	}
+
+	private synchronized void startPolling()
+	{
+		if (pollingThread != null || buildPaths.isEmpty() || getPollingInterval() == 0L)
+		{
+			return;
+		}
+		pollingThread = new Thread("PHP External Libraries Watcher") //$NON-NLS-1$
+		{
+			public void run()
+			{
+				int backoff = 1;
+				int polls = 0;
+				while (!stopIfIdle())
+				{
+					try
+					{
+						Thread.sleep(getPollingInterval() * backoff);
+					}
+					catch (InterruptedException e)
+					{
+						synchronized (FileSystemBuildPathWatcher.this)
+						{
+							pollingThread = null;
+						}
+						return;
+					}
+					boolean fullCheck = (++polls % FULL_CHECK_POLLS) == 0;
+					boolean changed = false;
+					for (FileSystemBuildPath buildPath : buildPaths)
+					{
+						try
+						{
+							changed |= buildPath.checkForChanges(fullCheck);
+						}
+						catch (Throwable th)
+						{
+							PHPEditorPlugin.logError("Error while checking the external library for changes", th); //$NON-NLS-1$
+						}
+					}
+					backoff = changed ? 1 : Math.min(MAX_BACKOFF, backoff * 2);
+				}
+			}
+		};
+		pollingThread.setDaemon(true);
+		pollingThread.setPriority(Thread.MIN_PRIORITY);
+		pollingThread.start();
+	}
+}
@@ -61,16 +61,7 @@ public class FolderFilteringManager
 	 */
 	public static boolean acceptFolder(IFolder folder)
 	{
-		String folderName = folder.getName();
-		for (String toSkip : namesToSkip)
-		{
-			if (folderName.toLowerCase().equals(toSkip))
-			{
-				return false;
-			}
-		}
-
-		return true;
+		return acceptFolderName(folder.getName());
 	}
 
 	/**
@@ -86,10 +77,21 @@ public class FolderFilteringManager
 			return false;
 		}
 
-		String folderName = folder.getName();
+		return acceptFolderName(folder.getName());
+	}
+
+	/**
+	 * Gets whether a folder with the given name is acceptable. This check does not access the file system.
+	 * 
+	 * @param folderName
+	 *            - folder name to check.
+	 */
+	public static boolean acceptFolderName(String folderName)
+	{
+		String lowerCaseName = folderName.toLowerCase();
 		for (String toSkip : namesToSkip)
 		{
-			if (folderName.toLowerCase().equals(toSkip))
+			if (lowerCaseName.equals(toSkip))
 			{
 				return false;
 			}
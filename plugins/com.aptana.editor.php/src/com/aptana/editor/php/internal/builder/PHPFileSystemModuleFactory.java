@@ -86,16 +86,8 @@ public final class PHPFileSystemModuleFactory
 		if (resource.exists() && resource.isFile())
 		{
 			String name = resource.getName();
-			if (contentType.isAssociatedWith(name))
+			if (isModuleName(name))
 			{
-				// Ignore compiled Smarty files
-				if (name.startsWith(COMPILED_SMARTY_PREFIX))
-				{
-					if (name.matches(COMPILED_SMARTY_REGEX))
-					{
-						return null;
-					}
-				}
 				// This should catch all the PHP associated file-types
 				return new FileSystemModule(resource, buildPath);
 			}
@@ -119,6 +111,27 @@ public final class PHPFileSystemModuleFactory
 		return null;
 	}
 
+	/**
+	 * Gets whether a file with the given name should be a PHP module. This check does not access the file system.
+	 * 
+	 * @param name
+	 *            - file name.
+	 * @return true if the name is associated with the PHP content type, and is not a compiled Smarty file name.
+	 */
+	public static boolean isModuleName(String name)
+	{
+		if (!contentType.isAssociatedWith(name))
+		{
+			return false;
+		}
+		// Ignore compiled Smarty files
+		if (name.startsWith(COMPILED_SMARTY_PREFIX) && name.matches(COMPILED_SMARTY_REGEX))
+		{
+			return false;
+		}
+		return true;
+	}
+
 	/**
 	 * PHPModuleFactory private constructor.
 	 */
@@ -138,7 +138,7 @@ public final class PHPLocalModuleFactory
 	 *            - file name.
 	 * @return true if file extension is a valid PHP extension, false otherwise.
 	 */
-	private static boolean hasValidExtension(String fileName)
+	static boolean hasValidExtension(String fileName)
 	{
 		IContentTypeManager manager = Platform.getContentTypeManager();
 		IContentType type = manager.getContentType(PHP_CONTENT_TYPE);
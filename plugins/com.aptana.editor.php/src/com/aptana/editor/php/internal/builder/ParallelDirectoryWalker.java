@@ -0,0 +1,173 @@
+/**
+ * This file Copyright (c) 2005-2008 Aptana, Inc. This program is
+ * dual-licensed under both the Aptana Public License and the GNU General
+ * Public license. You may elect to use one or the other of these licenses.
+ * 
+ * This program is distributed in the hope that it will be useful, but
+ * AS-IS and WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE, TITLE, or
+ * NONINFRINGEMENT. Redistribution, except as permitted by whichever of
+ * the GPL or APL you select, is prohibited.
+ *
+ * 1. For the GPL license (GPL), you can redistribute and/or modify this
+ * program under the terms of the GNU General Public License,
+ * Version 3, as published by the Free Software Foundation.  You should
+ * have received a copy of the GNU General Public License, Version 3 along
+ * with this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Aptana provides a special exception to allow redistribution of this file
+ * with certain other free and open source software ("FOSS") code and certain additional terms
+ * pursuant to Section 7 of the GPL. You may view the exception and these
+ * terms on the web at http://www.aptana.com/legal/gpl/.
+ * 
+ * 2. For the Aptana Public License (APL), this program and the
+ * accompanying materials are made available under the terms of the APL
+ * v1.0 which accompanies this distribution, and is available at
+ * http://www.aptana.com/legal/apl/.
+ * 
+ * You may view the GPL, Aptana's exception and additional terms, and the
+ * APL in the file titled license.html at the root of the corresponding
+ * plugin containing this source file.
+ * 
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.editor.php.internal.builder;
+
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.aptana.editor.php.PHPEditorPlugin;
+
+/**
+ * Walks a directory tree using several threads. Every sub-directory listing is a separate task, so wide trees (and
+ * slow network file systems) are listed concurrently.
+ */
+final class ParallelDirectoryWalker
+{
+	private static final int THREADS = Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors() * 2));
+
+	/**
+	 * A visitor that is called for every file and directory in the walked tree. The visitor is called concurrently
+	 * from several threads.
+	 */
+	interface IFileVisitor
+	{
+		/**
+		 * Visits a file or a directory.
+		 * 
+		 * @param file
+		 * @return true if the given file is a directory that should be walked into; false otherwise.
+		 */
+		boolean visit(File file);
+	}
+
+	private final IFileVisitor visitor;
+	private final AtomicInteger pending = new AtomicInteger();
+	private final CountDownLatch done = new CountDownLatch(1);
+	private ExecutorService executor;
+
+	/**
+	 * Walks the tree that starts at the given root, and returns when the walk is done.
+	 * 
+	 * @param root
+	 * @param visitor
+	 */
+	static void walk(File root, IFileVisitor visitor)
+	{
+		new ParallelDirectoryWalker(visitor).walk(root);
+	}
+
+	private ParallelDirectoryWalker(IFileVisitor visitor)
+	{
+		this.visitor = visitor;
+	}
+
+	private void walk(File root)
+	{
+		if (!visitor.visit(root))
+		{
+			return;
+		}
+		executor = Executors.newFixedThreadPool(THREADS, new ThreadFactory()
+		{
+			public Thread newThread(Runnable r)
+			{
+				Thread thread = new Thread(r, "PHP Build Path Discovery"); //$NON-NLS-1$
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		try
+		{
+			submit(root);
+			done.await();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+	}
+
+	private void submit(final File directory)
+	{
+		pending.incrementAndGet();
+		try
+		{
+			executor.execute(new Runnable()
+			{
+				public void run()
+				{
+					try
+					{
+						list(directory);
+					}
+					catch (Throwable th)
+					{
+						PHPEditorPlugin.logError("Error while listing " + directory, th); //$NON-NLS-1$
+					}
+					finally
+					{
+						if (pending.decrementAndGet() == 0)
+						{
+							done.countDown();
+						}
+					}
+				}
+			});
+		}
+		catch (RejectedExecutionException e)
+		{
+			// the walk was interrupted
+			if (pending.decrementAndGet() == 0)
+			{
+				done.countDown();
+			}
+		}
+	}
+
+	private void list(File directory)
+	{
+		File[] children = directory.listFiles();
+		if (children == null)
+		{
+			return;
+		}
+		for (File child : children)
+		{
+			if (visitor.visit(child))
+			{
+				submit(child);
+			}
+		}
+	}
+}
@@ -49,7 +49,8 @@ import org.eclipse.core.resources.IResourceChangeEvent;
 import org.eclipse.core.resources.IResourceChangeListener;
 import org.eclipse.core.resources.IResourceDelta;
 import org.eclipse.core.resources.IResourceDeltaVisitor;
-import org.eclipse.core.resources.IResourceVisitor;
+import org.eclipse.core.resources.IResourceProxy;
+import org.eclipse.core.resources.IResourceProxyVisitor;
 import org.eclipse.core.resources.IWorkspace;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
@@ -649,47 +650,43 @@ public class ProjectBuildPath extends AbstractBuildPath
 	{
 		try
 		{
-			project.accept(new IResourceVisitor()
+			// A proxy visitor does not create a resource handle for every visited member. Handles are requested only
+			// for the PHP modules and the folders. As before, all the project folders are collected on the initial
+			// walk (the FolderFilteringManager names are only skipped for resource deltas).
+			project.accept(new IResourceProxyVisitor()
 			{
-				public boolean visit(IResource resource) throws CoreException
+				public boolean visit(IResourceProxy proxy) throws CoreException
 				{
 					// ignoring inaccessible resources
-					if (!resource.isAccessible())
+					if (!proxy.isAccessible())
 					{
 						return false;
 					}
 
-					if (resource instanceof IProject)
+					switch (proxy.getType())
 					{
-						if (!resource.equals(project))
-						{
+						case IResource.PROJECT:
+							return proxy.requestResource().equals(project);
+						case IResource.FOLDER:
+							IFolder folder = (IFolder) proxy.requestResource();
+							directories.put(folder, new LocalDirectory(folder, ProjectBuildPath.this));
+							return true;
+						case IResource.FILE:
+							if (PHPLocalModuleFactory.hasValidExtension(proxy.getName()))
+							{
+								IResource resource = proxy.requestResource();
+								IModule module = PHPLocalModuleFactory.getModule(resource, ProjectBuildPath.this);
+								if (module != null)
+								{
+									modules.put((IFile) resource, module);
+								}
+							}
+							return false;
+						default:
 							return false;
-						}
-					}
-
-					if (!resource.getProject().equals(project))
-					{
-						return false;
-					}
-
-					if (resource instanceof IFile)
-					{
-						IModule module = PHPLocalModuleFactory.getModule(resource, ProjectBuildPath.this);
-						if (module != null)
-						{
-							modules.put((IFile) resource, module);
-						}
-					}
-					else if (resource instanceof IFolder)
-					{
-						IDirectory dir = new LocalDirectory((IFolder) resource, ProjectBuildPath.this);
-						directories.put((IFolder) resource, dir);
 					}
-
-					return true;
 				}
-
-			});
+			}, IResource.NONE);
 		}
 		catch (CoreException e)
 		{
@@ -0,0 +1,135 @@
+/**
+ * Copyright (c) 2005-2006 Aptana, Inc.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html. If redistributing this code,
+ * this entire header must remain intact.
+ */
+package com.aptana.editor.php.internal.contentAssist;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+import com.aptana.editor.php.internal.parser.nodes.IPHPParseNode;
+
+/**
+ * An immutable table of PHP built-ins, sorted by their lower case names.<br>
+ * The table is built once for a set of built-ins, and the prefix and exact-name lookups on it are binary searches.
+ *
+ * @see ContentAssistUtils#selectModelElements(String, boolean)
+ */
+final class BuiltinsTable
+{
+	private static final Comparator<Object[]> NAME_COMPARATOR = new Comparator<Object[]>()
+	{
+		public int compare(Object[] o1, Object[] o2)
+		{
+			return ((String) o1[0]).compareTo((String) o2[0]);
+		}
+	};
+
+	private final String[] names;
+	private final Object[] items;
+
+	/**
+	 * Constructs a new built-ins table.
+	 *
+	 * @param builtins
+	 *            - the built-ins. Elements that are not {@link IPHPParseNode} are skipped.
+	 */
+	BuiltinsTable(Collection<Object> builtins)
+	{
+		List<Object[]> pairs = new ArrayList<Object[]>(builtins.size());
+		for (Object builtin : builtins)
+		{
+			if (builtin instanceof IPHPParseNode)
+			{
+				String name = ((IPHPParseNode) builtin).getNodeName();
+				if (name.length() != 0)
+				{
+					pairs.add(new Object[] { name.toLowerCase(), builtin });
+				}
+			}
+		}
+		Object[][] sorted = pairs.toArray(new Object[pairs.size()][]);
+		// The sort is stable, so elements that share a name keep the built-ins order.
+		Arrays.sort(sorted, NAME_COMPARATOR);
+		names = new String[sorted.length];
+		items = new Object[sorted.length];
+		for (int i = 0; i < sorted.length; i++)
+		{
+			names[i] = (String) sorted[i][0];
+			items[i] = sorted[i][1];
+		}
+	}
+
+	/**
+	 * Returns the number of built-ins in this table.
+	 *
+	 * @return the table size.
+	 */
+	int size()
+	{
+		return items.length;
+	}
+
+	/**
+	 * Adds the built-ins which name starts with the given prefix to the given list, in their name order.
+	 *
+	 * @param lowerCasePrefix
+	 *            - lower case prefix.
+	 * @param result
+	 */
+	void selectStartingWith(String lowerCasePrefix, List<Object> result)
+	{
+		for (int i = lowerBound(lowerCasePrefix); i < names.length && names[i].startsWith(lowerCasePrefix); i++)
+		{
+			result.add(items[i]);
+		}
+	}
+
+	/**
+	 * Adds the built-ins which name equals the given name to the given list.
+	 *
+	 * @param lowerCaseName
+	 *            - lower case name.
+	 * @param result
+	 */
+	void selectEquals(String lowerCaseName, List<Object> result)
+	{
+		for (int i = lowerBound(lowerCaseName); i < names.length && names[i].equals(lowerCaseName); i++)
+		{
+			result.add(items[i]);
+		}
+	}
+
+	/**
+	 * Returns the index of the first name that is greater than or equal to the given key.
+	 *
+	 * @param key
+	 * @return The index of the first name that is not less than the key, or the table size.
+	 */
+	private int lowerBound(String key)
+	{
+		int low = 0;
+		int high = names.length - 1;
+		while (low <= high)
+		{
+			int mid = (low + high) >>> 1;
+			if (names[mid].compareTo(key) < 0)
+			{
+				low = mid + 1;
+			}
+			else
+			{
+				high = mid - 1;
+			}
+		}
+		return low;
+	}
+}
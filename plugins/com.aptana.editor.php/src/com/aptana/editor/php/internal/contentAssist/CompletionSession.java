@@ -0,0 +1,277 @@
+/**
+ * Copyright (c) 2005-2006 Aptana, Inc.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html. If redistributing this code,
+ * this entire header must remain intact.
+ */
+package com.aptana.editor.php.internal.contentAssist;
+
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.DocumentEvent;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentListener;
+import org.eclipse.jface.text.contentassist.ICompletionProposal;
+
+import com.aptana.editor.php.internal.indexer.FuzzyMatcher;
+
+/**
+ * A completion session holds the proposals that were computed for an identifier prefix, and narrows them while the
+ * user keeps typing that identifier, instead of running the full proposals computation on every keystroke.<br>
+ * A session is keyed by its document and its replacement start (the offset where the identifier that is being
+ * completed starts). The session listens to the document and stays alive only as long as identifier characters are
+ * appended (or removed) at its end. Any other document change ends it, so the completion context that the proposals
+ * were computed for cannot change while the session is alive.
+ */
+public class CompletionSession implements IDocumentListener
+{
+	private final IDocument document;
+	private final int replacementStart;
+	private final int startOffset;
+	private final PHPCompletionProposal[] proposals;
+	private final String[] keys;
+	private final int[] replacementOffsets;
+	private final int[] replacementLengths;
+	private final int textStart;
+
+	/**
+	 * The session end offset, as tracked by the document listener.
+	 */
+	private int endOffset;
+	private boolean active;
+
+	/**
+	 * The last narrowing result - indices into the proposals array.
+	 */
+	private int[] matches;
+	private int matchesCount;
+	private int matchesOffset;
+	private ICompletionProposal[] lastResult;
+
+	/**
+	 * Starts a new completion session.
+	 * 
+	 * @param document
+	 *            - the document the proposals were computed for.
+	 * @param offset
+	 *            - the offset the proposals were computed at.
+	 * @param proposals
+	 *            - the computed proposals. The proposals replacement lengths are updated by the session as the prefix
+	 *            grows.
+	 */
+	public CompletionSession(IDocument document, int offset, PHPCompletionProposal[] proposals)
+	{
+		this.document = document;
+		this.startOffset = offset;
+		this.endOffset = offset;
+		this.proposals = proposals;
+		this.keys = new String[proposals.length];
+		this.replacementOffsets = new int[proposals.length];
+		this.replacementLengths = new int[proposals.length];
+		int start = offset;
+		for (int i = 0; i < proposals.length; i++)
+		{
+			PHPCompletionProposal proposal = proposals[i];
+			keys[i] = proposal.getReplacementString().toLowerCase();
+			replacementOffsets[i] = proposal.getReplacementOffset();
+			replacementLengths[i] = proposal.getReplacementLength();
+			start = Math.min(start, replacementOffsets[i]);
+		}
+		this.textStart = Math.max(0, start);
+		this.replacementStart = findReplacementStart(document, offset);
+		this.matches = new int[proposals.length];
+		for (int i = 0; i < proposals.length; i++)
+		{
+			matches[i] = i;
+		}
+		this.matchesCount = proposals.length;
+		this.matchesOffset = offset;
+		this.lastResult = proposals;
+		this.active = true;
+		document.addDocumentListener(this);
+	}
+
+	/**
+	 * Returns the document this session was started on.
+	 * 
+	 * @return The session document.
+	 */
+	public IDocument getDocument()
+	{
+		return document;
+	}
+
+	/**
+	 * Returns true while the session can still narrow its proposals.
+	 * 
+	 * @return True if the session is active; False, otherwise.
+	 */
+	public boolean isActive()
+	{
+		return active;
+	}
+
+	/**
+	 * Narrows the session proposals for the identifier prefix that ends at the given offset. In case the document or
+	 * the offset do not belong to this session (or the identifier that ends at the offset does not start where the
+	 * session identifier starts), null is returned and the caller should compute the proposals from scratch.
+	 * 
+	 * @param document
+	 * @param offset
+	 * @return The narrowed proposals, or null if the session cannot answer this request.
+	 */
+	public ICompletionProposal[] narrow(IDocument document, int offset)
+	{
+		if (!active || document != this.document || offset != endOffset
+				|| findReplacementStart(document, offset) != replacementStart)
+		{
+			return null;
+		}
+		if (offset == matchesOffset)
+		{
+			return lastResult;
+		}
+		String typed;
+		try
+		{
+			typed = document.get(textStart, offset - textStart).toLowerCase();
+		}
+		catch (BadLocationException e)
+		{
+			dispose();
+			return null;
+		}
+		// When the prefix grew, the previous matches are a superset of the new ones. Otherwise, start from all the
+		// proposals of the session.
+		boolean grew = offset > matchesOffset;
+		int sourceCount = grew ? matchesCount : proposals.length;
+		int[] newMatches = new int[sourceCount];
+		int count = 0;
+		int lengthDelta = offset - startOffset;
+		for (int i = 0; i < sourceCount; i++)
+		{
+			int index = grew ? matches[i] : i;
+			int typedStart = replacementOffsets[index] - textStart;
+			int typedLength = typed.length() - typedStart;
+			if (typedLength < 0)
+			{
+				continue;
+			}
+			if (proposals[index].isFuzzyMatch())
+			{
+				// subsequence matches stay matches of any shorter pattern, so narrowing from the last matches holds
+				String replacement = proposals[index].getReplacementString();
+				if (FuzzyMatcher.match(typed.substring(typedStart), replacement) != FuzzyMatcher.NO_MATCH)
+				{
+					newMatches[count++] = index;
+				}
+			}
+			else if (keys[index].regionMatches(0, typed, typedStart, typedLength))
+			{
+				newMatches[count++] = index;
+			}
+		}
+		PHPCompletionProposal[] result = new PHPCompletionProposal[count];
+		for (int i = 0; i < count; i++)
+		{
+			int index = newMatches[i];
+			PHPCompletionProposal proposal = proposals[index];
+			proposal.setReplacementLength(replacementLengths[index] + lengthDelta);
+			proposal.setIsDefaultSelection(i == 0);
+			proposal.setIsSuggestedSelection(i == 0);
+			result[i] = proposal;
+		}
+		matches = newMatches;
+		matchesCount = count;
+		matchesOffset = offset;
+		lastResult = result;
+		return result;
+	}
+
+	/**
+	 * Ends this session and detaches it from its document.
+	 */
+	public void dispose()
+	{
+		if (active)
+		{
+			active = false;
+			document.removeDocumentListener(this);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.jface.text.IDocumentListener#documentAboutToBeChanged(org.eclipse.jface.text.DocumentEvent)
+	 */
+	public void documentAboutToBeChanged(DocumentEvent event)
+	{
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.jface.text.IDocumentListener#documentChanged(org.eclipse.jface.text.DocumentEvent)
+	 */
+	public void documentChanged(DocumentEvent event)
+	{
+		String text = event.getText();
+		int textLength = (text == null) ? 0 : text.length();
+		if (event.getOffset() == endOffset && event.getLength() == 0 && textLength > 0 && isIdentifier(text))
+		{
+			// typing at the end of the session
+			endOffset += textLength;
+		}
+		else if (textLength == 0 && event.getOffset() + event.getLength() == endOffset
+				&& event.getOffset() >= startOffset)
+		{
+			// deleting back, but not beyond the prefix the proposals were computed for
+			endOffset = event.getOffset();
+		}
+		else
+		{
+			dispose();
+		}
+	}
+
+	/**
+	 * Returns the start offset of the identifier that ends at the given offset.
+	 */
+	private static int findReplacementStart(IDocument document, int offset)
+	{
+		int start = offset;
+		try
+		{
+			while (start > 0 && isIdentifierPart(document.getChar(start - 1)))
+			{
+				start--;
+			}
+		}
+		catch (BadLocationException e)
+		{
+			// return what we have so far
+		}
+		return start;
+	}
+
+	private static boolean isIdentifier(String text)
+	{
+		for (int i = 0; i < text.length(); i++)
+		{
+			if (!isIdentifierPart(text.charAt(i)))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns true for the characters that may appear in a PHP label (after its first character).
+	 */
+	private static boolean isIdentifierPart(char c)
+	{
+		return c == '_' || c >= 0x7f || Character.isLetterOrDigit(c);
+	}
+}
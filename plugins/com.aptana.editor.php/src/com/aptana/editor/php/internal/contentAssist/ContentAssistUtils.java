@@ -2,6 +2,8 @@ package com.aptana.editor.php.internal.contentAssist;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -13,6 +15,8 @@ import org.eclipse.php.internal.core.documentModel.phpElementData.IPHPDocBlock;
 import org.eclipse.php.internal.core.documentModel.phpElementData.IPHPDocTag;
 
 import com.aptana.editor.php.internal.indexer.AbstractPHPEntryValue;
+import com.aptana.editor.php.internal.indexer.FuzzyMatcher;
+import com.aptana.editor.php.internal.indexer.FuzzyNameIndex;
 import com.aptana.editor.php.internal.indexer.language.PHPBuiltins;
 import com.aptana.editor.php.internal.parser.nodes.IPHPParseNode;
 import com.aptana.editor.php.internal.parser.nodes.PHPFunctionParseNode;
@@ -33,28 +37,31 @@ public class ContentAssistUtils
 	private static final Object EMPTY_STRING = ""; //$NON-NLS-1$
 
 	/**
-	 * Built-in info
-	 * 
-	 * @author Denis Denisenko
+	 * Table of all the built-ins, sorted by name. All the built-ins are proposed whatever the PHP version is, and
+	 * their proposals show the versions they exist in.
 	 */
-	public static class BuiltinInfo
-	{
-		public Object builtIn;
+	private static BuiltinsTable allBuiltins = null;
 
-		public String lowerCaseName;
-	}
+	/**
+	 * The built-ins collection the table was built from, and its size at that time.
+	 */
+	private static Collection<Object> indexedBuiltins = null;
+	private static int indexedBuiltinsSize;
 
 	/**
-	 * Index of built-ins. Key is the first name character.
+	 * Bigram index of the built-ins names, for the fuzzy matching.
 	 */
-	private static Map<Character, List<BuiltinInfo>> index = null;
+	private static FuzzyNameIndex<Object> fuzzyIndex = null;
 
 	/**
-	 * Clean the PHP built-ins content assist index.
+	 * Clean the PHP built-ins content assist index.<br>
+	 * Note that the index is also rebuilt when the built-ins are reloaded.
 	 */
-	public static void cleanIndex()
+	public synchronized static void cleanIndex()
 	{
-		index = null;
+		allBuiltins = null;
+		indexedBuiltins = null;
+		fuzzyIndex = null;
 	}
 
 	/**
@@ -111,95 +118,71 @@ public class ContentAssistUtils
 	/**
 	 * @param name
 	 * @param eq
-	 * @return list of model element that matches to given name
+	 * @return list of model element that matches to given name, or null in case the built-ins are not loaded yet.
 	 */
-	public synchronized static ArrayList<Object> selectModelElements(String name, boolean eq)
+	public static ArrayList<Object> selectModelElements(String name, boolean eq)
 	{
-		if (index == null || index.isEmpty())
+		BuiltinsTable table = getBuiltinsTable();
+		if (table == null)
 		{
-			Collection<Object> builtins = PHPBuiltins.getInstance().getBuiltins();
-			if (builtins == null)
-			{
-				// The built-ins are probably loading now
-				return null;
-			}
-			initializeBuiltinsIndex(builtins);
+			// The built-ins are probably loading now
+			return null;
 		}
-
 		if (name == null)
 		{
 			return null;
 		}
 
-		ArrayList<Object> toReturn = new ArrayList<Object>();
-
 		if (name.length() == 0)
 		{
-			toReturn = new ArrayList<Object>();
-			toReturn.addAll(PHPBuiltins.getInstance().getBuiltins());
-			return toReturn;
+			return new ArrayList<Object>(PHPBuiltins.getInstance().getBuiltins());
 		}
 
+		ArrayList<Object> toReturn = new ArrayList<Object>();
 		String lowerCaseName = name.toLowerCase();
-		Character firstCharacter = lowerCaseName.charAt(0);
 		if (eq)
 		{
-			List<BuiltinInfo> lst = index.get(firstCharacter);
-			if (lst != null)
-			{
-				for (BuiltinInfo info : lst)
-				{
-					if (acceptsNodeEquals(info, lowerCaseName))
-					{
-						toReturn.add(info.builtIn);
-					}
-				}
-			}
+			table.selectEquals(lowerCaseName, toReturn);
 		}
 		else
 		{
-			List<BuiltinInfo> lst = index.get(firstCharacter);
-			if (lst != null)
-			{
-				for (BuiltinInfo info : lst)
-				{
-					if (acceptsNodeStartingWith(info, lowerCaseName))
-					{
-						toReturn.add(info.builtIn);
-					}
-				}
-			}
+			table.selectStartingWith(lowerCaseName, toReturn);
 		}
-
 		return toReturn;
 	}
 
 	/**
-	 * Gets whether node is acceptable cause starting with a name.
-	 * 
-	 * @param info
-	 *            - info.
-	 * @param name
-	 *            - lower case name.
-	 * @return true if acceptable, false otherwise
-	 */
-	public static boolean acceptsNodeStartingWith(BuiltinInfo info, String name)
-	{
-		return info.lowerCaseName.startsWith(name);
-	}
-
-	/**
-	 * Gets whether node is acceptable cause equal to a name.
+	 * Returns the model elements which names match the given pattern as a subsequence or by their camel humps, best
+	 * matches first.
 	 * 
-	 * @param info
-	 *            - info.
-	 * @param name
-	 *            - lower case name.
-	 * @return true if acceptable, false otherwise
+	 * @param pattern
+	 *            - the pattern, as typed.
+	 * @return list of model elements that match the pattern, or null in case the built-ins are not loaded yet.
+	 * @see FuzzyMatcher
 	 */
-	public static boolean acceptsNodeEquals(BuiltinInfo info, String name)
+	public synchronized static List<Object> selectModelElementsMatching(String pattern)
 	{
-		return info.lowerCaseName.equals(name);
+		if (getBuiltinsTable() == null)
+		{
+			return null;
+		}
+		final Map<Object, Integer> scores = new HashMap<Object, Integer>();
+		fuzzyIndex.match(pattern, new FuzzyNameIndex.IMatchVisitor<Object>()
+		{
+			public void accept(Object item, String name, int score)
+			{
+				scores.put(item, score);
+			}
+		});
+		List<Object> result = new ArrayList<Object>(scores.keySet());
+		Collections.sort(result, new Comparator<Object>()
+		{
+			public int compare(Object o1, Object o2)
+			{
+				return scores.get(o2) - scores.get(o1);
+			}
+		});
+		return result;
 	}
 
 	/**
@@ -302,6 +285,25 @@ public class ContentAssistUtils
 		return additionalInfo;
 	}
 
+	/**
+	 * Returns the built-ins table. The table is built once for every loaded set of built-ins.
+	 * 
+	 * @return the built-ins table, or null in case the built-ins are not loaded yet.
+	 */
+	private synchronized static BuiltinsTable getBuiltinsTable()
+	{
+		Collection<Object> builtins = PHPBuiltins.getInstance().getBuiltins();
+		if (builtins == null)
+		{
+			return null;
+		}
+		if (builtins != indexedBuiltins || builtins.size() != indexedBuiltinsSize)
+		{
+			initializeBuiltinsIndex(builtins);
+		}
+		return allBuiltins;
+	}
+
 	/**
 	 * Initializes built-in index.
 	 * 
@@ -310,27 +312,15 @@ public class ContentAssistUtils
 	 */
 	private static void initializeBuiltinsIndex(Collection<Object> builtins)
 	{
-		index = new HashMap<Character, List<BuiltinInfo>>();
+		allBuiltins = new BuiltinsTable(builtins);
+		indexedBuiltins = builtins;
+		indexedBuiltinsSize = builtins.size();
+		fuzzyIndex = new FuzzyNameIndex<Object>();
 		for (Object builtin : builtins)
 		{
 			if (builtin instanceof IPHPParseNode)
 			{
-				String lowercaseName = ((IPHPParseNode) builtin).getNodeName().toLowerCase();
-				if (lowercaseName.length() != 0)
-				{
-					Character firstCharacter = lowercaseName.charAt(0);
-					List<BuiltinInfo> charList = index.get(firstCharacter);
-					if (charList == null)
-					{
-						charList = new ArrayList<BuiltinInfo>();
-						index.put(firstCharacter, charList);
-					}
-
-					BuiltinInfo info = new BuiltinInfo();
-					info.builtIn = builtin;
-					info.lowerCaseName = lowercaseName;
-					charList.add(info);
-				}
+				fuzzyIndex.add(((IPHPParseNode) builtin).getNodeName(), builtin);
 			}
 		}
 	}
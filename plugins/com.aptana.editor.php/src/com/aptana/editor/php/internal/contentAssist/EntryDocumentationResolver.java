@@ -5,17 +5,15 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 
-import org.eclipse.php.internal.core.compiler.ast.nodes.PHPDocBlock;
-
 import com.aptana.editor.php.indexer.IElementEntry;
 import com.aptana.editor.php.indexer.IElementsIndex;
 import com.aptana.editor.php.internal.core.builder.IModule;
 import com.aptana.editor.php.internal.indexer.ClassPHPEntryValue;
 import com.aptana.editor.php.internal.indexer.FunctionPHPEntryValue;
 import com.aptana.editor.php.internal.indexer.PHPDocUtils;
+import com.aptana.editor.php.internal.indexer.PHPDocumentationStore;
 import com.aptana.editor.php.internal.indexer.PHPTypeProcessor;
 import com.aptana.editor.php.internal.indexer.VariablePHPEntryValue;
-import com.aptana.editor.php.internal.parser.phpdoc.FunctionDocumentation;
 
 class EntryDocumentationResolver implements IDocumentationResolver
 {
@@ -41,7 +39,6 @@ class EntryDocumentationResolver implements IDocumentationResolver
 		if (val instanceof FunctionPHPEntryValue)
 		{
 			FunctionPHPEntryValue pl = (FunctionPHPEntryValue) val;
-			PHPDocBlock findFunctionPHPDocComment = PHPDocUtils.findFunctionPHPDocComment(entry, pl.getStartOffset());
 			StringBuffer bf = new StringBuffer();
 			bf.append(proposalContent);
 			bf.append('(');
@@ -57,9 +54,8 @@ class EntryDocumentationResolver implements IDocumentationResolver
 			}
 			bf.append(')');
 			String sig = bf.toString();
-			FunctionDocumentation parseFunctionPHPDoc = findFunctionPHPDocComment != null ? PHPDocUtils
-					.getFunctionDocumentation(findFunctionPHPDocComment) : null;
-			String docString = PHPDocUtils.computeDocumentation(parseFunctionPHPDoc, sig);
+			String docString = PHPDocumentationStore.getInstance().getDocumentationHTML(entry, pl.getStartOffset(),
+					sig, false);
 
 			String typesString = computeEntryTypesDisplayString(entry, index);
 			if (typesString != null && typesString.length() > 0)
@@ -73,13 +69,7 @@ class EntryDocumentationResolver implements IDocumentationResolver
 		else if (val instanceof ClassPHPEntryValue)
 		{
 			ClassPHPEntryValue pl = (ClassPHPEntryValue) val;
-			PHPDocBlock findFunctionPHPDocComment = PHPDocUtils.findFunctionPHPDocComment(module, pl.getStartOffset());
-			StringBuffer bf = new StringBuffer();
-			bf.append(proposalContent);
-			String sig = bf.toString();
-			FunctionDocumentation parseFunctionPHPDoc = findFunctionPHPDocComment != null ? PHPDocUtils
-					.getFunctionDocumentation(findFunctionPHPDocComment) : null;
-			String docString = PHPDocUtils.computeDocumentation(parseFunctionPHPDoc, sig);
+			String docString = getDocumentationHTML(pl.getStartOffset(), false);
 
 			/*
 			 * String typesString = computeEntryTypesDisplayString(entry, index); if (typesString != null &&
@@ -91,18 +81,7 @@ class EntryDocumentationResolver implements IDocumentationResolver
 		else if (val instanceof VariablePHPEntryValue)
 		{
 			VariablePHPEntryValue pl = (VariablePHPEntryValue) val;
-			int startOffset = pl.getStartOffset();
-			PHPDocBlock findFunctionPHPDocComment = PHPDocUtils.findFunctionPHPDocComment(module, startOffset);
-			StringBuffer bf = new StringBuffer();
-			bf.append(proposalContent);
-			String sig = bf.toString();
-			FunctionDocumentation parseFunctionPHPDoc = findFunctionPHPDocComment != null ? PHPDocUtils
-					.getFunctionDocumentation(findFunctionPHPDocComment) : null;
-			if (pl.isParameter())
-			{
-				parseFunctionPHPDoc = null;
-			}
-			String docString = PHPDocUtils.computeDocumentation(parseFunctionPHPDoc, sig);
+			String docString = getDocumentationHTML(pl.getStartOffset(), pl.isParameter());
 
 			String typesString = computeEntryTypesDisplayString(entry, index);
 			if (typesString != null && typesString.length() > 0)
@@ -116,6 +95,26 @@ class EntryDocumentationResolver implements IDocumentationResolver
 		return null;
 	}
 
+	/**
+	 * Returns the HTML documentation for the proposal content. Classes and variables documentation is looked up in
+	 * the entry module only.
+	 * 
+	 * @param startOffset
+	 *            - the entry start offset.
+	 * @param ignoreDocumentation
+	 *            - whether to display the name only.
+	 * @return the HTML documentation.
+	 */
+	private String getDocumentationHTML(int startOffset, boolean ignoreDocumentation)
+	{
+		if (module == null)
+		{
+			return PHPDocUtils.computeDocumentation(null, proposalContent);
+		}
+		return PHPDocumentationStore.getInstance().getDocumentationHTML(entry, startOffset, proposalContent,
+				ignoreDocumentation);
+	}
+
 	/**
 	 * Computes display string for the entry types (performs types eveluation if needed).
 	 * 
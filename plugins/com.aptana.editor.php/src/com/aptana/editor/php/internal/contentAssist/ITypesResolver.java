@@ -0,0 +1,9 @@
+package com.aptana.editor.php.internal.contentAssist;
+
+/**
+ * Types display string resolver
+ */
+public interface ITypesResolver
+{
+	public String resolveTypes();
+}
@@ -48,6 +48,17 @@ public class PHPCompletionProposal extends CommonCompletionProposal implements C
 
 	private IDocumentationResolver resolver;
 
+	/**
+	 * Resolves the types that are appended to the display string. Null once resolved.
+	 */
+	private ITypesResolver typesResolver;
+	private String displayString;
+
+	/**
+	 * Whether this proposal matches the typed name as a subsequence, and not by its prefix.
+	 */
+	private boolean fuzzyMatch;
+
 	/**
 	 * Viewer.
 	 */
@@ -233,6 +244,63 @@ public class PHPCompletionProposal extends CommonCompletionProposal implements C
 		return super.getAdditionalProposalInfo();
 	}
 
+	/**
+	 * Returns the display string. The types part of the display string is resolved on the first call.
+	 * 
+	 * @see ICompletionProposal#getDisplayString()
+	 */
+	@Override
+	public String getDisplayString()
+	{
+		if (displayString == null)
+		{
+			String result = super.getDisplayString();
+			if (typesResolver != null)
+			{
+				String types = typesResolver.resolveTypes();
+				if (types != null && types.length() > 0)
+				{
+					result += "-(" + types + ")"; //$NON-NLS-1$ //$NON-NLS-2$
+				}
+				typesResolver = null;
+			}
+			displayString = result;
+		}
+		return displayString;
+	}
+
+	/**
+	 * Sets the resolver of the types that are appended to the display string.
+	 * 
+	 * @param typesResolver
+	 */
+	public void setTypesResolver(ITypesResolver typesResolver)
+	{
+		this.typesResolver = typesResolver;
+		this.displayString = null;
+	}
+
+	/**
+	 * Returns true if this proposal matches the typed name as a subsequence (or by its camel humps), and not by its
+	 * prefix.
+	 * 
+	 * @return True for a fuzzy match; False, otherwise.
+	 */
+	public boolean isFuzzyMatch()
+	{
+		return fuzzyMatch;
+	}
+
+	/**
+	 * Sets whether this proposal matches the typed name as a subsequence, and not by its prefix.
+	 * 
+	 * @param fuzzyMatch
+	 */
+	public void setFuzzyMatch(boolean fuzzyMatch)
+	{
+		this.fuzzyMatch = fuzzyMatch;
+	}
+
 	/**
 	 * @return resolver
 	 */
@@ -333,6 +401,11 @@ public class PHPCompletionProposal extends CommonCompletionProposal implements C
 		return "PHPProposalCategory_" + toString(); //$NON-NLS-1$
 	}
 
+	public int getReplacementOffset()
+	{
+		return _replacementOffset;
+	}
+
 	public int getReplacementLength()
 	{
 		return _replacementLength;
@@ -20,12 +20,14 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.jface.preference.IPreferenceStore;
 import org.eclipse.jface.text.BadLocationException;
@@ -33,6 +35,8 @@ import org.eclipse.jface.text.IDocument;
 import org.eclipse.jface.text.ITextViewer;
 import org.eclipse.jface.text.ITypedRegion;
 import org.eclipse.jface.text.Position;
+import org.eclipse.jface.text.contentassist.ContentAssistEvent;
+import org.eclipse.jface.text.contentassist.ICompletionListener;
 import org.eclipse.jface.text.contentassist.ICompletionProposal;
 import org.eclipse.jface.text.contentassist.IContentAssistProcessor;
 import org.eclipse.jface.text.contentassist.IContextInformation;
@@ -63,6 +67,8 @@ import com.aptana.editor.php.internal.indexer.AccessModifierEntryFilter;
 import com.aptana.editor.php.internal.indexer.ClassPHPEntryValue;
 import com.aptana.editor.php.internal.indexer.ElementsIndexingUtils;
 import com.aptana.editor.php.internal.indexer.FunctionPHPEntryValue;
+import com.aptana.editor.php.internal.indexer.FuzzyEntriesCollector;
+import com.aptana.editor.php.internal.indexer.FuzzyMatcher;
 import com.aptana.editor.php.internal.indexer.IEntryFilter;
 import com.aptana.editor.php.internal.indexer.ModuleSubstitutionIndex;
 import com.aptana.editor.php.internal.indexer.NamespacePHPEntryValue;
@@ -73,7 +79,9 @@ import com.aptana.editor.php.internal.indexer.UnpackedElementIndex;
 import com.aptana.editor.php.internal.indexer.UnpackedEntry;
 import com.aptana.editor.php.internal.indexer.VariablePHPEntryValue;
 import com.aptana.editor.php.internal.indexer.language.PHPBuiltins;
+import com.aptana.editor.php.internal.metrics.PHPMetrics;
 import com.aptana.editor.php.internal.model.utils.TypeHierarchyUtils;
+import com.aptana.editor.php.internal.parser.DocumentCharSequence;
 import com.aptana.editor.php.internal.parser.nodes.IPHPParseNode;
 import com.aptana.editor.php.internal.parser.nodes.PHPClassParseNode;
 import com.aptana.editor.php.internal.parser.nodes.PHPFunctionParseNode;
@@ -92,7 +100,8 @@ import com.aptana.parsing.lexer.Range;
  * 
  * @author Shalom Gibly <sgibly@aptana.com>
  */
-public class PHPContentAssistProcessor extends CommonContentAssistProcessor implements IContentAssistProcessor
+public class PHPContentAssistProcessor extends CommonContentAssistProcessor implements IContentAssistProcessor,
+		ICompletionListener
 {
 	private static final ICompletionProposal[] EMPTY_PROPOSAL = new ICompletionProposal[0];
 	protected static final String EMPTY_STRING = ""; //$NON-NLS-1$
@@ -134,6 +143,23 @@ public class PHPContentAssistProcessor extends CommonContentAssistProcessor impl
 
 	private static final IRange EMPTY_RANGE = new Range(0, 0);
 
+	/**
+	 * The maximum number of fuzzy matching proposals that are created for a simple identifier completion. The prefix
+	 * matching proposals are never truncated, since the proposals popup narrows the list it was given while the
+	 * identifier is typed.
+	 */
+	private static final int MAX_FUZZY_PROPOSALS = 500;
+
+	/**
+	 * The minimum identifier length for the fuzzy matching. Shorter identifiers are completed by their prefix only.
+	 */
+	private static final int MIN_FUZZY_PATTERN_LENGTH = 2;
+
+	/**
+	 * The lexers initial scripting states, by lexer class.
+	 */
+	private static final Map<Class<?>, Integer> SCRIPTING_STATES = new ConcurrentHashMap<Class<?>, Integer>();
+
 	private static Image fIcon53 = PHPEditorPlugin.getImage("icons/full/obj16/v53.png"); //$NON-NLS-1$
 	private static Image fIcon5 = PHPEditorPlugin.getImage("icons/full/obj16/v5.png"); //$NON-NLS-1$
 	private static Image fIcon4 = PHPEditorPlugin.getImage("icons/full/obj16/v4.png"); //$NON-NLS-1$
@@ -167,6 +193,23 @@ public class PHPContentAssistProcessor extends CommonContentAssistProcessor impl
 	private IPreferenceStore preferenceStore;
 	private boolean isOutOfWorkspace;
 
+	/**
+	 * The current completion session, and the context it was computed in.
+	 */
+	private CompletionSession completionSession;
+	private ProposalContext sessionContext;
+
+	/**
+	 * The current signature session, which holds the context information of the call the caret is in.
+	 */
+	private SignatureSession signatureSession;
+
+	/**
+	 * Whether the fuzzy matches of the last computation were truncated at {@link #MAX_FUZZY_PROPOSALS}. A truncated
+	 * proposals list cannot be narrowed by a completion session.
+	 */
+	private boolean proposalsTruncated;
+
 	/**
 	 * Constructs a new PHP content assist processor.
 	 * 
@@ -208,6 +251,20 @@ public class PHPContentAssistProcessor extends CommonContentAssistProcessor impl
 	@SuppressWarnings("unused")
 	public ICompletionProposal[] computeCompletionProposals(IDocument document, int offset)
 	{
+		// In case the user is just extending the identifier we computed the proposals for, narrow these proposals.
+		if (completionSession != null)
+		{
+			long start = System.nanoTime();
+			ICompletionProposal[] narrowed = completionSession.narrow(document, offset);
+			if (narrowed != null)
+			{
+				currentContext = sessionContext;
+				resetForceActivation();
+				PHPMetrics.getInstance().addTimeSince(PHPMetrics.CA_SESSION_NARROWING, start);
+				return narrowed;
+			}
+			endCompletionSession();
+		}
 		// First, check if we are in a PHP partition
 		ITypedRegion partition;
 		try
@@ -241,24 +298,18 @@ public class PHPContentAssistProcessor extends CommonContentAssistProcessor impl
 			phpVersion = PHPVersionProvider.getDefaultPHPVersion();
 		}
 
+		long start = System.nanoTime();
 		LexemeProvider<PHPTokenType> lexemeProvider = ParsingUtils.createLexemeProvider(document, offset);
 		// Calculates and sets completion context
 		currentContext = contextCalculator.calculateCompletionContext(lexemeProvider, offset);
+		PHPMetrics.getInstance().addTimeSince(PHPMetrics.CA_LEXEME_PROVIDER, start);
 
-		String content = document.get();
+		String content = DocumentCharSequence.getContents(document);
 
 		AbstractPhpLexer lexer = PhpLexerFactory.createLexer(new StringReader(content), phpVersion);
-		int state = -1;
-		try
-		{
-			// set initial lexer state - we use reflection here since we don't
-			// know the constant value of
-			// of this state in specific PHP version lexer
-			state = lexer.getClass().getField("ST_PHP_IN_SCRIPTING").getInt(lexer); //$NON-NLS-1$
-		}
-		catch (Exception e)
+		int state = getScriptingState(lexer);
+		if (state == -1)
 		{
-			PHPEditorPlugin.logError(e);
 			return null;
 		}
 		lexer.initialize(state);
@@ -376,6 +427,7 @@ public class PHPContentAssistProcessor extends CommonContentAssistProcessor impl
 
 		int replaceLengthIncrease = countReplaceLengthIncrease(content, offset);
 
+		proposalsTruncated = false;
 		ICompletionProposal[] computeCompletionProposalInternal = computeCompletionProposalInternal(partition, offset,
 				content, true, forceActivation);
 		if (computeCompletionProposalInternal.length > 0)
@@ -390,12 +442,99 @@ public class PHPContentAssistProcessor extends CommonContentAssistProcessor impl
 			}
 		}
 
-		// resetting the force activation flag.
+		resetForceActivation();
+		startCompletionSession(document, offset, computeCompletionProposalInternal);
+		return computeCompletionProposalInternal;
+	}
+
+	/**
+	 * Resets the force activation flag.
+	 */
+	private void resetForceActivation()
+	{
 		if (viewer != null)
 		{
 			viewer.getTextWidget().setData("ASSIST_FORCE_ACTIVATION", false);//$NON-NLS-1$
 		}
-		return computeCompletionProposalInternal;
+	}
+
+	/**
+	 * Starts a completion session for the computed proposals, so the next requests for the same identifier are
+	 * answered by narrowing these proposals. Sessions are started only for non-empty PHP proposals lists.
+	 * 
+	 * @param document
+	 * @param offset
+	 * @param proposals
+	 */
+	private void startCompletionSession(IDocument document, int offset, ICompletionProposal[] proposals)
+	{
+		if (proposals == null || proposals.length == 0 || proposalsTruncated)
+		{
+			return;
+		}
+		PHPCompletionProposal[] phpProposals = new PHPCompletionProposal[proposals.length];
+		for (int i = 0; i < proposals.length; i++)
+		{
+			if (!(proposals[i] instanceof PHPCompletionProposal))
+			{
+				return;
+			}
+			phpProposals[i] = (PHPCompletionProposal) proposals[i];
+		}
+		completionSession = new CompletionSession(document, offset, phpProposals);
+		sessionContext = currentContext;
+	}
+
+	/**
+	 * Ends the current signature session (if exists).
+	 */
+	private void endSignatureSession()
+	{
+		if (signatureSession != null)
+		{
+			signatureSession.dispose();
+			signatureSession = null;
+		}
+	}
+
+	/**
+	 * Ends the current completion session (if exists).
+	 */
+	private void endCompletionSession()
+	{
+		if (completionSession != null)
+		{
+			completionSession.dispose();
+			completionSession = null;
+			sessionContext = null;
+		}
+	}
+
+	/**
+	 * Returns the initial scripting state of the given lexer. We use reflection here since we don't know the constant
+	 * value of this state in specific PHP version lexer, so the value is looked up once per lexer class.
+	 * 
+	 * @param lexer
+	 * @return The scripting state, or -1 in case it could not be resolved.
+	 */
+	private static int getScriptingState(AbstractPhpLexer lexer)
+	{
+		Class<?> lexerClass = lexer.getClass();
+		Integer state = SCRIPTING_STATES.get(lexerClass);
+		if (state == null)
+		{
+			try
+			{
+				state = lexerClass.getField("ST_PHP_IN_SCRIPTING").getInt(lexer); //$NON-NLS-1$
+			}
+			catch (Exception e)
+			{
+				PHPEditorPlugin.logError(e);
+				return -1;
+			}
+			SCRIPTING_STATES.put(lexerClass, state);
+		}
+		return state;
 	}
 
 	/**
@@ -556,8 +695,11 @@ public class PHPContentAssistProcessor extends CommonContentAssistProcessor impl
 	private ICompletionProposal[] dereferencingCompletion(IElementsIndex index, List<String> callPath, int offset,
 			IModule module)
 	{
+		PHPMetrics metrics = PHPMetrics.getInstance();
+		long mark = System.nanoTime();
 		Set<IElementEntry> result = computeDereferenceEntries(index, callPath, offset == 0 ? 0 : offset - 1, module,
 				false, aliases, namespace);
+		mark = metrics.addTimeSince(PHPMetrics.CA_GLOBAL_QUERIES, mark);
 		if (result == null || result.isEmpty())
 		{
 			return new ICompletionProposal[] {};
@@ -579,6 +721,7 @@ public class PHPContentAssistProcessor extends CommonContentAssistProcessor impl
 				usedName.add(lastName);
 			}
 		}
+		metrics.addTimeSince(PHPMetrics.CA_PROPOSALS, mark);
 		ICompletionProposal[] toReturn = new ICompletionProposal[proposals.size()];
 		return proposals.toArray(toReturn);
 	}
@@ -663,8 +806,11 @@ public class PHPContentAssistProcessor extends CommonContentAssistProcessor impl
 	private ICompletionProposal[] dereferencingStaticCompletion(IElementsIndex index, List<String> callPath,
 			int offset, IModule module)
 	{
+		PHPMetrics metrics = PHPMetrics.getInstance();
+		long mark = System.nanoTime();
 		Set<IElementEntry> result = computeStaticDereferenceEntries(index, callPath, offset == 0 ? 0 : offset - 1,
 				module, false, aliases, namespace);
+		mark = metrics.addTimeSince(PHPMetrics.CA_GLOBAL_QUERIES, mark);
 		if (result == null || result.isEmpty())
 		{
 			return new ICompletionProposal[] {};
@@ -690,6 +836,7 @@ public class PHPContentAssistProcessor extends CommonContentAssistProcessor impl
 				}
 			}
 		}
+		metrics.addTimeSince(PHPMetrics.CA_PROPOSALS, mark);
 		ICompletionProposal[] toReturn = new ICompletionProposal[proposals.size()];
 		return proposals.toArray(toReturn);
 	}
@@ -1392,6 +1539,8 @@ public class PHPContentAssistProcessor extends CommonContentAssistProcessor impl
 		{
 			index = getIndexOptimized(content, offset);
 		}
+		PHPMetrics metrics = PHPMetrics.getInstance();
+		long mark = System.nanoTime();
 		String namespaceToUse = ignorIndexNamespace ? EMPTY_STRING : namespace;
 		List<IElementEntry> entries = computeSimpleIdentifierEntries(reportedStackIsGlobal, globalImports, name,
 				variableCompletion, index, false, module, filter, currentContext, namespaceToUse, aliases);
@@ -1407,42 +1556,157 @@ public class PHPContentAssistProcessor extends CommonContentAssistProcessor impl
 			}
 			List<Object> modelItems = variableCompletion ? ContentAssistUtils.selectModelElements(DOLLAR_SIGN
 					+ completionStart, false) : ContentAssistUtils.selectModelElements(completionStart, false);
-			if (modelItems != null)
+			addModelItems(items, modelItems, variableCompletion);
+		}
+
+		// In addition to the prefix matches, propose the names that match the identifier as a subsequence or by its
+		// camel humps, ranked by their match score.
+		List<Object> fuzzyItems = null;
+		if (name.length() >= MIN_FUZZY_PATTERN_LENGTH && name.indexOf('\\') == -1
+				&& preferenceStore.getBoolean(IContentAssistPreferencesConstants.FUZZY_MATCHING))
+		{
+			fuzzyItems = new ArrayList<Object>();
+			fuzzyItems.addAll(computeFuzzyIdentifierEntries(reportedStackIsGlobal, globalImports, name,
+					variableCompletion, index, module, currentContext));
+			if (proposeBuiltins)
 			{
-				for (Object modelItem : modelItems)
+				addModelItems(fuzzyItems, ContentAssistUtils.selectModelElementsMatching(name), variableCompletion);
+			}
+			sortByFuzzyScore(fuzzyItems, name);
+		}
+
+		mark = metrics.addTimeSince(PHPMetrics.CA_GLOBAL_QUERIES, mark);
+		List<ICompletionProposal> result = createProposals(offset, name, items, module, true, index, false,
+				fuzzyItems);
+		metrics.addTimeSince(PHPMetrics.CA_PROPOSALS, mark);
+
+		ICompletionProposal[] proposals = new ICompletionProposal[result.size()];
+		return result.toArray(proposals);
+	}
+
+	/**
+	 * Adds the built-in model items that fit the completion kind to the given items list.
+	 * 
+	 * @param items
+	 *            - items list to add to.
+	 * @param modelItems
+	 *            - model items (null-safe).
+	 * @param variableCompletion
+	 *            - whether completing variable or not.
+	 */
+	private static void addModelItems(List<Object> items, List<Object> modelItems, boolean variableCompletion)
+	{
+		if (modelItems == null)
+		{
+			return;
+		}
+		for (Object modelItem : modelItems)
+		{
+			if (variableCompletion)
+			{
+				if (modelItem instanceof PHPVariableParseNode)
 				{
-					if (variableCompletion)
-					{
-						if (modelItem instanceof PHPVariableParseNode)
-						{
-							items.add(modelItem);
-						}
-						else if (modelItem instanceof IPHPParseNode && !(modelItem instanceof PHPFunctionParseNode))
-						{
-							IPHPParseNode pn = (IPHPParseNode) modelItem;
-							if (pn.getNodeName().startsWith(DOLLAR_SIGN))
-							{
-								{
-									items.add(pn);
-								}
-							}
-						}
-					}
-					else
+					items.add(modelItem);
+				}
+				else if (modelItem instanceof IPHPParseNode && !(modelItem instanceof PHPFunctionParseNode))
+				{
+					IPHPParseNode pn = (IPHPParseNode) modelItem;
+					if (pn.getNodeName().startsWith(DOLLAR_SIGN))
 					{
-						if (!(modelItem instanceof PHPVariableParseNode))
-						{
-							items.add(modelItem);
-						}
+						items.add(pn);
 					}
 				}
 			}
+			else
+			{
+				if (!(modelItem instanceof PHPVariableParseNode))
+				{
+					items.add(modelItem);
+				}
+			}
 		}
+	}
 
-		List<ICompletionProposal> result = createProposals(offset, name, items, module, true, index, false);
+	/**
+	 * Computes the entries which names match the given name as a subsequence or by its camel humps, best matches
+	 * first. The entries are selected from the categories the proposal context accepts, and filtered like the entries
+	 * of the simple identifier completion.
+	 * 
+	 * @param reportedStackIsGlobal
+	 *            - whether reported stack is global.
+	 * @param globalImports
+	 *            - global imports set.
+	 * @param name
+	 *            - name to match.
+	 * @param variableCompletion
+	 *            - whether completing variable or not.
+	 * @param index
+	 *            - index to use.
+	 * @param module
+	 *            - module.
+	 * @param proposalContext
+	 *            - proposal context.
+	 * @return list of entries.
+	 */
+	private static List<IElementEntry> computeFuzzyIdentifierEntries(boolean reportedStackIsGlobal,
+			Set<String> globalImports, String name, boolean variableCompletion, IElementsIndex index, IModule module,
+			ProposalContext proposalContext)
+	{
+		int[] categories;
+		if (variableCompletion)
+		{
+			categories = new int[] { IPHPIndexConstants.VAR_CATEGORY };
+		}
+		else
+		{
+			categories = new int[] { IPHPIndexConstants.CLASS_CATEGORY, IPHPIndexConstants.FUNCTION_CATEGORY,
+					IPHPIndexConstants.CONST_CATEGORY };
+		}
+		FuzzyEntriesCollector collector = new FuzzyEntriesCollector(name, MAX_FUZZY_PROPOSALS);
+		for (int category : categories)
+		{
+			if (proposalContext == null || proposalContext.acceptModelElementType(category))
+			{
+				collector.offerAll(index.getEntriesMatching(category, name, MAX_FUZZY_PROPOSALS));
+			}
+		}
+		List<IElementEntry> entries = ContentAssistFilters.filterFieldsAndMembers(collector.getEntries());
+		if (!reportedStackIsGlobal)
+		{
+			entries = ContentAssistFilters.filterGlobalVariables(entries, globalImports);
+		}
+		return new ArrayList<IElementEntry>(ContentAssistFilters.filterByModule(entries, module, index));
+	}
 
-		ICompletionProposal[] proposals = new ICompletionProposal[result.size()];
-		return result.toArray(proposals);
+	/**
+	 * Sorts the given entries and parse nodes by their descending fuzzy match score (stable).
+	 * 
+	 * @param items
+	 * @param pattern
+	 */
+	private static void sortByFuzzyScore(List<Object> items, String pattern)
+	{
+		final Map<Object, Integer> scores = new HashMap<Object, Integer>();
+		for (Object item : items)
+		{
+			String itemName = null;
+			if (item instanceof IElementEntry)
+			{
+				itemName = ElementsIndexingUtils.getLastNameInPath(((IElementEntry) item).getEntryPath());
+			}
+			else if (item instanceof IPHPParseNode)
+			{
+				itemName = ((IPHPParseNode) item).getNodeName();
+			}
+			scores.put(item, (itemName == null) ? FuzzyMatcher.NO_MATCH : FuzzyMatcher.match(pattern, itemName));
+		}
+		Collections.sort(items, new Comparator<Object>()
+		{
+			public int compare(Object o1, Object o2)
+			{
+				return scores.get(o2) - scores.get(o1);
+			}
+		});
 	}
 
 	/**
@@ -1829,6 +2093,7 @@ public class PHPContentAssistProcessor extends CommonContentAssistProcessor impl
 			return PHPGlobalIndexer.getInstance().getIndex();
 		}
 
+		long start = System.nanoTime();
 		final UnpackedElementIndex index = new UnpackedElementIndex();
 		PDTPHPModuleIndexer indexer = new PDTPHPModuleIndexer(false, offset);
 		indexer.indexModule(content, currentModule, new IIndexReporter()
@@ -1847,6 +2112,7 @@ public class PHPContentAssistProcessor extends CommonContentAssistProcessor impl
 		namespace = indexer.getNamespace();
 		ModuleSubstitutionIndex result = new ModuleSubstitutionIndex(currentModule, index, PHPGlobalIndexer
 				.getInstance().getIndex());
+		PHPMetrics.getInstance().addTimeSince(PHPMetrics.CA_LOCAL_INDEX, start);
 		return result;
 	}
 
@@ -1867,12 +2133,16 @@ public class PHPContentAssistProcessor extends CommonContentAssistProcessor impl
 	 *            - index to use.
 	 * @param newInstanceCompletion
 	 *            - whether the new instance completion is on.
+	 * @param fuzzyItems
+	 *            - items that match the name as a subsequence or by its camel humps, best matches first. Proposed
+	 *            after the prefix matching items (may be null).
 	 * @return
 	 */
 	private List<ICompletionProposal> createProposals(final int offset, String name, ArrayList<Object> items,
-			IModule module, boolean applyDollarSymbol, IElementsIndex index, boolean newInstanceCompletion)
+			IModule module, boolean applyDollarSymbol, IElementsIndex index, boolean newInstanceCompletion,
+			List<Object> fuzzyItems)
 	{
-		List<Object> sortedItems = sortItems(items, module);
+		Iterator<Object> rankedItems = new RankedItems(items, module);
 		String origName = name;
 		int lastIndexOf = name.lastIndexOf('\\');
 		if (lastIndexOf != -1)
@@ -1887,9 +2157,11 @@ public class PHPContentAssistProcessor extends CommonContentAssistProcessor impl
 
 		Set<String> usedNames = new LinkedHashSet<String>();
 
-		for (int i = 0; i < sortedItems.size(); i++)
+		// All the prefix matching items are proposed, so the popup can narrow them while the identifier is typed. The
+		// expensive parts of a proposal (its types and documentation) are resolved only when it's displayed.
+		while (rankedItems.hasNext())
 		{
-			Object item = sortedItems.get(i);
+			Object item = rankedItems.next();
 
 			PHPCompletionProposal proposal = null;
 
@@ -2012,9 +2284,93 @@ public class PHPContentAssistProcessor extends CommonContentAssistProcessor impl
 				}
 			}
 		}
+		if (fuzzyItems != null)
+		{
+			addFuzzyProposals(result, fuzzyItems, usedNames, offset, origName, module, applyDollarSymbol, index);
+		}
 		return result;
 	}
 
+	/**
+	 * Adds the proposals of the fuzzy matching items, up to {@link #MAX_FUZZY_PROPOSALS}. The items that were already
+	 * proposed by their prefix are skipped.
+	 * 
+	 * @param result
+	 *            - the proposals list to add to.
+	 * @param fuzzyItems
+	 *            - the fuzzy matching entries and parse nodes, best matches first.
+	 * @param usedNames
+	 *            - the names that were already proposed.
+	 * @param offset
+	 *            - offset.
+	 * @param name
+	 *            - the typed name (the proposals replace it completely).
+	 * @param module
+	 *            - local module.
+	 * @param applyDollarSymbol
+	 *            - whether to apply dollar symbol
+	 * @param index
+	 *            - index to use.
+	 */
+	private void addFuzzyProposals(List<ICompletionProposal> result, List<Object> fuzzyItems, Set<String> usedNames,
+			int offset, String name, IModule module, boolean applyDollarSymbol, IElementsIndex index)
+	{
+		// the index fuzzy matches were cut at the limit, so a longer pattern may match entries that are not listed
+		proposalsTruncated = fuzzyItems.size() >= MAX_FUZZY_PROPOSALS;
+		int added = 0;
+		for (Object item : fuzzyItems)
+		{
+			if (added >= MAX_FUZZY_PROPOSALS)
+			{
+				proposalsTruncated = true;
+				return;
+			}
+			PHPCompletionProposal proposal = null;
+			if (item instanceof IPHPParseNode)
+			{
+				IPHPParseNode node = (IPHPParseNode) item;
+				String firstName = node.getNodeName().toLowerCase();
+				if (!usedNames.contains(firstName))
+				{
+					String n = (firstName.charAt(0) == '$') ? DOLLAR_SIGN + name : name;
+					proposal = createProposal(node, offset, n, false);
+					if (proposal != null)
+					{
+						usedNames.add(firstName);
+					}
+				}
+			}
+			else if (item instanceof IElementEntry)
+			{
+				IElementEntry entry = (IElementEntry) item;
+				String firstName;
+				if (entry.getCategory() != IPHPIndexConstants.CONST_CATEGORY)
+				{
+					firstName = ElementsIndexingUtils.getLastNameInPath(entry.getEntryPath());
+				}
+				else
+				{
+					firstName = entry.getEntryPath().replaceAll(String.valueOf(IElementsIndex.DELIMITER),
+							STATIC_DEREFERENCE_OP);
+				}
+				if (!usedNames.contains(firstName))
+				{
+					proposal = createProposal(entry, offset, name, firstName, module, applyDollarSymbol, index, false);
+					if (proposal != null)
+					{
+						usedNames.add(firstName);
+					}
+				}
+			}
+			if (proposal != null)
+			{
+				proposal.setFuzzyMatch(true);
+				result.add(proposal);
+				added++;
+			}
+		}
+	}
+
 	/**
 	 * Creates proposal for the index entry.
 	 * 
@@ -2135,11 +2491,6 @@ public class PHPContentAssistProcessor extends CommonContentAssistProcessor impl
 		{
 			dispString += "-[namespace]"; //$NON-NLS-1$
 		}
-		String immediateTypesDisplayString = getImmediateTypesDisplayString(entry);
-		if (immediateTypesDisplayString != null && immediateTypesDisplayString.length() > 0)
-		{
-			dispString += "-(" + immediateTypesDisplayString + ")"; //$NON-NLS-1$ //$NON-NLS-2$
-		}
 
 		PHPCompletionProposal cp = null;
 		if ((currentContext != null && currentContext.isAutoActivateCAAfterApply()) || autoActivateAfterProposal(entry))
@@ -2165,6 +2516,14 @@ public class PHPContentAssistProcessor extends CommonContentAssistProcessor impl
 			}
 		}
 		cp.setResolver(resolver);
+		// the types are resolved only when the proposal is displayed
+		cp.setTypesResolver(new ITypesResolver()
+		{
+			public String resolveTypes()
+			{
+				return getImmediateTypesDisplayString(entry);
+			}
+		});
 		return cp;
 	}
 
@@ -2918,96 +3277,6 @@ public class PHPContentAssistProcessor extends CommonContentAssistProcessor impl
 		return entry.getValue() instanceof ClassPHPEntryValue;
 	}
 
-	/**
-	 * Performs the items sorting.
-	 * 
-	 * @param items
-	 *            - items to sort.
-	 * @param localModule
-	 *            - local module.
-	 * @return sorted items.
-	 */
-	private List<Object> sortItems(List<Object> items, IModule localModule)
-	{
-		// first dividing items for local and external ones
-		List<Object> locals = new ArrayList<Object>();
-		List<Object> externals = new ArrayList<Object>();
-
-		for (Object item : items)
-		{
-			if (item instanceof IElementEntry)
-			{
-				if (localModule == null || localModule.equals(((IElementEntry) item).getModule()))
-				{
-					locals.add(item);
-				}
-				else
-				{
-					externals.add(item);
-				}
-			}
-			else
-			{
-				externals.add(item);
-			}
-		}
-
-		List<Object> result = new ArrayList<Object>();
-		// local items should have the original order and come first
-		result.addAll(locals);
-		// Sort the externals in a way that the classes will appear first, the
-		// functions follow and the variables at the end.
-		Collections.sort(externals, new Comparator<Object>()
-		{
-
-			public int compare(Object o1, Object o2)
-			{
-				int o1IsBuiltIn = 0;
-				int o2IsBuiltIn = 0;
-
-				String name1 = null;
-				if (o1 instanceof IElementEntry)
-				{
-					name1 = ElementsIndexingUtils.getLastNameInPath(((IElementEntry) o1).getEntryPath());
-				}
-				else if (o1 instanceof IPHPParseNode)
-				{
-					name1 = ((IPHPParseNode) o1).getNodeName().toLowerCase();
-					o1IsBuiltIn = 1;
-				}
-				else
-				{
-					return 0;
-				}
-
-				String name2 = null;
-				if (o2 instanceof IElementEntry)
-				{
-					name2 = ElementsIndexingUtils.getLastNameInPath(((IElementEntry) o2).getEntryPath());
-				}
-				else if (o2 instanceof IPHPParseNode)
-				{
-					name2 = ((IPHPParseNode) o2).getNodeName().toLowerCase();
-					o2IsBuiltIn = 1;
-				}
-				else
-				{
-					return 0;
-				}
-				int builtInCompare = o2IsBuiltIn - o1IsBuiltIn;
-				if (builtInCompare == 0)
-				{
-					return name1.compareTo(name2);
-				}
-				return builtInCompare;
-			}
-
-		});
-		result.addAll(externals);
-
-		return result;
-	}
-
 	/**
 	 * Counts replace length increase when override insertion mode is on.
 	 * 
@@ -3062,16 +3331,51 @@ public class PHPContentAssistProcessor extends CommonContentAssistProcessor impl
 		{
 			return new IContextInformation[0];
 		}
-		String content = document.get();
+		if (signatureSession != null)
+		{
+			// Still in the argument list of the last resolved call (e.g. a ',' was typed), so there is no need to
+			// resolve the callee again.
+			long start = System.nanoTime();
+			IContextInformation[] information = signatureSession.getInformation(document, offset);
+			if (information != null)
+			{
+				PHPMetrics.getInstance().addTimeSince(PHPMetrics.CA_SIGNATURE_SESSION, start);
+				return information;
+			}
+			endSignatureSession();
+		}
 		LexemeProvider<PHPTokenType> lexemeProvider = ParsingUtils.createLexemeProvider(document, offset);
 		CallInfo info = PHPContextCalculator.calculateCallInfo(lexemeProvider, offset);
 		if (info == null)
 		{
 			return new IContextInformation[0];
 		}
+		IContextInformation[] information = computeContextInformation(viewer, document, offset, info);
+		int openParenOffset = SignatureSession.findOpenParen(document, info.getNameEndPos());
+		if (openParenOffset >= 0 && openParenOffset < offset)
+		{
+			signatureSession = new SignatureSession(document, openParenOffset, information);
+		}
+		return information;
+	}
+
+	/**
+	 * Resolves the callee of the given call, and computes its context information.
+	 * 
+	 * @param viewer
+	 * @param document
+	 * @param offset
+	 * @param info
+	 *            - the call info.
+	 * @return The context information (never null).
+	 */
+	private IContextInformation[] computeContextInformation(ITextViewer viewer, IDocument document, int offset,
+			CallInfo info)
+	{
+		String content = DocumentCharSequence.getContents(document);
 		ArrayList<?> items = ContentAssistUtils.selectModelElements(info.getName(), true);
 		// if no built-in items found, trying to find the custom ones
-		if (items.size() == 0)
+		if (items == null || items.size() == 0)
 		{
 			Set<IElementEntry> entries = null;
 
@@ -3183,4 +3487,35 @@ public class PHPContentAssistProcessor extends CommonContentAssistProcessor impl
 		return null;
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.jface.text.contentassist.ICompletionListener#assistSessionStarted(org.eclipse.jface.text.
+	 * contentassist.ContentAssistEvent)
+	 */
+	public void assistSessionStarted(ContentAssistEvent event)
+	{
+	}
+
+	/**
+	 * Ends the completion session once the proposals popup is closed (including when a proposal is applied). The
+	 * session proposals were computed for the popup that was closed, and a new content assist request computes them
+	 * again.
+	 * 
+	 * @see ICompletionListener#assistSessionEnded(ContentAssistEvent)
+	 */
+	public void assistSessionEnded(ContentAssistEvent event)
+	{
+		endCompletionSession();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see
+	 * org.eclipse.jface.text.contentassist.ICompletionListener#selectionChanged(org.eclipse.jface.text.contentassist.
+	 * ICompletionProposal, boolean)
+	 */
+	public void selectionChanged(ICompletionProposal proposal, boolean smartToggle)
+	{
+	}
+
 }
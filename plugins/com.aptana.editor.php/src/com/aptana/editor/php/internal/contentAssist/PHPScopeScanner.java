@@ -1,10 +1,7 @@
 package com.aptana.editor.php.internal.contentAssist;
 
-import java.io.CharArrayReader;
 import java.io.IOException;
 
-import javax.swing.text.Segment;
-
 import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.IDocument;
 import org.eclipse.jface.text.IDocumentExtension3;
@@ -21,6 +18,8 @@ import org.eclipse.php.internal.core.documentModel.parser.regions.PHPRegionTypes
 import com.aptana.editor.php.PHPEditorPlugin;
 import com.aptana.editor.php.core.PHPVersionProvider;
 import com.aptana.editor.php.internal.core.IPHPConstants;
+import com.aptana.editor.php.internal.parser.CharSequenceReader;
+import com.aptana.editor.php.internal.parser.DocumentCharSequence;
 import com.aptana.editor.php.internal.ui.editor.PHPVersionDocumentManager;
 
 /**
@@ -37,7 +36,7 @@ public class PHPScopeScanner implements ITokenScanner
 	private int prevTokenOffset;
 	private int duplicateStartCount;
 	private ITypedRegion[] partitions;
-	private char[] content;
+	private CharSequence content;
 	private IDocument document;
 
 	@Override
@@ -101,8 +100,8 @@ public class PHPScopeScanner implements ITokenScanner
 				if (nextPhpRegion != null)
 				{
 					int nextRegionOffset = nextPhpRegion.getOffset() - this.originalOffset;
-					Segment segment = new Segment(content, nextRegionOffset, content.length - nextRegionOffset);
-					lexer.reset(segment);
+					// continue the scan at the next region, keeping the lexer line and states
+					lexer.reset(new CharSequenceReader(content.subSequence(nextRegionOffset, content.length())));
 					regionOffset = nextPhpRegion.getOffset();
 				}
 			}
@@ -166,8 +165,9 @@ public class PHPScopeScanner implements ITokenScanner
 		}
 		try
 		{
-			content = document.get(offset, length).toCharArray();
-			lexer = PhpLexerFactory.createLexer(new CharArrayReader(content), phpVersion);
+			// the lexer reads the document from the shared snapshot
+			content = DocumentCharSequence.get(document).subSequence(offset, offset + length);
+			lexer = PhpLexerFactory.createLexer(new CharSequenceReader(content), phpVersion);
 			// set initial lexer state - we use reflection here since we don't
 			// know the constant value of
 			// of this state in specific PHP version lexer
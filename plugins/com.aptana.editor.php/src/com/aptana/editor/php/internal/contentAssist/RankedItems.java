@@ -0,0 +1,151 @@
+/**
+ * Copyright (c) 2005-2006 Aptana, Inc.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html. If redistributing this code,
+ * this entire header must remain intact.
+ */
+package com.aptana.editor.php.internal.contentAssist;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import com.aptana.editor.php.indexer.IElementEntry;
+import com.aptana.editor.php.internal.core.builder.IModule;
+import com.aptana.editor.php.internal.indexer.ElementsIndexingUtils;
+import com.aptana.editor.php.internal.parser.nodes.IPHPParseNode;
+
+/**
+ * Iterates the content assist items in their proposals order - the local module entries first (in their original
+ * order), then the built-in nodes and the external entries, by name.<br>
+ * The sort keys (the item kind and its lower case name) are computed once per item, before the external items are
+ * sorted, so the comparisons do not resolve them again.
+ */
+class RankedItems implements Iterator<Object>
+{
+	private final List<Object> locals;
+	private final List<RankedItem> externals;
+	private int localIndex;
+	private int externalIndex;
+
+	/**
+	 * Constructs a new ranked items iterator.
+	 * 
+	 * @param items
+	 *            - the items to rank.
+	 * @param localModule
+	 *            - the local module (may be null).
+	 */
+	RankedItems(List<Object> items, IModule localModule)
+	{
+		locals = new ArrayList<Object>();
+		externals = new ArrayList<RankedItem>();
+		for (Object item : items)
+		{
+			if (item instanceof IElementEntry)
+			{
+				IElementEntry entry = (IElementEntry) item;
+				if (localModule == null || localModule.equals(entry.getModule()))
+				{
+					locals.add(item);
+				}
+				else
+				{
+					externals.add(new RankedItem(item, RankedItem.EXTERNAL_ENTRY, ElementsIndexingUtils
+							.getLastNameInPath(entry.getEntryPath()), externals.size()));
+				}
+			}
+			else if (item instanceof IPHPParseNode)
+			{
+				externals.add(new RankedItem(item, RankedItem.BUILTIN, ((IPHPParseNode) item).getNodeName()
+						.toLowerCase(), externals.size()));
+			}
+			else
+			{
+				externals.add(new RankedItem(item, RankedItem.OTHER, null, externals.size()));
+			}
+		}
+		Collections.sort(externals);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.util.Iterator#hasNext()
+	 */
+	public boolean hasNext()
+	{
+		return localIndex < locals.size() || externalIndex < externals.size();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.util.Iterator#next()
+	 */
+	public Object next()
+	{
+		if (localIndex < locals.size())
+		{
+			return locals.get(localIndex++);
+		}
+		if (externalIndex < externals.size())
+		{
+			return externals.get(externalIndex++).item;
+		}
+		throw new NoSuchElementException();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.util.Iterator#remove()
+	 */
+	public void remove()
+	{
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * An item with its precomputed sort key.
+	 */
+	private static class RankedItem implements Comparable<RankedItem>
+	{
+		static final int BUILTIN = 0;
+		static final int EXTERNAL_ENTRY = 1;
+		static final int OTHER = 2;
+
+		final Object item;
+		final int kind;
+		final String name;
+		final int order;
+
+		RankedItem(Object item, int kind, String name, int order)
+		{
+			this.item = item;
+			this.kind = kind;
+			this.name = name;
+			this.order = order;
+		}
+
+		public int compareTo(RankedItem other)
+		{
+			if (kind != other.kind)
+			{
+				return kind - other.kind;
+			}
+			if (name != null && other.name != null)
+			{
+				int nameCompare = name.compareTo(other.name);
+				if (nameCompare != 0)
+				{
+					return nameCompare;
+				}
+			}
+			// keep the original order of equal items
+			return order - other.order;
+		}
+	}
+}
@@ -0,0 +1,198 @@
+/**
+ * Copyright (c) 2005-2006 Aptana, Inc.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html. If redistributing this code,
+ * this entire header must remain intact.
+ */
+package com.aptana.editor.php.internal.contentAssist;
+
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.DocumentEvent;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentListener;
+import org.eclipse.jface.text.contentassist.IContextInformation;
+
+/**
+ * A signature session holds the context information (parameter hints) that was resolved for a call expression, and
+ * reuses it while the caret stays inside that call's argument list. Typing the arguments (and the commas between them)
+ * does not resolve the callee again; the highlighted parameter is updated by the context information presenter.<br>
+ * The session listens to the document, and ends when the text up to the call's opening parenthesis changes.
+ */
+public class SignatureSession implements IDocumentListener
+{
+	private final IDocument document;
+	private final int openParenOffset;
+	private final IContextInformation[] information;
+	private boolean active;
+
+	/**
+	 * Starts a new signature session.
+	 *
+	 * @param document
+	 *            - the document the context information was computed for.
+	 * @param openParenOffset
+	 *            - the offset of the call's opening parenthesis.
+	 * @param information
+	 *            - the computed context information (may be empty).
+	 */
+	public SignatureSession(IDocument document, int openParenOffset, IContextInformation[] information)
+	{
+		this.document = document;
+		this.openParenOffset = openParenOffset;
+		this.information = information;
+		this.active = true;
+		document.addDocumentListener(this);
+	}
+
+	/**
+	 * Returns the offset of the opening parenthesis of the call that follows the given call name.
+	 *
+	 * @param document
+	 * @param nameEndPos
+	 *            - the (inclusive) end position of the function or class name.
+	 * @return The opening parenthesis offset, or -1 if the name is not followed by one.
+	 */
+	public static int findOpenParen(IDocument document, int nameEndPos)
+	{
+		try
+		{
+			for (int i = nameEndPos + 1; i < document.getLength(); i++)
+			{
+				char c = document.getChar(i);
+				if (c == '(')
+				{
+					return i;
+				}
+				if (!Character.isWhitespace(c))
+				{
+					return -1;
+				}
+			}
+		}
+		catch (BadLocationException e)
+		{
+			// no parenthesis
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the context information of this session, in case the given offset is inside the session's argument list
+	 * (and not inside a nested call).
+	 *
+	 * @param document
+	 * @param offset
+	 * @return The session's context information, or null in case it cannot be used for the offset.
+	 */
+	public IContextInformation[] getInformation(IDocument document, int offset)
+	{
+		if (!active || document != this.document || offset <= openParenOffset)
+		{
+			return null;
+		}
+		int depth = getNestingDepth(offset);
+		if (depth < 0)
+		{
+			// the caret left the argument list
+			dispose();
+			return null;
+		}
+		return (depth == 0) ? information : null;
+	}
+
+	/**
+	 * Returns whether the session is still alive.
+	 */
+	public boolean isActive()
+	{
+		return active;
+	}
+
+	/**
+	 * Ends the session.
+	 */
+	public void dispose()
+	{
+		if (active)
+		{
+			active = false;
+			document.removeDocumentListener(this);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.jface.text.IDocumentListener#documentAboutToBeChanged(org.eclipse.jface.text.DocumentEvent)
+	 */
+	public void documentAboutToBeChanged(DocumentEvent event)
+	{
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.jface.text.IDocumentListener#documentChanged(org.eclipse.jface.text.DocumentEvent)
+	 */
+	public void documentChanged(DocumentEvent event)
+	{
+		if (event.getOffset() <= openParenOffset)
+		{
+			// the callee (or the text before it) changed
+			dispose();
+		}
+	}
+
+	/**
+	 * Returns the parenthesis nesting depth of the given offset, relative to the session's argument list. Parentheses
+	 * inside string literals are ignored.
+	 *
+	 * @return 0 when the offset is directly in the argument list, a positive depth when it's inside a nested
+	 *         parenthesis, and -1 when the argument list was closed before the offset.
+	 */
+	private int getNestingDepth(int offset)
+	{
+		int depth = 0;
+		char quote = 0;
+		try
+		{
+			int end = Math.min(offset, document.getLength());
+			for (int i = openParenOffset + 1; i < end; i++)
+			{
+				char c = document.getChar(i);
+				if (quote != 0)
+				{
+					if (c == '\\')
+					{
+						i++;
+					}
+					else if (c == quote)
+					{
+						quote = 0;
+					}
+				}
+				else if (c == '\'' || c == '"')
+				{
+					quote = c;
+				}
+				else if (c == '(')
+				{
+					depth++;
+				}
+				else if (c == ')')
+				{
+					if (--depth < 0)
+					{
+						return -1;
+					}
+				}
+			}
+		}
+		catch (BadLocationException e)
+		{
+			return -1;
+		}
+		return depth;
+	}
+}
@@ -36,6 +36,7 @@ package com.aptana.editor.php.internal.contentAssist.mapping;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -43,7 +44,9 @@ import java.util.Set;
 
 import org.eclipse.core.runtime.Path;
 import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentExtension4;
 import org.eclipse.jface.text.ITypedRegion;
+import org.eclipse.php.internal.core.ast.nodes.Program;
 import org.eclipse.php.internal.core.documentModel.parser.regions.PHPRegionTypes;
 
 import com.aptana.editor.common.contentassist.LexemeProvider;
@@ -65,7 +68,10 @@ import com.aptana.editor.php.internal.indexer.AbstractPHPEntryValue;
 import com.aptana.editor.php.internal.indexer.ModuleSubstitutionIndex;
 import com.aptana.editor.php.internal.indexer.PDTPHPModuleIndexer;
 import com.aptana.editor.php.internal.indexer.UnpackedElementIndex;
+import com.aptana.editor.php.internal.parser.DocumentCharSequence;
+import com.aptana.editor.php.internal.parser.IPHPParseState;
 import com.aptana.editor.php.internal.ui.editor.PHPSourceEditor;
+import com.aptana.parsing.IParseState;
 import com.aptana.parsing.lexer.Lexeme;
 
 /**
@@ -77,6 +83,11 @@ public class PHPOffsetMapper
 {
 	private static final String NEW = "new"; //$NON-NLS-1$
 
+	/**
+	 * Maximum number of resolved targets that are kept for the current document.
+	 */
+	private static final int MAX_CACHED_TARGETS = 32;
+
 	/**
 	 * Whether reported stack is global.
 	 */
@@ -85,6 +96,29 @@ public class PHPOffsetMapper
 	private String namespace;
 	private Map<String, String> aliases;
 
+	/**
+	 * The targets that were resolved for the lexemes of the current document, keyed by the lexeme offset and text.
+	 * The targets are dropped when the document modification stamp changes.
+	 */
+	private final Map<String, ResolvedTarget> resolvedTargets = new LinkedHashMap<String, ResolvedTarget>(16, 0.75f,
+			true)
+	{
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, ResolvedTarget> eldest)
+		{
+			return size() > MAX_CACHED_TARGETS;
+		}
+	};
+	private long resolvedTargetsStamp = IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP;
+
+	/**
+	 * The editor's AST, and the document modification stamp it was found to reflect the document at.
+	 */
+	private Program currentAST;
+	private long currentASTStamp = IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP;
+
 	/**
 	 * Constructs a new PHP offset mapper with a given PHP editor.
 	 * 
@@ -109,8 +143,9 @@ public class PHPOffsetMapper
 	 */
 	public IElementEntry findEntry(Lexeme<PHPTokenType> lexeme, LexemeProvider<PHPTokenType> lexemeProvider)
 	{
-		String source = new String(phpSourceEditor.getFileService().getParseState().getSource());
-		Set<IElementEntry> entries = collectEntries(source, lexeme);
+		IDocument document = getDocument();
+		String source = getSource(document);
+		Set<IElementEntry> entries = collectEntries(document, source, lexeme);
 		if (entries.isEmpty())
 		{
 			return null;
@@ -120,7 +155,9 @@ public class PHPOffsetMapper
 	}
 
 	/**
-	 * Find the ICodeLocation for the given lexeme.
+	 * Find the ICodeLocation for the given lexeme.<br>
+	 * The targets are memoized per document modification stamp and lexeme, so hovering the same lexeme again does not
+	 * resolve it again.
 	 * 
 	 * @param lexeme
 	 *            The current lexeme
@@ -129,11 +166,74 @@ public class PHPOffsetMapper
 	 */
 	public ICodeLocation findTarget(Lexeme<PHPTokenType> lexeme, LexemeProvider<PHPTokenType> lexemeProvider)
 	{
-		String source = new String(phpSourceEditor.getFileService().getParseState().getSource());
+		IDocument document = getDocument();
+		long stamp = getModificationStamp(document);
+		String key = getTargetKey(lexeme);
+		synchronized (resolvedTargets)
+		{
+			if (stamp != IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP && stamp == resolvedTargetsStamp)
+			{
+				ResolvedTarget resolved = resolvedTargets.get(key);
+				if (resolved != null)
+				{
+					return resolved.location;
+				}
+			}
+		}
+		ICodeLocation location = resolveTarget(document, lexeme);
+		if (stamp == IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP)
+		{
+			return location;
+		}
+		synchronized (resolvedTargets)
+		{
+			if (stamp != resolvedTargetsStamp)
+			{
+				resolvedTargets.clear();
+				resolvedTargetsStamp = stamp;
+			}
+			resolvedTargets.put(key, new ResolvedTarget(lexeme, location));
+		}
+		return location;
+	}
+
+	/**
+	 * Returns a lexeme that covers the given offset and that its target was already resolved for the current document.
+	 * This lets the callers skip the lexing of the partition when the same lexeme is hovered again.
+	 * 
+	 * @param offset
+	 * @return A resolved lexeme, or null.
+	 */
+	public Lexeme<PHPTokenType> getResolvedLexeme(int offset)
+	{
+		long stamp = getModificationStamp(getDocument());
+		synchronized (resolvedTargets)
+		{
+			if (stamp == IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP || stamp != resolvedTargetsStamp)
+			{
+				return null;
+			}
+			for (ResolvedTarget resolved : resolvedTargets.values())
+			{
+				int start = resolved.lexeme.getStartingOffset();
+				if (offset >= start && offset < start + resolved.lexeme.getLength())
+				{
+					return resolved.lexeme;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Resolves the target of the given lexeme, using the editor's shared AST when it is up to date.
+	 */
+	private ICodeLocation resolveTarget(IDocument document, Lexeme<PHPTokenType> lexeme)
+	{
+		String source = getSource(document);
 		try
 		{
 			// Check if we are in an 'include' or 'require'
-			IDocument document = phpSourceEditor.getDocumentProvider().getDocument(phpSourceEditor.getEditorInput());
 			ITypedRegion partition = document.getPartition(lexeme.getStartingOffset());
 			int previousPartitionEnd = partition != null ? partition.getOffset() - 1 : -1;
 			if (previousPartitionEnd > 0
@@ -164,7 +264,7 @@ public class PHPOffsetMapper
 		String fullPath = null;
 		int startOffset = 0;
 
-		List<IElementEntry> sortedEntries = sortByModule(collectEntries(source, lexeme));
+		List<IElementEntry> sortedEntries = sortByModule(collectEntries(document, source, lexeme));
 
 		for (IElementEntry entry : sortedEntries)
 		{
@@ -193,13 +293,13 @@ public class PHPOffsetMapper
 	/**
 	 * Collect a set of {@link IElementEntry}s.
 	 * 
-	 * @param offset
+	 * @param document
 	 * @param source
 	 * @param lexeme
 	 * @return A collection of IElementEntries
 	 */
 	@SuppressWarnings("unchecked")
-	private Set<IElementEntry> collectEntries(String source, Lexeme<PHPTokenType> lexeme)
+	private Set<IElementEntry> collectEntries(IDocument document, String source, Lexeme<PHPTokenType> lexeme)
 	{
 		boolean isFunctionCall = isFunctionCall(lexeme, source);
 		boolean isConstructor = isConstructorCall(lexeme, source);
@@ -213,7 +313,7 @@ public class PHPOffsetMapper
 
 		Set<IElementEntry> entries = null;
 
-		IElementsIndex index = getIndex(source, offset);
+		IElementsIndex index = getIndex(document, source, offset);
 
 		// trying to get dereference entries
 		List<String> callPath = ParsingUtils.parseCallPath(null, source, offset, PHPContentAssistProcessor.OPS, false);
@@ -433,6 +533,26 @@ public class PHPOffsetMapper
 	 * @return elements index
 	 */
 	public IElementsIndex getIndex(String content, int offset)
+	{
+		return createIndex(content, null, offset);
+	}
+
+	/**
+	 * Gets elements index for the editor module. In case the editor's AST reflects the document, the local index is
+	 * built from it, instead of parsing the contents again.
+	 * 
+	 * @param document
+	 * @param content
+	 *            - the document contents.
+	 * @param offset
+	 * @return elements index
+	 */
+	private IElementsIndex getIndex(IDocument document, String content, int offset)
+	{
+		return createIndex(content, getCurrentAST(document, content), offset);
+	}
+
+	private IElementsIndex createIndex(String content, Program program, int offset)
 	{
 		IModule currentModule = phpSourceEditor.getModule();
 		if (currentModule == null)
@@ -444,7 +564,7 @@ public class PHPOffsetMapper
 		PDTPHPModuleIndexer indexer = new PDTPHPModuleIndexer(false, offset);
 
 		indexer.setUpdateTaskTags(false);
-		indexer.indexModule(content, currentModule, new IIndexReporter()
+		IIndexReporter reporter = new IIndexReporter()
 		{
 
 			public IElementEntry reportEntry(int category, String entryPath, IReportable value, IModule module)
@@ -452,7 +572,15 @@ public class PHPOffsetMapper
 				return index.addEntry(category, entryPath, value, module);
 			}
 
-		});
+		};
+		if (program != null)
+		{
+			indexer.indexModule(program, content, currentModule, reporter);
+		}
+		else
+		{
+			indexer.indexModule(content, currentModule, reporter);
+		}
 
 		reportedStackIsGlobal = indexer.isReportedScopeGlobal();
 		globalImports = indexer.getGlobalImports();
@@ -463,6 +591,59 @@ public class PHPOffsetMapper
 		return result;
 	}
 
+	/**
+	 * Returns the editor's AST, in case it was parsed from the given document contents. The contents are compared once
+	 * for every document modification.
+	 * 
+	 * @param document
+	 * @param content
+	 *            - the document contents.
+	 * @return The editor's AST, or null.
+	 */
+	private synchronized Program getCurrentAST(IDocument document, String content)
+	{
+		long stamp = getModificationStamp(document);
+		if (stamp == IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP || stamp != currentASTStamp)
+		{
+			IParseState parseState = phpSourceEditor.getFileService().getParseState();
+			currentAST = (parseState instanceof IPHPParseState) ? ((IPHPParseState) parseState).getAST(content) : null;
+			// An AST that does not reflect the document yet is looked up again, as the reconciler may still parse it
+			currentASTStamp = (currentAST != null) ? stamp : IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP;
+		}
+		return currentAST;
+	}
+
+	/**
+	 * Returns the document source. The source is copied once for every document modification, and the copy is shared
+	 * with the content assist (see {@link DocumentCharSequence#getContents(IDocument)}).
+	 * 
+	 * @param document
+	 * @return The document source.
+	 */
+	private static String getSource(IDocument document)
+	{
+		return DocumentCharSequence.getContents(document);
+	}
+
+	private IDocument getDocument()
+	{
+		return phpSourceEditor.getDocumentProvider().getDocument(phpSourceEditor.getEditorInput());
+	}
+
+	private static long getModificationStamp(IDocument document)
+	{
+		if (document instanceof IDocumentExtension4)
+		{
+			return ((IDocumentExtension4) document).getModificationStamp();
+		}
+		return IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP;
+	}
+
+	private static String getTargetKey(Lexeme<PHPTokenType> lexeme)
+	{
+		return lexeme.getStartingOffset() + ":" + lexeme.getText(); //$NON-NLS-1$
+	}
+
 	/**
 	 * Sorts entries by module.
 	 * 
@@ -502,4 +683,19 @@ public class PHPOffsetMapper
 
 		return toReturn;
 	}
-}
\ No newline at end of file
+
+	/**
+	 * A lexeme and the target that was resolved for it.
+	 */
+	private static class ResolvedTarget
+	{
+		private final Lexeme<PHPTokenType> lexeme;
+		private final ICodeLocation location;
+
+		ResolvedTarget(Lexeme<PHPTokenType> lexeme, ICodeLocation location)
+		{
+			this.lexeme = lexeme;
+			this.location = location;
+		}
+	}
+}
@@ -25,6 +25,7 @@ public class ContentAssistPreferencesInitializer extends AbstractPreferenceIniti
 		store.setDefault(AUTO_ACTIVATE_ON_IDENTIFIERS, true);
 		store.setDefault(CONTENT_ASSIST_FILTER_TYPE, CONTENT_ASSIST_INCLUDE_ALL);
 		store.setDefault(PARSE_UNSAVED_MODULE_ON_IDENTIFIERS_COMPLETION, true);
+		store.setDefault(FUZZY_MATCHING, true);
 		store.setDefault(INSERT_FUNCTION_PARAMETERS, true);
 		store.setDefault(INSERT_OPTIONAL_FUNCTION_PARAMETERS, false);
 		store.setDefault(INSERT_PARENTHESES_AFTER_METHOD_CALLS, false);
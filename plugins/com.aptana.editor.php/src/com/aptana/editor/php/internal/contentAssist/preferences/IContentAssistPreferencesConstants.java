@@ -73,6 +73,12 @@ public interface IContentAssistPreferencesConstants
 	 */
 	String PARSE_UNSAVED_MODULE_ON_IDENTIFIERS_COMPLETION = "com.aptana.ide.editor.php.contentassist.PARSE_UNSAVED_MODULE_ON_IDENTIFIERS_COMPLETION"; //$NON-NLS-1$
 
+	/**
+	 * Whether to propose the names that match the typed identifier as a subsequence or by its camel humps (and not
+	 * only by its prefix).
+	 */
+	String FUZZY_MATCHING = "com.aptana.ide.editor.php.contentassist.FUZZY_MATCHING"; //$NON-NLS-1$
+
 	/**
 	 * Whether to insert parentheses after method calls during auto-completion.
 	 */
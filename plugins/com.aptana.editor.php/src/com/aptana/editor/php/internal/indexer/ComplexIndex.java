@@ -36,12 +36,25 @@ package com.aptana.editor.php.internal.indexer;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
+import org.eclipse.core.runtime.IProgressMonitor;
+
+import com.aptana.editor.php.PHPEditorPlugin;
 import com.aptana.editor.php.indexer.IElementEntry;
 import com.aptana.editor.php.indexer.IElementsIndex;
 import com.aptana.editor.php.internal.core.builder.IBuildPath;
@@ -54,11 +67,85 @@ import com.aptana.editor.php.internal.core.builder.IModule;
  */
 public class ComplexIndex implements IElementsIndex
 {
+	/**
+	 * Minimum number of modules in the queried shards for a prefix query to run on the query threads.
+	 */
+	private static final int PARALLEL_MODULES_THRESHOLD = 2000;
+
+	/**
+	 * Prefix queries with a longer prefix are selective enough to run on the calling thread.
+	 */
+	private static final int PARALLEL_MAX_PREFIX = 1;
+
+	private static final String QUERY_THREAD_NAME = "PHP Index Query"; //$NON-NLS-1$
+
+	/**
+	 * The interval, in milliseconds, in which a streaming query checks its progress monitor while it waits for the
+	 * shards.
+	 */
+	private static final long CANCEL_CHECK_INTERVAL = 50;
+
+	private static ExecutorService queryExecutor;
+
+	/**
+	 * A query that runs on every index shard.
+	 */
+	public interface IShardQuery
+	{
+		/**
+		 * Runs the query on a single shard. This method may be called on the query threads.
+		 * 
+		 * @param index
+		 *            - the shard index.
+		 * @return The shard entries.
+		 */
+		List<IElementEntry> run(IElementsIndex index);
+	}
+
+	/**
+	 * Receives the results of an {@link IShardQuery}, entry by entry, on the thread that runs the query.
+	 */
+	public interface IEntryCollector
+	{
+		/**
+		 * Accepts a single entry.
+		 * 
+		 * @param entry
+		 * @return True to continue; False to stop the query.
+		 */
+		boolean accept(IElementEntry entry);
+	}
+
+	/**
+	 * An index shard - the index of a single build path.
+	 */
+	private static final class Shard
+	{
+		final IBuildPath buildPath;
+		final IModifiableElementsIndex index;
+
+		Shard(IBuildPath buildPath, IModifiableElementsIndex index)
+		{
+			this.buildPath = buildPath;
+			this.index = index;
+		}
+	}
+
 	/**
 	 * Indexes.
 	 */
 	private Map<IBuildPath, IModifiableElementsIndex> indexes = new HashMap<IBuildPath, IModifiableElementsIndex>();
 
+	/**
+	 * The shards snapshot. Replaced whenever an index is added or removed, so the queries do not lock this index.
+	 */
+	private volatile Shard[] shards = new Shard[0];
+
+	/**
+	 * Incremented whenever an index is added or removed.
+	 */
+	private volatile int shardsVersion;
+
 	public ComplexIndex()
 	{
 
@@ -107,15 +194,54 @@ public class ComplexIndex implements IElementsIndex
 		}
 	}
 
+	/**
+	 * Replaces the module entries with the given entries, as a single operation.
+	 * 
+	 * @param module
+	 *            - module.
+	 * @param newEntries
+	 *            - the new module entries.
+	 * @param indexResource
+	 *            - index resource.
+	 * @return true if the module declarations changed.
+	 * @see IModifiableElementsIndex#replaceModuleEntries(IModule, List)
+	 */
+	public synchronized boolean replaceModuleEntries(IModule module, List<UnpackedEntry> newEntries,
+			Object indexResource)
+	{
+		IModifiableElementsIndex index = indexes.get(indexResource);
+		if (index != null)
+		{
+			return index.replaceModuleEntries(module, newEntries);
+		}
+		return false;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
-	public synchronized List<IElementEntry> getEntries(int category, String path)
+	public List<IElementEntry> getEntries(int category, String path)
+	{
+		return getEntries(category, path, null);
+	}
+
+	/**
+	 * Returns the entries with the given category and path, out of the indexes that are reachable from the given build
+	 * path (the build path itself and its dependencies). The other indexes are not queried.
+	 * 
+	 * @param category
+	 * @param path
+	 * @param scope
+	 *            - the build path to query (may be null, to query all the indexes).
+	 * @return The entries.
+	 */
+	public List<IElementEntry> getEntries(int category, String path, IBuildPath scope)
 	{
 		List<IElementEntry> result = new ArrayList<IElementEntry>();
-		for (IModifiableElementsIndex index : indexes.values())
+		for (Shard shard : getShards(scope))
 		{
-			result.addAll(index.getEntries(category, path));
+			// exact lookups are cheap hash lookups, so they are never fanned out
+			result.addAll(shard.index.getEntries(category, path));
 		}
 
 		return result;
@@ -124,17 +250,273 @@ public class ComplexIndex implements IElementsIndex
 	/**
 	 * {@inheritDoc}
 	 */
-	public synchronized List<IElementEntry> getEntriesStartingWith(int category, String path)
+	public List<IElementEntry> getEntriesStartingWith(final int category, final String path)
 	{
+		// When the query is expected to be expensive (a short prefix over a large number of modules), the indexes are
+		// queried in parallel
+		List<Shard> toQuery = getShards(null);
+		if (isParallel(toQuery, path))
+		{
+			CompletionService<List<IElementEntry>> service = new ExecutorCompletionService<List<IElementEntry>>(
+					getQueryExecutor());
+			List<Future<List<IElementEntry>>> futures = new ArrayList<Future<List<IElementEntry>>>(toQuery.size());
+			for (final Shard shard : toQuery)
+			{
+				futures.add(service.submit(new Callable<List<IElementEntry>>()
+				{
+					public List<IElementEntry> call() throws Exception
+					{
+						return shard.index.getEntriesStartingWith(category, path);
+					}
+				}));
+			}
+			List<IElementEntry> result = new ArrayList<IElementEntry>();
+			try
+			{
+				// the results are merged as the shards produce them, and a shard that failed does not drop the others
+				for (int i = 0; i < toQuery.size(); i++)
+				{
+					List<IElementEntry> entries = getShardEntries(service.take());
+					if (entries != null)
+					{
+						result.addAll(entries);
+					}
+				}
+			}
+			catch (InterruptedException e)
+			{
+				for (Future<List<IElementEntry>> future : futures)
+				{
+					future.cancel(false);
+				}
+				Thread.currentThread().interrupt();
+			}
+			return result;
+		}
+
 		List<IElementEntry> result = new ArrayList<IElementEntry>();
-		for (IModifiableElementsIndex index : indexes.values())
+		for (Shard shard : toQuery)
+		{
+			result.addAll(shard.index.getEntriesStartingWith(category, path));
+		}
+
+		return result;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public List<IElementEntry> getEntriesMatching(int category, String pattern, int limit)
+	{
+		return getEntriesMatching(category, pattern, null, limit);
+	}
+
+	/**
+	 * Returns the entries that match the given fuzzy pattern, out of the indexes that are reachable from the given
+	 * build path. All the shards fill a single bounded collector, so the best matches of all of them are returned.
+	 * 
+	 * @param category
+	 * @param pattern
+	 * @param scope
+	 *            - the build path to query (may be null, to query all the indexes).
+	 * @param limit
+	 *            - the maximum number of entries to return (positive).
+	 * @return The entries, best matches first.
+	 */
+	public List<IElementEntry> getEntriesMatching(int category, String pattern, IBuildPath scope, int limit)
+	{
+		FuzzyEntriesCollector collector = new FuzzyEntriesCollector(pattern, limit);
+		for (Shard shard : getShards(scope))
+		{
+			if (shard.index instanceof UnpackedElementIndex)
+			{
+				((UnpackedElementIndex) shard.index).collectEntriesMatching(category, collector);
+			}
+			else
+			{
+				collector.offerAll(shard.index.getEntriesMatching(category, pattern, limit));
+			}
+		}
+		return collector.getEntries();
+	}
+
+	/**
+	 * Runs the given query on the indexes that are reachable from the given build path, and streams the entries of
+	 * every shard to the collector, one by one, as soon as the shard produces them. When there are several shards, they
+	 * are queried in parallel, and the entries arrive in the shards completion order.<br>
+	 * The query stops once the monitor is canceled or the collector asks to stop, in the middle of a shard as well. The
+	 * shards that did not start yet are not queried.
+	 * 
+	 * @param scope
+	 *            - the build path to query (may be null, to query all the indexes).
+	 * @param query
+	 * @param collector
+	 * @param monitor
+	 *            - a progress monitor that is checked for cancellation (may be null).
+	 */
+	public void queryShards(IBuildPath scope, final IShardQuery query, IEntryCollector collector,
+			IProgressMonitor monitor)
+	{
+		List<Shard> toQuery = getShards(scope);
+		if (toQuery.size() < 2 || QUERY_THREAD_NAME.equals(Thread.currentThread().getName()))
+		{
+			for (Shard shard : toQuery)
+			{
+				if (isCanceled(monitor) || !streamEntries(query.run(shard.index), collector, monitor))
+				{
+					return;
+				}
+			}
+			return;
+		}
+		CompletionService<List<IElementEntry>> service = new ExecutorCompletionService<List<IElementEntry>>(
+				getQueryExecutor());
+		List<Future<List<IElementEntry>>> futures = new ArrayList<Future<List<IElementEntry>>>(toQuery.size());
+		for (final Shard shard : toQuery)
+		{
+			futures.add(service.submit(new Callable<List<IElementEntry>>()
+			{
+				public List<IElementEntry> call() throws Exception
+				{
+					return query.run(shard.index);
+				}
+			}));
+		}
+		try
 		{
-			result.addAll(index.getEntriesStartingWith(category, path));
+			int remaining = toQuery.size();
+			while (remaining > 0 && !isCanceled(monitor))
+			{
+				Future<List<IElementEntry>> done = service.poll(CANCEL_CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+				if (done == null)
+				{
+					continue;
+				}
+				remaining--;
+				List<IElementEntry> entries = getShardEntries(done);
+				if (entries != null && !streamEntries(entries, collector, monitor))
+				{
+					break;
+				}
+			}
 		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		finally
+		{
+			for (Future<List<IElementEntry>> future : futures)
+			{
+				future.cancel(false);
+			}
+		}
+	}
 
+	/*
+	 * Returns the entries of a completed shard query, or null (after logging the failure) when the query failed.
+	 */
+	private static List<IElementEntry> getShardEntries(Future<List<IElementEntry>> done) throws InterruptedException
+	{
+		try
+		{
+			return done.get();
+		}
+		catch (ExecutionException e)
+		{
+			PHPEditorPlugin.logError(e.getCause());
+			return null;
+		}
+	}
+
+	/*
+	 * Hands the entries of a shard to the collector, one by one. Returns false once the collector asks to stop or the
+	 * monitor is canceled.
+	 */
+	private static boolean streamEntries(List<IElementEntry> entries, IEntryCollector collector,
+			IProgressMonitor monitor)
+	{
+		for (IElementEntry entry : entries)
+		{
+			if (isCanceled(monitor) || !collector.accept(entry))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isCanceled(IProgressMonitor monitor)
+	{
+		return monitor != null && monitor.isCanceled();
+	}
+
+	/*
+	 * Returns the shards that are reachable from the given build path.
+	 */
+	private List<Shard> getShards(IBuildPath scope)
+	{
+		Shard[] current = shards;
+		List<Shard> result = new ArrayList<Shard>(current.length);
+		Set<IBuildPath> dependencies = (scope != null) ? scope.getDependencies() : null;
+		if (dependencies == null)
+		{
+			dependencies = Collections.emptySet();
+		}
+		for (Shard shard : current)
+		{
+			if (scope == null || scope.equals(shard.buildPath) || dependencies.contains(shard.buildPath))
+			{
+				result.add(shard);
+			}
+		}
 		return result;
 	}
 
+	/*
+	 * Returns whether a prefix query over the given shards is expensive enough to run in parallel.
+	 */
+	private static boolean isParallel(List<Shard> toQuery, String path)
+	{
+		if (toQuery.size() < 2 || path.length() > PARALLEL_MAX_PREFIX
+				|| QUERY_THREAD_NAME.equals(Thread.currentThread().getName()))
+		{
+			return false;
+		}
+		int modules = 0;
+		for (Shard shard : toQuery)
+		{
+			if (!(shard.index instanceof UnpackedElementIndex))
+			{
+				return true;
+			}
+			modules += ((UnpackedElementIndex) shard.index).getModulesCount();
+			if (modules >= PARALLEL_MODULES_THRESHOLD)
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static synchronized ExecutorService getQueryExecutor()
+	{
+		if (queryExecutor == null)
+		{
+			int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+			queryExecutor = Executors.newFixedThreadPool(threads, new ThreadFactory()
+			{
+				public Thread newThread(Runnable r)
+				{
+					Thread thread = new Thread(r, QUERY_THREAD_NAME);
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return queryExecutor;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -174,6 +556,31 @@ public class ComplexIndex implements IElementsIndex
 	public synchronized void addIndex(IBuildPath indexResource, IModifiableElementsIndex index)
 	{
 		indexes.put(indexResource, index);
+		updateShards();
+	}
+
+	/**
+	 * Replaces the index of the given build path, in case the current index of the build path is the expected one.
+	 * 
+	 * @param indexResource
+	 *            - index resource.
+	 * @param expected
+	 *            - the index that is expected to be replaced.
+	 * @param index
+	 *            - the new index.
+	 * @return True if the index was replaced; False if the build path was removed, or its index was replaced
+	 *         meanwhile.
+	 */
+	public synchronized boolean replaceIndex(IBuildPath indexResource, IModifiableElementsIndex expected,
+			IModifiableElementsIndex index)
+	{
+		if (indexes.get(indexResource) != expected)
+		{
+			return false;
+		}
+		indexes.put(indexResource, index);
+		updateShards();
+		return true;
 	}
 
 	/**
@@ -185,6 +592,30 @@ public class ComplexIndex implements IElementsIndex
 	public synchronized void removeIndex(IBuildPath indexResource)
 	{
 		indexes.remove(indexResource);
+		updateShards();
+	}
+
+	private void updateShards()
+	{
+		Shard[] result = new Shard[indexes.size()];
+		int i = 0;
+		for (Map.Entry<IBuildPath, IModifiableElementsIndex> entry : indexes.entrySet())
+		{
+			result[i++] = new Shard(entry.getKey(), entry.getValue());
+		}
+		shards = result;
+		shardsVersion++;
+	}
+
+	/**
+	 * Returns the shards version. The version changes whenever an index is added or removed, so caches of query
+	 * results can tell that the set of indexes they were computed from was replaced.
+	 * 
+	 * @return The shards version.
+	 */
+	public int getShardsVersion()
+	{
+		return shardsVersion;
 	}
 
 	/**
@@ -192,7 +623,14 @@ public class ComplexIndex implements IElementsIndex
 	 */
 	public Collection<IBuildPath> getPaths()
 	{
-		return indexes.keySet();
+		// served from the shards snapshot, as the indexes map is modified by the index loaders
+		Shard[] current = shards;
+		List<IBuildPath> result = new ArrayList<IBuildPath>(current.length);
+		for (Shard shard : current)
+		{
+			result.add(shard.buildPath);
+		}
+		return result;
 	}
 
 	/**
@@ -200,7 +638,14 @@ public class ComplexIndex implements IElementsIndex
 	 */
 	public IModifiableElementsIndex getElementIndex(IBuildPath p)
 	{
-		return indexes.get(p);
+		for (Shard shard : shards)
+		{
+			if (shard.buildPath.equals(p))
+			{
+				return shard.index;
+			}
+		}
+		return null;
 	}
 
 }
@@ -0,0 +1,172 @@
+/**
+ * This file Copyright (c) 2005-2008 Aptana, Inc. This program is
+ * dual-licensed under both the Aptana Public License and the GNU General
+ * Public license. You may elect to use one or the other of these licenses.
+ * 
+ * This program is distributed in the hope that it will be useful, but
+ * AS-IS and WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE, TITLE, or
+ * NONINFRINGEMENT. Redistribution, except as permitted by whichever of
+ * the GPL or APL you select, is prohibited.
+ *
+ * 1. For the GPL license (GPL), you can redistribute and/or modify this
+ * program under the terms of the GNU General Public License,
+ * Version 3, as published by the Free Software Foundation.  You should
+ * have received a copy of the GNU General Public License, Version 3 along
+ * with this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Aptana provides a special exception to allow redistribution of this file
+ * with certain other free and open source software ("FOSS") code and certain additional terms
+ * pursuant to Section 7 of the GPL. You may view the exception and these
+ * terms on the web at http://www.aptana.com/legal/gpl/.
+ * 
+ * 2. For the Aptana Public License (APL), this program and the
+ * accompanying materials are made available under the terms of the APL
+ * v1.0 which accompanies this distribution, and is available at
+ * http://www.aptana.com/legal/apl/.
+ * 
+ * You may view the GPL, Aptana's exception and additional terms, and the
+ * APL in the file titled license.html at the root of the corresponding
+ * plugin containing this source file.
+ * 
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.editor.php.internal.indexer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import com.aptana.editor.php.internal.core.builder.IModule;
+
+/**
+ * Computes 64 bit content fingerprints of modules. The fingerprints are stored with the index and are used to detect
+ * modules whose time stamp was changed without a change in their content (for example, after a VCS checkout), so
+ * they are not indexed again.<br>
+ * The fingerprint is a 64 bit FNV-1a hash of the module bytes. The indexer reads the module bytes once with
+ * {@link #readContents(IModule)}, hashes them, and parses the same bytes in case the hash changed, so the recorded hash
+ * always describes the indexed contents.
+ */
+public final class ContentHashUtils
+{
+	/**
+	 * A hash value that indicates an unknown (not computed) hash.
+	 */
+	public static final long UNKNOWN_HASH = 0L;
+
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private ContentHashUtils()
+	{
+	}
+
+	/**
+	 * Reads the contents of a module.
+	 * 
+	 * @param module
+	 * @return The module bytes, or null in case the module has no contents.
+	 * @throws IOException
+	 */
+	public static byte[] readContents(IModule module) throws IOException
+	{
+		String fullPath = module.getFullPath();
+		File file = fullPath != null ? new File(fullPath) : null;
+		if (file != null && file.isFile())
+		{
+			return readContents(file);
+		}
+		InputStream contents = module.getContents();
+		if (contents == null)
+		{
+			return null;
+		}
+		try
+		{
+			ByteArrayOutputStream result = new ByteArrayOutputStream(BUFFER_SIZE);
+			byte[] buffer = new byte[BUFFER_SIZE];
+			int read;
+			while ((read = contents.read(buffer)) != -1)
+			{
+				result.write(buffer, 0, read);
+			}
+			return result.toByteArray();
+		}
+		finally
+		{
+			contents.close();
+		}
+	}
+
+	/**
+	 * Reads the contents of a file through a {@link FileChannel}.
+	 * 
+	 * @param file
+	 * @return The file bytes.
+	 * @throws IOException
+	 */
+	public static byte[] readContents(File file) throws IOException
+	{
+		FileInputStream stream = new FileInputStream(file);
+		try
+		{
+			FileChannel channel = stream.getChannel();
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE)
+			{
+				throw new IOException("File is too large: " + file); //$NON-NLS-1$
+			}
+			ByteBuffer buffer = ByteBuffer.allocate((int) size);
+			while (buffer.hasRemaining() && channel.read(buffer) != -1)
+			{
+				// reading
+			}
+			if (buffer.hasRemaining())
+			{
+				// the file was truncated while it was read
+				byte[] result = new byte[buffer.position()];
+				System.arraycopy(buffer.array(), 0, result, 0, result.length);
+				return result;
+			}
+			return buffer.array();
+		}
+		finally
+		{
+			stream.close();
+		}
+	}
+
+	/**
+	 * Computes the content hash of the given bytes.
+	 * 
+	 * @param bytes
+	 * @return The hash.
+	 */
+	public static long computeHash(byte[] bytes)
+	{
+		return finish(update(FNV_OFFSET_BASIS, bytes, 0, bytes.length));
+	}
+
+	private static long update(long hash, byte[] bytes, int offset, int length)
+	{
+		int end = offset + length;
+		for (int i = offset; i < end; i++)
+		{
+			hash ^= (bytes[i] & 0xff);
+			hash *= FNV_PRIME;
+		}
+		return hash;
+	}
+
+	private static long finish(long hash)
+	{
+		// Zero is reserved for the unknown hash
+		return hash == UNKNOWN_HASH ? 1L : hash;
+	}
+}
@@ -0,0 +1,189 @@
+/**
+ * This file Copyright (c) 2005-2008 Aptana, Inc. This program is
+ * dual-licensed under both the Aptana Public License and the GNU General
+ * Public license. You may elect to use one or the other of these licenses.
+ * 
+ * This program is distributed in the hope that it will be useful, but
+ * AS-IS and WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE, TITLE, or
+ * NONINFRINGEMENT. Redistribution, except as permitted by whichever of
+ * the GPL or APL you select, is prohibited.
+ *
+ * 1. For the GPL license (GPL), you can redistribute and/or modify this
+ * program under the terms of the GNU General Public License,
+ * Version 3, as published by the Free Software Foundation.  You should
+ * have received a copy of the GNU General Public License, Version 3 along
+ * with this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Aptana provides a special exception to allow redistribution of this file
+ * with certain other free and open source software ("FOSS") code and certain additional terms
+ * pursuant to Section 7 of the GPL. You may view the exception and these
+ * terms on the web at http://www.aptana.com/legal/gpl/.
+ * 
+ * 2. For the Aptana Public License (APL), this program and the
+ * accompanying materials are made available under the terms of the APL
+ * v1.0 which accompanies this distribution, and is available at
+ * http://www.aptana.com/legal/apl/.
+ * 
+ * You may view the GPL, Aptana's exception and additional terms, and the
+ * APL in the file titled license.html at the root of the corresponding
+ * plugin containing this source file.
+ * 
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.editor.php.internal.indexer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import com.aptana.editor.php.indexer.IElementEntry;
+
+/**
+ * Collects the best scored entries that match a fuzzy pattern, out of the entries that are offered to it. The entries
+ * are kept in a bounded heap, so the memory that is used while merging the results of many index shards is bounded by
+ * the limit, regardless of the number of matching entries.<br>
+ * This class is thread safe.
+ * 
+ * @see FuzzyMatcher
+ */
+public final class FuzzyEntriesCollector
+{
+	/**
+	 * Orders the entries by their case-insensitive path, and then by their category.
+	 */
+	private static final Comparator<IElementEntry> ENTRY_ORDER = new Comparator<IElementEntry>()
+	{
+		public int compare(IElementEntry e1, IElementEntry e2)
+		{
+			int result = e1.getLowerCaseEntryPath().compareTo(e2.getLowerCaseEntryPath());
+			if (result == 0)
+			{
+				result = e1.getCategory() - e2.getCategory();
+			}
+			return result;
+		}
+	};
+
+	/**
+	 * Orders the scored entries by their descending score, and then by {@link #ENTRY_ORDER}.
+	 */
+	private static final Comparator<ScoredEntry> SCORE_ORDER = new Comparator<ScoredEntry>()
+	{
+		public int compare(ScoredEntry e1, ScoredEntry e2)
+		{
+			if (e1.score != e2.score)
+			{
+				return e2.score - e1.score;
+			}
+			return ENTRY_ORDER.compare(e1.entry, e2.entry);
+		}
+	};
+
+	private static final Comparator<ScoredEntry> REVERSE_ORDER = Collections.reverseOrder(SCORE_ORDER);
+
+	private final String pattern;
+	private final int limit;
+	private final PriorityQueue<ScoredEntry> heap;
+
+	/**
+	 * Constructs a new collector.
+	 * 
+	 * @param pattern
+	 *            - the fuzzy pattern.
+	 * @param limit
+	 *            - the maximum number of entries to keep (positive).
+	 */
+	public FuzzyEntriesCollector(String pattern, int limit)
+	{
+		if (limit <= 0)
+		{
+			throw new IllegalArgumentException("limit should be positive: " + limit); //$NON-NLS-1$
+		}
+		this.pattern = pattern;
+		this.limit = limit;
+		// the head of the heap is the worst entry that is currently kept
+		this.heap = new PriorityQueue<ScoredEntry>(Math.min(limit, 1024) + 1, REVERSE_ORDER);
+	}
+
+	/**
+	 * Returns the pattern of this collector.
+	 * 
+	 * @return The pattern.
+	 */
+	public String getPattern()
+	{
+		return pattern;
+	}
+
+	/**
+	 * Offers an entry that was already scored against the pattern.
+	 * 
+	 * @param entry
+	 * @param score
+	 *            - the {@link FuzzyMatcher} score.
+	 */
+	public synchronized void offer(IElementEntry entry, int score)
+	{
+		ScoredEntry scored = new ScoredEntry(entry, score);
+		if (heap.size() < limit)
+		{
+			heap.add(scored);
+		}
+		else if (SCORE_ORDER.compare(scored, heap.peek()) < 0)
+		{
+			heap.poll();
+			heap.add(scored);
+		}
+	}
+
+	/**
+	 * Scores the given entries by their last path names, and offers the matching ones.
+	 * 
+	 * @param entries
+	 */
+	public void offerAll(Collection<? extends IElementEntry> entries)
+	{
+		for (IElementEntry entry : entries)
+		{
+			int score = FuzzyMatcher.match(pattern, ElementsIndexingUtils.getLastNameInPath(entry.getEntryPath()));
+			if (score != FuzzyMatcher.NO_MATCH)
+			{
+				offer(entry, score);
+			}
+		}
+	}
+
+	/**
+	 * Returns the collected entries, best scored first.
+	 * 
+	 * @return The collected entries.
+	 */
+	public synchronized List<IElementEntry> getEntries()
+	{
+		List<ScoredEntry> scored = new ArrayList<ScoredEntry>(heap);
+		Collections.sort(scored, SCORE_ORDER);
+		List<IElementEntry> result = new ArrayList<IElementEntry>(scored.size());
+		for (ScoredEntry entry : scored)
+		{
+			result.add(entry.entry);
+		}
+		return result;
+	}
+
+	private static final class ScoredEntry
+	{
+		final IElementEntry entry;
+		final int score;
+
+		ScoredEntry(IElementEntry entry, int score)
+		{
+			this.entry = entry;
+			this.score = score;
+		}
+	}
+}
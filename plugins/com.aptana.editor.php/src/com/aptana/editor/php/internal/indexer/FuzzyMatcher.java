@@ -0,0 +1,208 @@
+/**
+ * This file Copyright (c) 2005-2008 Aptana, Inc. This program is
+ * dual-licensed under both the Aptana Public License and the GNU General
+ * Public license. You may elect to use one or the other of these licenses.
+ * 
+ * This program is distributed in the hope that it will be useful, but
+ * AS-IS and WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE, TITLE, or
+ * NONINFRINGEMENT. Redistribution, except as permitted by whichever of
+ * the GPL or APL you select, is prohibited.
+ *
+ * 1. For the GPL license (GPL), you can redistribute and/or modify this
+ * program under the terms of the GNU General Public License,
+ * Version 3, as published by the Free Software Foundation.  You should
+ * have received a copy of the GNU General Public License, Version 3 along
+ * with this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Aptana provides a special exception to allow redistribution of this file
+ * with certain other free and open source software ("FOSS") code and certain additional terms
+ * pursuant to Section 7 of the GPL. You may view the exception and these
+ * terms on the web at http://www.aptana.com/legal/gpl/.
+ * 
+ * 2. For the Aptana Public License (APL), this program and the
+ * accompanying materials are made available under the terms of the APL
+ * v1.0 which accompanies this distribution, and is available at
+ * http://www.aptana.com/legal/apl/.
+ * 
+ * You may view the GPL, Aptana's exception and additional terms, and the
+ * APL in the file titled license.html at the root of the corresponding
+ * plugin containing this source file.
+ * 
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.editor.php.internal.indexer;
+
+import com.aptana.editor.php.indexer.IElementsIndex;
+
+/**
+ * Matches a completion pattern against a name, and scores the match.<br>
+ * A name matches a pattern when the pattern characters appear in the name in the same order, ignoring case (so
+ * <code>userrepo</code> and <code>gUR</code> both match <code>getUserRepository</code>). The score prefers exact and
+ * prefix matches, then matches on word starts (camel humps, underscores) and contiguous runs, then shorter names.
+ */
+public final class FuzzyMatcher
+{
+	/**
+	 * The score of a name that does not match.
+	 */
+	public static final int NO_MATCH = -1;
+
+	private static final int EXACT_SCORE = 3000;
+	private static final int PREFIX_SCORE = 2000;
+	private static final int SUBSEQUENCE_SCORE = 1000;
+	private static final int WORD_START_BONUS = 10;
+	private static final int CONTIGUOUS_BONUS = 5;
+	private static final int FIRST_CHAR_BONUS = 15;
+
+	/**
+	 * Scores the given name against the given pattern.
+	 * 
+	 * @param pattern
+	 *            - the pattern, as typed.
+	 * @param name
+	 *            - the name, with its original case (the case is used to detect the camel humps).
+	 * @return The match score (higher is better), or {@link #NO_MATCH}.
+	 */
+	public static int match(String pattern, String name)
+	{
+		int patternLength = pattern.length();
+		int nameLength = name.length();
+		if (patternLength == 0)
+		{
+			return 0;
+		}
+		if (patternLength > nameLength)
+		{
+			return NO_MATCH;
+		}
+		if (name.regionMatches(true, 0, pattern, 0, patternLength))
+		{
+			return ((patternLength == nameLength) ? EXACT_SCORE : PREFIX_SCORE) - (nameLength - patternLength);
+		}
+		int score = matchWordStarts(pattern, name);
+		if (score == NO_MATCH)
+		{
+			score = matchLeftmost(pattern, name);
+		}
+		return score;
+	}
+
+	/**
+	 * Returns true if the character at the given index starts a word in the name - the first character, an upper case
+	 * letter after a lower case one, a letter after a digit, or a character that follows a separator.
+	 * 
+	 * @param name
+	 * @param index
+	 * @return True if the index is a word start; False, otherwise.
+	 */
+	public static boolean isWordStart(String name, int index)
+	{
+		if (index == 0)
+		{
+			return true;
+		}
+		char c = name.charAt(index);
+		char previous = name.charAt(index - 1);
+		if (isSeparator(previous))
+		{
+			return !isSeparator(c);
+		}
+		if (Character.isUpperCase(c))
+		{
+			return !Character.isUpperCase(previous);
+		}
+		return Character.isLetter(c) && Character.isDigit(previous);
+	}
+
+	/**
+	 * Matches the pattern characters, continuing the current run when possible and otherwise jumping to the next word
+	 * start. May miss a match that exists, in which case {@link #matchLeftmost(String, String)} is used.
+	 */
+	private static int matchWordStarts(String pattern, String name)
+	{
+		int nameLength = name.length();
+		int score = SUBSEQUENCE_SCORE;
+		int position = 0;
+		int previous = -2;
+		for (int i = 0; i < pattern.length(); i++)
+		{
+			char c = Character.toLowerCase(pattern.charAt(i));
+			if (position < nameLength && previous == position - 1 && Character.toLowerCase(name.charAt(position)) == c)
+			{
+				score += CONTIGUOUS_BONUS;
+				previous = position++;
+				continue;
+			}
+			int found = -1;
+			for (int j = position; j < nameLength; j++)
+			{
+				if (Character.toLowerCase(name.charAt(j)) == c && isWordStart(name, j))
+				{
+					found = j;
+					break;
+				}
+			}
+			if (found == -1)
+			{
+				return NO_MATCH;
+			}
+			score += WORD_START_BONUS - (found - position);
+			if (found == 0)
+			{
+				score += FIRST_CHAR_BONUS;
+			}
+			previous = found;
+			position = found + 1;
+		}
+		return score - (nameLength - pattern.length());
+	}
+
+	/**
+	 * Matches the pattern characters at their leftmost occurrences. Finds a match whenever one exists.
+	 */
+	private static int matchLeftmost(String pattern, String name)
+	{
+		int nameLength = name.length();
+		int score = SUBSEQUENCE_SCORE;
+		int position = 0;
+		int previous = -2;
+		for (int i = 0; i < pattern.length(); i++)
+		{
+			char c = Character.toLowerCase(pattern.charAt(i));
+			while (position < nameLength && Character.toLowerCase(name.charAt(position)) != c)
+			{
+				position++;
+			}
+			if (position == nameLength)
+			{
+				return NO_MATCH;
+			}
+			if (position == previous + 1)
+			{
+				score += CONTIGUOUS_BONUS;
+			}
+			else if (isWordStart(name, position))
+			{
+				score += WORD_START_BONUS;
+			}
+			if (position == 0)
+			{
+				score += FIRST_CHAR_BONUS;
+			}
+			previous = position++;
+		}
+		// a leftmost match is not as relevant as a word starts match
+		return score - 2 * (nameLength - pattern.length());
+	}
+
+	private static boolean isSeparator(char c)
+	{
+		return c == '_' || c == '$' || c == '\\' || c == IElementsIndex.DELIMITER;
+	}
+
+	private FuzzyMatcher()
+	{
+	}
+}
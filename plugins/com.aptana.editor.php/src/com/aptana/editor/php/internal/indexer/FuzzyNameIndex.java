@@ -0,0 +1,382 @@
+/**
+ * This file Copyright (c) 2005-2008 Aptana, Inc. This program is
+ * dual-licensed under both the Aptana Public License and the GNU General
+ * Public license. You may elect to use one or the other of these licenses.
+ * 
+ * This program is distributed in the hope that it will be useful, but
+ * AS-IS and WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE, TITLE, or
+ * NONINFRINGEMENT. Redistribution, except as permitted by whichever of
+ * the GPL or APL you select, is prohibited.
+ *
+ * 1. For the GPL license (GPL), you can redistribute and/or modify this
+ * program under the terms of the GNU General Public License,
+ * Version 3, as published by the Free Software Foundation.  You should
+ * have received a copy of the GNU General Public License, Version 3 along
+ * with this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Aptana provides a special exception to allow redistribution of this file
+ * with certain other free and open source software ("FOSS") code and certain additional terms
+ * pursuant to Section 7 of the GPL. You may view the exception and these
+ * terms on the web at http://www.aptana.com/legal/gpl/.
+ * 
+ * 2. For the Aptana Public License (APL), this program and the
+ * accompanying materials are made available under the terms of the APL
+ * v1.0 which accompanies this distribution, and is available at
+ * http://www.aptana.com/legal/apl/.
+ * 
+ * You may view the GPL, Aptana's exception and additional terms, and the
+ * APL in the file titled license.html at the root of the corresponding
+ * plugin containing this source file.
+ * 
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.editor.php.internal.indexer;
+
+import gnu.trove.TIntArrayList;
+import gnu.trove.TIntHashSet;
+import gnu.trove.TIntObjectHashMap;
+import gnu.trove.TObjectIntHashMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * A character bigram posting index of names, for the fuzzy (subsequence and camel humps) matching of
+ * {@link FuzzyMatcher}.<br>
+ * Every distinct name gets an id, and is posted under its contiguous lower case bigrams and under the bigrams of its
+ * consecutive word starts (<code>getUserRepository</code> is posted under <code>ge, et, tu, ..., gu, ur</code>). A
+ * query counts, for every name, how many of the pattern bigrams it is posted under, and only the names that miss at
+ * most {@link #MAX_MISSING_BIGRAMS} of them are scored by the matcher. Each gap in a subsequence match breaks at most
+ * one pattern bigram, so the names that are not scored are the ones that would match with many gaps, if at all.<br>
+ * This class is not thread safe.
+ * 
+ * @param <T>
+ *            - the type of the items that are kept for the names.
+ */
+public final class FuzzyNameIndex<T>
+{
+	/**
+	 * The number of pattern bigrams a name may miss and still be scored.
+	 */
+	private static final int MAX_MISSING_BIGRAMS = 2;
+
+	/**
+	 * The number of removed names from which the index is compacted (in case they are the majority).
+	 */
+	private static final int COMPACT_THRESHOLD = 1024;
+
+	private static final Comparator<TIntArrayList> POSTING_SIZE_ORDER = new Comparator<TIntArrayList>()
+	{
+		public int compare(TIntArrayList l1, TIntArrayList l2)
+		{
+			return l1.size() - l2.size();
+		}
+	};
+
+	/**
+	 * Receives the items that match a pattern.
+	 * 
+	 * @param <T>
+	 */
+	public interface IMatchVisitor<T>
+	{
+		/**
+		 * Called for every item of a matching name.
+		 * 
+		 * @param item
+		 * @param name
+		 *            - the matching name.
+		 * @param score
+		 *            - the {@link FuzzyMatcher} score.
+		 */
+		void accept(T item, String name, int score);
+	}
+
+	private TObjectIntHashMap<String> ids = new TObjectIntHashMap<String>();
+	private List<String> names = new ArrayList<String>();
+
+	/**
+	 * Id->Items. Value might be represented by the single item or by the items set.
+	 */
+	private List<Object> items = new ArrayList<Object>();
+	private TIntObjectHashMap<TIntArrayList> postings = new TIntObjectHashMap<TIntArrayList>();
+	private int removedCount;
+
+	/**
+	 * Id->Count of the matched pattern bigrams. Reused by the queries, and all zeros between them.
+	 */
+	private int[] counts = new int[0];
+
+	/**
+	 * Adds an item under the given name.
+	 * 
+	 * @param name
+	 * @param item
+	 */
+	@SuppressWarnings("unchecked")
+	public void add(String name, T item)
+	{
+		if (name == null || name.length() == 0)
+		{
+			return;
+		}
+		if (ids.containsKey(name))
+		{
+			int id = ids.get(name);
+			Object current = items.get(id);
+			if (current instanceof HashSet<?>)
+			{
+				((HashSet<Object>) current).add(item);
+			}
+			else if (!current.equals(item))
+			{
+				HashSet<Object> set = new HashSet<Object>(2);
+				set.add(current);
+				set.add(item);
+				items.set(id, set);
+			}
+			return;
+		}
+		int id = names.size();
+		ids.put(name, id);
+		names.add(name);
+		items.add(item);
+		for (int bigram : getBigrams(name))
+		{
+			TIntArrayList posting = postings.get(bigram);
+			if (posting == null)
+			{
+				posting = new TIntArrayList(4);
+				postings.put(bigram, posting);
+			}
+			// ids are increasing, so the postings stay sorted
+			posting.add(id);
+		}
+	}
+
+	/**
+	 * Removes an item from the given name.
+	 * 
+	 * @param name
+	 * @param item
+	 */
+	public void remove(String name, T item)
+	{
+		if (name == null || !ids.containsKey(name))
+		{
+			return;
+		}
+		int id = ids.get(name);
+		Object current = items.get(id);
+		if (current instanceof HashSet<?>)
+		{
+			HashSet<?> set = (HashSet<?>) current;
+			set.remove(item);
+			if (set.size() == 1)
+			{
+				items.set(id, set.iterator().next());
+			}
+			return;
+		}
+		if (!current.equals(item))
+		{
+			return;
+		}
+		// The name is only marked as removed here. Its postings are skipped by the queries until the next compaction.
+		ids.remove(name);
+		names.set(id, null);
+		items.set(id, null);
+		removedCount++;
+		if (removedCount > COMPACT_THRESHOLD && removedCount > names.size() / 2)
+		{
+			compact();
+		}
+	}
+
+	/**
+	 * Visits the items of the names that match the given pattern. Patterns that are shorter than two characters have no
+	 * bigrams, and match nothing (they are served by the prefix queries).
+	 * 
+	 * @param pattern
+	 * @param visitor
+	 */
+	@SuppressWarnings("unchecked")
+	public void match(String pattern, IMatchVisitor<T> visitor)
+	{
+		int[] bigrams = getPatternBigrams(pattern);
+		if (bigrams.length == 0)
+		{
+			return;
+		}
+		TIntArrayList[] lists = new TIntArrayList[bigrams.length];
+		int listsCount = 0;
+		for (int bigram : bigrams)
+		{
+			TIntArrayList posting = postings.get(bigram);
+			if (posting != null)
+			{
+				lists[listsCount++] = posting;
+			}
+		}
+		int threshold = Math.max(1, bigrams.length - MAX_MISSING_BIGRAMS);
+		if (listsCount < threshold)
+		{
+			return;
+		}
+		// A name that is posted under at least 'threshold' lists appears in any (listsCount - threshold + 1) of them,
+		// so only the shortest ones introduce candidates, and the rest only count.
+		Arrays.sort(lists, 0, listsCount, POSTING_SIZE_ORDER);
+		int introducing = listsCount - threshold + 1;
+		if (counts.length < names.size())
+		{
+			counts = new int[Math.max(names.size(), counts.length * 2)];
+		}
+		TIntArrayList candidates = new TIntArrayList();
+		for (int i = 0; i < listsCount; i++)
+		{
+			TIntArrayList posting = lists[i];
+			for (int j = 0; j < posting.size(); j++)
+			{
+				int id = posting.getQuick(j);
+				if (counts[id] != 0)
+				{
+					counts[id]++;
+				}
+				else if (i < introducing)
+				{
+					counts[id] = 1;
+					candidates.add(id);
+				}
+			}
+		}
+		for (int i = 0; i < candidates.size(); i++)
+		{
+			int id = candidates.getQuick(i);
+			int count = counts[id];
+			// the counts are left clean for the next query
+			counts[id] = 0;
+			if (count < threshold)
+			{
+				continue;
+			}
+			String name = names.get(id);
+			if (name == null)
+			{
+				continue;
+			}
+			int score = FuzzyMatcher.match(pattern, name);
+			if (score == FuzzyMatcher.NO_MATCH)
+			{
+				continue;
+			}
+			Object value = items.get(id);
+			if (value instanceof HashSet<?>)
+			{
+				for (Object item : (Collection<Object>) value)
+				{
+					visitor.accept((T) item, name, score);
+				}
+			}
+			else
+			{
+				visitor.accept((T) value, name, score);
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of names in this index.
+	 * 
+	 * @return The names count.
+	 */
+	public int size()
+	{
+		return ids.size();
+	}
+
+	/**
+	 * Rebuilds the index out of its live names.
+	 */
+	@SuppressWarnings("unchecked")
+	private void compact()
+	{
+		List<String> oldNames = names;
+		List<Object> oldItems = items;
+		ids = new TObjectIntHashMap<String>();
+		names = new ArrayList<String>();
+		items = new ArrayList<Object>();
+		postings = new TIntObjectHashMap<TIntArrayList>();
+		removedCount = 0;
+		for (int i = 0; i < oldNames.size(); i++)
+		{
+			String name = oldNames.get(i);
+			if (name == null)
+			{
+				continue;
+			}
+			Object value = oldItems.get(i);
+			if (value instanceof HashSet<?>)
+			{
+				for (Object item : (Collection<Object>) value)
+				{
+					add(name, (T) item);
+				}
+			}
+			else
+			{
+				add(name, (T) value);
+			}
+		}
+	}
+
+	/**
+	 * Returns the distinct contiguous and word starts bigrams of a name.
+	 */
+	private static int[] getBigrams(String name)
+	{
+		TIntHashSet result = new TIntHashSet();
+		String lowerCaseName = name.toLowerCase();
+		for (int i = 0; i + 1 < lowerCaseName.length(); i++)
+		{
+			result.add(toBigram(lowerCaseName.charAt(i), lowerCaseName.charAt(i + 1)));
+		}
+		int previousStart = -1;
+		for (int i = 0; i < name.length(); i++)
+		{
+			if (FuzzyMatcher.isWordStart(name, i))
+			{
+				if (previousStart != -1)
+				{
+					result.add(toBigram(lowerCaseName.charAt(previousStart), lowerCaseName.charAt(i)));
+				}
+				previousStart = i;
+			}
+		}
+		return result.toArray();
+	}
+
+	/**
+	 * Returns the distinct contiguous bigrams of a pattern.
+	 */
+	private static int[] getPatternBigrams(String pattern)
+	{
+		TIntHashSet result = new TIntHashSet();
+		String lowerCasePattern = pattern.toLowerCase();
+		for (int i = 0; i + 1 < lowerCasePattern.length(); i++)
+		{
+			result.add(toBigram(lowerCasePattern.charAt(i), lowerCasePattern.charAt(i + 1)));
+		}
+		return result.toArray();
+	}
+
+	private static int toBigram(char first, char second)
+	{
+		return (first << 16) | second;
+	}
+}
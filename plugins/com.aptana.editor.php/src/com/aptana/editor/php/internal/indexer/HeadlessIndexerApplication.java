@@ -0,0 +1,320 @@
+/**
+ * This file Copyright (c) 2005-2008 Aptana, Inc. This program is
+ * dual-licensed under both the Aptana Public License and the GNU General
+ * Public license. You may elect to use one or the other of these licenses.
+ * 
+ * This program is distributed in the hope that it will be useful, but
+ * AS-IS and WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE, TITLE, or
+ * NONINFRINGEMENT. Redistribution, except as permitted by whichever of
+ * the GPL or APL you select, is prohibited.
+ *
+ * 1. For the GPL license (GPL), you can redistribute and/or modify this
+ * program under the terms of the GNU General Public License,
+ * Version 3, as published by the Free Software Foundation.  You should
+ * have received a copy of the GNU General Public License, Version 3 along
+ * with this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Aptana provides a special exception to allow redistribution of this file
+ * with certain other free and open source software ("FOSS") code and certain additional terms
+ * pursuant to Section 7 of the GPL. You may view the exception and these
+ * terms on the web at http://www.aptana.com/legal/gpl/.
+ * 
+ * 2. For the Aptana Public License (APL), this program and the
+ * accompanying materials are made available under the terms of the APL
+ * v1.0 which accompanies this distribution, and is available at
+ * http://www.aptana.com/legal/apl/.
+ * 
+ * You may view the GPL, Aptana's exception and additional terms, and the
+ * APL in the file titled license.html at the root of the corresponding
+ * plugin containing this source file.
+ * 
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.editor.php.internal.indexer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.equinox.app.IApplication;
+import org.eclipse.equinox.app.IApplicationContext;
+
+import com.aptana.editor.php.PHPEditorPlugin;
+import com.aptana.editor.php.indexer.IElementEntry;
+import com.aptana.editor.php.indexer.IIndexReporter;
+import com.aptana.editor.php.indexer.IReportable;
+import com.aptana.editor.php.internal.builder.FileSystemBuildPath;
+import com.aptana.editor.php.internal.core.builder.IModule;
+
+/**
+ * A headless application that indexes a directory tree and writes a {@link PrebuiltIndex} file for it.<br>
+ * This lets a build server publish the indexes of shared library trees, so the workstations that point their
+ * {@link com.aptana.editor.php.core.CorePreferenceConstants.Keys#PREBUILT_INDEX_DIRECTORY} to the published indexes
+ * do not have to index these trees on their own.<br>
+ * Usage:
+ * 
+ * <pre>
+ * eclipse -nosplash -application com.aptana.editor.php.headlessIndexer -root &lt;dir&gt; [-name &lt;name&gt;] [-output &lt;dir&gt;] [-threads &lt;count&gt;]
+ * </pre>
+ * 
+ * The index is written to <code>&lt;output&gt;/&lt;name&gt;.phpindex</code>. The name defaults to the name the IDE
+ * looks the index up by ({@link PrebuiltIndex#getName(com.aptana.editor.php.internal.core.builder.IBuildPath)}), and
+ * the output defaults to the current directory. The application exits with an error code in case some modules could
+ * not be indexed.
+ */
+public class HeadlessIndexerApplication implements IApplication
+{
+	private static final String ROOT_ARG = "-root"; //$NON-NLS-1$
+	private static final String NAME_ARG = "-name"; //$NON-NLS-1$
+	private static final String OUTPUT_ARG = "-output"; //$NON-NLS-1$
+	private static final String THREADS_ARG = "-threads"; //$NON-NLS-1$
+
+	private static final Integer EXIT_ERROR = Integer.valueOf(1);
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.equinox.app.IApplication#start(org.eclipse.equinox.app.IApplicationContext)
+	 */
+	public Object start(IApplicationContext context) throws Exception
+	{
+		Map<?, ?> arguments = context.getArguments();
+		String[] args = (String[]) arguments.get(IApplicationContext.APPLICATION_ARGS);
+		String root = null;
+		String name = null;
+		String output = "."; //$NON-NLS-1$
+		int threads = Runtime.getRuntime().availableProcessors();
+		for (int i = 0; args != null && i < args.length - 1; i++)
+		{
+			if (ROOT_ARG.equals(args[i]))
+			{
+				root = args[++i];
+			}
+			else if (NAME_ARG.equals(args[i]))
+			{
+				name = args[++i];
+			}
+			else if (OUTPUT_ARG.equals(args[i]))
+			{
+				output = args[++i];
+			}
+			else if (THREADS_ARG.equals(args[i]))
+			{
+				try
+				{
+					threads = Math.max(1, Integer.parseInt(args[++i]));
+				}
+				catch (NumberFormatException e)
+				{
+					printUsage();
+					return EXIT_ERROR;
+				}
+			}
+		}
+		if (root == null || !new File(root).isDirectory())
+		{
+			printUsage();
+			return EXIT_ERROR;
+		}
+		File rootFile = new File(root).getCanonicalFile();
+		long start = System.currentTimeMillis();
+		List<String> failures = new ArrayList<String>();
+		try
+		{
+			BuildResult result = buildIndex(rootFile, name, new File(output), threads, failures);
+			System.out.println("Indexed " + result.indexed + " of " + result.total + " modules into " //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+					+ result.output + " [took " + (System.currentTimeMillis() - start) + "ms]"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		catch (IOException e)
+		{
+			PHPEditorPlugin.logError(e);
+			System.err.println("Failed writing the index: " + e.getMessage()); //$NON-NLS-1$
+			return EXIT_ERROR;
+		}
+		if (!failures.isEmpty())
+		{
+			System.err.println("Failed indexing " + failures.size() + " modules:"); //$NON-NLS-1$ //$NON-NLS-2$
+			for (String failure : failures)
+			{
+				System.err.println("  " + failure); //$NON-NLS-1$
+			}
+			return EXIT_ERROR;
+		}
+		return EXIT_OK;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.equinox.app.IApplication#stop()
+	 */
+	public void stop()
+	{
+	}
+
+	/**
+	 * The result of {@link HeadlessIndexerApplication#buildIndex(File, String, File, int, List)}.
+	 */
+	public static class BuildResult
+	{
+		/**
+		 * The written index file.
+		 */
+		public final File output;
+
+		/**
+		 * The number of modules that were indexed.
+		 */
+		public final int indexed;
+
+		/**
+		 * The number of modules in the root.
+		 */
+		public final int total;
+
+		private BuildResult(File output, int indexed, int total)
+		{
+			this.output = output;
+			this.indexed = indexed;
+			this.total = total;
+		}
+	}
+
+	/**
+	 * Indexes the given root and writes a prebuilt index file. Modules that fail are left out of the index, and are
+	 * reported in the given failures list.
+	 * 
+	 * @param root
+	 *            - the root directory.
+	 * @param name
+	 *            - the name the index is published under, or null to use the name the IDE looks it up by.
+	 * @param outputDirectory
+	 *            - the output directory.
+	 * @param threads
+	 *            - the number of indexing threads.
+	 * @param failures
+	 *            - a list to add the paths (and errors) of the modules that could not be indexed to.
+	 * @return The build result.
+	 * @throws IOException
+	 */
+	public static BuildResult buildIndex(File root, String name, File outputDirectory, int threads,
+			final List<String> failures) throws IOException
+	{
+		FileSystemBuildPath buildPath = new FileSystemBuildPath(root);
+		try
+		{
+			if (name == null)
+			{
+				name = PrebuiltIndex.getName(buildPath);
+			}
+			File output = new File(outputDirectory, name + PrebuiltIndex.FILE_EXTENSION);
+			final List<IModule> modules = buildPath.getModules();
+			final UnpackedElementIndex index = new UnpackedElementIndex();
+			final IIndexReporter reporter = new IIndexReporter()
+			{
+				public IElementEntry reportEntry(int category, String entryPath, IReportable value, IModule module)
+				{
+					return index.addEntry(category, entryPath, value, module);
+				}
+			};
+			final AtomicInteger next = new AtomicInteger();
+			final AtomicInteger indexed = new AtomicInteger();
+			List<Thread> workers = new ArrayList<Thread>(threads);
+			for (int i = 0; i < threads; i++)
+			{
+				Thread worker = new Thread("PHP Headless Indexer " + i) //$NON-NLS-1$
+				{
+					public void run()
+					{
+						// the module indexer holds per-module state, so each thread gets its own indexer
+						PDTPHPModuleIndexer indexer = new PDTPHPModuleIndexer();
+						int moduleIndex;
+						while ((moduleIndex = next.getAndIncrement()) < modules.size())
+						{
+							IModule module = modules.get(moduleIndex);
+							try
+							{
+								long timeStamp = module.getTimeStamp();
+								byte[] contents = ContentHashUtils.readContents(module);
+								if (contents == null || !indexer.indexModule(module, contents, reporter))
+								{
+									addFailure(failures, module, null);
+									index.removeModuleEntries(module);
+									continue;
+								}
+								synchronized (index)
+								{
+									index.recordTimeStamp(module, timeStamp);
+									index.recordContentHash(module, ContentHashUtils.computeHash(contents));
+								}
+								indexed.incrementAndGet();
+							}
+							catch (Exception e)
+							{
+								addFailure(failures, module, e);
+								index.removeModuleEntries(module);
+							}
+							finally
+							{
+								// the documentation is not part of the index file
+								PHPDocumentationStore.getInstance().removeModule(module);
+							}
+						}
+					}
+				};
+				worker.setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler()
+				{
+					public void uncaughtException(Thread t, Throwable e)
+					{
+						synchronized (failures)
+						{
+							failures.add(t.getName() + ": " + e); //$NON-NLS-1$
+						}
+					}
+				});
+				workers.add(worker);
+				worker.start();
+			}
+			for (Thread worker : workers)
+			{
+				try
+				{
+					worker.join();
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+					throw new IOException("Indexing was interrupted"); //$NON-NLS-1$
+				}
+			}
+			PrebuiltIndex.write(index, buildPath, name, output);
+			return new BuildResult(output, indexed.get(), modules.size());
+		}
+		finally
+		{
+			buildPath.close();
+		}
+	}
+
+	private static void addFailure(List<String> failures, IModule module, Exception e)
+	{
+		String failure = module.getFullPath();
+		if (e != null)
+		{
+			failure += " - " + e; //$NON-NLS-1$
+		}
+		synchronized (failures)
+		{
+			failures.add(failure);
+		}
+	}
+
+	private static void printUsage()
+	{
+		System.err.println("Usage: -application com.aptana.editor.php.headlessIndexer -root <dir> [-name <name>]" //$NON-NLS-1$
+				+ " [-output <dir>] [-threads <count>]"); //$NON-NLS-1$
+	}
+}
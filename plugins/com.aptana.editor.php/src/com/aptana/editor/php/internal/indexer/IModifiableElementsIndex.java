@@ -34,6 +34,8 @@
  */
 package com.aptana.editor.php.internal.indexer;
 
+import java.util.List;
+
 import com.aptana.editor.php.indexer.IElementEntry;
 import com.aptana.editor.php.indexer.IElementsIndex;
 import com.aptana.editor.php.internal.core.builder.IModule;
@@ -68,4 +70,16 @@ public interface IModifiableElementsIndex extends IElementsIndex
 	 *            - module, which entries to remove.
 	 */
 	void removeModuleEntries(IModule module);
+
+	/**
+	 * Replaces all the entries of the module with the given entries, as a single operation. Only the entries that
+	 * differ from the current module entries are removed from the index or added to it.
+	 * 
+	 * @param module
+	 *            - module, which entries to replace.
+	 * @param newEntries
+	 *            - the new module entries.
+	 * @return true if the module declarations changed; false if only their offsets did.
+	 */
+	boolean replaceModuleEntries(IModule module, List<UnpackedEntry> newEntries);
 }
\ No newline at end of file
@@ -56,6 +56,7 @@ import com.aptana.editor.php.indexer.IPHPIndexConstants;
 import com.aptana.editor.php.indexer.IReportable;
 import com.aptana.editor.php.internal.core.builder.IBuildPath;
 import com.aptana.editor.php.internal.core.builder.IModule;
+import com.aptana.editor.php.internal.metrics.PHPMetrics;
 
 public final class IndexPersistence
 {
@@ -86,34 +87,78 @@ public final class IndexPersistence
 
 	}
 
+	/**
+	 * A marker that is written at the beginning of index files that hold the modules content hashes. Index files that
+	 * were written before the hashes were introduced start with the modules count, which is never negative.
+	 */
+	private static final int HASHED_FORMAT_MARKER = -0x50485048;
+
+	/**
+	 * Loads the index entries from the given stream. The entries are streamed into the index module by module, and
+	 * each module is added under the index lock, so the index can be published (and queried) while it is loaded. The
+	 * entries of a module are read before the lock is taken, so the readers do not wait for the disk.<br>
+	 * Modules that the index already holds when their saved entries are read (modules that were indexed, or updated
+	 * with unsaved contents, while the index was loaded) are newer than the saved entries, and are skipped.
+	 * 
+	 * @param index
+	 * @param di
+	 * @param pb
+	 * @throws IOException
+	 */
 	public static void load(UnpackedElementIndex index, DataInputStream di, IBuildPath pb) throws IOException
 	{
 		int readInt = di.readInt();
-		// long l0=System.currentTimeMillis();
+		boolean hashed = false;
+		if (readInt == HASHED_FORMAT_MARKER)
+		{
+			hashed = true;
+			readInt = di.readInt();
+		}
+		long start = System.nanoTime();
 		for (int a = 0; a < readInt; a++)
 		{
 			IModule m = readModule(di, pb);
-			if (m != null)
+			if (m != null || hashed)
 			{
 				int sz = di.readInt();
 				long ts = di.readLong();
-				index.recordTimeStamp(m, ts);
+				long hash = hashed ? di.readLong() : ContentHashUtils.UNKNOWN_HASH;
+				int[] categories = new int[sz];
+				String[] paths = new String[sz];
+				Object[] values = new Object[sz];
 				for (int b = 0; b < sz; b++)
 				{
-					int category = di.readInt();
-					String path = di.readUTF();
-					Object value = readValue(di);
-					index.addEntry(category, path, value, m);
+					categories[b] = di.readInt();
+					paths[b] = di.readUTF();
+					values[b] = readValue(di);
+				}
+				if (m == null)
+				{
+					continue;
+				}
+				// a module is added as a whole, so a reader never sees part of its entries
+				synchronized (index)
+				{
+					if (index.containsModule(m))
+					{
+						continue;
+					}
+					index.recordTimeStamp(m, ts);
+					index.recordContentHash(m, hash);
+					for (int b = 0; b < sz; b++)
+					{
+						index.addEntry(categories[b], paths[b], values[b], m);
+					}
 				}
 			}
 		}
-		// long l1=System.currentTimeMillis();
-		// System.out.println("Index load:"+(l1-l0));
+		PHPMetrics.getInstance().addTimeSince(PHPMetrics.INDEX_LOAD, start);
 	}
 
 	public static void store(UnpackedElementIndex index, DataOutputStream da, IBuildPath pb) throws IOException
 	{
 		IModule[] array = index.getAllModules();
+		da.writeInt(HASHED_FORMAT_MARKER);
 		da.writeInt(array.length);
 		int pos = 0;
 		for (IModule m : array)
@@ -126,6 +171,7 @@ public final class IndexPersistence
 
 			da.writeInt(list.size());
 			da.writeLong(index.getTimeStamp(m));
+			da.writeLong(index.getContentHash(m));
 			int k = 0;
 			for (UnpackedEntry e : new ArrayList<UnpackedEntry>(list))
 			{
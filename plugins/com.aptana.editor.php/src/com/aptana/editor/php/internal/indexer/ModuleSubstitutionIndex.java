@@ -81,6 +81,26 @@ public class ModuleSubstitutionIndex implements IElementsIndex
 		this.mainIndex = mainIndex;
 	}
 
+	/**
+	 * Returns the substituted module.
+	 * 
+	 * @return module.
+	 */
+	public IModule getModule()
+	{
+		return module;
+	}
+
+	/**
+	 * Returns the main index. The main index entries of the substituted module are ignored.
+	 * 
+	 * @return main index.
+	 */
+	public IElementsIndex getMainIndex()
+	{
+		return mainIndex;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -132,6 +152,32 @@ public class ModuleSubstitutionIndex implements IElementsIndex
 		return result;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public synchronized List<IElementEntry> getEntriesMatching(int category, String pattern, int limit)
+	{
+		FuzzyEntriesCollector collector = new FuzzyEntriesCollector(pattern, limit);
+		collector.offerAll(handler.getEntriesMatching(category, pattern, limit));
+
+		// the entries of the substituted module are dropped from the main index results, so more are requested
+		List<IElementEntry> mainEntries = mainIndex.getEntriesMatching(category, pattern, 2 * limit);
+		Iterator<IElementEntry> it = mainEntries.iterator();
+
+		while (it.hasNext())
+		{
+			IElementEntry entry = it.next();
+			if (module.equals(entry.getModule()))
+			{
+				it.remove();
+			}
+		}
+
+		collector.offerAll(mainEntries);
+
+		return collector.getEntries();
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -1,6 +1,7 @@
 package com.aptana.editor.php.internal.indexer;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
@@ -30,7 +31,7 @@ import org.eclipse.php.internal.core.ast.nodes.CatchClause;
 import org.eclipse.php.internal.core.ast.nodes.ClassDeclaration;
 import org.eclipse.php.internal.core.ast.nodes.ClassInstanceCreation;
 import org.eclipse.php.internal.core.ast.nodes.ClassName;
-import org.eclipse.php.internal.core.ast.nodes.Comment;
+import org.eclipse.php.internal.core.ast.nodes.CommentsTable;
 import org.eclipse.php.internal.core.ast.nodes.ConstantDeclaration;
 import org.eclipse.php.internal.core.ast.nodes.Dispatch;
 import org.eclipse.php.internal.core.ast.nodes.DoStatement;
@@ -79,6 +80,7 @@ import com.aptana.editor.php.PHPEditorPlugin;
 import com.aptana.editor.php.core.PHPVersionProvider;
 import com.aptana.editor.php.core.ast.ASTFactory;
 import com.aptana.editor.php.indexer.ASTVisitorRegistry;
+import com.aptana.editor.php.indexer.IContentIndexer;
 import com.aptana.editor.php.indexer.IElementEntry;
 import com.aptana.editor.php.indexer.IElementsIndex;
 import com.aptana.editor.php.indexer.IIndexReporter;
@@ -87,6 +89,8 @@ import com.aptana.editor.php.indexer.IModuleIndexer;
 import com.aptana.editor.php.indexer.IPHPIndexConstants;
 import com.aptana.editor.php.indexer.IProgramIndexer;
 import com.aptana.editor.php.internal.core.builder.IModule;
+import com.aptana.editor.php.internal.metrics.CountingInputStream;
+import com.aptana.editor.php.internal.metrics.PHPMetrics;
 import com.aptana.editor.php.internal.model.utils.ModelUtils;
 import com.aptana.editor.php.internal.parser.phpdoc.FunctionDocumentation;
 import com.aptana.editor.php.internal.parser.phpdoc.TypedDescription;
@@ -98,7 +102,7 @@ import com.aptana.editor.php.util.EncodingUtils;
  * @author Denis Denisenko
  */
 @SuppressWarnings("unused")
-public class PDTPHPModuleIndexer implements IModuleIndexer, IProgramIndexer
+public class PDTPHPModuleIndexer implements IModuleIndexer, IProgramIndexer, IContentIndexer
 {
 	private static final String DOLLAR_SIGN = "$"; //$NON-NLS-1$
 	private static final String EMPTY_STRING = ""; //$NON-NLS-1$
@@ -3489,9 +3493,14 @@ public class PDTPHPModuleIndexer implements IModuleIndexer, IProgramIndexer
 	private String _contents;
 
 	/**
-	 * Comments.
+	 * The number of bytes that were read by the last {@link #setContents(IModule)} call.
 	 */
-	private List<Comment> _comments;
+	private long _contentsBytes;
+
+	/**
+	 * Comments table.
+	 */
+	private CommentsTable _comments;
 
 	/**
 	 * Overall global imports in the reported stack.
@@ -3720,10 +3729,8 @@ public class PDTPHPModuleIndexer implements IModuleIndexer, IProgramIndexer
 				return;
 			}
 
-			// collecting comments
-			CommentsVisitor commentsVisitor = new CommentsVisitor();
-			program.accept(commentsVisitor);
-			_comments = commentsVisitor.getComments();
+			// comments were collected by the lexer
+			_comments = program.getCommentsTable();
 
 			// indexing
 			PHPASTVisitor visitor = new PHPASTVisitor(reporter, module);
@@ -3743,58 +3750,95 @@ public class PDTPHPModuleIndexer implements IModuleIndexer, IProgramIndexer
 	/**
 	 * {@inheritDoc}
 	 */
-	public synchronized void indexModule(IModule module, IIndexReporter reporter)
+	public void indexModule(IModule module, IIndexReporter reporter)
 	{
+		indexModule(module, null, reporter);
+	}
+
+	/**
+	 * Indexes module contents that were already read. In case the given contents are null, the module contents are
+	 * read. The documentation of the reported entries is recorded to the {@link PHPDocumentationStore}.
+	 * 
+	 * @param module
+	 *            - module.
+	 * @param contents
+	 *            - the module contents, as bytes in the module encoding (may be null).
+	 * @param reporter
+	 *            - reporter to report to.
+	 * @return True if the module was indexed; False if its contents could not be read or parsed.
+	 */
+	public synchronized boolean indexModule(IModule module, byte[] contents, IIndexReporter reporter)
+	{
+		PHPMetrics metrics = PHPMetrics.getInstance();
+		long start = System.nanoTime();
 		try
 		{
 			Program program;
+			long timeStamp = module.getTimeStamp();
 
 			try
 			{
 
-				setContents(module);
+				setContents(module, contents);
+				long mark = metrics.addTimeSince(PHPMetrics.INDEXER_READ, start);
 				program = parse(_contents, module);
+				metrics.addTimeSince(PHPMetrics.INDEXER_PARSE, mark);
 				if (program == null)
 				{
-					return;
+					return false;
 				}
 
 			}
 			catch (Throwable th)
 			{
-				return;
+				return false;
 			}
 
 			if (program == null)
 			{
-				return;
+				return false;
 			}
 
-			// collecting comments
-			CommentsVisitor commentsVisitor = new CommentsVisitor();
-			program.accept(commentsVisitor);
-			_comments = commentsVisitor.getComments();
+			// comments were collected by the lexer
+			_comments = program.getCommentsTable();
 
-			// indexing
-			PHPASTVisitor visitor = new PHPASTVisitor(reporter, module);
+			// indexing (the saved module contents are indexed by the global indexer here, so the entries
+			// documentation is recorded while they are reported)
+			long mark = System.nanoTime();
+			PHPDocumentationStore.Recorder recorder = PHPDocumentationStore.getInstance().createRecorder(reporter,
+					module, timeStamp, _comments, _contents);
+			PHPASTVisitor visitor = new PHPASTVisitor(recorder, module);
 			program.accept(visitor);
+			mark = metrics.addTimeSince(PHPMetrics.INDEXER_VISIT, mark);
+			recorder.commit();
 			for (IIndexingASTVisitor v : ASTVisitorRegistry.getInstance().getVisitors())
 			{
 				v.process(program, reporter, module);
 			}
 			// Mark the errors in the project tree
 			program.getAST().flushErrors();
+			metrics.addTimeSince(PHPMetrics.INDEXER_COMMIT, mark);
+			metrics.recordIndexedModule(module.getFullPath(), _contentsBytes, System.nanoTime() - start);
+			return true;
 		}
 		catch (Throwable th)
 		{
 			PHPEditorPlugin.log(new Status(IStatus.ERROR, PHPEditorPlugin.PLUGIN_ID,
 					"Error while indexing module - " + module.toString(), th)); //$NON-NLS-1$
+			return false;
 		}
 	}
 
 	private void setContents(IModule module) throws IOException
 	{
-		BufferedReader reader = new BufferedReader(new InputStreamReader(module.getContents(), EncodingUtils
+		setContents(module, null);
+	}
+
+	private void setContents(IModule module, byte[] bytes) throws IOException
+	{
+		CountingInputStream stream = new CountingInputStream((bytes != null) ? new ByteArrayInputStream(bytes) : module
+				.getContents());
+		BufferedReader reader = new BufferedReader(new InputStreamReader(stream, EncodingUtils
 				.getModuleEncoding(module)));
 
 		StringBuffer moduleData = new StringBuffer();
@@ -3807,6 +3851,7 @@ public class PDTPHPModuleIndexer implements IModuleIndexer, IProgramIndexer
 			buf = new char[1024];
 		}
 		reader.close();
+		_contentsBytes = stream.getCount();
 
 		String contents = moduleData.toString();
 
@@ -4018,11 +4063,34 @@ public class PDTPHPModuleIndexer implements IModuleIndexer, IProgramIndexer
 		catch (IOException e)
 		{
 			PHPEditorPlugin.logError("Error while getting module contents", e); //$NON-NLS-1$
+			_contents = null;
 		}
-		// collecting comments
-		CommentsVisitor commentsVisitor = new CommentsVisitor();
-		program.accept(commentsVisitor);
-		_comments = commentsVisitor.getComments();
+		indexProgram(program, module, reporter);
+	}
+
+	/**
+	 * Indexes an already parsed module. Unlike {@link #indexModule(Program, IModule, IIndexReporter)}, the module
+	 * contents are not read again, so this method can be used to index the AST of an unsaved editor.
+	 * 
+	 * @param program
+	 *            - the parsed module.
+	 * @param contents
+	 *            - the contents the program was parsed from.
+	 * @param module
+	 *            - module.
+	 * @param reporter
+	 *            - reporter to report to.
+	 */
+	public synchronized void indexModule(Program program, String contents, IModule module, IIndexReporter reporter)
+	{
+		_contents = contents;
+		indexProgram(program, module, reporter);
+	}
+
+	private void indexProgram(Program program, IModule module, IIndexReporter reporter)
+	{
+		// comments were collected by the lexer
+		_comments = program.getCommentsTable();
 
 		// indexing
 		PHPASTVisitor visitor = new PHPASTVisitor(reporter, module);
@@ -4031,7 +4099,6 @@ public class PDTPHPModuleIndexer implements IModuleIndexer, IProgramIndexer
 		{
 			v.process(program, reporter, module);
 		}
-
 	}
 
 	public Map<String, String> getAliases()
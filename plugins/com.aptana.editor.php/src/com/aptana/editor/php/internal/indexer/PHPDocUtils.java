@@ -5,12 +5,14 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.StringReader;
+import java.lang.ref.SoftReference;
 import java.util.ArrayList;
-import java.util.List;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import org.eclipse.php.internal.core.PHPVersion;
 import org.eclipse.php.internal.core.ast.nodes.ASTParser;
-import org.eclipse.php.internal.core.ast.nodes.Comment;
+import org.eclipse.php.internal.core.ast.nodes.CommentsTable;
 import org.eclipse.php.internal.core.ast.nodes.Program;
 import org.eclipse.php.internal.core.compiler.ast.nodes.PHPDocBlock;
 import org.eclipse.php.internal.core.compiler.ast.nodes.PHPDocTag;
@@ -40,6 +42,28 @@ public final class PHPDocUtils
 	private static final String DOLLAR = "$"; //$NON-NLS-1$
 	private static final String EMPTY_STRING = ""; //$NON-NLS-1$
 
+	/**
+	 * Maximum number of parsed sources that are kept for repeated PHPDoc lookups.
+	 */
+	private static final int MAX_PARSED_SOURCES = 8;
+
+	/**
+	 * Recently parsed sources, keyed by the module (or the built-in resource path).<br>
+	 * The sources are softly referenced: a parsed source keeps its contents, and its comments keep the AST they were
+	 * parsed into, so the memory of large files is released under memory pressure.
+	 */
+	private static final Map<Object, SoftReference<ParsedSource>> PARSED_SOURCES =
+			new LinkedHashMap<Object, SoftReference<ParsedSource>>(16, 0.75f, true)
+	{
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Object, SoftReference<ParsedSource>> eldest)
+		{
+			return size() > MAX_PARSED_SOURCES;
+		}
+	};
+
 	public static PHPDocBlock findFunctionPHPDocComment(IElementEntry entry, int offset)
 	{
 		if (entry.getModule() != null)
@@ -53,11 +77,19 @@ public final class PHPDocUtils
 			String entryPath = entry.getEntryPath();
 			if (entryPath != null)
 			{
-				InputStream stream = PHPBuiltins.getInstance().getBuiltinResourceStream(entryPath);
-				if (stream != null)
+				ParsedSource source = getParsedSource(entryPath, 0L);
+				if (source == null)
+				{
+					InputStream stream = PHPBuiltins.getInstance().getBuiltinResourceStream(entryPath);
+					if (stream != null)
+					{
+						BufferedReader reader = new BufferedReader(new InputStreamReader(stream));
+						source = parseSource(entryPath, 0L, reader);
+					}
+				}
+				if (source != null)
 				{
-					BufferedReader reader = new BufferedReader(new InputStreamReader(stream));
-					return innerParsePHPDoc(offset, reader);
+					return source.findPHPDoc(offset);
 				}
 			}
 		}
@@ -82,9 +114,15 @@ public final class PHPDocUtils
 	{
 		try
 		{
-			BufferedReader reader = new BufferedReader(new InputStreamReader(module.getContents(), EncodingUtils
-					.getModuleEncoding(module)));
-			return innerParsePHPDoc(offset, reader);
+			long timeStamp = module.getTimeStamp();
+			ParsedSource source = getParsedSource(module, timeStamp);
+			if (source == null)
+			{
+				BufferedReader reader = new BufferedReader(new InputStreamReader(module.getContents(), EncodingUtils
+						.getModuleEncoding(module)));
+				source = parseSource(module, timeStamp, reader);
+			}
+			return source.findPHPDoc(offset);
 		}
 		catch (Exception ex)
 		{
@@ -93,62 +131,65 @@ public final class PHPDocUtils
 	}
 
 	/**
-	 * Finds a PHPDoc comment above the offset in the source that is read from the given BufferedReader.
+	 * Returns a previously parsed source, in case it is still up to date.
 	 * 
-	 * @param offset
+	 * @param key
+	 * @param timeStamp
+	 * @return A {@link ParsedSource}, or null.
+	 */
+	private static ParsedSource getParsedSource(Object key, long timeStamp)
+	{
+		synchronized (PARSED_SOURCES)
+		{
+			SoftReference<ParsedSource> reference = PARSED_SOURCES.get(key);
+			ParsedSource source = (reference == null) ? null : reference.get();
+			if (source != null && source.timeStamp == timeStamp)
+			{
+				return source;
+			}
+			if (reference != null && source == null)
+			{
+				PARSED_SOURCES.remove(key);
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Reads and parses the source that is read from the given BufferedReader, and keeps its comments table for the
+	 * next lookups.
+	 * 
+	 * @param key
+	 * @param timeStamp
 	 * @param reader
-	 * @return
+	 * @return The {@link ParsedSource}
 	 * @throws IOException
 	 * @throws Exception
 	 */
-	private static PHPDocBlock innerParsePHPDoc(int offset, BufferedReader reader) throws IOException, Exception
+	private static ParsedSource parseSource(Object key, long timeStamp, BufferedReader reader) throws IOException,
+			Exception
 	{
 		StringBuffer moduleData = new StringBuffer();
 		char[] buf = new char[1024];
 		int numRead = 0;
 		while ((numRead = reader.read(buf)) != -1)
 		{
-			String readData = String.valueOf(buf, 0, numRead);
-			moduleData.append(readData);
-			buf = new char[1024];
+			moduleData.append(buf, 0, numRead);
 		}
 		reader.close();
 
 		String contents = moduleData.toString();
-		int b = -1;
-		for (int a = offset; a >= 0; a--)
-		{
-			char c = contents.charAt(a);
-			if (c == '(')
-			{
-				b = a;
-				break;
-			}
-			if (c == '\r' || c == '\n')
-			{
-				b = a;
-				break;
-			}
-		}
-		if (b != -1)
-		{
-			String str = contents.substring(b, offset);
-			if (str.indexOf(';') == -1)
-			{
-				offset = b;
-			}
-			// System.out.println(str);
-		}
 		// TODO: Shalom - Get the version from the module?
 		PHPVersion version = PHPVersionProvider.getDefaultPHPVersion();
 		ASTParser parser = ASTParser.newParser(new StringReader(contents), version);
 		Program program = parser.createAST(null);
 
-		CommentsVisitor commentsVisitor = new CommentsVisitor();
-		program.accept(commentsVisitor);
-		List<Comment> _comments = commentsVisitor.getComments();
-
-		return findPHPDocComment(_comments, offset, contents);
+		ParsedSource source = new ParsedSource(timeStamp, contents, program.getCommentsTable());
+		synchronized (PARSED_SOURCES)
+		{
+			PARSED_SOURCES.put(key, new SoftReference<ParsedSource>(source));
+		}
+		return source;
 	}
 
 	/**
@@ -232,84 +273,65 @@ public final class PHPDocUtils
 	 * non-white characters between the offset and the comment, this method returns null.
 	 * 
 	 * @param comments
-	 *            - The list of comments as parsed with the AST
+	 *            - The comments table of the parsed AST (see {@link Program#getCommentsTable()})
 	 * @param offset
 	 *            - offset to start search from.
 	 * @param content
 	 *            - The file content
 	 * @return IPHPDocBlock The PhpDoc, or null.
 	 */
-	public static PHPDocBlock findPHPDocComment(List<Comment> comments, int offset, String content)
+	public static PHPDocBlock findPHPDocComment(CommentsTable comments, int offset, String content)
 	{
-		if (comments == null || comments.isEmpty())
-		{
-			return null;
-		}
-
-		Comment nearestComment = null;
-
-		int commentIndex = findComment(comments, offset);
-		if (commentIndex < 0)
-		{
-			// The nearest comment we found should always have a negative value, as it should never overlap with the
-			// given offset
-			nearestComment = comments.get(-commentIndex - 1);
-		}
-		if (nearestComment == null)
+		if (comments == null || comments.size() == 0)
 		{
 			return null;
 		}
+		return comments.getPHPDocBlock(offset, content);
+	}
 
-		if (nearestComment.getCommentType() != Comment.TYPE_PHPDOC)
+	/**
+	 * Finds the PHPDoc comment of a declaration that starts at the given offset. The lookup starts at the beginning of
+	 * the declaration line (or at the opening parenthesis of a parameters list), so the comment of a declaration that
+	 * has other elements before it on the same line is found as well.
+	 * 
+	 * @param comments
+	 *            - the comments table.
+	 * @param offset
+	 *            - the declaration start offset.
+	 * @param contents
+	 *            - the source contents.
+	 * @return comment or null if not found.
+	 */
+	public static PHPDocBlock findDeclarationPHPDoc(CommentsTable comments, int offset, String contents)
+	{
+		if (offset >= contents.length())
 		{
 			return null;
 		}
-
-		if (content != null)
+		int b = -1;
+		for (int a = offset; a >= 0; a--)
 		{
-			// checking if we have anything but whitespace between comment end and
-			// offset
-			if (offset - 2 < 0 || nearestComment.getEnd() >= content.length() || offset - 2 >= content.length())
+			char c = contents.charAt(a);
+			if (c == '(')
 			{
-				return null;
+				b = a;
+				break;
 			}
-
-			// checking if we have anything but white spaces between comment end and offset
-			for (int i = nearestComment.getEnd() + 1; i < offset - 1; i++)
+			if (c == '\r' || c == '\n')
 			{
-				char ch = content.charAt(i);
-				if (!Character.isWhitespace(ch))
-				{
-					return null;
-				}
+				b = a;
+				break;
 			}
 		}
-
-		return (PHPDocBlock) nearestComment;
-	}
-
-	/*
-	 * Perform a binary search for a comment that appears right on top of the given offset
-	 */
-	private static int findComment(List<Comment> comments, int offset)
-	{
-		int low = 0;
-		int high = comments.size() - 1;
-
-		while (low <= high)
+		if (b != -1)
 		{
-			int mid = (low + high) >>> 1;
-			Comment midVal = (Comment) comments.get(mid);
-			int cmp = midVal.getStart() - offset;
-
-			if (cmp < 0)
-				low = mid + 1;
-			else if (cmp > 0)
-				high = mid - 1;
-			else
-				return mid; // key found
+			String str = contents.substring(b, offset);
+			if (str.indexOf(';') == -1)
+			{
+				offset = b;
+			}
 		}
-		return -(low); // key not found.
+		return findPHPDocComment(comments, offset, contents);
 	}
 
 	/**
@@ -599,4 +621,32 @@ public final class PHPDocUtils
 		additionalInfo = bld.toString();
 		return additionalInfo;
 	}
+
+	/**
+	 * A parsed source contents and its comments table.
+	 */
+	private static class ParsedSource
+	{
+		private final long timeStamp;
+		private final String contents;
+		private final CommentsTable comments;
+
+		private ParsedSource(long timeStamp, String contents, CommentsTable comments)
+		{
+			this.timeStamp = timeStamp;
+			this.contents = contents;
+			this.comments = comments;
+		}
+
+		/**
+		 * Finds a PHPDoc comment above the given offset.
+		 * 
+		 * @param offset
+		 * @return The {@link PHPDocBlock}, or null.
+		 */
+		private PHPDocBlock findPHPDoc(int offset)
+		{
+			return findDeclarationPHPDoc(comments, offset, contents);
+		}
+	}
 }
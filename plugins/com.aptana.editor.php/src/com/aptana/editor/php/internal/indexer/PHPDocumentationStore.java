@@ -0,0 +1,415 @@
+/**
+ * This file Copyright (c) 2005-2008 Aptana, Inc. This program is
+ * dual-licensed under both the Aptana Public License and the GNU General
+ * Public license. You may elect to use one or the other of these licenses.
+ * 
+ * This program is distributed in the hope that it will be useful, but
+ * AS-IS and WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE, TITLE, or
+ * NONINFRINGEMENT. Redistribution, except as permitted by whichever of
+ * the GPL or APL you select, is prohibited.
+ *
+ * 1. For the GPL license (GPL), you can redistribute and/or modify this
+ * program under the terms of the GNU General Public License,
+ * Version 3, as published by the Free Software Foundation.  You should
+ * have received a copy of the GNU General Public License, Version 3 along
+ * with this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Aptana provides a special exception to allow redistribution of this file
+ * with certain other free and open source software ("FOSS") code and certain additional terms
+ * pursuant to Section 7 of the GPL. You may view the exception and these
+ * terms on the web at http://www.aptana.com/legal/gpl/.
+ * 
+ * 2. For the Aptana Public License (APL), this program and the
+ * accompanying materials are made available under the terms of the APL
+ * v1.0 which accompanies this distribution, and is available at
+ * http://www.aptana.com/legal/apl/.
+ * 
+ * You may view the GPL, Aptana's exception and additional terms, and the
+ * APL in the file titled license.html at the root of the corresponding
+ * plugin containing this source file.
+ * 
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.editor.php.internal.indexer;
+
+import gnu.trove.TIntObjectHashMap;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.php.internal.core.ast.nodes.CommentsTable;
+import org.eclipse.php.internal.core.compiler.ast.nodes.PHPDocBlock;
+
+import com.aptana.editor.php.indexer.IElementEntry;
+import com.aptana.editor.php.indexer.IIndexReporter;
+import com.aptana.editor.php.indexer.IReportable;
+import com.aptana.editor.php.internal.core.builder.IModule;
+import com.aptana.editor.php.internal.parser.phpdoc.FunctionDocumentation;
+
+/**
+ * A store for the PHPDoc documentation of the indexed entries.<br>
+ * The documentation is extracted while the global indexer indexes the saved contents of a module (the comments table
+ * is already there at that point), and is kept per module, keyed by the entry start offset. Only the functions,
+ * classes and variables are recorded at that point; the other entries, and the entries that are not in the store
+ * (modules that were loaded from the persisted index, or the PHP API built-ins) are resolved once from the source and
+ * then kept as well.<br>
+ * The store is bounded: it keeps the documentation of the most recently indexed or queried modules, and the
+ * documentation of a module that was dropped is resolved again from its source when it is needed.<br>
+ * The rendered HTML that is displayed in the hovers and in the proposals additional info is kept in a small LRU
+ * cache, so repeated displays of the same entry do not render it again.
+ */
+public final class PHPDocumentationStore
+{
+	/**
+	 * Maximum number of rendered documentation strings to keep.
+	 */
+	private static final int MAX_RENDERED = 256;
+
+	/**
+	 * Maximum number of modules to keep the documentation for.
+	 */
+	private static final int MAX_MODULES = 512;
+
+	/**
+	 * A marker for an offset that was looked up and has no documentation.
+	 */
+	private static final FunctionDocumentation NO_DOCUMENTATION = new FunctionDocumentation();
+
+	private static PHPDocumentationStore instance;
+
+	/**
+	 * Documentation per module (or per built-in entry path for the PHP API entries), in LRU order.
+	 */
+	private final Map<Object, ModuleDocumentation> documentation = new LinkedHashMap<Object, ModuleDocumentation>(64,
+			0.75f, true)
+	{
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Object, ModuleDocumentation> eldest)
+		{
+			return size() > MAX_MODULES;
+		}
+	};
+
+	/**
+	 * Rendered documentation LRU cache.
+	 */
+	private final Map<RenderKey, String> rendered = new LinkedHashMap<RenderKey, String>(64, 0.75f, true)
+	{
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<RenderKey, String> eldest)
+		{
+			return size() > MAX_RENDERED;
+		}
+	};
+
+	/**
+	 * Returns the store instance.
+	 * 
+	 * @return PHPDocumentationStore
+	 */
+	public static synchronized PHPDocumentationStore getInstance()
+	{
+		if (instance == null)
+		{
+			instance = new PHPDocumentationStore();
+		}
+		return instance;
+	}
+
+	private PHPDocumentationStore()
+	{
+	}
+
+	/**
+	 * Creates a reporter that delegates to the given reporter, and records the documentation of the reported functions,
+	 * classes and variables of the module. It is meant for the indexing of the saved module contents only. The
+	 * recorded documentation is published to the store when {@link Recorder#commit()} is called.
+	 * 
+	 * @param reporter
+	 *            - the reporter to delegate to.
+	 * @param module
+	 *            - the indexed module.
+	 * @param timeStamp
+	 *            - the module time stamp at the time its contents were read.
+	 * @param comments
+	 *            - the module comments table.
+	 * @param contents
+	 *            - the module contents.
+	 * @return a recording reporter.
+	 */
+	public Recorder createRecorder(IIndexReporter reporter, IModule module, long timeStamp, CommentsTable comments,
+			String contents)
+	{
+		return new Recorder(reporter, module, timeStamp, comments, contents);
+	}
+
+	/**
+	 * Removes the documentation of the given module.
+	 * 
+	 * @param module
+	 */
+	public void removeModule(IModule module)
+	{
+		synchronized (documentation)
+		{
+			documentation.remove(module);
+		}
+	}
+
+	/**
+	 * Clears the store.
+	 */
+	public void clear()
+	{
+		synchronized (documentation)
+		{
+			documentation.clear();
+		}
+		synchronized (rendered)
+		{
+			rendered.clear();
+		}
+	}
+
+	/**
+	 * Returns the documentation of the entry that starts at the given offset.
+	 * 
+	 * @param entry
+	 *            - the entry.
+	 * @param offset
+	 *            - the entry start offset.
+	 * @return the entry documentation, or null if the entry is not documented.
+	 */
+	public FunctionDocumentation getDocumentation(IElementEntry entry, int offset)
+	{
+		Object key = getKey(entry);
+		if (key == null)
+		{
+			return null;
+		}
+		long timeStamp = getTimeStamp(entry);
+		FunctionDocumentation result = null;
+		synchronized (documentation)
+		{
+			ModuleDocumentation moduleDocumentation = documentation.get(key);
+			if (moduleDocumentation != null && moduleDocumentation.timeStamp == timeStamp)
+			{
+				result = moduleDocumentation.get(offset);
+			}
+		}
+		if (result == null)
+		{
+			PHPDocBlock comment = PHPDocUtils.findFunctionPHPDocComment(entry, offset);
+			result = comment != null ? PHPDocUtils.getFunctionDocumentation(comment) : null;
+			if (result == null)
+			{
+				result = NO_DOCUMENTATION;
+			}
+			synchronized (documentation)
+			{
+				ModuleDocumentation moduleDocumentation = documentation.get(key);
+				if (moduleDocumentation == null || moduleDocumentation.timeStamp != timeStamp)
+				{
+					moduleDocumentation = new ModuleDocumentation(timeStamp);
+					documentation.put(key, moduleDocumentation);
+				}
+				moduleDocumentation.put(offset, result);
+			}
+		}
+		return result != NO_DOCUMENTATION ? result : null;
+	}
+
+	/**
+	 * Returns the HTML documentation of the entry that starts at the given offset, as computed by
+	 * {@link PHPDocUtils#computeDocumentation(FunctionDocumentation, String)}.
+	 * 
+	 * @param entry
+	 *            - the entry.
+	 * @param offset
+	 *            - the entry start offset.
+	 * @param name
+	 *            - the name (or signature) to display at the top of the documentation.
+	 * @param ignoreDocumentation
+	 *            - in case true, the documentation is not displayed (e.g. for parameters).
+	 * @return the HTML documentation.
+	 */
+	public String getDocumentationHTML(IElementEntry entry, int offset, String name, boolean ignoreDocumentation)
+	{
+		Object key = getKey(entry);
+		if (key == null)
+		{
+			return PHPDocUtils.computeDocumentation(null, name);
+		}
+		RenderKey renderKey = new RenderKey(key, getTimeStamp(entry), ignoreDocumentation ? -1 : offset, name);
+		synchronized (rendered)
+		{
+			String html = rendered.get(renderKey);
+			if (html != null)
+			{
+				return html;
+			}
+		}
+		FunctionDocumentation functionDocumentation = ignoreDocumentation ? null : getDocumentation(entry, offset);
+		String html = PHPDocUtils.computeDocumentation(functionDocumentation, name);
+		synchronized (rendered)
+		{
+			rendered.put(renderKey, html);
+		}
+		return html;
+	}
+
+	private static Object getKey(IElementEntry entry)
+	{
+		IModule module = entry.getModule();
+		if (module != null)
+		{
+			return module;
+		}
+		// PHP API built-in entry
+		return entry.getEntryPath();
+	}
+
+	private static long getTimeStamp(IElementEntry entry)
+	{
+		IModule module = entry.getModule();
+		return module != null ? module.getTimeStamp() : 0L;
+	}
+
+	private void setModuleDocumentation(IModule module, ModuleDocumentation moduleDocumentation)
+	{
+		synchronized (documentation)
+		{
+			documentation.put(module, moduleDocumentation);
+		}
+	}
+
+	/**
+	 * A reporter that records the documentation of the entries it reports.
+	 */
+	public final class Recorder implements IIndexReporter
+	{
+		private final IIndexReporter reporter;
+		private final IModule module;
+		private final CommentsTable comments;
+		private final String contents;
+		private final ModuleDocumentation moduleDocumentation;
+
+		private Recorder(IIndexReporter reporter, IModule module, long timeStamp, CommentsTable comments,
+				String contents)
+		{
+			this.reporter = reporter;
+			this.module = module;
+			this.comments = comments;
+			this.contents = contents;
+			this.moduleDocumentation = new ModuleDocumentation(timeStamp);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public IElementEntry reportEntry(int category, String entryPath, IReportable value, IModule module)
+		{
+			if (value instanceof FunctionPHPEntryValue || value instanceof ClassPHPEntryValue
+					|| value instanceof VariablePHPEntryValue)
+			{
+				int offset = ((AbstractPHPEntryValue) value).getStartOffset();
+				if (!moduleDocumentation.offsets.containsKey(offset))
+				{
+					FunctionDocumentation functionDocumentation = null;
+					PHPDocBlock comment = PHPDocUtils.findDeclarationPHPDoc(comments, offset, contents);
+					if (comment != null)
+					{
+						functionDocumentation = PHPDocUtils.getFunctionDocumentation(comment);
+					}
+					moduleDocumentation.put(offset, functionDocumentation != null ? functionDocumentation
+							: NO_DOCUMENTATION);
+				}
+			}
+			return reporter.reportEntry(category, entryPath, value, module);
+		}
+
+		/**
+		 * Publishes the recorded documentation to the store.
+		 */
+		public void commit()
+		{
+			setModuleDocumentation(module, moduleDocumentation);
+		}
+	}
+
+	/**
+	 * The documentation of a single module, keyed by the entries start offsets. An entry that has no documentation is
+	 * kept as {@link #NO_DOCUMENTATION}, so an offset that is missing from the map was never recorded or looked up.
+	 */
+	private static class ModuleDocumentation
+	{
+		private final long timeStamp;
+		private final TIntObjectHashMap<FunctionDocumentation> offsets = new TIntObjectHashMap<FunctionDocumentation>();
+
+		private ModuleDocumentation(long timeStamp)
+		{
+			this.timeStamp = timeStamp;
+		}
+
+		private FunctionDocumentation get(int offset)
+		{
+			return offsets.get(offset);
+		}
+
+		private void put(int offset, FunctionDocumentation functionDocumentation)
+		{
+			offsets.put(offset, functionDocumentation);
+		}
+	}
+
+	/**
+	 * A key for the rendered documentation cache.
+	 */
+	private static class RenderKey
+	{
+		private final Object key;
+		private final long timeStamp;
+		private final int offset;
+		private final String name;
+
+		private RenderKey(Object key, long timeStamp, int offset, String name)
+		{
+			this.key = key;
+			this.timeStamp = timeStamp;
+			this.offset = offset;
+			this.name = name;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			int result = key.hashCode();
+			result = 31 * result + (int) (timeStamp ^ (timeStamp >>> 32));
+			result = 31 * result + offset;
+			result = 31 * result + (name != null ? name.hashCode() : 0);
+			return result;
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if (this == obj)
+			{
+				return true;
+			}
+			if (!(obj instanceof RenderKey))
+			{
+				return false;
+			}
+			RenderKey other = (RenderKey) obj;
+			return offset == other.offset && timeStamp == other.timeStamp && key.equals(other.key)
+					&& (name == null ? other.name == null : name.equals(other.name));
+		}
+	}
+}
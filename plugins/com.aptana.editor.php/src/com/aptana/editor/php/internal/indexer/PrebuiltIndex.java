@@ -0,0 +1,219 @@
+/**
+ * This file Copyright (c) 2005-2008 Aptana, Inc. This program is
+ * dual-licensed under both the Aptana Public License and the GNU General
+ * Public license. You may elect to use one or the other of these licenses.
+ * 
+ * This program is distributed in the hope that it will be useful, but
+ * AS-IS and WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE, TITLE, or
+ * NONINFRINGEMENT. Redistribution, except as permitted by whichever of
+ * the GPL or APL you select, is prohibited.
+ *
+ * 1. For the GPL license (GPL), you can redistribute and/or modify this
+ * program under the terms of the GNU General Public License,
+ * Version 3, as published by the Free Software Foundation.  You should
+ * have received a copy of the GNU General Public License, Version 3 along
+ * with this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Aptana provides a special exception to allow redistribution of this file
+ * with certain other free and open source software ("FOSS") code and certain additional terms
+ * pursuant to Section 7 of the GPL. You may view the exception and these
+ * terms on the web at http://www.aptana.com/legal/gpl/.
+ * 
+ * 2. For the Aptana Public License (APL), this program and the
+ * accompanying materials are made available under the terms of the APL
+ * v1.0 which accompanies this distribution, and is available at
+ * http://www.aptana.com/legal/apl/.
+ * 
+ * You may view the GPL, Aptana's exception and additional terms, and the
+ * APL in the file titled license.html at the root of the corresponding
+ * plugin containing this source file.
+ * 
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.editor.php.internal.indexer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.aptana.editor.php.PHPEditorPlugin;
+import com.aptana.editor.php.core.CorePreferenceConstants;
+import com.aptana.editor.php.core.CorePreferenceConstants.Keys;
+import com.aptana.editor.php.internal.builder.FileSystemBuildPath;
+import com.aptana.editor.php.internal.core.builder.IBuildPath;
+import com.aptana.editor.php.internal.core.builder.IModule;
+
+/**
+ * Reads and writes prebuilt index files.<br>
+ * A prebuilt index is an index file that was created outside of the IDE (see {@link HeadlessIndexerApplication}), so
+ * it could be shared between workstations. The modules in the index are stored with paths that are relative to the
+ * indexed root, so the file can be adopted by any build path that points to a copy of the same tree. The time stamps
+ * in a prebuilt index will not match the local copy, but the content hashes let the indexer skip the unchanged
+ * modules.<br>
+ * Prebuilt index files are looked up for the file system build paths, in the directory set by the
+ * {@link Keys#PREBUILT_INDEX_DIRECTORY} preference, by the name of the build path root and a fingerprint of the
+ * relative paths of its modules. Two different libraries that share a root name (<code>lib</code>, <code>src</code>)
+ * get different names, while copies of the same tree on different workstations share the name.
+ */
+public final class PrebuiltIndex
+{
+	/**
+	 * Prebuilt index files extension.
+	 */
+	public static final String FILE_EXTENSION = ".phpindex"; //$NON-NLS-1$
+
+	private static final int MAGIC = 0x50485049;
+	private static final int VERSION = 1;
+
+	/**
+	 * Writes a prebuilt index file.
+	 * 
+	 * @param index
+	 *            - the index to write.
+	 * @param buildPath
+	 *            - the indexed build path.
+	 * @param name
+	 *            - the name the index is published under.
+	 * @param file
+	 *            - the output file.
+	 * @throws IOException
+	 */
+	public static void write(UnpackedElementIndex index, IBuildPath buildPath, String name, File file)
+			throws IOException
+	{
+		DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+		try
+		{
+			stream.writeInt(MAGIC);
+			stream.writeInt(VERSION);
+			stream.writeUTF(name);
+			IndexPersistence.store(index, stream, buildPath);
+		}
+		finally
+		{
+			stream.close();
+		}
+	}
+
+	/**
+	 * Loads a prebuilt index file into the given index. Only the modules that exist in the given build path are
+	 * loaded.
+	 * 
+	 * @param index
+	 * @param buildPath
+	 * @param file
+	 * @throws IOException
+	 *             in case the file is not a valid prebuilt index.
+	 */
+	public static void load(UnpackedElementIndex index, IBuildPath buildPath, File file) throws IOException
+	{
+		DataInputStream stream = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		try
+		{
+			if (stream.readInt() != MAGIC || stream.readInt() != VERSION)
+			{
+				throw new IOException("Not a prebuilt PHP index: " + file); //$NON-NLS-1$
+			}
+			stream.readUTF();
+			IndexPersistence.load(index, stream, buildPath);
+		}
+		finally
+		{
+			stream.close();
+		}
+	}
+
+	/**
+	 * Returns the prebuilt index file for the given build path.
+	 * 
+	 * @param buildPath
+	 * @return The prebuilt index file; null if there is no configured prebuilt index directory, or there is no prebuilt
+	 *         index for this build path.
+	 */
+	public static File find(IBuildPath buildPath)
+	{
+		String directory = CorePreferenceConstants.getPreferenceStore().getString(Keys.PREBUILT_INDEX_DIRECTORY);
+		if (directory == null || directory.length() == 0)
+		{
+			return null;
+		}
+		String name = getName(buildPath);
+		if (name == null)
+		{
+			return null;
+		}
+		File file = new File(directory, name + FILE_EXTENSION);
+		if (!file.isFile())
+		{
+			return null;
+		}
+		if (PHPEditorPlugin.INDEXER_DEBUG)
+		{
+			System.out.println("Found a prebuilt index for " + buildPath.getHandleIdentifier() + " - " + file); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		return file;
+	}
+
+	/**
+	 * Returns the name a prebuilt index of the given build path is published under - the root directory name, followed
+	 * by a fingerprint of the modules relative paths. Prebuilt indexes are supported for the external libraries (file
+	 * system build paths).
+	 * 
+	 * @param buildPath
+	 * @return The name, or null if prebuilt indexes are not supported for this build path.
+	 */
+	public static String getName(IBuildPath buildPath)
+	{
+		if (!(buildPath instanceof FileSystemBuildPath))
+		{
+			return null;
+		}
+		File root = ((FileSystemBuildPath) buildPath).getFile();
+		String rootPath = root.getAbsolutePath();
+		List<String> paths = new ArrayList<String>();
+		for (IModule module : buildPath.getModules())
+		{
+			String path = module.getFullPath();
+			if (path == null)
+			{
+				continue;
+			}
+			if (path.startsWith(rootPath))
+			{
+				path = path.substring(rootPath.length());
+			}
+			paths.add(path.replace(File.separatorChar, '/'));
+		}
+		Collections.sort(paths);
+		StringBuilder layout = new StringBuilder();
+		for (String path : paths)
+		{
+			layout.append(path).append('\n');
+		}
+		long fingerprint;
+		try
+		{
+			fingerprint = ContentHashUtils.computeHash(layout.toString().getBytes("UTF-8")); //$NON-NLS-1$
+		}
+		catch (UnsupportedEncodingException e)
+		{
+			fingerprint = ContentHashUtils.computeHash(layout.toString().getBytes());
+		}
+		return root.getName() + '-' + Long.toHexString(fingerprint);
+	}
+
+	private PrebuiltIndex()
+	{
+	}
+}
@@ -2,7 +2,6 @@ package com.aptana.editor.php.internal.indexer;
 
 import java.io.Reader;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
 import org.eclipse.core.resources.IFile;
@@ -21,7 +20,6 @@ import com.aptana.editor.php.indexer.PHPGlobalIndexer;
 import com.aptana.editor.php.internal.builder.BuildPathManager;
 import com.aptana.editor.php.internal.builder.LocalModule;
 import com.aptana.editor.php.internal.core.builder.IBuildPath;
-import com.aptana.editor.php.internal.core.builder.IDirectory;
 import com.aptana.editor.php.internal.core.builder.IModule;
 import com.aptana.editor.php.internal.validation.Task;
 
@@ -47,11 +45,7 @@ public class TaskTagsUpdater
 					IBuildPath buildPathByResource = BuildPathManager.getInstance().getBuildPathByResource(project);
 					if (buildPathByResource != null)
 					{
-						List<IModule> modules = buildPathByResource.getModules();
-						List<IModule> emptyList = Collections.emptyList();
-						List<IDirectory> emptyDirList = Collections.emptyList();
-						PHPGlobalIndexer.getInstance().processChangedAfter(emptyList, modules, emptyList, 
-								emptyDirList, emptyDirList);
+						PHPGlobalIndexer.getInstance().reindex(buildPathByResource.getModules());
 					}
 				}
 				else
@@ -62,10 +56,7 @@ public class TaskTagsUpdater
 					{
 						lm.addAll(p.getModules());
 					}
-					List<IModule> emptyList = Collections.emptyList();
-					List<IDirectory> emptyDirList = Collections.emptyList();
-					
-					PHPGlobalIndexer.getInstance().processChangedAfter(emptyList, lm, emptyList, emptyDirList, emptyDirList);
+					PHPGlobalIndexer.getInstance().reindex(lm);
 				}
 			}
 
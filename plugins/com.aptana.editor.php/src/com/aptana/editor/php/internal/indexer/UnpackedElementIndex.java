@@ -42,11 +42,14 @@ import gnu.trove.TShortObjectHashMap;
 
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import com.aptana.editor.php.indexer.IElementEntry;
@@ -67,6 +70,13 @@ public class UnpackedElementIndex implements IModifiableElementsIndex
 
 	private TObjectLongHashMap<IModule> timeStamps = new TObjectLongHashMap<IModule>();
 
+	/**
+	 * Modules content hashes.
+	 * 
+	 * @see ContentHashUtils
+	 */
+	private TObjectLongHashMap<IModule> contentHashes = new TObjectLongHashMap<IModule>();
+
 	/**
 	 * Category->Path->Entries map. Value might be represented by the single entry or by the entries list.
 	 */
@@ -82,21 +92,67 @@ public class UnpackedElementIndex implements IModifiableElementsIndex
 	 */
 	private TIntObjectHashMap<TIntObjectHashMap<Object>> firstTwoCharsToEntries = new TIntObjectHashMap<TIntObjectHashMap<Object>>();
 
+	/**
+	 * Last path name->Entries bigram index, for the fuzzy queries.
+	 */
+	private FuzzyNameIndex<UnpackedEntry> namesIndex = new FuzzyNameIndex<UnpackedEntry>();
+
 	/**
 	 * Buffer used for conversions.
 	 */
 	private ByteBuffer converter = ByteBuffer.allocate(4);
 
-	public void recordTimeStamp(IModule m, long timeStamp)
+	public synchronized void recordTimeStamp(IModule m, long timeStamp)
 	{
 		timeStamps.put(m, timeStamp);
 	}
 
-	public long getTimeStamp(IModule m)
+	public synchronized long getTimeStamp(IModule m)
 	{
 		return timeStamps.get(m);
 	}
 
+	/**
+	 * Returns whether the index holds the given module (its time stamp, or entries).
+	 * 
+	 * @param m
+	 * @return True if the module was added to this index.
+	 */
+	public synchronized boolean containsModule(IModule m)
+	{
+		return timeStamps.containsKey(m) || entries.containsKey(m);
+	}
+
+	/**
+	 * Records the content hash of a module.
+	 * 
+	 * @param m
+	 * @param hash
+	 *            - the module hash, or {@link ContentHashUtils#UNKNOWN_HASH}.
+	 */
+	public synchronized void recordContentHash(IModule m, long hash)
+	{
+		if (hash == ContentHashUtils.UNKNOWN_HASH)
+		{
+			contentHashes.remove(m);
+		}
+		else
+		{
+			contentHashes.put(m, hash);
+		}
+	}
+
+	/**
+	 * Returns the recorded content hash of a module.
+	 * 
+	 * @param m
+	 * @return The module hash, or {@link ContentHashUtils#UNKNOWN_HASH} in case there is no recorded hash.
+	 */
+	public synchronized long getContentHash(IModule m)
+	{
+		return contentHashes.get(m);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -116,6 +172,9 @@ public class UnpackedElementIndex implements IModifiableElementsIndex
 		// adding entry to first 2 path characters->entry map
 		addEntryToFirstTwoCharsToEntriesMap(entry);
 
+		// adding entry to the names bigram index
+		addEntryToNamesIndex(entry);
+
 		return entry;
 	}
 
@@ -133,9 +192,11 @@ public class UnpackedElementIndex implements IModifiableElementsIndex
 				removeEntriesFromPathToEntries(entryToRemove);
 				removeEntriesFromFirstCharToEntries(entryToRemove);
 				removeEntriesFromFirstTwoCharcToEntries(entryToRemove);
+				removeEntryFromNamesIndex(entryToRemove);
 			}
 		}
 		timeStamps.remove(module);
+		contentHashes.remove(module);
 		entries.remove(module);
 
 		// List<IElementEntry> curr = this.getEntriesStartingWith(-1, "C");
@@ -505,6 +566,48 @@ public class UnpackedElementIndex implements IModifiableElementsIndex
 		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public synchronized List<IElementEntry> getEntriesMatching(int category, String pattern, int limit)
+	{
+		FuzzyEntriesCollector collector = new FuzzyEntriesCollector(pattern, limit);
+		collectEntriesMatching(category, collector);
+		return collector.getEntries();
+	}
+
+	/**
+	 * Offers the entries that match the collector pattern to the collector. The names are looked up in the bigram
+	 * index, so only the names that share most of the pattern bigrams are scored.
+	 * 
+	 * @param category
+	 *            - category to select entries from.
+	 * @param collector
+	 */
+	public synchronized void collectEntriesMatching(final int category, final FuzzyEntriesCollector collector)
+	{
+		namesIndex.match(collector.getPattern(), new FuzzyNameIndex.IMatchVisitor<UnpackedEntry>()
+		{
+			public void accept(UnpackedEntry entry, String name, int score)
+			{
+				if (category == IElementsIndex.ANY_CETEGORY || entry.getCategory() == category)
+				{
+					collector.offer(entry, score);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Returns the number of modules in this index.
+	 * 
+	 * @return modules count.
+	 */
+	public synchronized int getModulesCount()
+	{
+		return entries.size();
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -542,11 +645,221 @@ public class UnpackedElementIndex implements IModifiableElementsIndex
 		return Collections.unmodifiableSet(entries.keySet());
 	}
 
-	public IModule[] getAllModules()
+	public synchronized IModule[] getAllModules()
 	{
 		return timeStamps.keys(new IModule[timeStamps.size()]);
 	}
 
+	/**
+	 * {@inheritDoc}<br>
+	 * The entries are matched by their category and lower-case path (the granularity of the index maps). A group of
+	 * entries that has the same paths and equal values keeps its index entries, and only their values are replaced.
+	 * Other groups are removed from the index maps and added again.
+	 */
+	public synchronized boolean replaceModuleEntries(IModule module, List<UnpackedEntry> newEntries)
+	{
+		List<UnpackedEntry> oldEntries = entries.get(module);
+		if (oldEntries == null || oldEntries.isEmpty())
+		{
+			for (UnpackedEntry entry : newEntries)
+			{
+				addEntryToModuleList(module, entry);
+				addEntryToPathToEntriesMap(entry);
+				addEntryToFirstCharToEntriesMap(entry);
+				addEntryToFirstTwoCharsToEntriesMap(entry);
+				addEntryToNamesIndex(entry);
+			}
+			return !newEntries.isEmpty();
+		}
+
+		Map<String, List<UnpackedEntry>> oldGroups = groupEntries(oldEntries);
+		Map<String, List<UnpackedEntry>> newGroups = groupEntries(newEntries);
+		boolean changed = false;
+		List<UnpackedEntry> result = new ArrayList<UnpackedEntry>(newEntries.size());
+
+		for (Map.Entry<String, List<UnpackedEntry>> oldGroup : oldGroups.entrySet())
+		{
+			List<UnpackedEntry> newGroup = newGroups.get(oldGroup.getKey());
+			if (newGroup != null && isReplaceable(oldGroup.getValue(), newGroup))
+			{
+				List<UnpackedEntry> olds = oldGroup.getValue();
+				for (int i = 0; i < olds.size(); i++)
+				{
+					UnpackedEntry oldEntry = olds.get(i);
+					Object newValue = newGroup.get(i).getValue();
+					if (!isSameDeclaration(oldEntry.getValue(), newValue, false))
+					{
+						changed = true;
+					}
+					oldEntry.setValue(newValue);
+					result.add(oldEntry);
+				}
+				newGroups.remove(oldGroup.getKey());
+			}
+			else
+			{
+				// removing a single entry removes all the module entries that have the same path
+				UnpackedEntry entryToRemove = oldGroup.getValue().get(0);
+				removeEntriesFromPathToEntries(entryToRemove);
+				removeEntriesFromFirstCharToEntries(entryToRemove);
+				removeEntriesFromFirstTwoCharcToEntries(entryToRemove);
+				for (UnpackedEntry removedEntry : oldGroup.getValue())
+				{
+					removeEntryFromNamesIndex(removedEntry);
+				}
+				changed = true;
+			}
+		}
+		for (List<UnpackedEntry> newGroup : newGroups.values())
+		{
+			for (UnpackedEntry entry : newGroup)
+			{
+				addEntryToPathToEntriesMap(entry);
+				addEntryToFirstCharToEntriesMap(entry);
+				addEntryToFirstTwoCharsToEntriesMap(entry);
+				addEntryToNamesIndex(entry);
+				result.add(entry);
+			}
+			changed = true;
+		}
+		entries.put(module, result);
+		return changed;
+	}
+
+	/**
+	 * Groups the entries by their category and lower-case path.
+	 * 
+	 * @param moduleEntries
+	 * @return The grouped entries, in their original order.
+	 */
+	private static Map<String, List<UnpackedEntry>> groupEntries(List<UnpackedEntry> moduleEntries)
+	{
+		Map<String, List<UnpackedEntry>> result = new LinkedHashMap<String, List<UnpackedEntry>>();
+		for (UnpackedEntry entry : moduleEntries)
+		{
+			String key = entry.getCategory() + ":" + entry.getLowerCaseEntryPath(); //$NON-NLS-1$
+			List<UnpackedEntry> group = result.get(key);
+			if (group == null)
+			{
+				group = new ArrayList<UnpackedEntry>(1);
+				result.put(key, group);
+			}
+			group.add(entry);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns whether the old entries can take the values of the new entries in place. This is possible when both
+	 * groups have the same paths, and the values are equal (so the entries hash codes do not change).
+	 */
+	private static boolean isReplaceable(List<UnpackedEntry> oldGroup, List<UnpackedEntry> newGroup)
+	{
+		if (oldGroup.size() != newGroup.size())
+		{
+			return false;
+		}
+		for (int i = 0; i < oldGroup.size(); i++)
+		{
+			UnpackedEntry oldEntry = oldGroup.get(i);
+			UnpackedEntry newEntry = newGroup.get(i);
+			if (!oldEntry.getEntryPath().equals(newEntry.getEntryPath()) || oldEntry.getValue() == null
+					|| !oldEntry.getValue().equals(newEntry.getValue()))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns whether two equal entry values (see {@link Object#equals(Object)}) describe the same declaration.
+	 * 
+	 * @param oldValue
+	 * @param newValue
+	 *            - a value that equals the old value.
+	 * @param compareOffsets
+	 *            - whether the declarations also have to be at the same offsets.
+	 * @return True if the values describe the same declaration.
+	 */
+	public static boolean isSameDeclaration(Object oldValue, Object newValue, boolean compareOffsets)
+	{
+		if (oldValue instanceof AbstractPHPEntryValue
+				&& !isEqual(((AbstractPHPEntryValue) oldValue).getNameSpace(), ((AbstractPHPEntryValue) newValue)
+						.getNameSpace()))
+		{
+			return false;
+		}
+		if (compareOffsets && !isSameOffsets(oldValue, newValue))
+		{
+			return false;
+		}
+		if (oldValue instanceof IPHPFunctionEntryValue
+				&& !isEqual(((IPHPFunctionEntryValue) oldValue).getParameters(), ((IPHPFunctionEntryValue) newValue)
+						.getParameters()))
+		{
+			return false;
+		}
+		if (oldValue instanceof FunctionPHPEntryValue
+				&& !Arrays.equals(((FunctionPHPEntryValue) oldValue).getMandatoryParams(),
+						((FunctionPHPEntryValue) newValue).getMandatoryParams()))
+		{
+			return false;
+		}
+		if (oldValue instanceof FunctionPHPEntryValue)
+		{
+			return isEqual(((FunctionPHPEntryValue) oldValue).getReturnTypes(), ((FunctionPHPEntryValue) newValue)
+					.getReturnTypes());
+		}
+		if (oldValue instanceof VariablePHPEntryValue)
+		{
+			return isEqual(((VariablePHPEntryValue) oldValue).getTypes(), ((VariablePHPEntryValue) newValue)
+					.getTypes());
+		}
+		if (oldValue instanceof ClassPHPEntryValue)
+		{
+			ClassPHPEntryValue oldClass = (ClassPHPEntryValue) oldValue;
+			ClassPHPEntryValue newClass = (ClassPHPEntryValue) newValue;
+			return isEqual(oldClass.getSuperClassname(), newClass.getSuperClassname())
+					&& isEqual(oldClass.getInterfaces(), newClass.getInterfaces());
+		}
+		if (oldValue instanceof AbstractPHPEntryValue)
+		{
+			return true;
+		}
+		// unknown value types are considered changed
+		return false;
+	}
+
+	/**
+	 * Returns whether two equal entry values are declared at the same offsets.
+	 */
+	private static boolean isSameOffsets(Object oldValue, Object newValue)
+	{
+		if (oldValue instanceof AbstractPHPEntryValue
+				&& ((AbstractPHPEntryValue) oldValue).getStartOffset() != ((AbstractPHPEntryValue) newValue)
+						.getStartOffset())
+		{
+			return false;
+		}
+		if (oldValue instanceof ClassPHPEntryValue
+				&& ((ClassPHPEntryValue) oldValue).getEndOffset() != ((ClassPHPEntryValue) newValue).getEndOffset())
+		{
+			return false;
+		}
+		if (oldValue instanceof FunctionPHPEntryValue)
+		{
+			return Arrays.equals(((FunctionPHPEntryValue) oldValue).getParameterStartPositions(),
+					((FunctionPHPEntryValue) newValue).getParameterStartPositions());
+		}
+		return true;
+	}
+
+	private static boolean isEqual(Object o1, Object o2)
+	{
+		return (o1 == null) ? o2 == null : o1.equals(o2);
+	}
+
 	/**
 	 * Removes all the entries that have the same path and module as the entry specified from the
 	 * firstTowCharsToEntries.
@@ -891,6 +1204,28 @@ public class UnpackedElementIndex implements IModifiableElementsIndex
 		}
 	}
 
+	/**
+	 * Adds entry to the names bigram index, under the last name of its path.
+	 * 
+	 * @param entry
+	 *            - entry.
+	 */
+	private void addEntryToNamesIndex(UnpackedEntry entry)
+	{
+		namesIndex.add(ElementsIndexingUtils.getLastNameInPath(entry.getEntryPath()), entry);
+	}
+
+	/**
+	 * Removes entry from the names bigram index.
+	 * 
+	 * @param entry
+	 *            - entry.
+	 */
+	private void removeEntryFromNamesIndex(UnpackedEntry entry)
+	{
+		namesIndex.remove(ElementsIndexingUtils.getLastNameInPath(entry.getEntryPath()), entry);
+	}
+
 	/**
 	 * Adds entry to the list of module entries.
 	 * 
@@ -913,5 +1248,6 @@ public class UnpackedElementIndex implements IModifiableElementsIndex
 	public void removeTimeStamp(IModule module)
 	{
 		timeStamps.remove(module);
+		contentHashes.remove(module);
 	}
 }
@@ -119,6 +119,18 @@ public class UnpackedEntry implements IElementEntry
 		return value;
 	}
 
+	/**
+	 * Replaces the entry value. The new value must be equal to the current one, so the entry hash code does not change
+	 * while it is held by the index collections.
+	 * 
+	 * @param value
+	 *            - the new value.
+	 */
+	void setValue(Object value)
+	{
+		this.value = value;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -0,0 +1,161 @@
+/**
+ * This file Copyright (c) 2005-2008 Aptana, Inc. This program is
+ * dual-licensed under both the Aptana Public License and the GNU General
+ * Public license. You may elect to use one or the other of these licenses.
+ * 
+ * This program is distributed in the hope that it will be useful, but
+ * AS-IS and WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE, TITLE, or
+ * NONINFRINGEMENT. Redistribution, except as permitted by whichever of
+ * the GPL or APL you select, is prohibited.
+ *
+ * 1. For the GPL license (GPL), you can redistribute and/or modify this
+ * program under the terms of the GNU General Public License,
+ * Version 3, as published by the Free Software Foundation.  You should
+ * have received a copy of the GNU General Public License, Version 3 along
+ * with this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Aptana provides a special exception to allow redistribution of this file
+ * with certain other free and open source software ("FOSS") code and certain additional terms
+ * pursuant to Section 7 of the GPL. You may view the exception and these
+ * terms on the web at http://www.aptana.com/legal/gpl/.
+ * 
+ * 2. For the Aptana Public License (APL), this program and the
+ * accompanying materials are made available under the terms of the APL
+ * v1.0 which accompanies this distribution, and is available at
+ * http://www.aptana.com/legal/apl/.
+ * 
+ * You may view the GPL, Aptana's exception and additional terms, and the
+ * APL in the file titled license.html at the root of the corresponding
+ * plugin containing this source file.
+ * 
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.editor.php.internal.metrics;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Date;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+import com.aptana.editor.php.PHPEditorPlugin;
+
+/**
+ * A system job that periodically appends the {@link PHPMetrics} dump to a rolling log in the plugin state location.
+ * Once the log grows over {@link #MAX_LOG_SIZE}, it's renamed to <code>metrics.log.1</code> (replacing the previous
+ * one) and a new log is started.
+ */
+public class MetricsLogJob extends Job
+{
+	/**
+	 * The log file name.
+	 */
+	public static final String LOG_FILE_NAME = "metrics.log"; //$NON-NLS-1$
+
+	private static final long DUMP_INTERVAL = 60000L;
+	private static final long MAX_LOG_SIZE = 1024L * 1024L;
+
+	private volatile boolean stopped;
+
+	/**
+	 * Constructs a new MetricsLogJob.
+	 */
+	public MetricsLogJob()
+	{
+		super("PHP metrics log"); //$NON-NLS-1$
+		setSystem(true);
+		setPriority(Job.DECORATE);
+	}
+
+	/**
+	 * Starts dumping the metrics.
+	 */
+	public void start()
+	{
+		stopped = false;
+		schedule(DUMP_INTERVAL);
+	}
+
+	/**
+	 * Stops dumping the metrics. A last dump is written.
+	 */
+	public void stop()
+	{
+		stopped = true;
+		cancel();
+		dump();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.core.runtime.jobs.Job#run(org.eclipse.core.runtime.IProgressMonitor)
+	 */
+	@Override
+	protected IStatus run(IProgressMonitor monitor)
+	{
+		if (stopped || monitor.isCanceled())
+		{
+			return Status.CANCEL_STATUS;
+		}
+		dump();
+		if (!stopped)
+		{
+			schedule(DUMP_INTERVAL);
+		}
+		return Status.OK_STATUS;
+	}
+
+	private synchronized void dump()
+	{
+		PHPEditorPlugin plugin = PHPEditorPlugin.getDefault();
+		if (plugin == null)
+		{
+			return;
+		}
+		File log = new File(plugin.getStateLocation().toFile(), LOG_FILE_NAME);
+		if (log.length() > MAX_LOG_SIZE)
+		{
+			File rolled = new File(log.getParentFile(), LOG_FILE_NAME + ".1"); //$NON-NLS-1$
+			if (rolled.exists() && !rolled.delete())
+			{
+				return;
+			}
+			if (!log.renameTo(rolled))
+			{
+				return;
+			}
+		}
+		Writer writer = null;
+		try
+		{
+			writer = new FileWriter(log, true);
+			writer.write("=== " + new Date() + " ===\n"); //$NON-NLS-1$ //$NON-NLS-2$
+			writer.write(PHPMetrics.getInstance().dump());
+		}
+		catch (IOException e)
+		{
+			PHPEditorPlugin.logError(e);
+		}
+		finally
+		{
+			if (writer != null)
+			{
+				try
+				{
+					writer.close();
+				}
+				catch (IOException e)
+				{
+					PHPEditorPlugin.logError(e);
+				}
+			}
+		}
+	}
+}
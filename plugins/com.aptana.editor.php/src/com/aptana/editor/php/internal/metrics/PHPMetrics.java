@@ -0,0 +1,529 @@
+/**
+ * This file Copyright (c) 2005-2008 Aptana, Inc. This program is
+ * dual-licensed under both the Aptana Public License and the GNU General
+ * Public license. You may elect to use one or the other of these licenses.
+ * 
+ * This program is distributed in the hope that it will be useful, but
+ * AS-IS and WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE, TITLE, or
+ * NONINFRINGEMENT. Redistribution, except as permitted by whichever of
+ * the GPL or APL you select, is prohibited.
+ *
+ * 1. For the GPL license (GPL), you can redistribute and/or modify this
+ * program under the terms of the GNU General Public License,
+ * Version 3, as published by the Free Software Foundation.  You should
+ * have received a copy of the GNU General Public License, Version 3 along
+ * with this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Aptana provides a special exception to allow redistribution of this file
+ * with certain other free and open source software ("FOSS") code and certain additional terms
+ * pursuant to Section 7 of the GPL. You may view the exception and these
+ * terms on the web at http://www.aptana.com/legal/gpl/.
+ * 
+ * 2. For the Aptana Public License (APL), this program and the
+ * accompanying materials are made available under the terms of the APL
+ * v1.0 which accompanies this distribution, and is available at
+ * http://www.aptana.com/legal/apl/.
+ * 
+ * You may view the GPL, Aptana's exception and additional terms, and the
+ * APL in the file titled license.html at the root of the corresponding
+ * plugin containing this source file.
+ * 
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.editor.php.internal.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.aptana.editor.php.PHPEditorPlugin;
+
+/**
+ * A registry of the PHP indexer and editor performance metrics.<br>
+ * The registry holds three kinds of metrics:
+ * <ul>
+ * <li>Counters - monotonic totals, such as the number of indexed modules and bytes.</li>
+ * <li>Timers - the samples count, total and maximum duration of a stage, such as the parse stage of the indexer.</li>
+ * <li>Gauges - values that are computed on read by the registered {@link IMetricsProvider}s, such as the indexer queue
+ * depth and the index size per build path.</li>
+ * </ul>
+ * In addition, the registry keeps the {@link #SLOWEST_FILES_COUNT} files that took the longest to index. The metrics
+ * are published through JMX (see {@link PHPMetricsMXBean}), and are periodically dumped into a rolling log when the
+ * <code>com.aptana.editor.php/metrics</code> debug option is on (see {@link MetricsLogJob}).<br>
+ * Recording is lock free (except for the slowest files), so it's safe to record from the indexing and the UI threads.
+ */
+public final class PHPMetrics implements PHPMetricsMXBean
+{
+	/**
+	 * The JMX object name of the registry.
+	 */
+	public static final String OBJECT_NAME = "com.aptana.editor.php:type=Metrics"; //$NON-NLS-1$
+
+	/**
+	 * The number of slowest files to report.
+	 */
+	public static final int SLOWEST_FILES_COUNT = 20;
+
+	// Counters
+	public static final String INDEXER_MODULES = "indexer.modules"; //$NON-NLS-1$
+	public static final String INDEXER_SKIPPED_MODULES = "indexer.skippedModules"; //$NON-NLS-1$
+	public static final String INDEXER_REMOVED_MODULES = "indexer.removedModules"; //$NON-NLS-1$
+	public static final String INDEXER_BYTES = "indexer.bytes"; //$NON-NLS-1$
+
+	// Indexer timers
+	public static final String INDEXER_MODULE = "indexer.module"; //$NON-NLS-1$
+	public static final String INDEXER_READ = "indexer.read"; //$NON-NLS-1$
+	public static final String INDEXER_PARSE = "indexer.parse"; //$NON-NLS-1$
+	public static final String INDEXER_VISIT = "indexer.visit"; //$NON-NLS-1$
+	public static final String INDEXER_COMMIT = "indexer.commit"; //$NON-NLS-1$
+	public static final String INDEX_LOAD = "index.load"; //$NON-NLS-1$
+	public static final String INDEX_SAVE = "index.save"; //$NON-NLS-1$
+
+	// Content assist timers
+	public static final String CA_TOTAL = "contentAssist.total"; //$NON-NLS-1$
+	public static final String CA_LEXEME_PROVIDER = "contentAssist.lexemeProvider"; //$NON-NLS-1$
+	public static final String CA_LOCAL_INDEX = "contentAssist.localIndex"; //$NON-NLS-1$
+	public static final String CA_GLOBAL_QUERIES = "contentAssist.globalQueries"; //$NON-NLS-1$
+	public static final String CA_PROPOSALS = "contentAssist.proposals"; //$NON-NLS-1$
+	public static final String CA_SESSION_NARROWING = "contentAssist.sessionNarrowing"; //$NON-NLS-1$
+	public static final String CA_SIGNATURE_SESSION = "contentAssist.signatureSession"; //$NON-NLS-1$
+
+	// Reconcile timers
+	public static final String RECONCILE_PARSE = "reconcile.parse"; //$NON-NLS-1$
+	public static final String RECONCILE_NODES = "reconcile.nodes"; //$NON-NLS-1$
+	public static final String RECONCILE_INDEX_UPDATE = "reconcile.indexUpdate"; //$NON-NLS-1$
+	public static final String RECONCILE_TYPE_BINDINGS = "reconcile.typeBindings"; //$NON-NLS-1$
+	public static final String RECONCILE_AST_PROVIDER = "reconcile.astProvider"; //$NON-NLS-1$
+
+	// Gauges
+	public static final String INDEXER_QUEUE_DEPTH = "indexer.queueDepth"; //$NON-NLS-1$
+	public static final String INDEX_SIZE_PREFIX = "index.size:"; //$NON-NLS-1$
+
+	private static final double NANOS_PER_MILLI = 1000000d;
+	private static final double NANOS_PER_SECOND = 1000000000d;
+
+	private static final Comparator<SlowFile> SLOW_FILE_COMPARATOR = new Comparator<SlowFile>()
+	{
+		public int compare(SlowFile f1, SlowFile f2)
+		{
+			return f1.nanos < f2.nanos ? -1 : (f1.nanos == f2.nanos ? 0 : 1);
+		}
+	};
+
+	private static PHPMetrics instance;
+
+	private final ConcurrentMap<String, AtomicLong> counters = new ConcurrentHashMap<String, AtomicLong>();
+	private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<String, Timer>();
+	private final List<IMetricsProvider> providers = new CopyOnWriteArrayList<IMetricsProvider>();
+	// a min-heap, so the fastest of the slowest files is the one that gets evicted
+	private final PriorityQueue<SlowFile> slowestFiles = new PriorityQueue<SlowFile>(SLOWEST_FILES_COUNT + 1,
+			SLOW_FILE_COMPARATOR);
+	private ObjectName registeredName;
+
+	/**
+	 * Returns the metrics registry instance.
+	 * 
+	 * @return PHPMetrics
+	 */
+	public static synchronized PHPMetrics getInstance()
+	{
+		if (instance == null)
+		{
+			instance = new PHPMetrics();
+		}
+		return instance;
+	}
+
+	private PHPMetrics()
+	{
+	}
+
+	/**
+	 * Adds a value to a counter.
+	 * 
+	 * @param counter
+	 *            - the counter name.
+	 * @param delta
+	 */
+	public void increment(String counter, long delta)
+	{
+		AtomicLong value = counters.get(counter);
+		if (value == null)
+		{
+			AtomicLong newValue = new AtomicLong();
+			value = counters.putIfAbsent(counter, newValue);
+			if (value == null)
+			{
+				value = newValue;
+			}
+		}
+		value.addAndGet(delta);
+	}
+
+	/**
+	 * Records a timer sample.
+	 * 
+	 * @param timer
+	 *            - the timer name.
+	 * @param nanos
+	 *            - the sample duration, in nanoseconds.
+	 */
+	public void addTime(String timer, long nanos)
+	{
+		Timer value = timers.get(timer);
+		if (value == null)
+		{
+			Timer newValue = new Timer();
+			value = timers.putIfAbsent(timer, newValue);
+			if (value == null)
+			{
+				value = newValue;
+			}
+		}
+		value.add(nanos);
+	}
+
+	/**
+	 * Records a timer sample that started at the given {@link System#nanoTime()} mark and ends now.
+	 * 
+	 * @param timer
+	 *            - the timer name.
+	 * @param startNanos
+	 *            - the sample start mark.
+	 * @return the current {@link System#nanoTime()}, so it can be used as the start mark of the next stage.
+	 */
+	public long addTimeSince(String timer, long startNanos)
+	{
+		long now = System.nanoTime();
+		addTime(timer, now - startNanos);
+		return now;
+	}
+
+	/**
+	 * Records a module that was indexed. This updates the modules and bytes counters, the {@link #INDEXER_MODULE}
+	 * timer and the slowest files list.
+	 * 
+	 * @param path
+	 *            - the module path.
+	 * @param bytes
+	 *            - the module size, in bytes.
+	 * @param nanos
+	 *            - the time it took to index the module, in nanoseconds.
+	 */
+	public void recordIndexedModule(String path, long bytes, long nanos)
+	{
+		increment(INDEXER_MODULES, 1);
+		increment(INDEXER_BYTES, bytes);
+		addTime(INDEXER_MODULE, nanos);
+		synchronized (slowestFiles)
+		{
+			if (slowestFiles.size() < SLOWEST_FILES_COUNT || slowestFiles.peek().nanos < nanos)
+			{
+				slowestFiles.add(new SlowFile(path, bytes, nanos));
+				if (slowestFiles.size() > SLOWEST_FILES_COUNT)
+				{
+					slowestFiles.poll();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds a gauges provider.
+	 * 
+	 * @param provider
+	 */
+	public void addProvider(IMetricsProvider provider)
+	{
+		providers.add(provider);
+	}
+
+	/**
+	 * Removes a gauges provider.
+	 * 
+	 * @param provider
+	 */
+	public void removeProvider(IMetricsProvider provider)
+	{
+		providers.remove(provider);
+	}
+
+	/**
+	 * Registers the registry in the platform MBean server.
+	 */
+	public synchronized void register()
+	{
+		if (registeredName != null)
+		{
+			return;
+		}
+		try
+		{
+			ObjectName name = new ObjectName(OBJECT_NAME);
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			if (!server.isRegistered(name))
+			{
+				server.registerMBean(this, name);
+				registeredName = name;
+			}
+		}
+		catch (JMException e)
+		{
+			PHPEditorPlugin.logError("Error registering the PHP metrics MBean", e); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Unregisters the registry from the platform MBean server.
+	 */
+	public synchronized void unregister()
+	{
+		if (registeredName == null)
+		{
+			return;
+		}
+		try
+		{
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(registeredName);
+		}
+		catch (JMException e)
+		{
+			PHPEditorPlugin.logError("Error unregistering the PHP metrics MBean", e); //$NON-NLS-1$
+		}
+		registeredName = null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see com.aptana.editor.php.internal.metrics.PHPMetricsMXBean#getCounters()
+	 */
+	public Map<String, Long> getCounters()
+	{
+		Map<String, Long> result = new TreeMap<String, Long>();
+		for (Map.Entry<String, AtomicLong> entry : counters.entrySet())
+		{
+			result.put(entry.getKey(), entry.getValue().get());
+		}
+		return result;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see com.aptana.editor.php.internal.metrics.PHPMetricsMXBean#getGauges()
+	 */
+	public Map<String, Long> getGauges()
+	{
+		Map<String, Long> result = new TreeMap<String, Long>();
+		for (IMetricsProvider provider : providers)
+		{
+			try
+			{
+				provider.collectGauges(result);
+			}
+			catch (Exception e)
+			{
+				PHPEditorPlugin.logError(e);
+			}
+		}
+		return result;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see com.aptana.editor.php.internal.metrics.PHPMetricsMXBean#getTimerCounts()
+	 */
+	public Map<String, Long> getTimerCounts()
+	{
+		Map<String, Long> result = new TreeMap<String, Long>();
+		for (Map.Entry<String, Timer> entry : timers.entrySet())
+		{
+			result.put(entry.getKey(), entry.getValue().count.get());
+		}
+		return result;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see com.aptana.editor.php.internal.metrics.PHPMetricsMXBean#getTimerAverages()
+	 */
+	public Map<String, Double> getTimerAverages()
+	{
+		Map<String, Double> result = new TreeMap<String, Double>();
+		for (Map.Entry<String, Timer> entry : timers.entrySet())
+		{
+			result.put(entry.getKey(), entry.getValue().getAverageMillis());
+		}
+		return result;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see com.aptana.editor.php.internal.metrics.PHPMetricsMXBean#getTimerMaximums()
+	 */
+	public Map<String, Double> getTimerMaximums()
+	{
+		Map<String, Double> result = new TreeMap<String, Double>();
+		for (Map.Entry<String, Timer> entry : timers.entrySet())
+		{
+			result.put(entry.getKey(), entry.getValue().max.get() / NANOS_PER_MILLI);
+		}
+		return result;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see com.aptana.editor.php.internal.metrics.PHPMetricsMXBean#getModulesPerSecond()
+	 */
+	public double getModulesPerSecond()
+	{
+		return perIndexingSecond(INDEXER_MODULES);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see com.aptana.editor.php.internal.metrics.PHPMetricsMXBean#getBytesPerSecond()
+	 */
+	public double getBytesPerSecond()
+	{
+		return perIndexingSecond(INDEXER_BYTES);
+	}
+
+	private double perIndexingSecond(String counter)
+	{
+		Timer timer = timers.get(INDEXER_MODULE);
+		AtomicLong value = counters.get(counter);
+		if (timer == null || value == null || timer.total.get() == 0)
+		{
+			return 0;
+		}
+		return value.get() / (timer.total.get() / NANOS_PER_SECOND);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see com.aptana.editor.php.internal.metrics.PHPMetricsMXBean#getSlowestFiles()
+	 */
+	public String[] getSlowestFiles()
+	{
+		List<SlowFile> files;
+		synchronized (slowestFiles)
+		{
+			files = new ArrayList<SlowFile>(slowestFiles);
+		}
+		Collections.sort(files, Collections.reverseOrder(SLOW_FILE_COMPARATOR));
+		String[] result = new String[files.size()];
+		for (int i = 0; i < result.length; i++)
+		{
+			SlowFile file = files.get(i);
+			result[i] = String.format(Locale.US, "%.2fms %d bytes %s", file.nanos / NANOS_PER_MILLI, file.bytes, //$NON-NLS-1$
+					file.path);
+		}
+		return result;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see com.aptana.editor.php.internal.metrics.PHPMetricsMXBean#dump()
+	 */
+	public String dump()
+	{
+		StringBuilder builder = new StringBuilder();
+		builder.append(String.format(Locale.US, "modules/sec: %.2f, bytes/sec: %.2f%n", getModulesPerSecond(), //$NON-NLS-1$
+				getBytesPerSecond()));
+		for (Map.Entry<String, Long> entry : getCounters().entrySet())
+		{
+			builder.append(String.format(Locale.US, "counter %s: %d%n", entry.getKey(), entry.getValue())); //$NON-NLS-1$
+		}
+		for (Map.Entry<String, Long> entry : getGauges().entrySet())
+		{
+			builder.append(String.format(Locale.US, "gauge %s: %d%n", entry.getKey(), entry.getValue())); //$NON-NLS-1$
+		}
+		for (Map.Entry<String, Timer> entry : new TreeMap<String, Timer>(timers).entrySet())
+		{
+			Timer timer = entry.getValue();
+			builder.append(String.format(Locale.US, "timer %s: count=%d avg=%.3fms max=%.3fms total=%.1fms%n", //$NON-NLS-1$
+					entry.getKey(), timer.count.get(), timer.getAverageMillis(), timer.max.get() / NANOS_PER_MILLI,
+					timer.total.get() / NANOS_PER_MILLI));
+		}
+		for (String file : getSlowestFiles())
+		{
+			builder.append("slowest ").append(file).append(String.format("%n")); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		return builder.toString();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see com.aptana.editor.php.internal.metrics.PHPMetricsMXBean#reset()
+	 */
+	public void reset()
+	{
+		counters.clear();
+		timers.clear();
+		synchronized (slowestFiles)
+		{
+			slowestFiles.clear();
+		}
+	}
+
+	/**
+	 * A timer accumulator.
+	 */
+	private static class Timer
+	{
+		final AtomicLong count = new AtomicLong();
+		final AtomicLong total = new AtomicLong();
+		final AtomicLong max = new AtomicLong();
+
+		void add(long nanos)
+		{
+			count.incrementAndGet();
+			total.addAndGet(nanos);
+			long currentMax;
+			do
+			{
+				currentMax = max.get();
+			}
+			while (nanos > currentMax && !max.compareAndSet(currentMax, nanos));
+		}
+
+		double getAverageMillis()
+		{
+			long samples = count.get();
+			return samples == 0 ? 0 : total.get() / NANOS_PER_MILLI / samples;
+		}
+	}
+
+	/**
+	 * A slowest files list entry.
+	 */
+	private static class SlowFile
+	{
+		final String path;
+		final long bytes;
+		final long nanos;
+
+		SlowFile(String path, long bytes, long nanos)
+		{
+			this.path = path;
+			this.bytes = bytes;
+			this.nanos = nanos;
+		}
+	}
+}
@@ -34,10 +34,8 @@
  */
 package com.aptana.editor.php.internal.model;
 
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
 import com.aptana.editor.php.core.model.IModelElementDelta;
@@ -47,7 +45,7 @@ import com.aptana.editor.php.indexer.IModuleIndexListener;
 import com.aptana.editor.php.indexer.PHPGlobalIndexer;
 import com.aptana.editor.php.internal.core.builder.IDirectory;
 import com.aptana.editor.php.internal.core.builder.IModule;
-import com.aptana.editor.php.internal.model.impl.ModelElementDeltaBuilder;
+import com.aptana.editor.php.internal.model.impl.ModuleElementCache;
 import com.aptana.editor.php.internal.model.impl.SourceModel;
 import com.aptana.editor.php.internal.model.utils.ModelUtils;
 
@@ -141,11 +139,6 @@ public class ModelManager
 	{
 		moduleIndexListener = new IModuleIndexListener()
 		{
-			/**
-			 * Module delta builders.
-			 */
-			private Map<ISourceModule, ModelElementDeltaBuilder> deltaBuilders = new HashMap<ISourceModule, ModelElementDeltaBuilder>();
-
 			public void afterIndexChange(List<IModule> added, List<IModule> changed, List<IDirectory> addedDirectories)
 			{
 				ModelElementDelta delta = null;
@@ -210,27 +203,26 @@ public class ModelManager
 						}
 					}
 
-					// creating deltas for changed modules using precreated delta builders
+					// adding the deltas of the changed modules, which were collected while the index was updated
 					for (IModule changedModule : changed)
 					{
-						ISourceModule sourceModule = ModelUtils.convertModule(changedModule);
-						if (sourceModule != null)
+						ModelElementDelta moduleDelta = ModuleElementCache.getInstance().takeDelta(changedModule);
+						if (moduleDelta != null)
 						{
-							ModelElementDeltaBuilder builder = this.deltaBuilders.get(sourceModule);
-							if (builder != null)
-							{
-								ModelElementDelta moduleDelta = builder.buildDeltas();
-								if (moduleDelta != null)
-								{
-									delta.insertDeltaTree(sourceModule, moduleDelta);
-								}
-							}
+							delta.insertDeltaTree(moduleDelta.getElement(), moduleDelta);
 						}
 					}
 				}
 				finally
 				{
-					deltaBuilders.clear();
+					if (changed != null)
+					{
+						// drop the deltas that were not taken (e.g. on an early return)
+						for (IModule changedModule : changed)
+						{
+							ModuleElementCache.getInstance().takeDelta(changedModule);
+						}
+					}
 				}
 
 				if (delta != null)
@@ -299,16 +291,8 @@ public class ModelManager
 					}
 				}
 
-				// creating delta builders for changed modules
-				for (IModule changedModule : changed)
-				{
-					ISourceModule sourceModule = ModelUtils.convertModule(changedModule);
-					if (sourceModule != null)
-					{
-						ModelElementDeltaBuilder builder = new ModelElementDeltaBuilder(sourceModule);
-						this.deltaBuilders.put(sourceModule, builder);
-					}
-				}
+				// start collecting the deltas of the changed modules from the index updates
+				ModuleElementCache.getInstance().beginChanges(changed);
 
 				if ((removed != null && removed.size() != 0)
 						|| (removedDirectories != null && removedDirectories.size() != 0))
@@ -172,15 +172,8 @@ public abstract class AbstractMember extends AbstractModelElement implements IMe
 	 */
 	public List<IModelElement> getChildren()
 	{
-		// //return top-level entries
-		// if (!entry.getEntryPath().contains(Character.toString(IElementsIndex.DELIMITER)))
-		// {
-		// return ModelUtils.convertEntries(getModuleEntries());
-		// }
-
-		// looking for the children
-		List<IElementEntry> entries = getModuleEntriesStartingWith(-1, entry.getEntryPath());
-		return ModelUtils.convertEntries(entries);
+		// the children are cached, and patched whenever the module is re-indexed
+		return ModuleElementCache.getInstance().getChildren(entry.getModule(), entry.getEntryPath());
 	}
 
 	/**
@@ -188,14 +181,7 @@ public abstract class AbstractMember extends AbstractModelElement implements IMe
 	 */
 	public boolean hasChildren()
 	{
-		// return top-level entries
-		if (!entry.getEntryPath().contains(Character.toString(IElementsIndex.DELIMITER)))
-		{
-			return getModuleEntries().size() != 0;
-		}
-
-		// looking for the children
-		return getModuleEntriesStartingWith(-1, entry.getEntryPath()).size() != 0;
+		return ModuleElementCache.getInstance().hasChildren(entry.getModule(), entry.getEntryPath());
 	}
 
 	/**
@@ -222,6 +208,18 @@ public abstract class AbstractMember extends AbstractModelElement implements IMe
 		return entry;
 	}
 
+	/**
+	 * Rebinds the member to the entry of its declaration after the module was re-indexed. The new entry has to be
+	 * equal to the current one, so the member hash code does not change.
+	 * 
+	 * @param entry
+	 *            - entry.
+	 */
+	void setEntry(IElementEntry entry)
+	{
+		this.entry = entry;
+	}
+
 	/**
 	 * Filters entries by module and returns only those that are declared in a module specified.
 	 * 
@@ -50,10 +50,11 @@ import com.aptana.editor.php.indexer.EntryUtils;
 import com.aptana.editor.php.indexer.IElementEntry;
 import com.aptana.editor.php.indexer.PHPGlobalIndexer;
 import com.aptana.editor.php.internal.indexer.ClassPHPEntryValue;
+import com.aptana.editor.php.internal.indexer.FunctionPHPEntryValue;
+import com.aptana.editor.php.internal.indexer.VariablePHPEntryValue;
 import com.aptana.editor.php.internal.model.impl.env.SourceTypeElementInfo;
 import com.aptana.editor.php.internal.model.utils.ModelUtils;
 import com.aptana.editor.php.internal.model.utils.TypeHierarchyUtils;
-import com.aptana.editor.php.internal.model.utils.TypeUtils;
 
 /**
  * EntryBasedType
@@ -107,14 +108,16 @@ public class EntryBasedType extends AbstractMember implements IType
 	 */
 	public List<IField> getFields()
 	{
-		List<IElementEntry> fieldEntries = TypeUtils.getFields(getEntry());
-		List<IModelElement> converted = ModelUtils.convertEntries(fieldEntries);
 		List<IField> result = new ArrayList<IField>();
-		for (IModelElement element : converted)
+		for (IModelElement element : getChildren())
 		{
-			if (element instanceof IField)
+			if (element instanceof IField && element instanceof AbstractMember)
 			{
-				result.add((IField) element);
+				Object value = ((AbstractMember) element).getEntry().getValue();
+				if (value instanceof VariablePHPEntryValue && ((VariablePHPEntryValue) value).isField())
+				{
+					result.add((IField) element);
+				}
 			}
 		}
 
@@ -160,14 +163,16 @@ public class EntryBasedType extends AbstractMember implements IType
 	 */
 	public List<IMethod> getMethods()
 	{
-		List<IElementEntry> methodEntries = TypeUtils.getMethods(getEntry());
-		List<IModelElement> converted = ModelUtils.convertEntries(methodEntries);
 		List<IMethod> result = new ArrayList<IMethod>();
-		for (IModelElement element : converted)
+		for (IModelElement element : getChildren())
 		{
-			if (element instanceof IMethod)
+			if (element instanceof IMethod && element instanceof AbstractMember)
 			{
-				result.add((IMethod) element);
+				Object value = ((AbstractMember) element).getEntry().getValue();
+				if (value instanceof FunctionPHPEntryValue && ((FunctionPHPEntryValue) value).isMethod())
+				{
+					result.add((IMethod) element);
+				}
 			}
 		}
 
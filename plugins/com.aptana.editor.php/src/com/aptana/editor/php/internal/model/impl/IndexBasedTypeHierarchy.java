@@ -48,6 +48,7 @@ import com.aptana.editor.php.core.model.IType;
 import com.aptana.editor.php.core.model.ITypeHierarchyChangedListener;
 import com.aptana.editor.php.indexer.IElementEntry;
 import com.aptana.editor.php.indexer.IElementsIndex;
+import com.aptana.editor.php.indexer.IModuleIndexFilter;
 import com.aptana.editor.php.indexer.IModuleIndexListener;
 import com.aptana.editor.php.indexer.IPHPIndexConstants;
 import com.aptana.editor.php.indexer.PHPGlobalIndexer;
@@ -373,7 +374,14 @@ public class IndexBasedTypeHierarchy implements ITypeHierarchy
 				}
 			};
 
-			PHPGlobalIndexer.getInstance().addListener(moduleIndexListener);
+			// only the modules that declare types affect the hierarchy
+			PHPGlobalIndexer.getInstance().addListener(moduleIndexListener, new IModuleIndexFilter()
+			{
+				public boolean accept(IModule module, int categories)
+				{
+					return (categories & (1 << IPHPIndexConstants.CLASS_CATEGORY)) != 0;
+				}
+			});
 		}
 	}
 
@@ -0,0 +1,514 @@
+/**
+ * This file Copyright (c) 2005-2008 Aptana, Inc. This program is
+ * dual-licensed under both the Aptana Public License and the GNU General
+ * Public license. You may elect to use one or the other of these licenses.
+ * 
+ * This program is distributed in the hope that it will be useful, but
+ * AS-IS and WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE, TITLE, or
+ * NONINFRINGEMENT. Redistribution, except as permitted by whichever of
+ * the GPL or APL you select, is prohibited.
+ *
+ * 1. For the GPL license (GPL), you can redistribute and/or modify this
+ * program under the terms of the GNU General Public License,
+ * Version 3, as published by the Free Software Foundation.  You should
+ * have received a copy of the GNU General Public License, Version 3 along
+ * with this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Aptana provides a special exception to allow redistribution of this file
+ * with certain other free and open source software ("FOSS") code and certain additional terms
+ * pursuant to Section 7 of the GPL. You may view the exception and these
+ * terms on the web at http://www.aptana.com/legal/gpl/.
+ * 
+ * 2. For the Aptana Public License (APL), this program and the
+ * accompanying materials are made available under the terms of the APL
+ * v1.0 which accompanies this distribution, and is available at
+ * http://www.aptana.com/legal/apl/.
+ * 
+ * You may view the GPL, Aptana's exception and additional terms, and the
+ * APL in the file titled license.html at the root of the corresponding
+ * plugin containing this source file.
+ * 
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.editor.php.internal.model.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.aptana.editor.php.core.model.IModelElement;
+import com.aptana.editor.php.core.model.IModelElementDelta;
+import com.aptana.editor.php.core.model.ISourceModule;
+import com.aptana.editor.php.indexer.IElementEntry;
+import com.aptana.editor.php.indexer.IElementsIndex;
+import com.aptana.editor.php.indexer.IModuleEntriesListener;
+import com.aptana.editor.php.indexer.PHPGlobalIndexer;
+import com.aptana.editor.php.internal.core.builder.IModule;
+import com.aptana.editor.php.internal.indexer.AbstractPHPEntryValue;
+import com.aptana.editor.php.internal.indexer.ClassPHPEntryValue;
+import com.aptana.editor.php.internal.indexer.ComplexIndex;
+import com.aptana.editor.php.internal.indexer.UnpackedElementIndex;
+import com.aptana.editor.php.internal.model.ModelElementDelta;
+import com.aptana.editor.php.internal.model.utils.ModelUtils;
+
+/**
+ * A cache of the model elements tree of the modules.<br>
+ * The tree of a module is built once from the module index entries, and is then patched whenever the index reports
+ * that the module entries were changed (see {@link IModuleEntriesListener}). Elements which entries did not change are
+ * kept, so the model elements are not re-created on every call to {@link SourceModule#getChildren()} or
+ * {@link EntryBasedType#getMethods()}. A kept element is rebound to the new entry of its declaration, so its offsets
+ * and signature are current.<br>
+ * The model deltas of modules that are about to change are collected while the trees are patched (see
+ * {@link #beginChanges(List)} and {@link #takeDelta(IModule)}), so there is no need to compare the element trees before
+ * and after the change.
+ */
+public final class ModuleElementCache implements IModuleEntriesListener
+{
+	/**
+	 * The maximum number of cached module trees.
+	 */
+	private static final int MAX_CACHED_MODULES = 1000;
+
+	private static final String TOP_LEVEL = ""; //$NON-NLS-1$
+
+	private static ModuleElementCache instance;
+
+	/**
+	 * The cached trees, in a least-recently-used order.
+	 */
+	private final Map<IModule, ModuleTree> trees = new LinkedHashMap<IModule, ModuleTree>(16, 0.75f, true)
+	{
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<IModule, ModuleTree> eldest)
+		{
+			return size() > MAX_CACHED_MODULES && !deltas.containsKey(eldest.getKey());
+		}
+	};
+
+	/**
+	 * The deltas of the modules that are about to change.
+	 */
+	private final Map<IModule, ModelElementDelta> deltas = new HashMap<IModule, ModelElementDelta>();
+
+	/**
+	 * Returns the cache instance.
+	 * 
+	 * @return ModuleElementCache
+	 */
+	public static synchronized ModuleElementCache getInstance()
+	{
+		if (instance == null)
+		{
+			instance = new ModuleElementCache();
+			PHPGlobalIndexer.getInstance().addModuleEntriesListener(instance);
+		}
+		return instance;
+	}
+
+	private ModuleElementCache()
+	{
+	}
+
+	/**
+	 * Returns the model elements of the given module that are direct children of the given entry path.
+	 * 
+	 * @param module
+	 *            - the module.
+	 * @param parentPath
+	 *            - the parent entry path, or null for the top-level elements.
+	 * @return the children elements list (a copy).
+	 */
+	public synchronized List<IModelElement> getChildren(IModule module, String parentPath)
+	{
+		if (module == null)
+		{
+			return new ArrayList<IModelElement>(0);
+		}
+		List<IModelElement> children = getTree(module).getChildren(parentPath == null ? TOP_LEVEL : parentPath);
+		if (children == null)
+		{
+			return new ArrayList<IModelElement>(0);
+		}
+		return new ArrayList<IModelElement>(children);
+	}
+
+	/**
+	 * Returns whether the given entry path has children in the given module.
+	 * 
+	 * @param module
+	 *            - the module.
+	 * @param parentPath
+	 *            - the parent entry path, or null for the top-level elements.
+	 * @return true, if there are children elements.
+	 */
+	public synchronized boolean hasChildren(IModule module, String parentPath)
+	{
+		if (module == null)
+		{
+			return false;
+		}
+		List<IModelElement> children = getTree(module).getChildren(parentPath == null ? TOP_LEVEL : parentPath);
+		return children != null && !children.isEmpty();
+	}
+
+	/**
+	 * Starts collecting the deltas of the given modules, which are about to be re-indexed.
+	 * 
+	 * @param modules
+	 */
+	public synchronized void beginChanges(List<IModule> modules)
+	{
+		for (IModule module : modules)
+		{
+			if (deltas.containsKey(module))
+			{
+				continue;
+			}
+			ISourceModule sourceModule = ModelUtils.convertModule(module);
+			if (sourceModule == null)
+			{
+				continue;
+			}
+			// make sure there is a tree to patch
+			getTree(module);
+			ModelElementDelta delta = new ModelElementDelta(sourceModule);
+			delta.fineGrained();
+			deltas.put(module, delta);
+		}
+	}
+
+	/**
+	 * Stops collecting the delta of the given module and returns it.
+	 * 
+	 * @param module
+	 * @return the module delta, or null if {@link #beginChanges(List)} was not called for that module.
+	 */
+	public synchronized ModelElementDelta takeDelta(IModule module)
+	{
+		ModelElementDelta delta = deltas.remove(module);
+		if (delta != null && delta.getAffectedChildren().length == 0)
+		{
+			// this is a fine grained delta without affected children -> mark as content changed
+			delta.contentChanged();
+		}
+		return delta;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see com.aptana.editor.php.indexer.IModuleEntriesListener#entriesChanged(java.util.List)
+	 */
+	public synchronized void entriesChanged(List<IModule> modules)
+	{
+		IElementsIndex index = PHPGlobalIndexer.getInstance().getIndex();
+		for (IModule module : modules)
+		{
+			ModuleTree tree = trees.get(module);
+			if (tree == null)
+			{
+				continue;
+			}
+			List<IElementEntry> entries = index.getModuleEntries(module);
+			ModelElementDelta delta = deltas.get(module);
+			if (entries.isEmpty() && delta == null)
+			{
+				trees.remove(module);
+				continue;
+			}
+			tree.patch(entries, getOwnerIndex(module), delta);
+		}
+	}
+
+	/**
+	 * Returns the tree of the given module, building it when it's not cached, or when the build path index it was
+	 * built from was replaced.
+	 */
+	private ModuleTree getTree(IModule module)
+	{
+		ModuleTree tree = trees.get(module);
+		Object owner = getOwnerIndex(module);
+		if (tree == null || tree.owner != owner)
+		{
+			tree = new ModuleTree();
+			tree.patch(PHPGlobalIndexer.getInstance().getIndex().getModuleEntries(module), owner, null);
+			trees.put(module, tree);
+		}
+		return tree;
+	}
+
+	/**
+	 * Returns the build path index that holds the entries of the given module.
+	 */
+	private static Object getOwnerIndex(IModule module)
+	{
+		IElementsIndex index = PHPGlobalIndexer.getInstance().getIndex();
+		if (index instanceof ComplexIndex && module.getBuildPath() != null)
+		{
+			return ((ComplexIndex) index).getElementIndex(module.getBuildPath());
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the key that matches the entries of the same declaration between index updates.
+	 */
+	private static String getKey(IElementEntry entry)
+	{
+		return entry.getCategory() + ":" + entry.getEntryPath(); //$NON-NLS-1$
+	}
+
+	/**
+	 * Returns the path of the parent of the given entry path.
+	 */
+	private static String getParentPath(String entryPath)
+	{
+		if (entryPath == null)
+		{
+			return null;
+		}
+		int index = entryPath.lastIndexOf(IElementsIndex.DELIMITER);
+		return index == -1 ? TOP_LEVEL : entryPath.substring(0, index);
+	}
+
+	private static boolean isSameValue(Object oldValue, Object newValue)
+	{
+		return oldValue == newValue || (oldValue != null && oldValue.equals(newValue));
+	}
+
+	/**
+	 * Returns the change flags of a declaration which value was changed.
+	 */
+	private static int getChangeFlags(Object oldValue, Object newValue)
+	{
+		if (oldValue instanceof AbstractPHPEntryValue && newValue instanceof AbstractPHPEntryValue
+				&& ((AbstractPHPEntryValue) oldValue).getModifiers() != ((AbstractPHPEntryValue) newValue).getModifiers())
+		{
+			return IModelElementDelta.F_MODIFIERS;
+		}
+		if (oldValue instanceof ClassPHPEntryValue && newValue instanceof ClassPHPEntryValue)
+		{
+			ClassPHPEntryValue oldClass = (ClassPHPEntryValue) oldValue;
+			ClassPHPEntryValue newClass = (ClassPHPEntryValue) newValue;
+			if (!isSameValue(oldClass.getSuperClassname(), newClass.getSuperClassname())
+					|| !isSameValue(oldClass.getInterfaces(), newClass.getInterfaces()))
+			{
+				return IModelElementDelta.F_SUPER_TYPES;
+			}
+		}
+		return IModelElementDelta.F_CONTENT;
+	}
+
+	/**
+	 * A module element of the cached tree.
+	 */
+	private static class Node
+	{
+		IElementEntry entry;
+		/**
+		 * The entry value when the node was created (or rebound). The unsaved module updates replace the values of the
+		 * entries in place, so the value has to be kept to detect the changes.
+		 */
+		Object value;
+		final IModelElement element;
+
+		Node(IElementEntry entry)
+		{
+			this.entry = entry;
+			this.value = entry.getValue();
+			this.element = ModelUtils.convertEntry(entry);
+		}
+
+		/**
+		 * Binds the node, and its element, to an entry that is equal to the node entry.
+		 */
+		void rebind(IElementEntry entry)
+		{
+			this.entry = entry;
+			this.value = entry.getValue();
+			if (element instanceof AbstractMember)
+			{
+				((AbstractMember) element).setEntry(entry);
+			}
+		}
+	}
+
+	/**
+	 * The cached tree of a module.
+	 */
+	private static class ModuleTree
+	{
+		Object owner;
+		List<Node> nodes = Collections.emptyList();
+		Map<String, List<IModelElement>> children = Collections.emptyMap();
+
+		List<IModelElement> getChildren(String parentPath)
+		{
+			return children.get(parentPath);
+		}
+
+		/**
+		 * Patches the tree to match the given entries. The nodes which entries have equal values are kept, and rebound
+		 * to the new entries. A kept node which declaration was moved or edited is reported as changed.
+		 * 
+		 * @param entries
+		 *            - the current entries of the module.
+		 * @param owner
+		 *            - the index that holds the entries.
+		 * @param delta
+		 *            - the delta to report the changes to (may be null).
+		 */
+		void patch(List<IElementEntry> entries, Object owner, ModelElementDelta delta)
+		{
+			this.owner = owner;
+			Map<String, List<Node>> oldNodes = new HashMap<String, List<Node>>();
+			for (Node node : nodes)
+			{
+				String key = getKey(node.entry);
+				List<Node> list = oldNodes.get(key);
+				if (list == null)
+				{
+					list = new ArrayList<Node>(1);
+					oldNodes.put(key, list);
+				}
+				list.add(node);
+			}
+
+			// first, keep the nodes which values are equal
+			Node[] newNodes = new Node[entries.size()];
+			List<Node> added = new ArrayList<Node>();
+			List<Node> changed = new ArrayList<Node>();
+			List<Object> changedOldValues = new ArrayList<Object>();
+			boolean hasUnmatched = false;
+			for (int i = 0; i < newNodes.length; i++)
+			{
+				IElementEntry entry = entries.get(i);
+				List<Node> candidates = oldNodes.get(getKey(entry));
+				if (candidates != null)
+				{
+					for (int j = 0; j < candidates.size(); j++)
+					{
+						if (isSameValue(candidates.get(j).value, entry.getValue()))
+						{
+							Node node = candidates.remove(j);
+							Object oldValue = node.value;
+							node.rebind(entry);
+							if (!UnpackedElementIndex.isSameDeclaration(oldValue, node.value, true))
+							{
+								changed.add(node);
+								changedOldValues.add(oldValue);
+							}
+							newNodes[i] = node;
+							break;
+						}
+					}
+				}
+				hasUnmatched |= newNodes[i] == null;
+			}
+
+			// then, create the changed and added nodes
+			if (hasUnmatched)
+			{
+				for (int i = 0; i < newNodes.length; i++)
+				{
+					if (newNodes[i] != null)
+					{
+						continue;
+					}
+					IElementEntry entry = entries.get(i);
+					newNodes[i] = new Node(entry);
+					List<Node> candidates = oldNodes.get(getKey(entry));
+					if (candidates != null && !candidates.isEmpty())
+					{
+						changed.add(newNodes[i]);
+						changedOldValues.add(candidates.remove(0).value);
+					}
+					else
+					{
+						added.add(newNodes[i]);
+					}
+				}
+			}
+
+			if (delta != null)
+			{
+				reportDelta(delta, oldNodes, added, changed, changedOldValues);
+			}
+
+			List<Node> nodesList = new ArrayList<Node>(newNodes.length);
+			Map<String, List<IModelElement>> childrenMap = new HashMap<String, List<IModelElement>>();
+			for (Node node : newNodes)
+			{
+				nodesList.add(node);
+				String path = node.entry.getEntryPath();
+				if (node.element == null || path == null)
+				{
+					continue;
+				}
+				String parentPath = getParentPath(path);
+				List<IModelElement> list = childrenMap.get(parentPath);
+				if (list == null)
+				{
+					list = new ArrayList<IModelElement>();
+					childrenMap.put(parentPath, list);
+				}
+				list.add(node.element);
+			}
+			this.nodes = nodesList;
+			this.children = childrenMap;
+		}
+
+		/**
+		 * Reports the changes to the delta. Only the highest level of additions and removals is reported.
+		 */
+		private void reportDelta(ModelElementDelta delta, Map<String, List<Node>> removed, List<Node> added,
+				List<Node> changed, List<Object> changedOldValues)
+		{
+			Set<String> removedPaths = new HashSet<String>();
+			List<Node> removedNodes = new ArrayList<Node>();
+			for (List<Node> list : removed.values())
+			{
+				for (Node node : list)
+				{
+					removedNodes.add(node);
+					removedPaths.add(node.entry.getEntryPath());
+				}
+			}
+			Set<String> addedPaths = new HashSet<String>();
+			for (Node node : added)
+			{
+				addedPaths.add(node.entry.getEntryPath());
+			}
+			for (Node node : removedNodes)
+			{
+				if (node.element != null && !removedPaths.contains(getParentPath(node.entry.getEntryPath())))
+				{
+					delta.removed(node.element);
+				}
+			}
+			for (Node node : added)
+			{
+				if (node.element != null && !addedPaths.contains(getParentPath(node.entry.getEntryPath())))
+				{
+					delta.added(node.element);
+				}
+			}
+			for (int i = 0; i < changed.size(); i++)
+			{
+				Node node = changed.get(i);
+				if (node.element != null)
+				{
+					delta.changed(node.element, getChangeFlags(changedOldValues.get(i), node.value));
+				}
+			}
+		}
+	}
+}
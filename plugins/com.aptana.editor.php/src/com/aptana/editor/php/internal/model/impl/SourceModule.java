@@ -56,9 +56,6 @@ import com.aptana.editor.php.core.model.IModelElement;
 import com.aptana.editor.php.core.model.ISourceModule;
 import com.aptana.editor.php.core.model.IType;
 import com.aptana.editor.php.core.model.env.ModelElementInfo;
-import com.aptana.editor.php.indexer.IElementEntry;
-import com.aptana.editor.php.indexer.IElementsIndex;
-import com.aptana.editor.php.indexer.PHPGlobalIndexer;
 import com.aptana.editor.php.internal.builder.FileSystemModule;
 import com.aptana.editor.php.internal.builder.LocalModule;
 import com.aptana.editor.php.internal.core.builder.IBuildPath;
@@ -100,32 +97,8 @@ public class SourceModule extends AbstractResourceElement implements ISourceModu
 	 */
 	public List<IModelElement> getChildren()
 	{
-		IElementsIndex index = PHPGlobalIndexer.getInstance().getIndex();
-		List<IElementEntry> entries = index.getModuleEntries(getModule());
-
-		List<IModelElement> result = new ArrayList<IModelElement>();
-
-		for (IElementEntry entry : entries)
-		{
-			String pathStr = entry.getEntryPath();
-			if (pathStr == null)
-			{
-				continue;
-			}
-
-			if (pathStr.contains(Character.toString(IElementsIndex.DELIMITER)))
-			{
-				continue;
-			}
-
-			IModelElement element = ModelUtils.convertEntry(entry);
-			if (element != null)
-			{
-				result.add(element);
-			}
-		}
-
-		return result;
+		// the top-level elements are cached, and patched whenever the module is re-indexed
+		return ModuleElementCache.getInstance().getChildren(getModule(), null);
 	}
 
 	/*
@@ -134,7 +107,7 @@ public class SourceModule extends AbstractResourceElement implements ISourceModu
 	 */
 	public boolean hasChildren()
 	{
-		return getChildren().size() > 0;
+		return ModuleElementCache.getInstance().hasChildren(getModule(), null);
 	}
 
 	/*
@@ -0,0 +1,419 @@
+/**
+ * This file Copyright (c) 2005-2008 Aptana, Inc. This program is
+ * dual-licensed under both the Aptana Public License and the GNU General
+ * Public license. You may elect to use one or the other of these licenses.
+ * 
+ * This program is distributed in the hope that it will be useful, but
+ * AS-IS and WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE, TITLE, or
+ * NONINFRINGEMENT. Redistribution, except as permitted by whichever of
+ * the GPL or APL you select, is prohibited.
+ *
+ * 1. For the GPL license (GPL), you can redistribute and/or modify this
+ * program under the terms of the GNU General Public License,
+ * Version 3, as published by the Free Software Foundation.  You should
+ * have received a copy of the GNU General Public License, Version 3 along
+ * with this program; if not, write to the Free Software Foundation, Inc., 51
+ * Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ * 
+ * Aptana provides a special exception to allow redistribution of this file
+ * with certain other free and open source software ("FOSS") code and certain additional terms
+ * pursuant to Section 7 of the GPL. You may view the exception and these
+ * terms on the web at http://www.aptana.com/legal/gpl/.
+ * 
+ * 2. For the Aptana Public License (APL), this program and the
+ * accompanying materials are made available under the terms of the APL
+ * v1.0 which accompanies this distribution, and is available at
+ * http://www.aptana.com/legal/apl/.
+ * 
+ * You may view the GPL, Aptana's exception and additional terms, and the
+ * APL in the file titled license.html at the root of the corresponding
+ * plugin containing this source file.
+ * 
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.aptana.editor.php.internal.model.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.aptana.editor.php.indexer.IElementEntry;
+import com.aptana.editor.php.indexer.IElementsIndex;
+import com.aptana.editor.php.indexer.IModuleEntriesListener;
+import com.aptana.editor.php.indexer.IPHPIndexConstants;
+import com.aptana.editor.php.indexer.PHPGlobalIndexer;
+import com.aptana.editor.php.internal.contentAssist.PHPContentAssistProcessor;
+import com.aptana.editor.php.internal.core.builder.IBuildPath;
+import com.aptana.editor.php.internal.core.builder.IModule;
+import com.aptana.editor.php.internal.indexer.ComplexIndex;
+import com.aptana.editor.php.internal.indexer.ElementsIndexingUtils;
+import com.aptana.editor.php.internal.indexer.ModuleSubstitutionIndex;
+
+/**
+ * A cache of the class hierarchies that are resolved against the global index.<br>
+ * For every class name, the cache holds the linearized ancestors of each of the class entries (the ordered supertypes
+ * list, as computed by {@link TypeHierarchyUtils#getClassAncestors(IModule, String, IElementsIndex)}), and the class
+ * member tables, in which the inherited members are merged with the class own members. A member that is declared in
+ * a type hides the members with the same name in the types that follow it in the linearization. The member tables
+ * are kept per build path, and only merge the classes and members that the build path reaches.<br>
+ * A cached class is dropped whenever the index reports a change to one of the modules its hierarchy was resolved from
+ * (see {@link IModuleEntriesListener}), or to a module that declares one of the type names that were looked up while
+ * resolving it. The whole cache is dropped when a build path index is added or removed.
+ */
+public final class TypeHierarchyCache implements IModuleEntriesListener
+{
+	/**
+	 * The maximum number of cached classes.
+	 */
+	private static final int MAX_CACHED_CLASSES = 2000;
+
+	private static TypeHierarchyCache instance;
+
+	/**
+	 * The cached hierarchies, by lower case class name, in a least-recently-used order.
+	 */
+	private final Map<String, ClassHierarchy> hierarchies = new LinkedHashMap<String, ClassHierarchy>(16, 0.75f, true)
+	{
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, ClassHierarchy> eldest)
+		{
+			return size() > MAX_CACHED_CLASSES;
+		}
+	};
+
+	/**
+	 * Incremented on every invalidation. A hierarchy (or a member table) that was resolved while the generation changed
+	 * is not cached.
+	 */
+	private int generation;
+
+	/**
+	 * The shards version of the global index at the time the cached hierarchies were resolved.
+	 */
+	private int shardsVersion = -1;
+
+	/**
+	 * The resolved hierarchy of all the classes that share a name.
+	 */
+	private static final class ClassHierarchy
+	{
+		/**
+		 * The linearized ancestors of every class entry.
+		 */
+		final Map<IElementEntry, List<IElementEntry>> ancestors = new LinkedHashMap<IElementEntry, List<IElementEntry>>(
+				2);
+
+		/**
+		 * The member tables, by build path (null for the tables of all the build paths) and category.
+		 */
+		final Map<IBuildPath, Map<Integer, Map<String, IElementEntry>>> members = new HashMap<IBuildPath, Map<Integer, Map<String, IElementEntry>>>(
+				2);
+
+		/**
+		 * The modules of the entries the hierarchy and its member tables were resolved from.
+		 */
+		final Set<IModule> modules = new HashSet<IModule>();
+
+		/**
+		 * The lower case type names that were looked up while resolving the hierarchy.
+		 */
+		final Set<String> names = new HashSet<String>();
+	}
+
+	/**
+	 * Returns the cache instance.
+	 * 
+	 * @return TypeHierarchyCache
+	 */
+	public static synchronized TypeHierarchyCache getInstance()
+	{
+		if (instance == null)
+		{
+			instance = new TypeHierarchyCache();
+			PHPGlobalIndexer.getInstance().addModuleEntriesListener(instance);
+		}
+		return instance;
+	}
+
+	private TypeHierarchyCache()
+	{
+	}
+
+	/**
+	 * Returns whether the hierarchies that are resolved against the given index can be served from this cache. This is
+	 * the case for the global index, and for a {@link ModuleSubstitutionIndex} on top of it. In the latter, the
+	 * substituted module is seen as it was on its last reconcile (that is, as the global index has it).
+	 * 
+	 * @param index
+	 * @return True if the cache can serve the given index.
+	 */
+	public boolean canServe(IElementsIndex index)
+	{
+		IElementsIndex globalIndex = PHPGlobalIndexer.getInstance().getIndex();
+		if (index instanceof ModuleSubstitutionIndex)
+		{
+			index = ((ModuleSubstitutionIndex) index).getMainIndex();
+		}
+		return index == globalIndex && globalIndex instanceof ComplexIndex;
+	}
+
+	/**
+	 * Returns the linearized ancestors of a class.
+	 * 
+	 * @param module
+	 *            - module, class is defined in (may be null).
+	 * @param className
+	 *            - class name.
+	 * @param index
+	 *            - an index this cache can serve (see {@link #canServe(IElementsIndex)}).
+	 * @return list of ancestor entries (a copy).
+	 */
+	public List<IElementEntry> getClassAncestors(IModule module, String className, IElementsIndex index)
+	{
+		IBuildPath scope = null;
+		if (index instanceof ModuleSubstitutionIndex)
+		{
+			// a substitution index only sees the classes that are on the substituted module build path
+			scope = ((ModuleSubstitutionIndex) index).getModule().getBuildPath();
+		}
+		List<IElementEntry> result = new ArrayList<IElementEntry>();
+		ClassHierarchy hierarchy = getHierarchy(className);
+		for (Map.Entry<IElementEntry, List<IElementEntry>> entry : hierarchy.ancestors.entrySet())
+		{
+			IElementEntry classEntry = entry.getKey();
+			if (module != null && !module.equals(classEntry.getModule()))
+			{
+				continue;
+			}
+			if (isInScope(scope, classEntry))
+			{
+				result.addAll(entry.getValue());
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the member table of a class: the members of the given category that the class declares or inherits, by
+	 * their lower case names. In case a member is declared in more than one type of the hierarchy, the table holds the
+	 * nearest declaration.
+	 * 
+	 * @param scope
+	 *            - the build path the class is looked up from (may be null, to merge the classes of all the build
+	 *            paths). Only the classes and the members that the build path reaches are merged.
+	 * @param className
+	 *            - class name.
+	 * @param category
+	 *            - the members category (for example, {@link IPHPIndexConstants#FUNCTION_CATEGORY}).
+	 * @return The member table (unmodifiable).
+	 */
+	public Map<String, IElementEntry> getMembers(IBuildPath scope, String className, int category)
+	{
+		ClassHierarchy hierarchy = getHierarchy(className);
+		int startGeneration;
+		synchronized (this)
+		{
+			Map<Integer, Map<String, IElementEntry>> scopeMembers = hierarchy.members.get(scope);
+			Map<String, IElementEntry> members = (scopeMembers != null) ? scopeMembers.get(category) : null;
+			if (members != null)
+			{
+				return members;
+			}
+			startGeneration = generation;
+		}
+
+		// the types of the hierarchy, own type first
+		Set<String> types = new LinkedHashSet<String>();
+		for (Map.Entry<IElementEntry, List<IElementEntry>> entry : hierarchy.ancestors.entrySet())
+		{
+			if (!isInScope(scope, entry.getKey()))
+			{
+				continue;
+			}
+			types.add(entry.getKey().getLowerCaseEntryPath());
+			for (IElementEntry ancestor : entry.getValue())
+			{
+				types.add(ElementsIndexingUtils.getFirstNameInPath(ancestor.getLowerCaseEntryPath()));
+			}
+		}
+		IElementsIndex index = PHPGlobalIndexer.getInstance().getIndex();
+		Map<String, IElementEntry> members = new HashMap<String, IElementEntry>();
+		Set<IModule> modules = new HashSet<IModule>();
+		for (String type : types)
+		{
+			String prefix = type + IElementsIndex.DELIMITER;
+			for (IElementEntry member : index.getEntriesStartingWith(category, prefix))
+			{
+				String memberName = member.getLowerCaseEntryPath().substring(prefix.length());
+				if (memberName.length() == 0 || memberName.indexOf(IElementsIndex.DELIMITER) != -1
+						|| !isInScope(scope, member))
+				{
+					continue;
+				}
+				if (!members.containsKey(memberName))
+				{
+					members.put(memberName, member);
+				}
+				if (member.getModule() != null)
+				{
+					modules.add(member.getModule());
+				}
+			}
+		}
+		members = Collections.unmodifiableMap(members);
+
+		synchronized (this)
+		{
+			if (generation == startGeneration)
+			{
+				hierarchy.modules.addAll(modules);
+				Map<Integer, Map<String, IElementEntry>> scopeMembers = hierarchy.members.get(scope);
+				if (scopeMembers == null)
+				{
+					scopeMembers = new HashMap<Integer, Map<String, IElementEntry>>(2);
+					hierarchy.members.put(scope, scopeMembers);
+				}
+				scopeMembers.put(category, members);
+			}
+		}
+		return members;
+	}
+
+	/**
+	 * Returns a member that a class declares or inherits.
+	 * 
+	 * @param scope
+	 *            - the build path the class is looked up from (may be null).
+	 * @param className
+	 *            - class name.
+	 * @param category
+	 *            - the member category.
+	 * @param memberName
+	 *            - the member name.
+	 * @return The nearest declaration of the member, or null if the class has no such member.
+	 * @see #getMembers(IBuildPath, String, int)
+	 */
+	public IElementEntry getMember(IBuildPath scope, String className, int category, String memberName)
+	{
+		return getMembers(scope, className, category).get(memberName.toLowerCase());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see com.aptana.editor.php.indexer.IModuleEntriesListener#entriesChanged(java.util.List)
+	 */
+	public void entriesChanged(List<IModule> modules)
+	{
+		synchronized (this)
+		{
+			if (hierarchies.isEmpty())
+			{
+				return;
+			}
+		}
+		// the classes that the modules declare now (the classes they declared before are covered by the modules of
+		// the cached hierarchies)
+		IElementsIndex index = PHPGlobalIndexer.getInstance().getIndex();
+		Set<String> names = new HashSet<String>();
+		for (IModule module : modules)
+		{
+			for (IElementEntry entry : index.getModuleEntries(module))
+			{
+				if (entry.getCategory() == IPHPIndexConstants.CLASS_CATEGORY)
+				{
+					names.add(entry.getLowerCaseEntryPath());
+				}
+			}
+		}
+		synchronized (this)
+		{
+			generation++;
+			Iterator<ClassHierarchy> it = hierarchies.values().iterator();
+			while (it.hasNext())
+			{
+				ClassHierarchy hierarchy = it.next();
+				if (!Collections.disjoint(hierarchy.modules, modules) || !Collections.disjoint(hierarchy.names, names))
+				{
+					it.remove();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns whether the given entry is reachable from the given build path. Entries without a module (and any entry,
+	 * when there is no build path) are always in scope.
+	 */
+	private static boolean isInScope(IBuildPath scope, IElementEntry entry)
+	{
+		return scope == null || entry.getModule() == null || TypeHierarchyUtils.isOnBuildPath(scope, entry);
+	}
+
+	/**
+	 * Returns the hierarchy of the given class name, resolving it in case it's not cached.
+	 */
+	private ClassHierarchy getHierarchy(String className)
+	{
+		if (className.startsWith(PHPContentAssistProcessor.GLOBAL_NAMESPACE))
+		{
+			className = className.substring(1);
+		}
+		String key = className.toLowerCase();
+		ComplexIndex index = (ComplexIndex) PHPGlobalIndexer.getInstance().getIndex();
+		int startGeneration;
+		synchronized (this)
+		{
+			if (shardsVersion != index.getShardsVersion())
+			{
+				hierarchies.clear();
+				generation++;
+				shardsVersion = index.getShardsVersion();
+			}
+			ClassHierarchy hierarchy = hierarchies.get(key);
+			if (hierarchy != null)
+			{
+				return hierarchy;
+			}
+			startGeneration = generation;
+		}
+
+		ClassHierarchy hierarchy = new ClassHierarchy();
+		hierarchy.names.add(key);
+		for (IElementEntry classEntry : index.getEntries(IPHPIndexConstants.CLASS_CATEGORY, className))
+		{
+			Set<IElementEntry> ancestors = new LinkedHashSet<IElementEntry>();
+			TypeHierarchyUtils.linearizeAncestors(classEntry, index, ancestors, hierarchy.names);
+			hierarchy.ancestors.put(classEntry, new ArrayList<IElementEntry>(ancestors));
+			if (classEntry.getModule() != null)
+			{
+				hierarchy.modules.add(classEntry.getModule());
+			}
+			for (IElementEntry ancestor : ancestors)
+			{
+				if (ancestor.getModule() != null)
+				{
+					hierarchy.modules.add(ancestor.getModule());
+				}
+			}
+		}
+
+		synchronized (this)
+		{
+			if (generation == startGeneration)
+			{
+				hierarchies.put(key, hierarchy);
+			}
+		}
+		return hierarchy;
+	}
+}
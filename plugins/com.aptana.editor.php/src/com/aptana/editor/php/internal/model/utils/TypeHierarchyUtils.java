@@ -63,7 +63,9 @@ public final class TypeHierarchyUtils
 {
 
 	/**
-	 * Finds all class ancestors.
+	 * Finds all class ancestors. The ancestors of each class are linearized: every supertype appears once, in a
+	 * depth-first order (superclass first, then the interfaces).<br>
+	 * Hierarchies that are resolved against the global index are served from the {@link TypeHierarchyCache}.
 	 * 
 	 * @param module
 	 *            - module, class is defined in.
@@ -73,6 +75,12 @@ public final class TypeHierarchyUtils
 	 */
 	public static List<IElementEntry> getClassAncestors(IModule module, String className, IElementsIndex index)
 	{
+		TypeHierarchyCache cache = TypeHierarchyCache.getInstance();
+		if (cache.canServe(index))
+		{
+			return cache.getClassAncestors(module, className, index);
+		}
+
 		List<IElementEntry> result = new ArrayList<IElementEntry>();
 
 		List<IElementEntry> classEntries = index.getEntries(IPHPIndexConstants.CLASS_CATEGORY, className);
@@ -80,7 +88,9 @@ public final class TypeHierarchyUtils
 		{
 			if (module == null || classEntry.getModule().equals(module))
 			{
-				findClassAncestorsRecursivelly(classEntry, result, index);
+				Set<IElementEntry> ancestors = new LinkedHashSet<IElementEntry>();
+				linearizeAncestors(classEntry, index, ancestors, null);
+				result.addAll(ancestors);
 			}
 		}
 
@@ -305,19 +315,20 @@ public final class TypeHierarchyUtils
 	}
 
 	/**
-	 * Finds class ancestors recursively.
+	 * Linearizes the ancestors of a class: the supertypes are added in a depth-first order (superclass first, then the
+	 * interfaces), each of them once. Cyclic hierarchies are cut at the first repeated supertype.
 	 * 
-	 * @param _module
-	 *            - module, class
 	 * @param classEntry
 	 *            - class entry.
-	 * @param toFill
-	 *            - list of ancestors to fill.
 	 * @param index
 	 *            - index to use.
+	 * @param toFill
+	 *            - the ancestors set to fill.
+	 * @param lookedUpNames
+	 *            - a set to fill with the lower case names of the supertypes that were looked up (may be null).
 	 */
-	private static void findClassAncestorsRecursivelly(IElementEntry classEntry, List<IElementEntry> toFill,
-			IElementsIndex index)
+	static void linearizeAncestors(IElementEntry classEntry, IElementsIndex index, Set<IElementEntry> toFill,
+			Set<String> lookedUpNames)
 	{
 		// FIXME - Shalom: This lookup should take into consideration the namespaces that are involved in the hierarchy
 		Object value = classEntry.getValue();
@@ -337,26 +348,7 @@ public final class TypeHierarchyUtils
 
 		if (superClassName != null)
 		{
-			if (superClassName.startsWith(PHPContentAssistProcessor.GLOBAL_NAMESPACE))
-			{
-				superClassName = superClassName.substring(1);
-			}
-			List<IElementEntry> classEntries = index.getEntries(IPHPIndexConstants.CLASS_CATEGORY, superClassName);
-			if (classEntries.isEmpty())
-			{
-				Set<String> superClass = new HashSet<String>(1);
-				superClass.add(superClassName);
-				Set<IElementEntry> entries = ContentAssistCollectors.collectBuiltinTypeEntries(superClass, true);
-				classEntries.addAll(entries);
-			}
-			List<IElementEntry> classEntriesOnBuildPath = filterByBuildPath(classEntryBuildPath, classEntries);
-
-			toFill.addAll(classEntriesOnBuildPath);
-
-			for (IElementEntry entry : classEntriesOnBuildPath)
-			{
-				findClassAncestorsRecursivelly(entry, toFill, index);
-			}
+			linearizeSupertype(superClassName, true, classEntryBuildPath, index, toFill, lookedUpNames);
 		}
 
 		List<String> interfaces = entryValue.getInterfaces();
@@ -364,21 +356,55 @@ public final class TypeHierarchyUtils
 		{
 			for (String interfaceName : interfaces)
 			{
-				if (interfaceName.startsWith(PHPContentAssistProcessor.GLOBAL_NAMESPACE))
-				{
-					interfaceName = interfaceName.substring(1);
-				}
-				List<IElementEntry> classEntries = index.getEntries(IPHPIndexConstants.CLASS_CATEGORY, interfaceName);
-
-				List<IElementEntry> classEntriesOnBuildPath = filterByBuildPath(classEntryBuildPath, classEntries);
+				linearizeSupertype(interfaceName, false, classEntryBuildPath, index, toFill, lookedUpNames);
+			}
+		}
+	}
 
-				toFill.addAll(classEntriesOnBuildPath);
-				for (IElementEntry entry : classEntriesOnBuildPath)
-				{
-					findClassAncestorsRecursivelly(entry, toFill, index);
-				}
+	/**
+	 * Adds the entries of a supertype, followed by their ancestors, to the linearization.
+	 * 
+	 * @param typeName
+	 *            - the supertype name.
+	 * @param builtinFallback
+	 *            - whether to look the type up in the built-ins, in case the index has no such type.
+	 * @param buildPath
+	 *            - the build path of the subtype.
+	 * @param index
+	 * @param toFill
+	 * @param lookedUpNames
+	 */
+	private static void linearizeSupertype(String typeName, boolean builtinFallback, IBuildPath buildPath,
+			IElementsIndex index, Set<IElementEntry> toFill, Set<String> lookedUpNames)
+	{
+		if (typeName.startsWith(PHPContentAssistProcessor.GLOBAL_NAMESPACE))
+		{
+			typeName = typeName.substring(1);
+		}
+		if (lookedUpNames != null)
+		{
+			lookedUpNames.add(typeName.toLowerCase());
+		}
+		List<IElementEntry> classEntries = index.getEntries(IPHPIndexConstants.CLASS_CATEGORY, typeName);
+		if (builtinFallback && classEntries.isEmpty())
+		{
+			Set<String> superClass = new HashSet<String>(1);
+			superClass.add(typeName);
+			Set<IElementEntry> entries = ContentAssistCollectors.collectBuiltinTypeEntries(superClass, true);
+			classEntries.addAll(entries);
+		}
+		List<IElementEntry> added = new ArrayList<IElementEntry>();
+		for (IElementEntry entry : filterByBuildPath(buildPath, classEntries))
+		{
+			if (toFill.add(entry))
+			{
+				added.add(entry);
 			}
 		}
+		for (IElementEntry entry : added)
+		{
+			linearizeAncestors(entry, index, toFill, lookedUpNames);
+		}
 	}
 
 	/**
@@ -0,0 +1,137 @@
+package com.aptana.editor.php.internal.parser;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * A {@link Reader} over one or more character sequences, read one after the other.<br>
+ * The characters are copied in bulk from the sequences into the reader's caller buffer, so a JFlex lexer that reads
+ * from this reader fills its buffer straight from the shared document snapshot (see {@link DocumentCharSequence}).
+ */
+public class CharSequenceReader extends Reader
+{
+	private CharSequence[] sequences;
+	private int index;
+	private int position;
+
+	/**
+	 * Constructs a new reader.
+	 * 
+	 * @param sequences
+	 *            - the sequences to read.
+	 */
+	public CharSequenceReader(CharSequence... sequences)
+	{
+		this.sequences = sequences;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.io.Reader#read()
+	 */
+	@Override
+	public int read() throws IOException
+	{
+		ensureOpen();
+		while (index < sequences.length)
+		{
+			CharSequence sequence = sequences[index];
+			if (position < sequence.length())
+			{
+				return sequence.charAt(position++);
+			}
+			index++;
+			position = 0;
+		}
+		return -1;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.io.Reader#read(char[], int, int)
+	 */
+	@Override
+	public int read(char[] cbuf, int off, int len) throws IOException
+	{
+		ensureOpen();
+		if (off < 0 || len < 0 || off + len > cbuf.length)
+		{
+			throw new IndexOutOfBoundsException();
+		}
+		if (len == 0)
+		{
+			return 0;
+		}
+		int count = 0;
+		while (count < len && index < sequences.length)
+		{
+			CharSequence sequence = sequences[index];
+			int n = Math.min(len - count, sequence.length() - position);
+			if (n <= 0)
+			{
+				index++;
+				position = 0;
+				continue;
+			}
+			getChars(sequence, position, position + n, cbuf, off + count);
+			position += n;
+			count += n;
+		}
+		return (count == 0) ? -1 : count;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.io.Reader#ready()
+	 */
+	@Override
+	public boolean ready() throws IOException
+	{
+		ensureOpen();
+		return true;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.io.Reader#close()
+	 */
+	@Override
+	public void close()
+	{
+		sequences = null;
+	}
+
+	private void ensureOpen() throws IOException
+	{
+		if (sequences == null)
+		{
+			throw new IOException("Stream closed"); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Copies characters from a sequence, in bulk when the sequence supports it.
+	 */
+	private static void getChars(CharSequence sequence, int srcBegin, int srcEnd, char[] dst, int dstBegin)
+	{
+		if (sequence instanceof String)
+		{
+			((String) sequence).getChars(srcBegin, srcEnd, dst, dstBegin);
+		}
+		else if (sequence instanceof StringBuilder)
+		{
+			((StringBuilder) sequence).getChars(srcBegin, srcEnd, dst, dstBegin);
+		}
+		else if (sequence instanceof DocumentCharSequence)
+		{
+			((DocumentCharSequence) sequence).getChars(srcBegin, srcEnd, dst, dstBegin);
+		}
+		else
+		{
+			for (int i = srcBegin; i < srcEnd; i++)
+			{
+				dst[dstBegin++] = sequence.charAt(i);
+			}
+		}
+	}
+}
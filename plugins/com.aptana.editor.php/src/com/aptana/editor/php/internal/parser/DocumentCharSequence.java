@@ -0,0 +1,174 @@
+package com.aptana.editor.php.internal.parser;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentExtension4;
+
+/**
+ * A {@link CharSequence} view of a document snapshot, or of a range in it.<br>
+ * The document contents are copied once for every document modification stamp, and the copy is shared by all the
+ * views of that modification (see {@link #get(IDocument)}). Lexers can read from a view through a
+ * {@link CharSequenceReader}, which copies the characters in bulk into the lexer buffer. A view does not change when
+ * the document is modified, so it can be read by any thread.
+ */
+public final class DocumentCharSequence implements CharSequence
+{
+	/**
+	 * The shared snapshots, one per document (the snapshot of the last modification stamp that was requested).
+	 */
+	private static final Map<IDocument, DocumentCharSequence> SNAPSHOTS = new WeakHashMap<IDocument, DocumentCharSequence>(
+			4);
+
+	private final IDocument document;
+	private final long stamp;
+	private final String text;
+	private final int offset;
+	private final int length;
+
+	/**
+	 * Returns the shared view of the given document contents, for the current document modification stamp.
+	 * 
+	 * @param document
+	 * @return A view of the whole document.
+	 */
+	public static DocumentCharSequence get(IDocument document)
+	{
+		long stamp = getModificationStamp(document);
+		if (stamp == IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP)
+		{
+			return new DocumentCharSequence(document, stamp, document.get(), 0, document.getLength());
+		}
+		synchronized (SNAPSHOTS)
+		{
+			DocumentCharSequence snapshot = SNAPSHOTS.get(document);
+			if (snapshot == null || snapshot.stamp != stamp)
+			{
+				String contents = document.get();
+				snapshot = new DocumentCharSequence(document, stamp, contents, 0, contents.length());
+				SNAPSHOTS.put(document, snapshot);
+			}
+			return snapshot;
+		}
+	}
+
+	/**
+	 * Returns the given document contents. The contents are copied once for every document modification, and the copy
+	 * is shared by all the callers.
+	 * 
+	 * @param document
+	 * @return The document contents.
+	 */
+	public static String getContents(IDocument document)
+	{
+		return get(document).toString();
+	}
+
+	private DocumentCharSequence(IDocument document, long stamp, String text, int offset, int length)
+	{
+		this.document = document;
+		this.stamp = stamp;
+		this.text = text;
+		this.offset = offset;
+		this.length = length;
+	}
+
+	/**
+	 * Returns the document this view was taken from.
+	 * 
+	 * @return The document.
+	 */
+	public IDocument getDocument()
+	{
+		return document;
+	}
+
+	/**
+	 * Returns whether the document was not modified since this view was taken.
+	 * 
+	 * @return True if the view matches the current document contents.
+	 */
+	public boolean isCurrent()
+	{
+		return stamp != IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP && stamp == getModificationStamp(document);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.lang.CharSequence#length()
+	 */
+	public int length()
+	{
+		return length;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.lang.CharSequence#charAt(int)
+	 */
+	public char charAt(int index)
+	{
+		if (index < 0 || index >= length)
+		{
+			throw new IndexOutOfBoundsException(String.valueOf(index));
+		}
+		return text.charAt(offset + index);
+	}
+
+	/**
+	 * Copies characters from this view into the destination array.
+	 * 
+	 * @param srcBegin
+	 *            - index of the first character to copy.
+	 * @param srcEnd
+	 *            - index after the last character to copy.
+	 * @param dst
+	 *            - the destination array.
+	 * @param dstBegin
+	 *            - the start offset in the destination array.
+	 */
+	public void getChars(int srcBegin, int srcEnd, char[] dst, int dstBegin)
+	{
+		if (srcBegin < 0 || srcBegin > srcEnd || srcEnd > length)
+		{
+			throw new IndexOutOfBoundsException(srcBegin + ":" + srcEnd); //$NON-NLS-1$
+		}
+		text.getChars(offset + srcBegin, offset + srcEnd, dst, dstBegin);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.lang.CharSequence#subSequence(int, int)
+	 */
+	public CharSequence subSequence(int start, int end)
+	{
+		if (start < 0 || start > end || end > length)
+		{
+			throw new IndexOutOfBoundsException(start + ":" + end); //$NON-NLS-1$
+		}
+		return new DocumentCharSequence(document, stamp, text, offset + start, end - start);
+	}
+
+	/**
+	 * Returns the characters of this view as a string. The string of the whole document is the shared snapshot itself.
+	 */
+	@Override
+	public String toString()
+	{
+		if (offset == 0 && length == text.length())
+		{
+			return text;
+		}
+		return text.substring(offset, offset + length);
+	}
+
+	private static long getModificationStamp(IDocument document)
+	{
+		if (document instanceof IDocumentExtension4)
+		{
+			return ((IDocumentExtension4) document).getModificationStamp();
+		}
+		return IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP;
+	}
+}
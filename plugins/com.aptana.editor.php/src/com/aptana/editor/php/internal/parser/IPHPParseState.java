@@ -1,6 +1,7 @@
 package com.aptana.editor.php.internal.parser;
 
 import org.eclipse.php.internal.core.PHPVersion;
+import org.eclipse.php.internal.core.ast.nodes.Program;
 
 import com.aptana.editor.php.core.IPHPVersionListener;
 import com.aptana.editor.php.core.model.ISourceModule;
@@ -42,4 +43,22 @@ public interface IPHPParseState extends IParseState, IPHPVersionListener
 	 * @return {@link ISourceModule}
 	 */
 	public ISourceModule getSourceModule();
+
+	/**
+	 * Sets the AST that was parsed for this parse state, with the source it was parsed from.
+	 * 
+	 * @param ast
+	 *            A {@link Program} (may be null)
+	 * @param source
+	 *            The parsed source
+	 */
+	public void setAST(Program ast, String source);
+
+	/**
+	 * Returns the AST that was last parsed for this parse state, in case it was parsed from the given source.
+	 * 
+	 * @param source
+	 * @return A {@link Program}, or null in case the last AST was parsed from a different source.
+	 */
+	public Program getAST(String source);
 }
@@ -1,6 +1,7 @@
 package com.aptana.editor.php.internal.parser;
 
 import org.eclipse.php.internal.core.PHPVersion;
+import org.eclipse.php.internal.core.ast.nodes.Program;
 
 import com.aptana.editor.php.core.model.ISourceModule;
 import com.aptana.editor.php.internal.core.builder.IModule;
@@ -17,6 +18,8 @@ public class PHPParseState extends ParseState implements IPHPParseState
 	private PHPVersion phpVersion;
 	private IModule module;
 	private ISourceModule sourceModule;
+	private Program ast;
+	private String astSource;
 
 	/*
 	 * (non-Javadoc)
@@ -53,4 +56,28 @@ public class PHPParseState extends ParseState implements IPHPParseState
 	{
 		return this.sourceModule;
 	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see com.aptana.editor.php.internal.parser.IPHPParseState#setAST(org.eclipse.php.internal.core.ast.nodes.Program,
+	 * java.lang.String)
+	 */
+	public synchronized void setAST(Program ast, String source)
+	{
+		this.ast = ast;
+		this.astSource = (ast != null) ? source : null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see com.aptana.editor.php.internal.parser.IPHPParseState#getAST(java.lang.String)
+	 */
+	public synchronized Program getAST(String source)
+	{
+		if (astSource == null || !astSource.equals(source))
+		{
+			return null;
+		}
+		return ast;
+	}
 }
@@ -16,6 +16,7 @@ import com.aptana.editor.php.core.model.ISourceModule;
 import com.aptana.editor.php.epl.PHPEplPlugin;
 import com.aptana.editor.php.indexer.PHPGlobalIndexer;
 import com.aptana.editor.php.internal.core.builder.IModule;
+import com.aptana.editor.php.internal.metrics.PHPMetrics;
 import com.aptana.editor.php.internal.model.utils.ModelUtils;
 import com.aptana.editor.php.internal.parser.nodes.NodeBuilder;
 import com.aptana.editor.php.internal.parser.nodes.NodeBuildingVisitor;
@@ -82,6 +83,8 @@ public class PHPParser implements IParser
 			}
 			aboutToBeReconciled();
 		}
+		PHPMetrics metrics = PHPMetrics.getInstance();
+		long mark = System.nanoTime();
 		try
 		{
 			PHPVersion version = (phpVersion == null) ? PHPVersionProvider.getDefaultPHPVersion() : phpVersion;
@@ -93,9 +96,11 @@ public class PHPParser implements IParser
 			// TODO: handle exception
 			PHPEditorPlugin.logError(e);
 		}
+		mark = metrics.addTimeSince(PHPMetrics.RECONCILE_PARSE, mark);
 		if (program != null)
 		{
 			processChildren(program, root, source);
+			mark = metrics.addTimeSince(PHPMetrics.RECONCILE_NODES, mark);
 		}
 		parseState.setParseResult(root);
 		if (program != null)
@@ -108,10 +113,12 @@ public class PHPParser implements IParser
 				program.getAST().flushErrors();
 				if (module != null)
 				{
-					PHPGlobalIndexer.getInstance().processUnsavedModuleUpdate(program, module);
+					PHPGlobalIndexer.getInstance().processUnsavedModuleUpdate(program, module, source);
+					mark = metrics.addTimeSince(PHPMetrics.RECONCILE_INDEX_UPDATE, mark);
 				}
 				// Recalculate the type bindings
 				TypeBindingBuilder.buildBindings(program);
+				mark = metrics.addTimeSince(PHPMetrics.RECONCILE_TYPE_BINDINGS, mark);
 			}
 			catch (Throwable t)
 			{
@@ -121,6 +128,12 @@ public class PHPParser implements IParser
 		} else {
 			reconciled(null, false, new NullProgressMonitor());
 		}
+		if (parseState instanceof IPHPParseState)
+		{
+			// Keep the AST with its source, so the editor services can tell whether it reflects their document
+			((IPHPParseState) parseState).setAST(program, source);
+		}
+		metrics.addTimeSince(PHPMetrics.RECONCILE_AST_PROVIDER, mark);
 		return root;
 	}
 
@@ -271,9 +271,26 @@ public class NodeBuilder
 			IParseNode pn = current.getChild(a);
 			bn.addChild(pn);
 		}
+		computeOrdinals(bn);
 		return bn;
 	}
 
+	/*
+	 * Computes the ordinals of the nodes of the given tree, once they are all built (the outline items compare them).
+	 */
+	private static void computeOrdinals(IParseNode node)
+	{
+		if (node.getChildCount() == 0)
+		{
+			return;
+		}
+		PHPBaseParseNode.computeOrdinals(node);
+		for (int i = 0; i < node.getChildCount(); i++)
+		{
+			computeOrdinals(node.getChild(i));
+		}
+	}
+
 	/**
 	 * @param includingType
 	 * @param includeFileName
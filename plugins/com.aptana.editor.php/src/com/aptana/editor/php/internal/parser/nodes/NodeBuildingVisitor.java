@@ -65,7 +65,7 @@ public final class NodeBuildingVisitor extends AbstractVisitor
 		Identifier nameIdentifier = interfaceDeclaration.getName();
 		String name = nameIdentifier.getName();
 		org.eclipse.php.internal.core.compiler.ast.nodes.PHPDocBlock docComment = PHPDocUtils.findPHPDocComment(
-				interfaceDeclaration.getProgramRoot().comments(), interfaceDeclaration.getStart(), source);
+				interfaceDeclaration.getProgramRoot().getCommentsTable(), interfaceDeclaration.getStart(), source);
 		PHPDocBlockImp docBlock = convertToDocBlock(docComment);
 		nodeBuilder.handleClassDeclaration(name, PHPFlags.AccInterface, docBlock, interfaceDeclaration.getStart(),
 				interfaceDeclaration.getEnd() - 1, -1);
@@ -81,7 +81,7 @@ public final class NodeBuildingVisitor extends AbstractVisitor
 		Identifier nameIdentifier = classDeclaration.getName();
 		String name = nameIdentifier.getName();
 		org.eclipse.php.internal.core.compiler.ast.nodes.PHPDocBlock docComment = PHPDocUtils.findPHPDocComment(
-				classDeclaration.getProgramRoot().comments(), classDeclaration.getStart(), source);
+				classDeclaration.getProgramRoot().getCommentsTable(), classDeclaration.getStart(), source);
 		PHPDocBlockImp docBlock = convertToDocBlock(docComment);
 		nodeBuilder.handleClassDeclaration(name, classDeclaration.getModifier(), docBlock, classDeclaration.getStart(),
 				classDeclaration.getEnd() - 1, -1);
@@ -254,7 +254,7 @@ public final class NodeBuildingVisitor extends AbstractVisitor
 		}
 		Identifier functionName = functionDeclaration.getFunctionName();
 		org.eclipse.php.internal.core.compiler.ast.nodes.PHPDocBlock docComment = PHPDocUtils.findPHPDocComment(
-				functionDeclaration.getProgramRoot().comments(), functionDeclaration.getStart(), source);
+				functionDeclaration.getProgramRoot().getCommentsTable(), functionDeclaration.getStart(), source);
 		PHPDocBlockImp docBlock = convertToDocBlock(docComment);
 		nodeBuilder.handleFunctionDeclaration(functionName.getName(), isClassFunction, modifiers, docBlock,
 				functionDeclaration.getStart(), functionDeclaration.getEnd() - 1, -1);
@@ -9,10 +9,14 @@
  */
 package com.aptana.editor.php.internal.parser.nodes;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.eclipse.php.internal.core.documentModel.phpElementData.IPHPDocBlock;
 
 import com.aptana.editor.php.internal.parser.PHPMimeType;
 import com.aptana.parsing.ast.INameNode;
+import com.aptana.parsing.ast.IParseNode;
 import com.aptana.parsing.ast.ParseNode;
 
 /**
@@ -28,6 +32,10 @@ public class PHPBaseParseNode extends ParseNode implements IPHPParseNode
 	private IPHPDocBlock documentation;
 	private short nodeType;
 	private INameNode nameNode;
+	/**
+	 * The number of the preceding siblings of the same kind and name (-1 until it's computed).
+	 */
+	private int ordinal = -1;
 
 	/**
 	 * Constructs a new PHPBaseParseNode
@@ -184,6 +192,50 @@ public class PHPBaseParseNode extends ParseNode implements IPHPParseNode
 		return this.nameNode;
 	}
 
+	/**
+	 * Returns the number of the preceding siblings of this node that are of the same class and type, and have the same
+	 * name. The ordinals of all the siblings are computed together, and are kept (see
+	 * {@link #computeOrdinals(IParseNode)}).
+	 * 
+	 * @return The node ordinal among its same-named siblings.
+	 */
+	public int getOrdinal()
+	{
+		if (ordinal == -1)
+		{
+			IParseNode parent = getParent();
+			if (parent == null)
+			{
+				return 0;
+			}
+			computeOrdinals(parent);
+		}
+		return ordinal;
+	}
+
+	/**
+	 * Computes the ordinals of the PHP children of the given node (see {@link #getOrdinal()}).
+	 * 
+	 * @param parent
+	 */
+	public static void computeOrdinals(IParseNode parent)
+	{
+		Map<String, Integer> counts = new HashMap<String, Integer>();
+		for (int i = 0; i < parent.getChildCount(); i++)
+		{
+			IParseNode child = parent.getChild(i);
+			if (!(child instanceof PHPBaseParseNode))
+			{
+				continue;
+			}
+			PHPBaseParseNode node = (PHPBaseParseNode) child;
+			String key = node.getClass().getName() + ':' + node.getType() + ':' + node.getNodeName();
+			Integer count = counts.get(key);
+			node.ordinal = (count == null) ? 0 : count;
+			counts.put(key, node.ordinal + 1);
+		}
+	}
+
 	/**
 	 * Override the default ParseBaseNode implementation to add a name check.
 	 */
@@ -0,0 +1,27 @@
+/**
+ * Copyright (c) 2005-2006 Aptana, Inc.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html. If redistributing this code,
+ * this entire header must remain intact.
+ */
+package com.aptana.editor.php.internal.search;
+
+/**
+ * Receives the search results while they are found.
+ * 
+ * @see PHPSearchEngine#search(int, String, int, ISearchScope, int, ISearchResultCollector,
+ *      org.eclipse.core.runtime.IProgressMonitor)
+ */
+public interface ISearchResultCollector
+{
+	/**
+	 * Accepts a search result. This method is called on the thread that runs the search.
+	 * 
+	 * @param node
+	 *            - the found element.
+	 */
+	void accept(IElementNode node);
+}
@@ -1,5 +1,18 @@
 package com.aptana.editor.php.internal.search;
 
-public interface ISearchScope {
+import com.aptana.editor.php.internal.core.builder.IBuildPath;
 
+/**
+ * A search scope limits the search to the indexes of a build path and its dependencies.
+ * 
+ * @see SearchScope
+ */
+public interface ISearchScope
+{
+	/**
+	 * Returns the build path that is searched, together with its dependencies.
+	 * 
+	 * @return The build path; Null, to search all the indexes.
+	 */
+	IBuildPath getBuildPath();
 }
@@ -18,6 +18,7 @@ import java.util.Set;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.php.core.compiler.PHPFlags;
 import org.eclipse.php.internal.core.PHPVersion;
@@ -26,6 +27,7 @@ import org.eclipse.php.internal.core.ast.nodes.ClassDeclaration;
 import org.eclipse.php.internal.core.ast.nodes.Expression;
 import org.eclipse.php.internal.core.ast.nodes.Identifier;
 import org.eclipse.php.internal.core.ast.nodes.MethodDeclaration;
+import org.eclipse.php.internal.core.ast.nodes.Program;
 import org.eclipse.php.internal.core.ast.nodes.TypeDeclaration;
 import org.eclipse.ui.IEditorPart;
 import org.eclipse.ui.PlatformUI;
@@ -35,6 +37,7 @@ import com.aptana.editor.php.PHPEditorPlugin;
 import com.aptana.editor.php.core.model.IField;
 import com.aptana.editor.php.core.model.IMethod;
 import com.aptana.editor.php.core.model.IModelElement;
+import com.aptana.editor.php.core.model.ISourceModule;
 import com.aptana.editor.php.core.model.IType;
 import com.aptana.editor.php.indexer.IElementEntry;
 import com.aptana.editor.php.indexer.IElementsIndex;
@@ -49,9 +52,14 @@ import com.aptana.editor.php.internal.core.builder.IBuildPath;
 import com.aptana.editor.php.internal.core.builder.IModule;
 import com.aptana.editor.php.internal.indexer.AbstractPHPEntryValue;
 import com.aptana.editor.php.internal.indexer.ClassPHPEntryValue;
+import com.aptana.editor.php.internal.indexer.ComplexIndex;
+import com.aptana.editor.php.internal.indexer.ElementsIndexingUtils;
 import com.aptana.editor.php.internal.indexer.FunctionPHPEntryValue;
+import com.aptana.editor.php.internal.indexer.FuzzyMatcher;
 import com.aptana.editor.php.internal.indexer.VariablePHPEntryValue;
 import com.aptana.editor.php.internal.model.utils.ModelUtils;
+import com.aptana.editor.php.internal.model.utils.TypeHierarchyCache;
+import com.aptana.editor.php.internal.parser.DocumentCharSequence;
 import com.aptana.editor.php.internal.parser.PHPParser;
 import com.aptana.editor.php.internal.parser.nodes.IPHPParseNode;
 import com.aptana.editor.php.internal.parser.nodes.PHPClassParseNode;
@@ -65,6 +73,28 @@ import com.aptana.parsing.lexer.Range;
  */
 public final class PHPSearchEngine
 {
+	/**
+	 * Match rule - the element names are equal to the pattern (case insensitive).
+	 */
+	public static final int EXACT_MATCH = 0;
+
+	/**
+	 * Match rule - the element names start with the pattern (case insensitive).
+	 */
+	public static final int PREFIX_MATCH = 1;
+
+	/**
+	 * Match rule - the element names match the pattern as a subsequence or by their camel humps. The results of every
+	 * index are ordered by their match score.
+	 * 
+	 * @see FuzzyMatcher
+	 */
+	public static final int FUZZY_MATCH = 2;
+
+	/**
+	 * The number of results that every index returns for a {@link #FUZZY_MATCH} search that has no limit.
+	 */
+	private static final int DEFAULT_FUZZY_LIMIT = 1000;
 
 	private static PHPSearchEngine instance;
 
@@ -254,7 +284,8 @@ public final class PHPSearchEngine
 		{
 			PHPSourceEditor editor = (PHPSourceEditor) activeEditor;
 			PHPOffsetMapper mapper = editor.getOffsetMapper();
-			String source = editor.getDocumentProvider().getDocument(editor.getEditorInput()).get();
+			String source = DocumentCharSequence.getContents(editor.getDocumentProvider().getDocument(
+					editor.getEditorInput()));
 			IElementsIndex index = mapper.getIndex(source, source.length());
 			IModule emodule = editor.getModule();
 			List<IElementEntry> entries = index.getEntries(IElementsIndex.ANY_CETEGORY, name);
@@ -349,36 +380,155 @@ public final class PHPSearchEngine
 	@SuppressWarnings("unchecked")
 	public Collection<ITypeNode> getAllKnownTypes()
 	{
-		List<IElementEntry> entriesStartingWith = PHPGlobalIndexer.getInstance().getIndex().getEntriesStartingWith(
-				IPHPIndexConstants.CLASS_CATEGORY, ""); //$NON-NLS-1$
-		ArrayList<IElementNode> nodes = new ArrayList<IElementNode>();
-		for (final IElementEntry e : entriesStartingWith)
+		return (Collection) getAll(IPHPIndexConstants.CLASS_CATEGORY);
+	}
+
+	/**
+	 * Searches the index for the elements of the given category which names match the given pattern. The results are
+	 * streamed to the collector as every index (build path) produces them, so the first results are available before
+	 * the whole search is done.
+	 * 
+	 * @param category
+	 *            - the category to search (e.g. {@link IPHPIndexConstants#CLASS_CATEGORY}).
+	 * @param pattern
+	 *            - the pattern to match.
+	 * @param matchRule
+	 *            - {@link #EXACT_MATCH}, {@link #PREFIX_MATCH} or {@link #FUZZY_MATCH}.
+	 * @param scope
+	 *            - the search scope (may be null, to search all the indexes).
+	 * @param limit
+	 *            - the maximum number of results. Zero (or a negative value) for no limit (a fuzzy search is still
+	 *            bounded, per index).
+	 * @param collector
+	 *            - the results collector.
+	 * @param monitor
+	 *            - a progress monitor that is checked for cancellation (may be null). A canceled search stops
+	 *            reporting results.
+	 */
+	public void search(int category, String pattern, int matchRule, ISearchScope scope, final int limit,
+			final ISearchResultCollector collector, IProgressMonitor monitor)
+	{
+		searchEntries(category, pattern, matchRule, scope, limit, new ComplexIndex.IEntryCollector()
+		{
+			private int count;
+
+			public boolean accept(IElementEntry e)
+			{
+				IElementNode node = createNode(e);
+				if (node == null)
+				{
+					return true;
+				}
+				collector.accept(node);
+				return limit <= 0 || ++count < limit;
+			}
+		}, monitor);
+	}
+
+	/**
+	 * Searches the index for the entries of the given category which names match the given pattern, and streams them
+	 * to the collector one by one (see {@link #search(int, String, int, ISearchScope, int, ISearchResultCollector,
+	 * IProgressMonitor)}).
+	 */
+	private static void searchEntries(final int category, final String pattern, final int matchRule,
+			ISearchScope scope, final int limit, ComplexIndex.IEntryCollector collector, IProgressMonitor monitor)
+	{
+		ComplexIndex.IShardQuery query = new ComplexIndex.IShardQuery()
+		{
+			public List<IElementEntry> run(IElementsIndex index)
+			{
+				switch (matchRule)
+				{
+					case EXACT_MATCH:
+						return index.getEntries(category, pattern);
+					case FUZZY_MATCH:
+						return index.getEntriesMatching(category, pattern, (limit > 0) ? limit : DEFAULT_FUZZY_LIMIT);
+					default:
+						return index.getEntriesStartingWith(category, pattern);
+				}
+			}
+		};
+		IElementsIndex index = PHPGlobalIndexer.getInstance().getIndex();
+		List<IElementEntry> entries;
+		if (index instanceof ComplexIndex)
 		{
-			processValue(nodes, e);
+			IBuildPath buildPath = (scope != null) ? scope.getBuildPath() : null;
+			if (matchRule != EXACT_MATCH)
+			{
+				((ComplexIndex) index).queryShards(buildPath, query, collector, monitor);
+				return;
+			}
+			// exact lookups are cheap hash lookups, so they are not fanned out to the query threads
+			entries = ((ComplexIndex) index).getEntries(category, pattern, buildPath);
+		}
+		else
+		{
+			entries = query.run(index);
+		}
+		for (IElementEntry e : entries)
+		{
+			if ((monitor != null && monitor.isCanceled()) || !collector.accept(e))
+			{
+				return;
+			}
 		}
-		return (Collection) nodes;
 	}
 
-	@SuppressWarnings("unchecked")
-	private void processValue(ArrayList nodes, final IElementEntry e)
+	/**
+	 * Returns all the elements of the given category.
+	 */
+	private List<IElementNode> getAll(int category)
+	{
+		final List<IElementNode> nodes = new ArrayList<IElementNode>();
+		search(category, "", PREFIX_MATCH, SearchScope.ALL, 0, new ISearchResultCollector() //$NON-NLS-1$
+				{
+					public void accept(IElementNode node)
+					{
+						nodes.add(node);
+					}
+				}, null);
+		return nodes;
+	}
+
+	/**
+	 * Returns the entries with the given category and name, out of the indexes in the given scope.
+	 */
+	private static List<IElementEntry> getEntries(int category, String name, ISearchScope scope)
+	{
+		final List<IElementEntry> entries = new ArrayList<IElementEntry>();
+		searchEntries(category, name, EXACT_MATCH, scope, 0, new ComplexIndex.IEntryCollector()
+		{
+			public boolean accept(IElementEntry e)
+			{
+				entries.add(e);
+				return true;
+			}
+		}, null);
+		return entries;
+	}
+
+	/**
+	 * Creates a search node for the given entry.
+	 * 
+	 * @param e
+	 * @return The node, or null in case the entry is not a class, a function or a constant.
+	 */
+	private IElementNode createNode(IElementEntry e)
 	{
 		Object value = e.getValue();
 		if (value instanceof ClassPHPEntryValue)
 		{
-			final ClassPHPEntryValue ea = (ClassPHPEntryValue) value;
-			ITypeNode node = new ClassNode(e, ea);
-			nodes.add(node);
+			return new ClassNode(e, (ClassPHPEntryValue) value);
 		}
 		else if (value instanceof FunctionPHPEntryValue)
 		{
-			FunctionPHPEntryValue pa = (FunctionPHPEntryValue) value;
-			nodes.add(new ElementNode(e, pa, IElementNode.FUNCTION));
+			return new ElementNode(e, (FunctionPHPEntryValue) value, IElementNode.FUNCTION);
 		}
 		else if (value instanceof VariablePHPEntryValue)
 		{
-			VariablePHPEntryValue pa = (VariablePHPEntryValue) value;
-			nodes.add(new ElementNode(e, pa, IElementNode.CONSTANT));
+			return new ElementNode(e, (VariablePHPEntryValue) value, IElementNode.CONSTANT);
 		}
+		return null;
 	}
 
 	PHPClassParseNode getClassNode(IElementEntry e)
@@ -423,13 +573,17 @@ public final class PHPSearchEngine
 	 */
 	public Collection<ITypeNode> getTypes(String name)
 	{
-		List<IElementEntry> entriesStartingWith = PHPGlobalIndexer.getInstance().getIndex().getEntries(
-				IPHPIndexConstants.CLASS_CATEGORY, name);
-		ArrayList<ITypeNode> nodes = new ArrayList<ITypeNode>();
-		for (final IElementEntry e : entriesStartingWith)
+		final ArrayList<ITypeNode> nodes = new ArrayList<ITypeNode>();
+		search(IPHPIndexConstants.CLASS_CATEGORY, name, EXACT_MATCH, SearchScope.ALL, 0, new ISearchResultCollector()
 		{
-			processValue(nodes, e);
-		}
+			public void accept(IElementNode node)
+			{
+				if (node instanceof ITypeNode)
+				{
+					nodes.add((ITypeNode) node);
+				}
+			}
+		}, null);
 		return nodes;
 	}
 
@@ -438,14 +592,7 @@ public final class PHPSearchEngine
 	 */
 	public Collection<IElementNode> getAllKnownConstants()
 	{
-		List<IElementEntry> entriesStartingWith = PHPGlobalIndexer.getInstance().getIndex().getEntriesStartingWith(
-				IPHPIndexConstants.CONST_CATEGORY, ""); //$NON-NLS-1$
-		ArrayList<IElementNode> nodes = new ArrayList<IElementNode>();
-		for (final IElementEntry e : entriesStartingWith)
-		{
-			processValue(nodes, e);
-		}
-		return nodes;
+		return getAll(IPHPIndexConstants.CONST_CATEGORY);
 	}
 
 	/**
@@ -453,14 +600,7 @@ public final class PHPSearchEngine
 	 */
 	public Collection<IElementNode> getAllKnownFunctions()
 	{
-		List<IElementEntry> entriesStartingWith = PHPGlobalIndexer.getInstance().getIndex().getEntriesStartingWith(
-				IPHPIndexConstants.FUNCTION_CATEGORY, ""); //$NON-NLS-1$
-		ArrayList<IElementNode> nodes = new ArrayList<IElementNode>();
-		for (final IElementEntry e : entriesStartingWith)
-		{
-			processValue(nodes, e);
-		}
-		return nodes;
+		return getAll(IPHPIndexConstants.FUNCTION_CATEGORY);
 	}
 
 	/**
@@ -470,6 +610,7 @@ public final class PHPSearchEngine
 	{
 		ASTNode parent = node.getParent().getParent();
 		String methodname = node.getFunction().getFunctionName().getName();
+		IBuildPath scope = getBuildPath(node.getProgramRoot());
 		if (parent instanceof ClassDeclaration)
 		{
 			ClassDeclaration decl = (ClassDeclaration) parent;
@@ -477,8 +618,7 @@ public final class PHPSearchEngine
 			if (superClass != null && superClass.getType() == ASTNode.IDENTIFIER)
 			{
 				String classname = ((Identifier) superClass).getName();
-				HashSet<String> visited = new HashSet<String>();
-				IMethodReference checkType = checkType(classname, methodname, visited);
+				IMethodReference checkType = checkType(scope, classname, methodname);
 				if (checkType != null)
 				{
 					return checkType;
@@ -491,7 +631,7 @@ public final class PHPSearchEngine
 			for (Identifier i : decl.interfaces())
 			{
 				String name = i.getName();
-				IMethodReference checkType = checkType(name, methodname, new HashSet<String>());
+				IMethodReference checkType = checkType(scope, name, methodname);
 				if (checkType != null)
 				{
 					return checkType;
@@ -501,92 +641,88 @@ public final class PHPSearchEngine
 		return null;
 	}
 
-	private IMethodReference checkType(final String classname, final String methodname, HashSet<String> visited)
+	/**
+	 * Returns the build path of the module the given AST was parsed from.
+	 * 
+	 * @param program
+	 * @return The build path, or null in case it's unknown.
+	 */
+	private static IBuildPath getBuildPath(Program program)
+	{
+		ISourceModule sourceModule = (program != null) ? program.getSourceModule() : null;
+		Object resource = (sourceModule != null) ? sourceModule.getResource() : null;
+		if (resource == null)
+		{
+			return null;
+		}
+		IModule module = BuildPathManager.getInstance().getModuleByResource(resource);
+		return (module != null) ? module.getBuildPath() : null;
+	}
+
+	/**
+	 * Returns a reference to the method with the given name, that the given type declares or inherits. The method is
+	 * looked up in the type member table (see {@link TypeHierarchyCache#getMember(IBuildPath, String, int, String)}).
+	 */
+	private IMethodReference checkType(IBuildPath scope, String classname, final String methodname)
 	{
-		if (!visited.contains(classname))
+		final IElementEntry ea = TypeHierarchyCache.getInstance().getMember(scope, classname,
+				IPHPIndexConstants.FUNCTION_CATEGORY, methodname);
+		if (ea == null)
+		{
+			return null;
+		}
+		final String declaringClassname = ElementsIndexingUtils.getFirstNameInPath(ea.getEntryPath());
+		final FunctionPHPEntryValue mvalue = (FunctionPHPEntryValue) ea.getValue();
+		return new IMethodReference()
 		{
-			visited.add(classname);
-			IElementsIndex index = PHPGlobalIndexer.getInstance().getIndex();
-			List<IElementEntry> entries = index.getEntries(IPHPIndexConstants.CLASS_CATEGORY, classname);
-			for (IElementEntry e : entries)
+
+			public String getQualifiedName()
 			{
-				final ClassPHPEntryValue value = (ClassPHPEntryValue) e.getValue();
-				List<IElementEntry> entries2 = index.getEntries(IPHPIndexConstants.FUNCTION_CATEGORY, classname
-						+ IElementsIndex.DELIMITER + methodname);
-				if (entries2 != null && !entries2.isEmpty())
+				return declaringClassname + "." + methodname; //$NON-NLS-1$
+			}
+
+			public String name()
+			{
+				return methodname;
+			}
+
+			public ExternalReference toExternalReference()
+			{
+				IModule module = ea.getModule();
+				Range range = new Range(mvalue.getStartOffset(), mvalue.getStartOffset());
+				if (module instanceof LocalModule)
 				{
-					for (final IElementEntry ea : entries2)
-					{
-						final FunctionPHPEntryValue mvalue = (FunctionPHPEntryValue) ea.getValue();
-						return new IMethodReference()
-						{
-
-							public String getQualifiedName()
-							{
-								return classname + "." + methodname; //$NON-NLS-1$
-							}
-
-							public String name()
-							{
-								return methodname;
-							}
-
-							public ExternalReference toExternalReference()
-							{
-								IModule module = ea.getModule();
-								Range range = new Range(mvalue.getStartOffset(), mvalue.getStartOffset());
-								if (module instanceof LocalModule)
-								{
-									LocalModule lmodule = (LocalModule) module;
-									FileEditorInput fileEditorInput = new FileEditorInput(lmodule.getFile());
-									return new ExternalReference(fileEditorInput, range);
-								}
-								// FIXME: Shalom - Have an equivalent for the CoreUIUtils.createJavaFileEditorInput
-								// if (module instanceof FileSystemModule)
-								// {
-								// FileSystemModule ms = (FileSystemModule) module;
-								// return new ExternalReference(CoreUIUtils.createJavaFileEditorInput(new File(ms
-								// .getFullPath())), range);
-								// }
-								return null;
-							}
-
-							public boolean isAbstract()
-							{
-
-								return PHPFlags.isAbstract(mvalue.getModifiers())
-										|| PHPFlags.isInterface(value.getModifiers());
-							}
-
-						};
-					}
+					LocalModule lmodule = (LocalModule) module;
+					FileEditorInput fileEditorInput = new FileEditorInput(lmodule.getFile());
+					return new ExternalReference(fileEditorInput, range);
 				}
-				String superClassname = value.getSuperClassname();
-				if (superClassname != null && superClassname.length() > 0)
+				// FIXME: Shalom - Have an equivalent for the CoreUIUtils.createJavaFileEditorInput
+				// if (module instanceof FileSystemModule)
+				// {
+				// FileSystemModule ms = (FileSystemModule) module;
+				// return new ExternalReference(CoreUIUtils.createJavaFileEditorInput(new File(ms
+				// .getFullPath())), range);
+				// }
+				return null;
+			}
+
+			public boolean isAbstract()
+			{
+				if (PHPFlags.isAbstract(mvalue.getModifiers()))
 				{
-					IMethodReference checkType = checkType(superClassname, methodname, visited);
-					if (checkType != null)
-					{
-						return checkType;
-					}
+					return true;
 				}
-				List<String> interfaces = value.getInterfaces();
-				if (interfaces != null)
+				IElementsIndex index = PHPGlobalIndexer.getInstance().getIndex();
+				List<IElementEntry> entries = index.getEntries(IPHPIndexConstants.CLASS_CATEGORY, declaringClassname);
+				if (entries.isEmpty())
 				{
-					for (String s : interfaces)
-					{
-						IMethodReference checkType = checkType(s, methodname, visited);
-						if (checkType != null)
-						{
-							return checkType;
-						}
-					}
+					return false;
 				}
+				ClassPHPEntryValue value = (ClassPHPEntryValue) entries.get(0).getValue();
+				return PHPFlags.isInterface(value.getModifiers());
 			}
-			;
 
-		}
-		return null;
+		};
 	}
 
 	private PHPSearchEngine()
@@ -605,8 +741,7 @@ public final class PHPSearchEngine
 
 	public IType[] findTypes(String name, ISearchScope scope)
 	{
-		List<IElementEntry> entries = PHPGlobalIndexer.getInstance().getIndex().getEntries(
-				IPHPIndexConstants.CLASS_CATEGORY, name);
+		List<IElementEntry> entries = getEntries(IPHPIndexConstants.CLASS_CATEGORY, name, scope);
 		if (entries != null)
 		{
 			List<IType> convertClasses = ModelUtils.convertTypes(entries);
@@ -617,8 +752,7 @@ public final class PHPSearchEngine
 
 	public IMethod[] findMethods(String name, ISearchScope scope)
 	{
-		List<IElementEntry> entries = PHPGlobalIndexer.getInstance().getIndex().getEntries(
-				IPHPIndexConstants.FUNCTION_CATEGORY, name);
+		List<IElementEntry> entries = getEntries(IPHPIndexConstants.FUNCTION_CATEGORY, name, scope);
 		if (entries != null)
 		{
 			List<IModelElement> convertClasses = ModelUtils.convertEntries(entries);
@@ -629,9 +763,7 @@ public final class PHPSearchEngine
 
 	public IField[] findVariables(String name, ISearchScope scope)
 	{
-		List<IElementEntry> entries = PHPGlobalIndexer.getInstance()
-
-		.getIndex().getEntries(IPHPIndexConstants.VAR_CATEGORY, name);
+		List<IElementEntry> entries = getEntries(IPHPIndexConstants.VAR_CATEGORY, name, scope);
 		if (entries != null)
 		{
 			List<IModelElement> convertClasses = ModelUtils.convertEntries(entries);
@@ -642,8 +774,7 @@ public final class PHPSearchEngine
 
 	public IField[] findConstants(String name, ISearchScope scope)
 	{
-		List<IElementEntry> entries = PHPGlobalIndexer.getInstance().getIndex().getEntries(
-				IPHPIndexConstants.CONST_CATEGORY, name);
+		List<IElementEntry> entries = getEntries(IPHPIndexConstants.CONST_CATEGORY, name, scope);
 		if (entries != null)
 		{
 			List<IModelElement> convertClasses = ModelUtils.convertEntries(entries);
@@ -0,0 +1,65 @@
+/**
+ * Copyright (c) 2005-2006 Aptana, Inc.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html. If redistributing this code,
+ * this entire header must remain intact.
+ */
+package com.aptana.editor.php.internal.search;
+
+import org.eclipse.core.resources.IProject;
+
+import com.aptana.editor.php.internal.builder.BuildPathManager;
+import com.aptana.editor.php.internal.core.builder.IBuildPath;
+
+/**
+ * Search scopes factory.
+ */
+public final class SearchScope implements ISearchScope
+{
+	/**
+	 * A scope that includes all the indexes.
+	 */
+	public static final ISearchScope ALL = new SearchScope(null);
+
+	private final IBuildPath buildPath;
+
+	private SearchScope(IBuildPath buildPath)
+	{
+		this.buildPath = buildPath;
+	}
+
+	/**
+	 * Returns a scope that includes the given build path and its dependencies.
+	 * 
+	 * @param buildPath
+	 *            - a build path (may be null, for all the indexes).
+	 * @return A search scope.
+	 */
+	public static ISearchScope forBuildPath(IBuildPath buildPath)
+	{
+		return (buildPath == null) ? ALL : new SearchScope(buildPath);
+	}
+
+	/**
+	 * Returns a scope that includes the build path of the given project and its dependencies.
+	 * 
+	 * @param project
+	 * @return A search scope. In case the project has no build path, all the indexes are included.
+	 */
+	public static ISearchScope forProject(IProject project)
+	{
+		return forBuildPath(BuildPathManager.getInstance().getBuildPathByResource(project));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see com.aptana.editor.php.internal.search.ISearchScope#getBuildPath()
+	 */
+	public IBuildPath getBuildPath()
+	{
+		return buildPath;
+	}
+}
@@ -53,7 +53,7 @@ import org.eclipse.php.internal.core.ast.nodes.CatchClause;
 import org.eclipse.php.internal.core.ast.nodes.ClassDeclaration;
 import org.eclipse.php.internal.core.ast.nodes.ClassInstanceCreation;
 import org.eclipse.php.internal.core.ast.nodes.ClassName;
-import org.eclipse.php.internal.core.ast.nodes.Comment;
+import org.eclipse.php.internal.core.ast.nodes.CommentsTable;
 import org.eclipse.php.internal.core.ast.nodes.ConstantDeclaration;
 import org.eclipse.php.internal.core.ast.nodes.Dispatch;
 import org.eclipse.php.internal.core.ast.nodes.DoStatement;
@@ -109,7 +109,6 @@ import com.aptana.editor.php.internal.core.typebinding.MethodBinding;
 import com.aptana.editor.php.internal.core.typebinding.ModuleBinding;
 import com.aptana.editor.php.internal.indexer.CallPath;
 import com.aptana.editor.php.internal.indexer.ClassPHPEntryValue;
-import com.aptana.editor.php.internal.indexer.CommentsVisitor;
 import com.aptana.editor.php.internal.indexer.FunctionPHPEntryValue;
 import com.aptana.editor.php.internal.indexer.FunctionPathReference;
 import com.aptana.editor.php.internal.indexer.PHPDocUtils;
@@ -3183,9 +3182,9 @@ public class TypeBindingBuilder
 	private String _contents;
 
 	/**
-	 * Comments.
+	 * Comments table.
 	 */
-	private List<Comment> _comments;
+	private CommentsTable _comments;
 
 	/**
 	 * Overall global imports in the reported stack.
@@ -3228,10 +3227,8 @@ public class TypeBindingBuilder
 	{
 		try
 		{
-			// collecting comments
-			CommentsVisitor commentsVisitor = new CommentsVisitor();
-			commentsVisitor.visit(program);
-			_comments = commentsVisitor.getComments();
+			// comments were collected by the lexer
+			_comments = program.getCommentsTable();
 
 			// indexing
 			PHPASTVisitor visitor = new PHPASTVisitor(reporter, program);
@@ -3308,50 +3305,10 @@ public class TypeBindingBuilder
 	 */
 	private PHPDocBlock findFunctionPHPDocComment(int offset)
 	{
-		if (_comments == null || _comments.isEmpty())
-		{
-			return null;
-		}
-
-		Comment nearestComment = null;
-		for (Comment comment : _comments)
-		{
-			if (comment.getStart() > offset)
-			{
-				break;
-			}
-
-			nearestComment = comment;
-		}
-
-		if (nearestComment == null)
-		{
-			return null;
-		}
-
-		if (nearestComment.getCommentType() != Comment.TYPE_PHPDOC)
-		{
-			return null;
-		}
-		if (_contents != null)
-		{
-			// checking if we have anything but whitespaces between comment end and
-			// offset
-			for (int i = nearestComment.getEnd() + 1; i < offset - 1; i++)
-			{
-				char ch = _contents.charAt(i);
-				if (!Character.isWhitespace(ch))
-				{
-					return null;
-				}
-			}
-
-			// return _contents.substring(nearestComment.getStart(), nearestComment.getEnd());
-			return (PHPDocBlock) nearestComment;
-		}
-		else
+		if (_comments == null || _contents == null)
 		{
 			return null;
 		}
+		return PHPDocUtils.findPHPDocComment(_comments, offset, _contents);
 	}
 }
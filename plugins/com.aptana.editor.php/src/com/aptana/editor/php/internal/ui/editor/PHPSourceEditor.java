@@ -43,6 +43,7 @@ import com.aptana.editor.php.core.PHPNature;
 import com.aptana.editor.php.core.PHPVersionProvider;
 import com.aptana.editor.php.core.model.ISourceModule;
 import com.aptana.editor.php.epl.PHPEplPlugin;
+import com.aptana.editor.php.indexer.PHPGlobalIndexer;
 import com.aptana.editor.php.internal.builder.BuildPathManager;
 import com.aptana.editor.php.internal.builder.FileSystemModule;
 import com.aptana.editor.php.internal.builder.SingleFileBuildPath;
@@ -87,6 +88,7 @@ public class PHPSourceEditor extends HTMLEditor implements ILanguageNode, IPHPVe
 	private IProject project;
 	private PHPDocumentProvider documentProvider;
 	private IModule module;
+	private IModule indexerEditorModule;
 	private ISourceModule sourceModule;
 	private boolean isOutOfWorkspace;
 	private String sourceUri;
@@ -205,6 +207,7 @@ public class PHPSourceEditor extends HTMLEditor implements ILanguageNode, IPHPVe
 			// Set the current module into the parse state
 			phpParseState.setModule(getModule());
 			phpParseState.setSourceModule(getSourceModule());
+			updateIndexerEditorModule();
 		}
 		else
 		{
@@ -215,10 +218,27 @@ public class PHPSourceEditor extends HTMLEditor implements ILanguageNode, IPHPVe
 				sourceUri = fsInput.getURI().toString();
 				phpParseState.setModule(getModule());
 				phpParseState.setSourceModule(getSourceModule());
+				updateIndexerEditorModule();
 			}
 		}
 	}
 
+	/**
+	 * Lets the indexer know which module is open in this editor, so the work queued for it (and for the modules it
+	 * includes) is processed first.
+	 */
+	private void updateIndexerEditorModule()
+	{
+		IModule current = getModule();
+		if (current != indexerEditorModule)
+		{
+			PHPGlobalIndexer indexer = PHPGlobalIndexer.getInstance();
+			indexer.removeEditorModule(indexerEditorModule);
+			indexer.addEditorModule(current);
+			indexerEditorModule = current;
+		}
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see com.aptana.editor.common.AbstractThemeableEditor#dispose()
@@ -229,6 +249,8 @@ public class PHPSourceEditor extends HTMLEditor implements ILanguageNode, IPHPVe
 		PHPVersionProvider.getInstance().removePHPVersionListener(this);
 		PHPVersionProvider.getInstance().removePHPVersionListener(phpParseState);
 		PHPVersionProvider.getInstance().removePHPVersionListener(documentProvider);
+		PHPGlobalIndexer.getInstance().removeEditorModule(indexerEditorModule);
+		indexerEditorModule = null;
 		occurrencesUpdater.dispose();
 		super.dispose();
 	}
@@ -5,6 +5,7 @@ import java.util.Map;
 import org.eclipse.jface.preference.IPreferenceStore;
 import org.eclipse.jface.text.IAutoEditStrategy;
 import org.eclipse.jface.text.ITextHover;
+import org.eclipse.jface.text.contentassist.ICompletionListener;
 import org.eclipse.jface.text.contentassist.IContentAssistProcessor;
 import org.eclipse.jface.text.contentassist.IContentAssistant;
 import org.eclipse.jface.text.presentation.IPresentationReconciler;
@@ -143,6 +144,16 @@ public class PHPSourceViewerConfiguration extends CompositeSourceViewerConfigura
 			// This one is a little buggy, as it does not update the proposal replacement string,
 			// so for now it's off.
 			// contentAssistant.enablePrefixCompletion(true);
+
+			// The PHP processors end their completion sessions when the proposals popup is closed
+			for (String contentType : getConfiguredContentTypes(sourceViewer))
+			{
+				IContentAssistProcessor processor = contentAssistant.getContentAssistProcessor(contentType);
+				if (processor instanceof PHPContentAssistProcessor)
+				{
+					contentAssistant.addCompletionListener((ICompletionListener) processor);
+				}
+			}
 		}
 		return assistant;
 	}
@@ -58,16 +58,21 @@ public class PHPHyperlinkDetector extends AbstractHyperlinkDetector
 	 */
 	public IHyperlink[] detectHyperlinks(PHPSourceEditor editor, IRegion region, boolean canShowMultipleHyperlinks)
 	{
-		LexemeProvider<PHPTokenType> lexemeProvider = ParsingUtils.createLexemeProvider(editor.getDocumentProvider()
-				.getDocument(editor.getEditorInput()), region.getOffset());
-
-		Lexeme<PHPTokenType> lexeme = lexemeProvider.getLexemeFromOffset(region.getOffset());
+		PHPOffsetMapper offsetMapper = editor.getOffsetMapper();
+		// A lexeme that was already resolved in the current document does not need a lexeme provider
+		LexemeProvider<PHPTokenType> lexemeProvider = null;
+		Lexeme<PHPTokenType> lexeme = offsetMapper.getResolvedLexeme(region.getOffset());
+		if (lexeme == null)
+		{
+			lexemeProvider = ParsingUtils.createLexemeProvider(editor.getDocumentProvider().getDocument(
+					editor.getEditorInput()), region.getOffset());
+			lexeme = lexemeProvider.getLexemeFromOffset(region.getOffset());
+		}
 		if (lexeme == null)
 		{
 			return null;
 		}
 		ArrayList<IHyperlink> result = new ArrayList<IHyperlink>();
-		PHPOffsetMapper offsetMapper = editor.getOffsetMapper();
 		ICodeLocation codeLocation = offsetMapper.findTarget(lexeme, lexemeProvider);
 		if (codeLocation != null)
 		{
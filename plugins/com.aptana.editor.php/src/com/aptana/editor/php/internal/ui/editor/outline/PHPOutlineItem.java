@@ -1,6 +1,7 @@
 package com.aptana.editor.php.internal.ui.editor.outline;
 
 import com.aptana.editor.common.outline.CommonOutlineItem;
+import com.aptana.editor.php.internal.parser.nodes.PHPBaseParseNode;
 import com.aptana.parsing.ast.ILanguageNode;
 import com.aptana.parsing.ast.IParseNode;
 import com.aptana.parsing.lexer.IRange;
@@ -17,4 +18,90 @@ public class PHPOutlineItem extends CommonOutlineItem implements ILanguageNode
 	{
 		return getReferenceNode().getLanguage();
 	}
+
+	/**
+	 * The hash code, computed once (the reference node path does not change).
+	 */
+	private int hash;
+
+	/**
+	 * Two PHP outline items are equal when they refer to the same node, or to nodes of the same kind and name, at the
+	 * same position among the siblings of that kind and name, under equal parents. The nodes are rebuilt on every
+	 * reconcile, and their offsets move while the file is edited, so this keeps the outline items (and their expansion
+	 * state) stable. The positions are computed once, when the nodes are built (see
+	 * {@link PHPBaseParseNode#getOrdinal()}).
+	 */
+	@Override
+	public boolean equals(Object obj)
+	{
+		if (this == obj)
+		{
+			return true;
+		}
+		if (!(obj instanceof PHPOutlineItem))
+		{
+			return false;
+		}
+		IParseNode node = getReferenceNode();
+		IParseNode other = ((PHPOutlineItem) obj).getReferenceNode();
+		if (node == other)
+		{
+			return true;
+		}
+		if (!(node instanceof PHPBaseParseNode) && !(other instanceof PHPBaseParseNode))
+		{
+			return super.equals(obj);
+		}
+		if (hashCode() != obj.hashCode())
+		{
+			return false;
+		}
+		while (node instanceof PHPBaseParseNode && other instanceof PHPBaseParseNode)
+		{
+			if (node == other)
+			{
+				return true;
+			}
+			if (!isSameKind((PHPBaseParseNode) node, (PHPBaseParseNode) other)
+					|| ((PHPBaseParseNode) node).getOrdinal() != ((PHPBaseParseNode) other).getOrdinal())
+			{
+				return false;
+			}
+			node = node.getParent();
+			other = other.getParent();
+		}
+		return !(node instanceof PHPBaseParseNode) && !(other instanceof PHPBaseParseNode);
+	}
+
+	@Override
+	public int hashCode()
+	{
+		IParseNode node = getReferenceNode();
+		if (!(node instanceof PHPBaseParseNode))
+		{
+			return super.hashCode();
+		}
+		if (hash == 0)
+		{
+			int result = 1;
+			while (node instanceof PHPBaseParseNode)
+			{
+				PHPBaseParseNode phpNode = (PHPBaseParseNode) node;
+				result = 31 * result + phpNode.getType() * 17 + phpNode.getNodeName().hashCode();
+				result = 31 * result + phpNode.getOrdinal();
+				node = node.getParent();
+			}
+			hash = result;
+		}
+		return hash;
+	}
+
+	/*
+	 * Returns true if the nodes are of the same kind and have the same name.
+	 */
+	private static boolean isSameKind(PHPBaseParseNode n1, PHPBaseParseNode n2)
+	{
+		return n1.getClass() == n2.getClass() && n1.getType() == n2.getType()
+				&& n1.getNodeName().equals(n2.getNodeName());
+	}
 }
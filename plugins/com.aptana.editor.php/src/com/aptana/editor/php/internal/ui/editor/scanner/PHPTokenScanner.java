@@ -1,12 +1,10 @@
 package com.aptana.editor.php.internal.ui.editor.scanner;
 
 import java.io.IOException;
-import java.io.StringReader;
 
 import java_cup.sym;
 import java_cup.runtime.Symbol;
 
-import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.IDocument;
 import org.eclipse.jface.text.rules.IToken;
 import org.eclipse.jface.text.rules.Token;
@@ -17,6 +15,8 @@ import com.aptana.editor.html.parsing.HTMLTokenScanner;
 import com.aptana.editor.php.PHPEditorPlugin;
 import com.aptana.editor.php.core.PHPVersionProvider;
 import com.aptana.editor.php.core.ast.ASTFactory;
+import com.aptana.editor.php.internal.parser.CharSequenceReader;
+import com.aptana.editor.php.internal.parser.DocumentCharSequence;
 import com.aptana.editor.php.internal.ui.editor.PHPVersionDocumentManager;
 
 /**
@@ -32,7 +32,6 @@ public class PHPTokenScanner extends HTMLTokenScanner implements IPHPTokenScanne
 	private int fOffset;
 
 	private int origOffset;
-	private String fContents;
 	private AstLexer lexer;
 	private PHPVersion phpVersion;
 	private Symbol nextNextSymbol;
@@ -111,8 +110,8 @@ public class PHPTokenScanner extends HTMLTokenScanner implements IPHPTokenScanne
 	{
 		try
 		{
-			fContents = document.get(offset, length);
-			fContents = PHP_PREFIX + fContents;
+			// the lexer reads the prefix, followed by the document range (from the shared snapshot)
+			CharSequence range = DocumentCharSequence.get(document).subSequence(offset, offset + length);
 			phpVersion = PHPVersionDocumentManager.getPHPVersion(document);
 			if (phpVersion == null)
 			{
@@ -120,7 +119,7 @@ public class PHPTokenScanner extends HTMLTokenScanner implements IPHPTokenScanne
 				// This will happen when an external file is opened in the editor.
 				phpVersion = PHPVersionProvider.getDefaultPHPVersion();
 			}
-			lexer = ASTFactory.getAstLexer(phpVersion, new StringReader(fContents));
+			lexer = ASTFactory.getAstLexer(phpVersion, new CharSequenceReader(PHP_PREFIX, range));
 			// read the next token already, so we can always calculate the spaces between the
 			// tokens and return the right offset and length.
 			try
@@ -132,7 +131,7 @@ public class PHPTokenScanner extends HTMLTokenScanner implements IPHPTokenScanne
 				nextNextSymbol = null;
 			}
 		}
-		catch (BadLocationException e)
+		catch (IndexOutOfBoundsException e)
 		{
 			PHPEditorPlugin.logError(e);
 		}
@@ -23,7 +23,6 @@ import org.eclipse.jface.text.IInformationControlCreator;
 import org.eclipse.jface.text.IInformationControlExtension4;
 import org.eclipse.jface.text.IRegion;
 import org.eclipse.jface.text.ITextViewer;
-import org.eclipse.php.internal.core.compiler.ast.nodes.PHPDocBlock;
 import org.eclipse.php.internal.ui.PHPUIMessages;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.graphics.FontData;
@@ -42,9 +41,8 @@ import com.aptana.editor.php.internal.contentAssist.PHPTokenType;
 import com.aptana.editor.php.internal.contentAssist.ParsingUtils;
 import com.aptana.editor.php.internal.contentAssist.mapping.PHPOffsetMapper;
 import com.aptana.editor.php.internal.indexer.AbstractPHPEntryValue;
-import com.aptana.editor.php.internal.indexer.PHPDocUtils;
+import com.aptana.editor.php.internal.indexer.PHPDocumentationStore;
 import com.aptana.editor.php.internal.parser.nodes.PHPBaseParseNode;
-import com.aptana.editor.php.internal.parser.phpdoc.FunctionDocumentation;
 import com.aptana.editor.php.internal.ui.editor.PHPSourceEditor;
 import com.aptana.parsing.lexer.Lexeme;
 
@@ -576,9 +574,8 @@ public class PHPDocHover extends AbstractPHPTextHover
 			IElementEntry entry = (IElementEntry) element;
 			AbstractPHPEntryValue phpValue = (AbstractPHPEntryValue) entry.getValue();
 			int startOffset = phpValue.getStartOffset();
-			PHPDocBlock comment = PHPDocUtils.findFunctionPHPDocComment(entry, startOffset);
-			FunctionDocumentation documentation = PHPDocUtils.getFunctionDocumentation(comment);
-			buffer.append(PHPDocUtils.computeDocumentation(documentation, entry.getEntryPath()));
+			buffer.append(PHPDocumentationStore.getInstance().getDocumentationHTML(entry, startOffset,
+					entry.getEntryPath(), false));
 		}
 		else if (element instanceof PHPBaseParseNode)
 		{
@@ -0,0 +1,122 @@
+package com.aptana.editor.php.benchmarks;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A single benchmark.<br>
+ * The {@link BenchmarkRunner} calls {@link #setUp()} once, then calls {@link #run()} repeatedly through the warm-up
+ * and measurement iterations, and finally calls {@link #tearDown()}. Anything that is not part of the measured
+ * operation (reading the corpus, building an index to query) belongs in {@link #setUp()}.
+ */
+public abstract class Benchmark
+{
+	private final String name;
+	private final Map<String, String> parameters = new LinkedHashMap<String, String>();
+
+	/**
+	 * Constructs a new benchmark.
+	 * 
+	 * @param name
+	 *            - the benchmark name. The name and the parameters identify the benchmark results.
+	 */
+	protected Benchmark(String name)
+	{
+		this.name = name;
+	}
+
+	/**
+	 * Returns the benchmark name.
+	 * 
+	 * @return The name.
+	 */
+	public String getName()
+	{
+		return name;
+	}
+
+	/**
+	 * Returns the benchmark parameters.
+	 * 
+	 * @return An unmodifiable, ordered map of the parameters.
+	 */
+	public Map<String, String> getParameters()
+	{
+		return Collections.unmodifiableMap(parameters);
+	}
+
+	/**
+	 * Adds a parameter that identifies this benchmark (a PHP version, an index size...).
+	 * 
+	 * @param key
+	 * @param value
+	 */
+	protected void addParameter(String key, Object value)
+	{
+		parameters.put(key, String.valueOf(value));
+	}
+
+	/**
+	 * Returns the benchmark id - the name followed by the parameters.
+	 * 
+	 * @return The id.
+	 */
+	public String getId()
+	{
+		StringBuilder builder = new StringBuilder(name);
+		for (Map.Entry<String, String> entry : parameters.entrySet())
+		{
+			builder.append(';').append(entry.getKey()).append('=').append(entry.getValue());
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Prepares the benchmark.
+	 * 
+	 * @throws Exception
+	 */
+	public void setUp() throws Exception
+	{
+	}
+
+	/**
+	 * Runs a single invocation of the measured operation. The returned value is consumed by the runner (through its
+	 * hash code), so the work that produced it cannot be optimized away. Prefer returning a count over a collection.
+	 * 
+	 * @return The operation result.
+	 * @throws Exception
+	 */
+	public abstract Object run() throws Exception;
+
+	/**
+	 * Returns the number of operations a single {@link #run()} invocation performs (tokens, files, queries...). This
+	 * is used to compute the throughput. Called after {@link #setUp()}.
+	 * 
+	 * @return The operations count per invocation.
+	 */
+	public long getOperationsPerInvocation()
+	{
+		return 1;
+	}
+
+	/**
+	 * Returns the name of the unit that {@link #getOperationsPerInvocation()} counts.
+	 * 
+	 * @return The operation unit name.
+	 */
+	public String getOperationUnit()
+	{
+		return "op"; //$NON-NLS-1$
+	}
+
+	/**
+	 * Releases the benchmark resources.
+	 * 
+	 * @throws Exception
+	 */
+	public void tearDown() throws Exception
+	{
+	}
+}
@@ -0,0 +1,102 @@
+package com.aptana.editor.php.benchmarks;
+
+import java.io.File;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import org.eclipse.equinox.app.IApplication;
+import org.eclipse.equinox.app.IApplicationContext;
+
+/**
+ * Runs the {@link BenchmarkSuite} and writes the results as JSON.<br>
+ * Usage:
+ * 
+ * <pre>
+ * eclipse -nosplash -application com.aptana.editor.php.benchmarks.runner [-output &lt;file&gt;] [-include &lt;regex&gt;]
+ *         [-warmup &lt;iterations&gt;] [-iterations &lt;iterations&gt;] [-time &lt;millis per iteration&gt;]
+ * </pre>
+ * 
+ * The include expression is matched against the benchmarks ids (for example <code>indexQuery;mode=prefix</code> or
+ * <code>lexer;version=php5.3</code>).
+ */
+public class BenchmarkApplication implements IApplication
+{
+	private static final Integer EXIT_ERROR = Integer.valueOf(1);
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.equinox.app.IApplication#start(org.eclipse.equinox.app.IApplicationContext)
+	 */
+	public Object start(IApplicationContext context) throws Exception
+	{
+		String[] args = (String[]) context.getArguments().get(IApplicationContext.APPLICATION_ARGS);
+		File output = new File("benchmark-results.json"); //$NON-NLS-1$
+		BenchmarkRunner runner = new BenchmarkRunner(System.out);
+		Map<String, String> properties = new LinkedHashMap<String, String>();
+		try
+		{
+			for (int i = 0; args != null && i < args.length - 1; i++)
+			{
+				String arg = args[i];
+				if ("-output".equals(arg)) //$NON-NLS-1$
+				{
+					output = new File(args[++i]);
+				}
+				else if ("-include".equals(arg)) //$NON-NLS-1$
+				{
+					runner.setInclude(Pattern.compile(args[++i]));
+					properties.put("include", args[i]); //$NON-NLS-1$
+				}
+				else if ("-warmup".equals(arg)) //$NON-NLS-1$
+				{
+					runner.setWarmupIterations(Integer.parseInt(args[++i]));
+					properties.put("warmupIterations", args[i]); //$NON-NLS-1$
+				}
+				else if ("-iterations".equals(arg)) //$NON-NLS-1$
+				{
+					runner.setMeasurementIterations(Integer.parseInt(args[++i]));
+					properties.put("iterations", args[i]); //$NON-NLS-1$
+				}
+				else if ("-time".equals(arg)) //$NON-NLS-1$
+				{
+					runner.setIterationMillis(Long.parseLong(args[++i]));
+					properties.put("iterationMillis", args[i]); //$NON-NLS-1$
+				}
+			}
+		}
+		catch (RuntimeException e)
+		{
+			System.err.println("Invalid arguments: " + e.getMessage()); //$NON-NLS-1$
+			return EXIT_ERROR;
+		}
+		properties.put("date", String.format("%tFT%<tT%<tz", new Date())); //$NON-NLS-1$ //$NON-NLS-2$
+		properties.put("java.version", System.getProperty("java.version")); //$NON-NLS-1$ //$NON-NLS-2$
+		properties.put("java.vm.name", System.getProperty("java.vm.name")); //$NON-NLS-1$ //$NON-NLS-2$
+		properties.put("os.name", System.getProperty("os.name")); //$NON-NLS-1$ //$NON-NLS-2$
+		properties.put("processors", String.valueOf(Runtime.getRuntime().availableProcessors())); //$NON-NLS-1$
+		properties.put("maxMemory", String.valueOf(Runtime.getRuntime().maxMemory())); //$NON-NLS-1$
+
+		List<BenchmarkResult> results = runner.run(BenchmarkSuite.createAll());
+		new ResultsWriter(properties).write(results, output);
+		System.out.println("Results written to " + output.getAbsolutePath()); //$NON-NLS-1$
+		for (BenchmarkResult result : results)
+		{
+			if (result.getError() != null)
+			{
+				return EXIT_ERROR;
+			}
+		}
+		return EXIT_OK;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.equinox.app.IApplication#stop()
+	 */
+	public void stop()
+	{
+	}
+}
@@ -0,0 +1,147 @@
+package com.aptana.editor.php.benchmarks;
+
+import java.util.Map;
+
+/**
+ * The measured result of a {@link Benchmark}.
+ */
+public class BenchmarkResult
+{
+	private final Benchmark benchmark;
+	private final double[] iterationNanos;
+	private final long invocations;
+	private final long operationsPerInvocation;
+	private final String error;
+
+	BenchmarkResult(Benchmark benchmark, double[] iterationNanos, long invocations, long operationsPerInvocation)
+	{
+		this.benchmark = benchmark;
+		this.iterationNanos = iterationNanos;
+		this.invocations = invocations;
+		this.operationsPerInvocation = operationsPerInvocation;
+		this.error = null;
+	}
+
+	BenchmarkResult(Benchmark benchmark, String error)
+	{
+		this.benchmark = benchmark;
+		this.iterationNanos = new double[0];
+		this.invocations = 0;
+		this.operationsPerInvocation = 0;
+		this.error = error;
+	}
+
+	public String getId()
+	{
+		return benchmark.getId();
+	}
+
+	public String getName()
+	{
+		return benchmark.getName();
+	}
+
+	public Map<String, String> getParameters()
+	{
+		return benchmark.getParameters();
+	}
+
+	public String getOperationUnit()
+	{
+		return benchmark.getOperationUnit();
+	}
+
+	/**
+	 * Returns the error that stopped this benchmark.
+	 * 
+	 * @return The error message, or null if the benchmark completed.
+	 */
+	public String getError()
+	{
+		return error;
+	}
+
+	/**
+	 * Returns the average time of a single invocation, for each of the measured iterations.
+	 * 
+	 * @return The nanoseconds per invocation, per iteration.
+	 */
+	public double[] getIterationNanos()
+	{
+		return iterationNanos;
+	}
+
+	/**
+	 * Returns the total number of measured invocations.
+	 * 
+	 * @return The invocations count.
+	 */
+	public long getInvocations()
+	{
+		return invocations;
+	}
+
+	/**
+	 * Returns the number of operations a single invocation performed.
+	 * 
+	 * @return The operations per invocation.
+	 */
+	public long getOperationsPerInvocation()
+	{
+		return operationsPerInvocation;
+	}
+
+	/**
+	 * Returns the mean time of a single invocation.
+	 * 
+	 * @return The mean, in nanoseconds.
+	 */
+	public double getMeanNanos()
+	{
+		if (iterationNanos.length == 0)
+		{
+			return 0;
+		}
+		double sum = 0;
+		for (double n : iterationNanos)
+		{
+			sum += n;
+		}
+		return sum / iterationNanos.length;
+	}
+
+	/**
+	 * Returns the standard deviation of the iterations means.
+	 * 
+	 * @return The standard deviation, in nanoseconds.
+	 */
+	public double getStandardDeviationNanos()
+	{
+		if (iterationNanos.length < 2)
+		{
+			return 0;
+		}
+		double mean = getMeanNanos();
+		double sum = 0;
+		for (double n : iterationNanos)
+		{
+			sum += (n - mean) * (n - mean);
+		}
+		return Math.sqrt(sum / (iterationNanos.length - 1));
+	}
+
+	/**
+	 * Returns the throughput.
+	 * 
+	 * @return The operations per second, where an operation is counted in {@link #getOperationUnit()} units.
+	 */
+	public double getOperationsPerSecond()
+	{
+		double mean = getMeanNanos();
+		if (mean == 0)
+		{
+			return 0;
+		}
+		return operationsPerInvocation * 1e9 / mean;
+	}
+}
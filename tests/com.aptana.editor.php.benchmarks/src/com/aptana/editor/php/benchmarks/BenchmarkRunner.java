@@ -0,0 +1,188 @@
+package com.aptana.editor.php.benchmarks;
+
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Runs benchmarks with warm-up and measurement iterations.<br>
+ * Each iteration calls the benchmark repeatedly until the iteration time has passed, and records the average time of
+ * a single invocation. The warm-up iterations give the JIT the chance to compile the measured code, and are not part
+ * of the result.
+ */
+public class BenchmarkRunner
+{
+	private int warmupIterations = 5;
+	private int measurementIterations = 10;
+	private long iterationMillis = 1000;
+	private Pattern include;
+	private final PrintStream log;
+
+	/**
+	 * The results of the benchmarks are folded into this field, so the JIT can't eliminate the measured code.
+	 */
+	private volatile int sink;
+
+	/**
+	 * Constructs a new runner.
+	 * 
+	 * @param log
+	 *            - a stream for progress messages (may be null).
+	 */
+	public BenchmarkRunner(PrintStream log)
+	{
+		this.log = log;
+	}
+
+	public void setWarmupIterations(int warmupIterations)
+	{
+		this.warmupIterations = warmupIterations;
+	}
+
+	public void setMeasurementIterations(int measurementIterations)
+	{
+		this.measurementIterations = Math.max(1, measurementIterations);
+	}
+
+	public void setIterationMillis(long iterationMillis)
+	{
+		this.iterationMillis = Math.max(1, iterationMillis);
+	}
+
+	/**
+	 * Sets a filter on the benchmarks ids.
+	 * 
+	 * @param include
+	 *            - a regular expression that should be found in the benchmark id, or null to run all benchmarks.
+	 */
+	public void setInclude(Pattern include)
+	{
+		this.include = include;
+	}
+
+	/**
+	 * Runs the given benchmarks.
+	 * 
+	 * @param benchmarks
+	 * @return The results, in the benchmarks order. Benchmarks that were filtered out have no result.
+	 */
+	public List<BenchmarkResult> run(List<Benchmark> benchmarks)
+	{
+		List<BenchmarkResult> results = new ArrayList<BenchmarkResult>(benchmarks.size());
+		for (Benchmark benchmark : benchmarks)
+		{
+			if (include != null && !include.matcher(benchmark.getId()).find())
+			{
+				continue;
+			}
+			BenchmarkResult result = run(benchmark);
+			results.add(result);
+			if (log != null)
+			{
+				if (result.getError() != null)
+				{
+					log.println(result.getId() + ": FAILED - " + result.getError()); //$NON-NLS-1$
+				}
+				else
+				{
+					log.println(String.format("%s: %.3f us/invocation (+- %.3f), %.1f %s/s", result.getId(), //$NON-NLS-1$
+							result.getMeanNanos() / 1000, result.getStandardDeviationNanos() / 1000, result
+									.getOperationsPerSecond(), result.getOperationUnit()));
+				}
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Runs a single benchmark.
+	 * 
+	 * @param benchmark
+	 * @return The benchmark result.
+	 */
+	public BenchmarkResult run(Benchmark benchmark)
+	{
+		if (log != null)
+		{
+			log.println("Running " + benchmark.getId()); //$NON-NLS-1$
+		}
+		try
+		{
+			benchmark.setUp();
+		}
+		catch (Throwable th)
+		{
+			return new BenchmarkResult(benchmark, toString(th));
+		}
+		try
+		{
+			long operations = benchmark.getOperationsPerInvocation();
+			for (int i = 0; i < warmupIterations; i++)
+			{
+				iteration(benchmark);
+			}
+			System.gc();
+			double[] nanos = new double[measurementIterations];
+			long invocations = 0;
+			for (int i = 0; i < measurementIterations; i++)
+			{
+				long[] iteration = iteration(benchmark);
+				nanos[i] = (double) iteration[0] / iteration[1];
+				invocations += iteration[1];
+			}
+			return new BenchmarkResult(benchmark, nanos, invocations, operations);
+		}
+		catch (Throwable th)
+		{
+			return new BenchmarkResult(benchmark, toString(th));
+		}
+		finally
+		{
+			try
+			{
+				benchmark.tearDown();
+			}
+			catch (Throwable th)
+			{
+				if (log != null)
+				{
+					th.printStackTrace(log);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Runs the benchmark until the iteration time has passed.
+	 * 
+	 * @param benchmark
+	 * @return The elapsed nanoseconds and the number of invocations.
+	 * @throws Exception
+	 */
+	private long[] iteration(Benchmark benchmark) throws Exception
+	{
+		long limit = iterationMillis * 1000000L;
+		long start = System.nanoTime();
+		long elapsed;
+		long invocations = 0;
+		do
+		{
+			Object result = benchmark.run();
+			sink += (result == null) ? 0 : result.hashCode();
+			invocations++;
+			elapsed = System.nanoTime() - start;
+		}
+		while (elapsed < limit);
+		return new long[] { elapsed, invocations };
+	}
+
+	private static String toString(Throwable th)
+	{
+		StringWriter writer = new StringWriter();
+		th.printStackTrace(new PrintWriter(writer));
+		return writer.toString();
+	}
+}
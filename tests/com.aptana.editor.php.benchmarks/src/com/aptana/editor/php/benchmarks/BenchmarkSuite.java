@@ -0,0 +1,79 @@
+package com.aptana.editor.php.benchmarks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.php.internal.core.PHPVersion;
+
+/**
+ * The PHP benchmarks suite.
+ */
+public final class BenchmarkSuite
+{
+	/**
+	 * The index sizes the queries are measured on.
+	 */
+	private static final int[] INDEX_SIZES = { 10000, 100000, 1000000 };
+
+	/**
+	 * The number of synthetic files for the indexer and the persistence benchmarks.
+	 */
+	private static final int INDEXED_FILES = 200;
+
+	/**
+	 * The number of methods in the class of the outline nodes benchmarks.
+	 */
+	private static final int OUTLINE_METHODS = 2000;
+
+	/**
+	 * The number of proposals in the completion session benchmark.
+	 */
+	private static final int SESSION_CANDIDATES = 50000;
+
+	/**
+	 * Creates all the benchmarks.
+	 * 
+	 * @return The benchmarks list.
+	 * @throws IOException
+	 *             in case the language stubs could not be read.
+	 */
+	public static List<Benchmark> createAll() throws IOException
+	{
+		List<Benchmark> benchmarks = new ArrayList<Benchmark>();
+		List<String> synthetic = Collections.singletonList(Corpus.synthetic(200, 10, 0));
+		for (PHPVersion version : PHPVersion.values())
+		{
+			List<String> stubs = Corpus.languageStubs(version);
+			if (!stubs.isEmpty())
+			{
+				benchmarks.add(new LexerBenchmark(version, "stubs", stubs)); //$NON-NLS-1$
+				benchmarks.add(new ParserBenchmark(version, "stubs", stubs)); //$NON-NLS-1$
+			}
+			benchmarks.add(new LexerBenchmark(version, "synthetic", synthetic)); //$NON-NLS-1$
+			benchmarks.add(new ParserBenchmark(version, "synthetic", synthetic)); //$NON-NLS-1$
+		}
+		benchmarks.add(new IndexerBenchmark(INDEXED_FILES));
+		benchmarks.add(new IndexPersistenceBenchmark(INDEXED_FILES, IndexPersistenceBenchmark.Mode.STORE));
+		benchmarks.add(new IndexPersistenceBenchmark(INDEXED_FILES, IndexPersistenceBenchmark.Mode.LOAD));
+		for (int size : INDEX_SIZES)
+		{
+			benchmarks.add(new IndexQueryBenchmark(size, IndexQueryBenchmark.Mode.EXACT));
+			benchmarks.add(new IndexQueryBenchmark(size, IndexQueryBenchmark.Mode.PREFIX));
+			benchmarks.add(new IndexQueryBenchmark(size, IndexQueryBenchmark.Mode.FUZZY));
+		}
+		benchmarks.add(new OutlineNodesBenchmark(OUTLINE_METHODS, OutlineNodesBenchmark.Mode.BUILD));
+		benchmarks.add(new OutlineNodesBenchmark(OUTLINE_METHODS, OutlineNodesBenchmark.Mode.REFRESH));
+		benchmarks.add(new CompletionSessionBenchmark(SESSION_CANDIDATES));
+		for (ContentAssistBenchmark.Scenario scenario : ContentAssistBenchmark.Scenario.values())
+		{
+			benchmarks.add(new ContentAssistBenchmark(scenario));
+		}
+		return benchmarks;
+	}
+
+	private BenchmarkSuite()
+	{
+	}
+}
@@ -0,0 +1,86 @@
+package com.aptana.editor.php.benchmarks;
+
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+
+import com.aptana.editor.php.internal.contentAssist.CompletionSession;
+import com.aptana.editor.php.internal.contentAssist.PHPCompletionProposal;
+
+/**
+ * Measures the narrowing of a completion session while the completed identifier is typed, character by character,
+ * and then erased back to the prefix the session was started for.
+ */
+public class CompletionSessionBenchmark extends Benchmark
+{
+	private static final String PREFIX = "syn"; //$NON-NLS-1$
+	private static final String TYPED = "thetic_1"; //$NON-NLS-1$
+
+	private final int candidates;
+	private IDocument document;
+	private CompletionSession session;
+	private int offset;
+
+	/**
+	 * Constructs a new completion session benchmark.
+	 * 
+	 * @param candidates
+	 *            - the number of proposals in the session.
+	 */
+	public CompletionSessionBenchmark(int candidates)
+	{
+		super("completion-session"); //$NON-NLS-1$
+		this.candidates = candidates;
+		addParameter("candidates", candidates); //$NON-NLS-1$
+	}
+
+	@Override
+	public void setUp() throws Exception
+	{
+		document = new Document("<?php\n" + PREFIX); //$NON-NLS-1$
+		offset = document.getLength();
+		int replacementOffset = offset - PREFIX.length();
+		PHPCompletionProposal[] proposals = new PHPCompletionProposal[candidates];
+		for (int i = 0; i < candidates; i++)
+		{
+			String name = "synthetic_" + i; //$NON-NLS-1$
+			proposals[i] = new PHPCompletionProposal(name, replacementOffset, PREFIX.length(), name.length(), null,
+					name, null, null, 0, "", null); //$NON-NLS-1$
+		}
+		session = new CompletionSession(document, offset, proposals);
+	}
+
+	@Override
+	public Object run() throws Exception
+	{
+		int count = 0;
+		for (int i = 0; i < TYPED.length(); i++)
+		{
+			document.replace(offset + i, 0, TYPED.substring(i, i + 1));
+			count += session.narrow(document, offset + i + 1).length;
+		}
+		document.replace(offset, TYPED.length(), ""); //$NON-NLS-1$
+		count += session.narrow(document, offset).length;
+		return count;
+	}
+
+	@Override
+	public long getOperationsPerInvocation()
+	{
+		return TYPED.length() + 1;
+	}
+
+	@Override
+	public String getOperationUnit()
+	{
+		return "narrowing"; //$NON-NLS-1$
+	}
+
+	@Override
+	public void tearDown() throws Exception
+	{
+		if (session != null)
+		{
+			session.dispose();
+		}
+	}
+}
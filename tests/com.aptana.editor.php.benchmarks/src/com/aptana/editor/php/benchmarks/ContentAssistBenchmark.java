@@ -0,0 +1,133 @@
+package com.aptana.editor.php.benchmarks;
+
+import java.io.ByteArrayInputStream;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IProjectDescription;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IncrementalProjectBuilder;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.php.core.tests.TestUtils;
+import org.eclipse.php.core.tests.codeassist.CodeAssistTests;
+
+import com.aptana.editor.php.core.PHPNature;
+import com.aptana.editor.php.core.model.ISourceModule;
+import com.aptana.editor.php.indexer.PHPGlobalIndexer;
+import com.aptana.editor.php.internal.model.utils.ModelUtils;
+
+/**
+ * Measures the content assist end to end - from the {@link com.aptana.editor.php.internal.contentAssist.PHPContentAssistProcessor}
+ * call to the returned proposals - on a workspace file with synthetic declarations.
+ */
+public class ContentAssistBenchmark extends Benchmark
+{
+	/**
+	 * Completion scenarios.
+	 */
+	public static enum Scenario
+	{
+		/**
+		 * Class names completion after <code>new</code>.
+		 */
+		TYPE("$created = new Synthetic_"), //$NON-NLS-1$
+		/**
+		 * Members completion on a typed variable.
+		 */
+		MEMBER("$object = synthetic_function_0_0('x');\n$object->"), //$NON-NLS-1$
+		/**
+		 * Global functions completion (including the built-in functions).
+		 */
+		FUNCTION("str"); //$NON-NLS-1$
+
+		private final String code;
+
+		private Scenario(String code)
+		{
+			this.code = code;
+		}
+	}
+
+	private static final String PROJECT_NAME = "ContentAssistBenchmark"; //$NON-NLS-1$
+
+	private final Scenario scenario;
+	private IProject project;
+	private ISourceModule sourceModule;
+	private int offset;
+
+	/**
+	 * Constructs a new content assist benchmark.
+	 * 
+	 * @param scenario
+	 */
+	public ContentAssistBenchmark(Scenario scenario)
+	{
+		super("contentAssist"); //$NON-NLS-1$
+		this.scenario = scenario;
+		addParameter("scenario", scenario.name().toLowerCase()); //$NON-NLS-1$
+	}
+
+	@Override
+	public void setUp() throws Exception
+	{
+		project = ResourcesPlugin.getWorkspace().getRoot().getProject(PROJECT_NAME);
+		if (project.exists())
+		{
+			project.delete(true, true, null);
+		}
+		project.create(null);
+		project.open(null);
+		IProjectDescription description = project.getDescription();
+		description.setNatureIds(new String[] { PHPNature.NATURE_ID });
+		project.setDescription(description, null);
+		PHPGlobalIndexer.getInstance();
+
+		String source = Corpus.synthetic(50, 10, 0) + "<?php\n" + scenario.code; //$NON-NLS-1$
+		offset = source.length();
+		source += "\n?>\n"; //$NON-NLS-1$
+
+		IFile file = project.getFile("benchmark.php"); //$NON-NLS-1$
+		file.create(new ByteArrayInputStream(source.getBytes("UTF-8")), true, null); //$NON-NLS-1$
+		project.refreshLocal(IResource.DEPTH_INFINITE, null);
+		project.build(IncrementalProjectBuilder.FULL_BUILD, null);
+		TestUtils.waitForAutoBuild();
+		waitForIndexer();
+		sourceModule = ModelUtils.getModule(file);
+		if (sourceModule == null)
+		{
+			throw new IllegalStateException("No source module for " + file); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Waits for the PHP indexer to process its pending work.
+	 * 
+	 * @throws InterruptedException
+	 */
+	private static void waitForIndexer() throws InterruptedException
+	{
+		Job.getJobManager().join(PHPGlobalIndexer.INDEXING_JOB_FAMILY, null);
+	}
+
+	@Override
+	public Object run() throws Exception
+	{
+		return CodeAssistTests.getProposals(sourceModule, offset).length;
+	}
+
+	@Override
+	public String getOperationUnit()
+	{
+		return "completion"; //$NON-NLS-1$
+	}
+
+	@Override
+	public void tearDown() throws Exception
+	{
+		if (project != null)
+		{
+			project.delete(true, true, null);
+		}
+	}
+}
@@ -0,0 +1,229 @@
+package com.aptana.editor.php.benchmarks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Random;
+
+import org.eclipse.php.internal.core.PHPVersion;
+
+import com.aptana.editor.php.epl.PHPEplPlugin;
+
+/**
+ * Benchmark corpora.<br>
+ * The language stubs that are bundled with the PHP EPL plug-in give a real-world corpus for every PHP version, and
+ * the synthetic generator gives a corpus of any size. The generator is seeded, so the same parameters always produce
+ * the same sources.
+ */
+public final class Corpus
+{
+	private static final String LANGUAGE_PATH = "Resources/language/"; //$NON-NLS-1$
+
+	/**
+	 * Returns the bundled language stubs of the given PHP version.
+	 * 
+	 * @param version
+	 * @return The stubs sources, sorted by their path.
+	 * @throws IOException
+	 */
+	@SuppressWarnings("unchecked")
+	public static List<String> languageStubs(PHPVersion version) throws IOException
+	{
+		Enumeration<URL> entries = PHPEplPlugin.getDefault().getBundle().findEntries(
+				LANGUAGE_PATH + version.getAlias(), "*.php", true); //$NON-NLS-1$
+		List<URL> urls = new ArrayList<URL>();
+		while (entries != null && entries.hasMoreElements())
+		{
+			urls.add(entries.nextElement());
+		}
+		Collections.sort(urls, new Comparator<URL>()
+		{
+			public int compare(URL u1, URL u2)
+			{
+				return u1.getPath().compareTo(u2.getPath());
+			}
+		});
+		List<String> sources = new ArrayList<String>(urls.size());
+		for (URL url : urls)
+		{
+			sources.add(read(url.openStream()));
+		}
+		return sources;
+	}
+
+	/**
+	 * Generates a synthetic PHP source. The source holds documented classes with fields and methods, functions,
+	 * constants, includes and some procedural code.
+	 * 
+	 * @param classes
+	 *            - the number of classes to generate.
+	 * @param methods
+	 *            - the number of methods in each class.
+	 * @param seed
+	 *            - the random seed.
+	 * @return The PHP source.
+	 */
+	public static String synthetic(int classes, int methods, long seed)
+	{
+		Random random = new Random(seed);
+		StringBuilder builder = new StringBuilder(classes * methods * 200);
+		builder.append("<?php\n"); //$NON-NLS-1$
+		builder.append("include_once 'common_").append(random.nextInt(10)).append(".php';\n\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		builder.append("define('SYNTHETIC_").append(seed).append("', ").append(random.nextInt()).append(");\n\n"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		for (int c = 0; c < classes; c++)
+		{
+			String className = name("Synthetic", seed, c); //$NON-NLS-1$
+			builder.append("/**\n * Synthetic class ").append(className).append(".\n */\n"); //$NON-NLS-1$ //$NON-NLS-2$
+			builder.append("class ").append(className); //$NON-NLS-1$
+			if (c > 0 && random.nextBoolean())
+			{
+				builder.append(" extends ").append(name("Synthetic", seed, random.nextInt(c))); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			builder.append("\n{\n"); //$NON-NLS-1$
+			builder.append("\tconst VERSION = ").append(random.nextInt(100)).append(";\n"); //$NON-NLS-1$ //$NON-NLS-2$
+			for (int f = 0; f < 3; f++)
+			{
+				builder.append("\t/**\n\t * @var int\n\t */\n"); //$NON-NLS-1$
+				builder.append(f == 0 ? "\tpublic $" : "\tprotected $").append(name("field", seed, f)).append(" = ") //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+						.append(random.nextInt(1000)).append(";\n"); //$NON-NLS-1$
+			}
+			for (int m = 0; m < methods; m++)
+			{
+				String methodName = name("method", c, m); //$NON-NLS-1$
+				builder.append("\n\t/**\n\t * Computes ").append(methodName).append(".\n"); //$NON-NLS-1$ //$NON-NLS-2$
+				builder.append("\t * @param string $name\n\t * @param int $count\n\t * @return ").append(className) //$NON-NLS-1$
+						.append("\n\t */\n"); //$NON-NLS-1$
+				builder.append("\tpublic function ").append(methodName).append("($name, $count = 0)\n\t{\n"); //$NON-NLS-1$ //$NON-NLS-2$
+				builder.append("\t\t$result = array();\n"); //$NON-NLS-1$
+				builder.append("\t\tfor ($i = 0; $i < $count; $i++)\n\t\t{\n"); //$NON-NLS-1$
+				builder.append("\t\t\t$result[] = strtoupper($name) . $this->").append(name("field", seed, 0)) //$NON-NLS-1$ //$NON-NLS-2$
+						.append(" . '").append(random.nextInt()).append("';\n\t\t}\n"); //$NON-NLS-1$ //$NON-NLS-2$
+				builder.append("\t\tif (count($result) > ").append(random.nextInt(10)).append(")\n\t\t{\n"); //$NON-NLS-1$ //$NON-NLS-2$
+				builder.append("\t\t\treturn new ").append(className).append("();\n\t\t}\n"); //$NON-NLS-1$ //$NON-NLS-2$
+				builder.append("\t\treturn $this;\n\t}\n"); //$NON-NLS-1$
+			}
+			builder.append("}\n\n"); //$NON-NLS-1$
+			String functionName = name("synthetic_function", seed, c); //$NON-NLS-1$
+			builder.append("/**\n * @return ").append(className).append("\n */\n"); //$NON-NLS-1$ //$NON-NLS-2$
+			builder.append("function ").append(functionName).append("($value)\n{\n"); //$NON-NLS-1$ //$NON-NLS-2$
+			builder.append("\t$object = new ").append(className).append("();\n"); //$NON-NLS-1$ //$NON-NLS-2$
+			if (methods > 0)
+			{
+				builder.append("\t$object->").append(name("method", c, random.nextInt(methods))).append("($value, ") //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+						.append(random.nextInt(5)).append(");\n"); //$NON-NLS-1$
+			}
+			builder.append("\treturn $object;\n}\n\n"); //$NON-NLS-1$
+		}
+		builder.append("$global_").append(seed).append(" = ").append(name("synthetic_function", seed, 0)) //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				.append("('x');\n"); //$NON-NLS-1$
+		builder.append("?>\n"); //$NON-NLS-1$
+		return builder.toString();
+	}
+
+	/**
+	 * Writes a synthetic source tree into the given directory.
+	 * 
+	 * @param directory
+	 *            - the target directory.
+	 * @param files
+	 *            - the number of files.
+	 * @param classesPerFile
+	 * @param methodsPerClass
+	 * @throws IOException
+	 */
+	public static void writeSyntheticTree(File directory, int files, int classesPerFile, int methodsPerClass)
+			throws IOException
+	{
+		for (int i = 0; i < files; i++)
+		{
+			// a few sub directories, so the tree is not flat
+			File parent = new File(directory, "dir" + (i % 8)); //$NON-NLS-1$
+			parent.mkdirs();
+			Writer writer = new OutputStreamWriter(new FileOutputStream(new File(parent, "file" + i + ".php")), //$NON-NLS-1$ //$NON-NLS-2$
+					"UTF-8"); //$NON-NLS-1$
+			try
+			{
+				writer.write(synthetic(classesPerFile, methodsPerClass, i));
+			}
+			finally
+			{
+				writer.close();
+			}
+		}
+	}
+
+	/**
+	 * Creates an empty temporary directory.
+	 * 
+	 * @param prefix
+	 * @return The directory.
+	 * @throws IOException
+	 */
+	public static File createTempDirectory(String prefix) throws IOException
+	{
+		File file = File.createTempFile(prefix, ""); //$NON-NLS-1$
+		if (!file.delete() || !file.mkdirs())
+		{
+			throw new IOException("Unable to create a temporary directory " + file); //$NON-NLS-1$
+		}
+		return file;
+	}
+
+	/**
+	 * Deletes the given file or directory tree.
+	 * 
+	 * @param file
+	 */
+	public static void delete(File file)
+	{
+		File[] children = file.listFiles();
+		if (children != null)
+		{
+			for (File child : children)
+			{
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+
+	private static String name(String prefix, long seed, int index)
+	{
+		return prefix + '_' + seed + '_' + index;
+	}
+
+	private static String read(InputStream stream) throws IOException
+	{
+		Reader reader = new InputStreamReader(stream, "UTF-8"); //$NON-NLS-1$
+		try
+		{
+			StringBuilder builder = new StringBuilder();
+			char[] buffer = new char[8192];
+			int read;
+			while ((read = reader.read(buffer)) != -1)
+			{
+				builder.append(buffer, 0, read);
+			}
+			return builder.toString();
+		}
+		finally
+		{
+			reader.close();
+		}
+	}
+
+	private Corpus()
+	{
+	}
+}
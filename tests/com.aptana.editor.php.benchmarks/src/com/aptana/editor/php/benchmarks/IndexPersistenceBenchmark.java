@@ -0,0 +1,118 @@
+package com.aptana.editor.php.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+
+import com.aptana.editor.php.indexer.IElementEntry;
+import com.aptana.editor.php.indexer.IIndexReporter;
+import com.aptana.editor.php.indexer.IReportable;
+import com.aptana.editor.php.internal.builder.FileSystemBuildPath;
+import com.aptana.editor.php.internal.core.builder.IModule;
+import com.aptana.editor.php.internal.indexer.IndexPersistence;
+import com.aptana.editor.php.internal.indexer.PDTPHPModuleIndexer;
+import com.aptana.editor.php.internal.indexer.PHPDocumentationStore;
+import com.aptana.editor.php.internal.indexer.UnpackedElementIndex;
+
+/**
+ * Measures {@link IndexPersistence} loading and storing of an index that was built from a synthetic source tree. The
+ * index is stored in memory, so the benchmark measures the serialization rather than the disk.
+ */
+public class IndexPersistenceBenchmark extends Benchmark
+{
+	/**
+	 * Benchmark modes.
+	 */
+	public static enum Mode
+	{
+		LOAD, STORE
+	}
+
+	private final int files;
+	private final Mode mode;
+	private File root;
+	private FileSystemBuildPath buildPath;
+	private UnpackedElementIndex index;
+	private byte[] stored;
+
+	/**
+	 * Constructs a new persistence benchmark.
+	 * 
+	 * @param files
+	 *            - the number of synthetic files the index is built from.
+	 * @param mode
+	 */
+	public IndexPersistenceBenchmark(int files, Mode mode)
+	{
+		super("indexPersistence"); //$NON-NLS-1$
+		this.files = files;
+		this.mode = mode;
+		addParameter("mode", mode.name().toLowerCase()); //$NON-NLS-1$
+		addParameter("files", files); //$NON-NLS-1$
+	}
+
+	@Override
+	public void setUp() throws Exception
+	{
+		root = Corpus.createTempDirectory("php-persistence-benchmark"); //$NON-NLS-1$
+		Corpus.writeSyntheticTree(root, files, 5, 8);
+		buildPath = new FileSystemBuildPath(root);
+		index = new UnpackedElementIndex();
+		PDTPHPModuleIndexer indexer = new PDTPHPModuleIndexer();
+		for (IModule module : buildPath.getModules())
+		{
+			indexer.indexModule(module, new IIndexReporter()
+			{
+				public IElementEntry reportEntry(int category, String entryPath, IReportable value, IModule module)
+				{
+					return index.addEntry(category, entryPath, value, module);
+				}
+			});
+			index.recordTimeStamp(module, module.getTimeStamp());
+			PHPDocumentationStore.getInstance().removeModule(module);
+		}
+		stored = store();
+	}
+
+	@Override
+	public Object run() throws Exception
+	{
+		if (mode == Mode.STORE)
+		{
+			return store().length;
+		}
+		UnpackedElementIndex loaded = new UnpackedElementIndex();
+		IndexPersistence.load(loaded, new DataInputStream(new ByteArrayInputStream(stored)), buildPath);
+		return loaded.size();
+	}
+
+	private byte[] store() throws Exception
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(stored == null ? 1 << 20 : stored.length);
+		DataOutputStream stream = new DataOutputStream(bytes);
+		IndexPersistence.store(index, stream, buildPath);
+		stream.flush();
+		return bytes.toByteArray();
+	}
+
+	@Override
+	public long getOperationsPerInvocation()
+	{
+		return index.size();
+	}
+
+	@Override
+	public String getOperationUnit()
+	{
+		return "entry"; //$NON-NLS-1$
+	}
+
+	@Override
+	public void tearDown() throws Exception
+	{
+		buildPath.close();
+		Corpus.delete(root);
+	}
+}
@@ -0,0 +1,196 @@
+package com.aptana.editor.php.benchmarks;
+
+import java.io.File;
+import java.util.Random;
+
+import com.aptana.editor.php.indexer.IPHPIndexConstants;
+import com.aptana.editor.php.internal.builder.FileSystemBuildPath;
+import com.aptana.editor.php.internal.builder.FileSystemModule;
+import com.aptana.editor.php.internal.core.builder.IModule;
+import com.aptana.editor.php.internal.indexer.ClassPHPEntryValue;
+import com.aptana.editor.php.internal.indexer.FunctionPHPEntryValue;
+import com.aptana.editor.php.internal.indexer.UnpackedElementIndex;
+import com.aptana.editor.php.internal.indexer.VariablePHPEntryValue;
+
+/**
+ * Measures {@link UnpackedElementIndex#getEntries(int, String)},
+ * {@link UnpackedElementIndex#getEntriesStartingWith(int, String)} and
+ * {@link UnpackedElementIndex#getEntriesMatching(int, String, int)} on an index of a given size.<br>
+ * The index is filled with generated names, so the prefix queries return a realistic spread of results (a few
+ * entries up to thousands).
+ */
+public class IndexQueryBenchmark extends Benchmark
+{
+	/**
+	 * Benchmark modes.
+	 */
+	public static enum Mode
+	{
+		EXACT, PREFIX, FUZZY
+	}
+
+	private static final String[] SYLLABLES = { "get", "set", "is", "has", "to", "from", "array", "string", "file", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$ //$NON-NLS-8$ //$NON-NLS-9$
+			"user", "db", "query", "cache", "model", "view", "node", "item", "list", "map", "http", "url", "date", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$ //$NON-NLS-8$ //$NON-NLS-9$ //$NON-NLS-10$ //$NON-NLS-11$ //$NON-NLS-12$ //$NON-NLS-13$
+			"time", "config", "session", "request", "response", "form", "field", "value", "key" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$ //$NON-NLS-8$ //$NON-NLS-9$
+
+	private static final int QUERIES = 256;
+	private static final int ENTRIES_PER_MODULE = 100;
+	private static final int FUZZY_LIMIT = 50;
+
+	private final int size;
+	private final Mode mode;
+	private File root;
+	private FileSystemBuildPath buildPath;
+	private UnpackedElementIndex index;
+	private int[] queryCategories;
+	private String[] queries;
+
+	/**
+	 * Constructs a new index query benchmark.
+	 * 
+	 * @param size
+	 *            - the number of entries in the index.
+	 * @param mode
+	 */
+	public IndexQueryBenchmark(int size, Mode mode)
+	{
+		super("indexQuery"); //$NON-NLS-1$
+		this.size = size;
+		this.mode = mode;
+		addParameter("mode", mode.name().toLowerCase()); //$NON-NLS-1$
+		addParameter("entries", size); //$NON-NLS-1$
+	}
+
+	@Override
+	public void setUp() throws Exception
+	{
+		root = Corpus.createTempDirectory("php-query-benchmark"); //$NON-NLS-1$
+		buildPath = new FileSystemBuildPath(root);
+		index = new UnpackedElementIndex();
+		Random random = new Random(size);
+		IModule module = null;
+		String[] names = new String[size];
+		int[] categories = new int[size];
+		for (int i = 0; i < size; i++)
+		{
+			if (i % ENTRIES_PER_MODULE == 0)
+			{
+				module = new FileSystemModule(new File(root, "module" + i + ".php"), buildPath); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			String name = name(random, i);
+			int kind = random.nextInt(10);
+			if (kind == 0)
+			{
+				categories[i] = IPHPIndexConstants.CLASS_CATEGORY;
+				index.addEntry(categories[i], name, new ClassPHPEntryValue(0, null), module);
+			}
+			else if (kind < 7)
+			{
+				categories[i] = IPHPIndexConstants.FUNCTION_CATEGORY;
+				index.addEntry(categories[i], name, new FunctionPHPEntryValue(0, false, 0, null), module);
+			}
+			else
+			{
+				categories[i] = IPHPIndexConstants.VAR_CATEGORY;
+				index.addEntry(categories[i], name, new VariablePHPEntryValue(0, false, false, false, (Object) null,
+						0, null), module);
+			}
+			names[i] = name;
+		}
+		queries = new String[QUERIES];
+		queryCategories = new int[QUERIES];
+		for (int q = 0; q < QUERIES; q++)
+		{
+			int i = random.nextInt(size);
+			queryCategories[q] = categories[i];
+			if (mode == Mode.EXACT)
+			{
+				queries[q] = names[i];
+			}
+			else if (mode == Mode.PREFIX)
+			{
+				queries[q] = names[i].substring(0, Math.min(names[i].length(), 2 + random.nextInt(3)));
+			}
+			else
+			{
+				queries[q] = humps(names[i]);
+			}
+		}
+	}
+
+	/**
+	 * Returns the camel humps of a generated name (getUserCache12 -> gUC), or its first and third characters for a
+	 * single word name.
+	 */
+	private static String humps(String name)
+	{
+		StringBuilder builder = new StringBuilder();
+		builder.append(name.charAt(0));
+		for (int i = 1; i < name.length(); i++)
+		{
+			if (Character.isUpperCase(name.charAt(i)))
+			{
+				builder.append(name.charAt(i));
+			}
+		}
+		if (builder.length() < 2)
+		{
+			builder.append(name.charAt(2));
+		}
+		return builder.toString();
+	}
+
+	private static String name(Random random, int i)
+	{
+		StringBuilder builder = new StringBuilder();
+		int parts = 1 + random.nextInt(3);
+		for (int p = 0; p < parts; p++)
+		{
+			String syllable = SYLLABLES[random.nextInt(SYLLABLES.length)];
+			builder.append(p == 0 ? syllable : Character.toUpperCase(syllable.charAt(0)) + syllable.substring(1));
+		}
+		return builder.append(i).toString();
+	}
+
+	@Override
+	public Object run() throws Exception
+	{
+		int results = 0;
+		for (int q = 0; q < QUERIES; q++)
+		{
+			if (mode == Mode.EXACT)
+			{
+				results += index.getEntries(queryCategories[q], queries[q]).size();
+			}
+			else if (mode == Mode.PREFIX)
+			{
+				results += index.getEntriesStartingWith(queryCategories[q], queries[q]).size();
+			}
+			else
+			{
+				results += index.getEntriesMatching(queryCategories[q], queries[q], FUZZY_LIMIT).size();
+			}
+		}
+		return results;
+	}
+
+	@Override
+	public long getOperationsPerInvocation()
+	{
+		return QUERIES;
+	}
+
+	@Override
+	public String getOperationUnit()
+	{
+		return "query"; //$NON-NLS-1$
+	}
+
+	@Override
+	public void tearDown() throws Exception
+	{
+		index = null;
+		buildPath.close();
+		Corpus.delete(root);
+	}
+}
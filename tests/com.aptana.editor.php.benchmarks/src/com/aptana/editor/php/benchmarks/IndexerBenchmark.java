@@ -0,0 +1,95 @@
+package com.aptana.editor.php.benchmarks;
+
+import java.io.File;
+import java.util.List;
+
+import com.aptana.editor.php.indexer.IElementEntry;
+import com.aptana.editor.php.indexer.IIndexReporter;
+import com.aptana.editor.php.indexer.IReportable;
+import com.aptana.editor.php.internal.builder.FileSystemBuildPath;
+import com.aptana.editor.php.internal.core.builder.IModule;
+import com.aptana.editor.php.internal.indexer.PDTPHPModuleIndexer;
+import com.aptana.editor.php.internal.indexer.PHPDocumentationStore;
+
+/**
+ * Measures {@link PDTPHPModuleIndexer#indexModule(IModule, IIndexReporter)} over a synthetic source tree.
+ */
+public class IndexerBenchmark extends Benchmark
+{
+	private final int files;
+	private File root;
+	private FileSystemBuildPath buildPath;
+	private List<IModule> modules;
+	private PDTPHPModuleIndexer indexer;
+
+	/**
+	 * Counts the reported entries.
+	 */
+	private static class CountingReporter implements IIndexReporter
+	{
+		int count;
+
+		public IElementEntry reportEntry(int category, String entryPath, IReportable value, IModule module)
+		{
+			count++;
+			return null;
+		}
+	}
+
+	/**
+	 * Constructs a new indexer benchmark.
+	 * 
+	 * @param files
+	 *            - the number of synthetic files to index.
+	 */
+	public IndexerBenchmark(int files)
+	{
+		super("indexer"); //$NON-NLS-1$
+		this.files = files;
+		addParameter("files", files); //$NON-NLS-1$
+	}
+
+	@Override
+	public void setUp() throws Exception
+	{
+		root = Corpus.createTempDirectory("php-indexer-benchmark"); //$NON-NLS-1$
+		Corpus.writeSyntheticTree(root, files, 5, 8);
+		buildPath = new FileSystemBuildPath(root);
+		modules = buildPath.getModules();
+		indexer = new PDTPHPModuleIndexer();
+	}
+
+	@Override
+	public Object run() throws Exception
+	{
+		CountingReporter reporter = new CountingReporter();
+		for (IModule module : modules)
+		{
+			indexer.indexModule(module, reporter);
+		}
+		return reporter.count;
+	}
+
+	@Override
+	public long getOperationsPerInvocation()
+	{
+		return modules.size();
+	}
+
+	@Override
+	public String getOperationUnit()
+	{
+		return "module"; //$NON-NLS-1$
+	}
+
+	@Override
+	public void tearDown() throws Exception
+	{
+		for (IModule module : modules)
+		{
+			PHPDocumentationStore.getInstance().removeModule(module);
+		}
+		buildPath.close();
+		Corpus.delete(root);
+	}
+}
@@ -0,0 +1,91 @@
+package com.aptana.editor.php.benchmarks;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import java_cup.runtime.Symbol;
+
+import org.eclipse.php.internal.core.PHPVersion;
+import org.eclipse.php.internal.core.ast.scanner.AstLexer;
+
+import com.aptana.editor.php.core.ast.ASTFactory;
+
+/**
+ * Measures the AST lexer token throughput.
+ */
+public class LexerBenchmark extends Benchmark
+{
+	private final PHPVersion version;
+	private final List<String> sources;
+	private long tokens;
+
+	/**
+	 * Constructs a new lexer benchmark.
+	 * 
+	 * @param version
+	 *            - the lexer PHP version.
+	 * @param corpusName
+	 * @param sources
+	 */
+	public LexerBenchmark(PHPVersion version, String corpusName, List<String> sources)
+	{
+		super("lexer"); //$NON-NLS-1$
+		this.version = version;
+		this.sources = sources;
+		addParameter("version", version.getAlias()); //$NON-NLS-1$
+		addParameter("corpus", corpusName); //$NON-NLS-1$
+	}
+
+	@Override
+	public void setUp() throws Exception
+	{
+		tokens = 0;
+		for (String source : sources)
+		{
+			tokens += scan(source);
+		}
+	}
+
+	@Override
+	public Object run() throws Exception
+	{
+		long count = 0;
+		for (String source : sources)
+		{
+			count += scan(source);
+		}
+		return count;
+	}
+
+	private int scan(String source) throws IOException
+	{
+		AstLexer lexer = ASTFactory.getAstLexer(version, new StringReader(source));
+		int count = 0;
+		try
+		{
+			Symbol symbol;
+			while ((symbol = lexer.next_token()) != null && symbol.sym != 0)
+			{
+				count++;
+			}
+		}
+		catch (Exception e)
+		{
+			throw new IOException(e.getMessage(), e);
+		}
+		return count;
+	}
+
+	@Override
+	public long getOperationsPerInvocation()
+	{
+		return tokens;
+	}
+
+	@Override
+	public String getOperationUnit()
+	{
+		return "token"; //$NON-NLS-1$
+	}
+}
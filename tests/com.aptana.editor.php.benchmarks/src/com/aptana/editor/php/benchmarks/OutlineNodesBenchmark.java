@@ -0,0 +1,152 @@
+package com.aptana.editor.php.benchmarks;
+
+import java.io.StringReader;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.eclipse.php.internal.core.PHPVersion;
+import org.eclipse.php.internal.core.ast.nodes.ASTParser;
+import org.eclipse.php.internal.core.ast.nodes.Program;
+
+import com.aptana.editor.php.internal.parser.nodes.NodeBuilder;
+import com.aptana.editor.php.internal.parser.nodes.NodeBuildingVisitor;
+import com.aptana.editor.php.internal.ui.editor.outline.PHPOutlineItem;
+import com.aptana.parsing.ast.IParseNode;
+
+/**
+ * Measures the outline nodes building for an edited class with many methods, and the outline refresh that follows
+ * it: matching the items of the new nodes with the items of the previous nodes, as the outline viewer does.
+ */
+public class OutlineNodesBenchmark extends Benchmark
+{
+	/**
+	 * The measured pass.
+	 */
+	public static enum Mode
+	{
+		/**
+		 * Build the nodes of the edited source.
+		 */
+		BUILD,
+		/**
+		 * Build the nodes of the edited source, and match their items with the items of the original source.
+		 */
+		REFRESH
+	}
+
+	private final int methods;
+	private final Mode mode;
+	private String editedSource;
+	private Program editedProgram;
+	private Set<PHPOutlineItem> previousItems;
+
+	/**
+	 * Constructs a new outline nodes benchmark.
+	 * 
+	 * @param methods
+	 *            - the number of methods in the class.
+	 * @param mode
+	 */
+	public OutlineNodesBenchmark(int methods, Mode mode)
+	{
+		super("outline-nodes"); //$NON-NLS-1$
+		this.methods = methods;
+		this.mode = mode;
+		addParameter("methods", methods); //$NON-NLS-1$
+		addParameter("mode", mode.name().toLowerCase()); //$NON-NLS-1$
+	}
+
+	@Override
+	public void setUp() throws Exception
+	{
+		// Add a line at the top (moves all the offsets) and a parameter to the middle method
+		editedSource = createSource(methods, methods / 2).replaceFirst("<\\?php\n", "<?php\n// edited\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		editedProgram = parse(editedSource);
+		previousItems = new HashSet<PHPOutlineItem>();
+		String source = createSource(methods, -1);
+		collectItems(buildNodes(parse(source), source), previousItems);
+	}
+
+	@Override
+	public Object run() throws Exception
+	{
+		IParseNode nodes = buildNodes(editedProgram, editedSource);
+		if (mode == Mode.BUILD)
+		{
+			return nodes.getChildCount();
+		}
+		Set<PHPOutlineItem> items = new HashSet<PHPOutlineItem>();
+		collectItems(nodes, items);
+		int kept = 0;
+		for (PHPOutlineItem item : items)
+		{
+			if (previousItems.contains(item))
+			{
+				kept++;
+			}
+		}
+		return kept;
+	}
+
+	@Override
+	public void tearDown() throws Exception
+	{
+		previousItems = null;
+	}
+
+	@Override
+	public long getOperationsPerInvocation()
+	{
+		return methods;
+	}
+
+	@Override
+	public String getOperationUnit()
+	{
+		return "method"; //$NON-NLS-1$
+	}
+
+	private static IParseNode buildNodes(Program program, String source)
+	{
+		NodeBuilder builder = new NodeBuilder();
+		program.accept(new NodeBuildingVisitor(builder, source));
+		return builder.populateNodes();
+	}
+
+	/*
+	 * Creates the outline items of the given node descendants.
+	 */
+	private static void collectItems(IParseNode node, Set<PHPOutlineItem> items)
+	{
+		for (IParseNode child : node.getChildren())
+		{
+			items.add(new PHPOutlineItem(child.getNameNode().getNameRange(), child));
+			collectItems(child, items);
+		}
+	}
+
+	private static Program parse(String source) throws Exception
+	{
+		return ASTParser.newParser(new StringReader(source), PHPVersion.PHP5_3).createAST(null);
+	}
+
+	/*
+	 * Creates a class with the given number of methods. The method at the given index gets an extra parameter.
+	 */
+	private static String createSource(int methods, int editedMethod)
+	{
+		StringBuilder builder = new StringBuilder("<?php\nclass BigClass\n{\n"); //$NON-NLS-1$
+		for (int i = 0; i < methods; i++)
+		{
+			builder.append("\t/**\n\t * Method ").append(i).append(".\n\t */\n"); //$NON-NLS-1$ //$NON-NLS-2$
+			builder.append("\tpublic function method").append(i).append("($a, $b"); //$NON-NLS-1$ //$NON-NLS-2$
+			if (i == editedMethod)
+			{
+				builder.append(", $c = null"); //$NON-NLS-1$
+			}
+			builder.append(")\n\t{\n\t\treturn $a + $b + ").append(i).append(";\n\t}\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		builder.append("}\n"); //$NON-NLS-1$
+		return builder.toString();
+	}
+}
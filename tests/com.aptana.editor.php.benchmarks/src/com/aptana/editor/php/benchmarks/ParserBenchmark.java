@@ -0,0 +1,73 @@
+package com.aptana.editor.php.benchmarks;
+
+import java.io.StringReader;
+import java.util.List;
+
+import org.eclipse.php.internal.core.PHPVersion;
+import org.eclipse.php.internal.core.ast.nodes.ASTParser;
+import org.eclipse.php.internal.core.ast.nodes.Program;
+
+/**
+ * Measures {@link ASTParser#createAST(org.eclipse.core.runtime.IProgressMonitor)}.
+ */
+public class ParserBenchmark extends Benchmark
+{
+	private final PHPVersion version;
+	private final List<String> sources;
+	private long characters;
+
+	/**
+	 * Constructs a new parser benchmark.
+	 * 
+	 * @param version
+	 *            - the parser PHP version.
+	 * @param corpusName
+	 * @param sources
+	 */
+	public ParserBenchmark(PHPVersion version, String corpusName, List<String> sources)
+	{
+		super("parser"); //$NON-NLS-1$
+		this.version = version;
+		this.sources = sources;
+		addParameter("version", version.getAlias()); //$NON-NLS-1$
+		addParameter("corpus", corpusName); //$NON-NLS-1$
+	}
+
+	@Override
+	public void setUp() throws Exception
+	{
+		characters = 0;
+		for (String source : sources)
+		{
+			characters += source.length();
+		}
+	}
+
+	@Override
+	public Object run() throws Exception
+	{
+		int statements = 0;
+		for (String source : sources)
+		{
+			ASTParser parser = ASTParser.newParser(new StringReader(source), version);
+			Program program = parser.createAST(null);
+			if (program != null)
+			{
+				statements += program.statements().size();
+			}
+		}
+		return statements;
+	}
+
+	@Override
+	public long getOperationsPerInvocation()
+	{
+		return characters;
+	}
+
+	@Override
+	public String getOperationUnit()
+	{
+		return "char"; //$NON-NLS-1$
+	}
+}
@@ -0,0 +1,148 @@
+package com.aptana.editor.php.benchmarks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Writes benchmark results as JSON, so they can be collected and compared between builds.<br>
+ * The output is an object with the run properties (time, Java version, iterations) and a <code>results</code> array
+ * with an object for every benchmark.
+ */
+public class ResultsWriter
+{
+	private final Map<String, String> properties;
+
+	/**
+	 * Constructs a new results writer.
+	 * 
+	 * @param properties
+	 *            - the run properties.
+	 */
+	public ResultsWriter(Map<String, String> properties)
+	{
+		this.properties = properties;
+	}
+
+	/**
+	 * Writes the results into the given file.
+	 * 
+	 * @param results
+	 * @param file
+	 * @throws IOException
+	 */
+	public void write(List<BenchmarkResult> results, File file) throws IOException
+	{
+		Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8"); //$NON-NLS-1$
+		try
+		{
+			write(results, writer);
+		}
+		finally
+		{
+			writer.close();
+		}
+	}
+
+	/**
+	 * Writes the results into the given writer.
+	 * 
+	 * @param results
+	 * @param writer
+	 * @throws IOException
+	 */
+	public void write(List<BenchmarkResult> results, Writer writer) throws IOException
+	{
+		writer.write("{\n"); //$NON-NLS-1$
+		for (Map.Entry<String, String> property : properties.entrySet())
+		{
+			writer.write("  " + quote(property.getKey()) + ": " + quote(property.getValue()) + ",\n"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+		writer.write("  \"results\": [\n"); //$NON-NLS-1$
+		for (int i = 0; i < results.size(); i++)
+		{
+			BenchmarkResult result = results.get(i);
+			writer.write("    {\n"); //$NON-NLS-1$
+			writer.write("      \"id\": " + quote(result.getId()) + ",\n"); //$NON-NLS-1$ //$NON-NLS-2$
+			writer.write("      \"name\": " + quote(result.getName()) + ",\n"); //$NON-NLS-1$ //$NON-NLS-2$
+			writer.write("      \"parameters\": {"); //$NON-NLS-1$
+			boolean first = true;
+			for (Map.Entry<String, String> parameter : result.getParameters().entrySet())
+			{
+				writer.write((first ? "" : ", ") + quote(parameter.getKey()) + ": " + quote(parameter.getValue())); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				first = false;
+			}
+			writer.write("},\n"); //$NON-NLS-1$
+			if (result.getError() != null)
+			{
+				writer.write("      \"error\": " + quote(result.getError()) + "\n"); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			else
+			{
+				writer.write("      \"unit\": " + quote(result.getOperationUnit()) + ",\n"); //$NON-NLS-1$ //$NON-NLS-2$
+				writer.write("      \"operationsPerInvocation\": " + result.getOperationsPerInvocation() + ",\n"); //$NON-NLS-1$ //$NON-NLS-2$
+				writer.write("      \"invocations\": " + result.getInvocations() + ",\n"); //$NON-NLS-1$ //$NON-NLS-2$
+				writer.write("      \"meanNanos\": " + format(result.getMeanNanos()) + ",\n"); //$NON-NLS-1$ //$NON-NLS-2$
+				writer.write("      \"stdDevNanos\": " + format(result.getStandardDeviationNanos()) + ",\n"); //$NON-NLS-1$ //$NON-NLS-2$
+				writer.write("      \"operationsPerSecond\": " + format(result.getOperationsPerSecond()) + ",\n"); //$NON-NLS-1$ //$NON-NLS-2$
+				writer.write("      \"iterationNanos\": ["); //$NON-NLS-1$
+				double[] nanos = result.getIterationNanos();
+				for (int n = 0; n < nanos.length; n++)
+				{
+					writer.write((n == 0 ? "" : ", ") + format(nanos[n])); //$NON-NLS-1$ //$NON-NLS-2$
+				}
+				writer.write("]\n"); //$NON-NLS-1$
+			}
+			writer.write(i < results.size() - 1 ? "    },\n" : "    }\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		writer.write("  ]\n}\n"); //$NON-NLS-1$
+	}
+
+	private static String format(double value)
+	{
+		return String.format(Locale.US, "%.3f", value); //$NON-NLS-1$
+	}
+
+	private static String quote(String value)
+	{
+		StringBuilder builder = new StringBuilder(value.length() + 2);
+		builder.append('"');
+		for (int i = 0; i < value.length(); i++)
+		{
+			char c = value.charAt(i);
+			switch (c)
+			{
+				case '"':
+					builder.append("\\\""); //$NON-NLS-1$
+					break;
+				case '\\':
+					builder.append("\\\\"); //$NON-NLS-1$
+					break;
+				case '\n':
+					builder.append("\\n"); //$NON-NLS-1$
+					break;
+				case '\r':
+					builder.append("\\r"); //$NON-NLS-1$
+					break;
+				case '\t':
+					builder.append("\\t"); //$NON-NLS-1$
+					break;
+				default:
+					if (c < 0x20)
+					{
+						builder.append(String.format("\\u%04x", (int) c)); //$NON-NLS-1$
+					}
+					else
+					{
+						builder.append(c);
+					}
+			}
+		}
+		return builder.append('"').toString();
+	}
+}
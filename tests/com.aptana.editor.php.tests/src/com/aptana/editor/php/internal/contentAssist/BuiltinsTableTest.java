@@ -0,0 +1,101 @@
+package com.aptana.editor.php.internal.contentAssist;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import com.aptana.editor.php.internal.parser.nodes.IPHPParseNode;
+import com.aptana.editor.php.internal.parser.nodes.PHPBaseParseNode;
+
+public class BuiltinsTableTest extends TestCase
+{
+	private IPHPParseNode strlen;
+	private IPHPParseNode strpos;
+	private IPHPParseNode strPad;
+	private IPHPParseNode substr;
+	private IPHPParseNode abs;
+	private IPHPParseNode exception;
+	private IPHPParseNode exceptionConstant;
+	private BuiltinsTable table;
+
+	@Override
+	protected void setUp() throws Exception
+	{
+		super.setUp();
+		strlen = node("strlen"); //$NON-NLS-1$
+		strpos = node("strpos"); //$NON-NLS-1$
+		strPad = node("STR_PAD"); //$NON-NLS-1$
+		substr = node("substr"); //$NON-NLS-1$
+		abs = node("abs"); //$NON-NLS-1$
+		exception = node("Exception"); //$NON-NLS-1$
+		exceptionConstant = node("EXCEPTION"); //$NON-NLS-1$
+		List<Object> builtins = new ArrayList<Object>(Arrays.asList(strpos, substr, "not a node", strlen, exception, //$NON-NLS-1$
+				abs, strPad, exceptionConstant));
+		table = new BuiltinsTable(builtins);
+	}
+
+	public void testSize()
+	{
+		// the elements that are not parse nodes are skipped
+		assertEquals(7, table.size());
+		assertEquals(0, new BuiltinsTable(new ArrayList<Object>()).size());
+	}
+
+	public void testSelectStartingWith()
+	{
+		assertSelected(startingWith("str"), strPad, strlen, strpos); //$NON-NLS-1$
+		assertSelected(startingWith("strl"), strlen); //$NON-NLS-1$
+		assertSelected(startingWith("a"), abs); //$NON-NLS-1$
+		assertSelected(startingWith("x")); //$NON-NLS-1$
+		assertSelected(startingWith("strlenx")); //$NON-NLS-1$
+	}
+
+	public void testSelectStartingWithEmptyPrefix()
+	{
+		assertSelected(startingWith(""), abs, exception, exceptionConstant, strPad, strlen, strpos, substr); //$NON-NLS-1$
+	}
+
+	public void testSelectEquals()
+	{
+		assertSelected(equalTo("strlen"), strlen); //$NON-NLS-1$
+		assertSelected(equalTo("str_pad"), strPad); //$NON-NLS-1$
+		assertSelected(equalTo("str")); //$NON-NLS-1$
+		assertSelected(equalTo("zzz")); //$NON-NLS-1$
+	}
+
+	public void testSameNameKeepsBuiltinsOrder()
+	{
+		assertSelected(equalTo("exception"), exception, exceptionConstant); //$NON-NLS-1$
+		assertSelected(startingWith("exc"), exception, exceptionConstant); //$NON-NLS-1$
+	}
+
+	private List<Object> startingWith(String lowerCasePrefix)
+	{
+		List<Object> result = new ArrayList<Object>();
+		table.selectStartingWith(lowerCasePrefix, result);
+		return result;
+	}
+
+	private List<Object> equalTo(String lowerCaseName)
+	{
+		List<Object> result = new ArrayList<Object>();
+		table.selectEquals(lowerCaseName, result);
+		return result;
+	}
+
+	private static IPHPParseNode node(String name)
+	{
+		return new PHPBaseParseNode(IPHPParseNode.FUNCTION_NODE, 0, 0, 0, name);
+	}
+
+	private static void assertSelected(List<Object> actual, Object... expected)
+	{
+		assertEquals(expected.length, actual.size());
+		for (int i = 0; i < expected.length; i++)
+		{
+			assertSame("Item " + i, expected[i], actual.get(i)); //$NON-NLS-1$
+		}
+	}
+}
@@ -0,0 +1,120 @@
+package com.aptana.editor.php.internal.contentAssist;
+
+import junit.framework.TestCase;
+
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.contentassist.ICompletionProposal;
+
+public class CompletionSessionTest extends TestCase
+{
+	private static final String SOURCE = "<?php st"; //$NON-NLS-1$
+	private static final int PREFIX_START = 6;
+
+	private IDocument document;
+	private CompletionSession session;
+
+	@Override
+	protected void setUp() throws Exception
+	{
+		super.setUp();
+		document = new Document(SOURCE);
+		session = new CompletionSession(document, SOURCE.length(), new PHPCompletionProposal[] {
+				createProposal("strlen"), createProposal("strpos"), createProposal("stat") }); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+
+	@Override
+	protected void tearDown() throws Exception
+	{
+		session.dispose();
+		super.tearDown();
+	}
+
+	public void testNarrowAtStartOffset()
+	{
+		assertProposals(session.narrow(document, SOURCE.length()), "strlen", "strpos", "stat"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+
+	public void testNarrowWhileTyping() throws BadLocationException
+	{
+		type("r"); //$NON-NLS-1$
+		assertProposals(session.narrow(document, document.getLength()), "strlen", "strpos"); //$NON-NLS-1$ //$NON-NLS-2$
+		type("l"); //$NON-NLS-1$
+		ICompletionProposal[] proposals = session.narrow(document, document.getLength());
+		assertProposals(proposals, "strlen"); //$NON-NLS-1$
+		// the replacement covers the whole typed prefix
+		assertEquals(4, ((PHPCompletionProposal) proposals[0]).getReplacementLength());
+		assertTrue(session.isActive());
+	}
+
+	public void testNarrowAfterDeletingBack() throws BadLocationException
+	{
+		type("rl"); //$NON-NLS-1$
+		assertProposals(session.narrow(document, document.getLength()), "strlen"); //$NON-NLS-1$
+		document.replace(document.getLength() - 1, 1, ""); //$NON-NLS-1$
+		assertProposals(session.narrow(document, document.getLength()), "strlen", "strpos"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	public void testEndsOnNonIdentifierText() throws BadLocationException
+	{
+		type("("); //$NON-NLS-1$
+		assertFalse(session.isActive());
+		assertNull(session.narrow(document, document.getLength()));
+	}
+
+	public void testEndsOnChangeElsewhere() throws BadLocationException
+	{
+		document.replace(0, 0, " "); //$NON-NLS-1$
+		assertFalse(session.isActive());
+		assertNull(session.narrow(document, document.getLength()));
+	}
+
+	public void testEndsOnDeletingBeyondThePrefix() throws BadLocationException
+	{
+		document.replace(SOURCE.length() - 1, 1, ""); //$NON-NLS-1$
+		assertFalse(session.isActive());
+	}
+
+	public void testDoesNotAnswerOtherOffsetsOrDocuments()
+	{
+		assertNull(session.narrow(document, SOURCE.length() - 1));
+		assertNull(session.narrow(new Document(SOURCE), SOURCE.length()));
+		assertTrue(session.isActive());
+	}
+
+	public void testDispose() throws BadLocationException
+	{
+		session.dispose();
+		assertFalse(session.isActive());
+		assertNull(session.narrow(document, SOURCE.length()));
+		// the session does not track the document anymore
+		type("r"); //$NON-NLS-1$
+		assertNull(session.narrow(document, document.getLength()));
+	}
+
+	private void type(String text) throws BadLocationException
+	{
+		for (int i = 0; i < text.length(); i++)
+		{
+			document.replace(document.getLength(), 0, text.substring(i, i + 1));
+		}
+	}
+
+	private static PHPCompletionProposal createProposal(String name)
+	{
+		int length = SOURCE.length() - PREFIX_START;
+		return new PHPCompletionProposal(name, PREFIX_START, length, name.length(), null, name, null, null, 0, null,
+				null);
+	}
+
+	private static void assertProposals(ICompletionProposal[] proposals, String... expected)
+	{
+		assertNotNull(proposals);
+		assertEquals(expected.length, proposals.length);
+		for (int i = 0; i < expected.length; i++)
+		{
+			assertEquals(expected[i], ((PHPCompletionProposal) proposals[i]).getReplacementString());
+		}
+	}
+}
@@ -0,0 +1,18 @@
+package com.aptana.editor.php.internal.contentAssist;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+public class ContentAssistTests
+{
+	public static Test suite()
+	{
+		TestSuite suite = new TestSuite(ContentAssistTests.class.getName());
+		// $JUnit-BEGIN$
+		suite.addTestSuite(BuiltinsTableTest.class);
+		suite.addTestSuite(CompletionSessionTest.class);
+		suite.addTestSuite(RankedItemsTest.class);
+		// $JUnit-END$
+		return suite;
+	}
+}
@@ -0,0 +1,113 @@
+package com.aptana.editor.php.internal.contentAssist;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import junit.framework.TestCase;
+
+import com.aptana.editor.php.indexer.IElementEntry;
+import com.aptana.editor.php.indexer.IPHPIndexConstants;
+import com.aptana.editor.php.internal.builder.FileSystemModule;
+import com.aptana.editor.php.internal.core.builder.IModule;
+import com.aptana.editor.php.internal.indexer.UnpackedEntry;
+import com.aptana.editor.php.internal.parser.nodes.IPHPParseNode;
+import com.aptana.editor.php.internal.parser.nodes.PHPBaseParseNode;
+
+public class RankedItemsTest extends TestCase
+{
+	private IModule localModule;
+	private IModule externalModule;
+
+	@Override
+	protected void setUp() throws Exception
+	{
+		super.setUp();
+		localModule = new FileSystemModule(new File("local.php"), null); //$NON-NLS-1$
+		externalModule = new FileSystemModule(new File("external.php"), null); //$NON-NLS-1$
+	}
+
+	public void testLocalsFirstInOriginalOrder()
+	{
+		Object localB = entry("b", localModule); //$NON-NLS-1$
+		Object external = entry("a", externalModule); //$NON-NLS-1$
+		Object localA = entry("a", localModule); //$NON-NLS-1$
+		assertOrder(new RankedItems(items(localB, external, localA), localModule), localB, localA, external);
+	}
+
+	public void testBuiltinsBeforeExternalsBeforeOthers()
+	{
+		Object other = "other"; //$NON-NLS-1$
+		Object external = entry("a", externalModule); //$NON-NLS-1$
+		Object builtin = node("z"); //$NON-NLS-1$
+		assertOrder(new RankedItems(items(other, external, builtin), localModule), builtin, external, other);
+	}
+
+	public void testSortedByName()
+	{
+		Object strpos = entry("strpos", externalModule); //$NON-NLS-1$
+		Object strlen = entry("strlen", externalModule); //$NON-NLS-1$
+		Object substr = node("Substr"); //$NON-NLS-1$
+		Object abs = node("abs"); //$NON-NLS-1$
+		// the built-in names are compared in lower case
+		assertOrder(new RankedItems(items(strpos, substr, strlen, abs), localModule), abs, substr, strlen, strpos);
+	}
+
+	public void testEqualItemsKeepTheirOrder()
+	{
+		Object first = entry("same", externalModule); //$NON-NLS-1$
+		Object second = entry("same", externalModule); //$NON-NLS-1$
+		Object third = "other"; //$NON-NLS-1$
+		Object fourth = "another"; //$NON-NLS-1$
+		assertOrder(new RankedItems(items(first, third, second, fourth), localModule), first, second, third, fourth);
+	}
+
+	public void testAllEntriesAreLocalWithoutModule()
+	{
+		Object b = entry("b", externalModule); //$NON-NLS-1$
+		Object a = entry("a", localModule); //$NON-NLS-1$
+		assertOrder(new RankedItems(items(b, a), null), b, a);
+	}
+
+	public void testEmpty()
+	{
+		RankedItems rankedItems = new RankedItems(new ArrayList<Object>(), localModule);
+		assertFalse(rankedItems.hasNext());
+		try
+		{
+			rankedItems.next();
+			fail("Expected a NoSuchElementException"); //$NON-NLS-1$
+		}
+		catch (NoSuchElementException e)
+		{
+			// expected
+		}
+	}
+
+	private static IElementEntry entry(String name, IModule module)
+	{
+		return new UnpackedEntry(IPHPIndexConstants.FUNCTION_CATEGORY, name, null, module);
+	}
+
+	private static IPHPParseNode node(String name)
+	{
+		return new PHPBaseParseNode(IPHPParseNode.FUNCTION_NODE, 0, 0, 0, name);
+	}
+
+	private static List<Object> items(Object... items)
+	{
+		return new ArrayList<Object>(Arrays.asList(items));
+	}
+
+	private static void assertOrder(RankedItems rankedItems, Object... expected)
+	{
+		for (int i = 0; i < expected.length; i++)
+		{
+			assertTrue("Missing item " + i, rankedItems.hasNext()); //$NON-NLS-1$
+			assertSame("Item " + i, expected[i], rankedItems.next()); //$NON-NLS-1$
+		}
+		assertFalse(rankedItems.hasNext());
+	}
+}
@@ -0,0 +1,66 @@
+package com.aptana.editor.php.internal.indexer;
+
+import junit.framework.TestCase;
+
+public class FuzzyMatcherTest extends TestCase
+{
+	public void testEmptyPatternMatchesAnything()
+	{
+		assertEquals(0, FuzzyMatcher.match("", "strlen")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	public void testNoMatch()
+	{
+		assertEquals(FuzzyMatcher.NO_MATCH, FuzzyMatcher.match("strlenx", "strlen")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(FuzzyMatcher.NO_MATCH, FuzzyMatcher.match("nelrts", "strlen")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(FuzzyMatcher.NO_MATCH, FuzzyMatcher.match("xyz", "getUserRepository")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	public void testSubsequenceIgnoresCase()
+	{
+		assertTrue(FuzzyMatcher.match("userrepo", "getUserRepository") > 0); //$NON-NLS-1$ //$NON-NLS-2$
+		assertTrue(FuzzyMatcher.match("gUR", "getUserRepository") > 0); //$NON-NLS-1$ //$NON-NLS-2$
+		assertTrue(FuzzyMatcher.match("GETUSER", "getUserRepository") > 0); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	public void testExactBeforePrefixBeforeSubsequence()
+	{
+		int exact = FuzzyMatcher.match("str", "STR"); //$NON-NLS-1$ //$NON-NLS-2$
+		int prefix = FuzzyMatcher.match("str", "strlen"); //$NON-NLS-1$ //$NON-NLS-2$
+		int subsequence = FuzzyMatcher.match("str", "substr"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertTrue(exact > prefix);
+		assertTrue(prefix > subsequence);
+		assertTrue(subsequence > 0);
+	}
+
+	public void testShorterPrefixMatchFirst()
+	{
+		assertTrue(FuzzyMatcher.match("str", "strlen") > FuzzyMatcher.match("str", "str_replace")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+	}
+
+	public void testWordStartsBeforeScatteredMatch()
+	{
+		// the same length names, one matched on its camel humps and one on scattered characters
+		int humps = FuzzyMatcher.match("gur", "getUserRepo"); //$NON-NLS-1$ //$NON-NLS-2$
+		int scattered = FuzzyMatcher.match("gur", "agxuxrxxxxx"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertTrue(scattered > 0);
+		assertTrue(humps > scattered);
+	}
+
+	public void testUnderscoreWordStarts()
+	{
+		assertTrue(FuzzyMatcher.match("arm", "array_map") > FuzzyMatcher.match("arm", "arxrxmxxx")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+	}
+
+	public void testIsWordStart()
+	{
+		String name = "get_userRepository2x"; //$NON-NLS-1$
+		assertTrue(FuzzyMatcher.isWordStart(name, 0));
+		assertFalse(FuzzyMatcher.isWordStart(name, 1));
+		assertFalse(FuzzyMatcher.isWordStart(name, 3));
+		assertTrue(FuzzyMatcher.isWordStart(name, 4));
+		assertTrue(FuzzyMatcher.isWordStart(name, 8));
+		assertFalse(FuzzyMatcher.isWordStart(name, 18));
+		assertTrue(FuzzyMatcher.isWordStart(name, 19));
+	}
+}
@@ -0,0 +1,123 @@
+package com.aptana.editor.php.internal.indexer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import com.aptana.editor.php.internal.indexer.FuzzyNameIndex.IMatchVisitor;
+
+public class FuzzyNameIndexTest extends TestCase
+{
+	private FuzzyNameIndex<String> index;
+
+	@Override
+	protected void setUp() throws Exception
+	{
+		super.setUp();
+		index = new FuzzyNameIndex<String>();
+		index.add("getUserRepository", "a"); //$NON-NLS-1$ //$NON-NLS-2$
+		index.add("array_map", "b"); //$NON-NLS-1$ //$NON-NLS-2$
+		index.add("strlen", "c"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	public void testSubsequenceMatch()
+	{
+		assertMatches("userrepo", "a"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertMatches("armap", "b"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertMatches("STRL", "c"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	public void testWordStartsMatch()
+	{
+		assertMatches("gur", "a"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	public void testNoMatch()
+	{
+		assertMatches("xyz"); //$NON-NLS-1$
+		assertMatches("lenstr"); //$NON-NLS-1$
+	}
+
+	public void testShortPatternMatchesNothing()
+	{
+		assertMatches("s"); //$NON-NLS-1$
+		assertMatches(""); //$NON-NLS-1$
+	}
+
+	public void testAddSameNameKeepsAllItems()
+	{
+		index.add("strlen", "d"); //$NON-NLS-1$ //$NON-NLS-2$
+		index.add("strlen", "d"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(3, index.size());
+		assertMatches("strl", "c", "d"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+
+	public void testRemove()
+	{
+		index.remove("strlen", "c"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(2, index.size());
+		assertMatches("strl"); //$NON-NLS-1$
+		assertMatches("armap", "b"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	public void testRemoveOtherItemKeepsName()
+	{
+		index.remove("strlen", "x"); //$NON-NLS-1$ //$NON-NLS-2$
+		index.remove("unknown", "c"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(3, index.size());
+		assertMatches("strl", "c"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	public void testRemoveOneOfTheItems()
+	{
+		index.add("strlen", "d"); //$NON-NLS-1$ //$NON-NLS-2$
+		index.remove("strlen", "c"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertMatches("strl", "d"); //$NON-NLS-1$ //$NON-NLS-2$
+		index.remove("strlen", "d"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertMatches("strl"); //$NON-NLS-1$
+	}
+
+	public void testReplace()
+	{
+		index.remove("strlen", "c"); //$NON-NLS-1$ //$NON-NLS-2$
+		index.add("strlen", "d"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(3, index.size());
+		assertMatches("strl", "d"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	public void testCompaction()
+	{
+		// enough removals to compact the index
+		for (int i = 0; i < 3000; i++)
+		{
+			index.add("name" + i, "n" + i); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		for (int i = 0; i < 3000; i++)
+		{
+			index.remove("name" + i, "n" + i); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		assertEquals(3, index.size());
+		assertMatches("nam"); //$NON-NLS-1$
+		assertMatches("userrepo", "a"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertMatches("armap", "b"); //$NON-NLS-1$ //$NON-NLS-2$
+		index.add("name1", "n1"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertMatches("name1", "n1"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	private void assertMatches(String pattern, String... expected)
+	{
+		final List<String> actual = new ArrayList<String>();
+		index.match(pattern, new IMatchVisitor<String>()
+		{
+			public void accept(String item, String name, int score)
+			{
+				actual.add(item);
+			}
+		});
+		Collections.sort(actual);
+		assertEquals(Arrays.asList(expected), actual);
+	}
+}
@@ -0,0 +1,17 @@
+package com.aptana.editor.php.internal.indexer;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+public class IndexerTests
+{
+	public static Test suite()
+	{
+		TestSuite suite = new TestSuite(IndexerTests.class.getName());
+		// $JUnit-BEGIN$
+		suite.addTestSuite(FuzzyMatcherTest.class);
+		suite.addTestSuite(FuzzyNameIndexTest.class);
+		// $JUnit-END$
+		return suite;
+	}
+}
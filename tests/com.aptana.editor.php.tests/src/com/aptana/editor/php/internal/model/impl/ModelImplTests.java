@@ -0,0 +1,16 @@
+package com.aptana.editor.php.internal.model.impl;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+public class ModelImplTests
+{
+	public static Test suite()
+	{
+		TestSuite suite = new TestSuite(ModelImplTests.class.getName());
+		// $JUnit-BEGIN$
+		suite.addTestSuite(ModuleElementCacheTest.class);
+		// $JUnit-END$
+		return suite;
+	}
+}
@@ -0,0 +1,168 @@
+package com.aptana.editor.php.internal.model.impl;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import com.aptana.editor.php.core.model.IModelElement;
+import com.aptana.editor.php.core.model.IModelElementDelta;
+import com.aptana.editor.php.indexer.IElementsIndex;
+import com.aptana.editor.php.indexer.IPHPIndexConstants;
+import com.aptana.editor.php.indexer.PHPGlobalIndexer;
+import com.aptana.editor.php.internal.builder.FileSystemModule;
+import com.aptana.editor.php.internal.builder.SingleFileBuildPath;
+import com.aptana.editor.php.internal.contentAssist.PHPContentAssistProcessor;
+import com.aptana.editor.php.internal.core.builder.IBuildPath;
+import com.aptana.editor.php.internal.core.builder.IModule;
+import com.aptana.editor.php.internal.indexer.ClassPHPEntryValue;
+import com.aptana.editor.php.internal.indexer.ComplexIndex;
+import com.aptana.editor.php.internal.indexer.FunctionPHPEntryValue;
+import com.aptana.editor.php.internal.indexer.UnpackedElementIndex;
+
+public class ModuleElementCacheTest extends TestCase
+{
+	private static final String CLASS_NAME = "ModuleElementCacheTestClass"; //$NON-NLS-1$
+
+	private ModuleElementCache cache;
+	private ComplexIndex globalIndex;
+	private File file;
+	private IBuildPath buildPath;
+	private IModule module;
+	private UnpackedElementIndex index;
+
+	@Override
+	protected void setUp() throws Exception
+	{
+		super.setUp();
+		cache = ModuleElementCache.getInstance();
+		globalIndex = (ComplexIndex) PHPGlobalIndexer.getInstance().getIndex();
+		file = File.createTempFile("elements", ".php"); //$NON-NLS-1$ //$NON-NLS-2$
+		buildPath = new SingleFileBuildPath(file);
+		module = new FileSystemModule(file, buildPath);
+		index = new UnpackedElementIndex();
+		indexModule(10, "a", 40); //$NON-NLS-1$
+		globalIndex.addIndex(buildPath, index);
+	}
+
+	@Override
+	protected void tearDown() throws Exception
+	{
+		globalIndex.removeIndex(buildPath);
+		file.delete();
+		super.tearDown();
+	}
+
+	public void testUnchangedMethodIsKept()
+	{
+		IModelElement foo = getMethod("foo"); //$NON-NLS-1$
+		IModelElement bar = getMethod("bar"); //$NON-NLS-1$
+
+		IModelElementDelta delta = reindex(10, "a", 40); //$NON-NLS-1$
+		assertSame(foo, getMethod("foo")); //$NON-NLS-1$
+		assertSame(bar, getMethod("bar")); //$NON-NLS-1$
+		assertTrue(getChangedElements(delta).isEmpty());
+	}
+
+	public void testMovedMethodIsRebound()
+	{
+		IModelElement foo = getMethod("foo"); //$NON-NLS-1$
+		IModelElement bar = getMethod("bar"); //$NON-NLS-1$
+		assertEquals(10, ((AbstractMember) foo).getSourceRange().getOffset());
+
+		IModelElementDelta delta = reindex(25, "a", 40); //$NON-NLS-1$
+		assertSame(foo, getMethod("foo")); //$NON-NLS-1$
+		assertEquals(25, ((AbstractMember) foo).getSourceRange().getOffset());
+		assertEquals(Collections.singleton(foo), getChangedElements(delta));
+		assertSame(bar, getMethod("bar")); //$NON-NLS-1$
+	}
+
+	public void testEditedParametersAreRebound()
+	{
+		IModelElement foo = getMethod("foo"); //$NON-NLS-1$
+
+		IModelElementDelta delta = reindex(10, "b", 40); //$NON-NLS-1$
+		assertSame(foo, getMethod("foo")); //$NON-NLS-1$
+		FunctionPHPEntryValue value = (FunctionPHPEntryValue) ((AbstractMember) foo).getEntry().getValue();
+		assertTrue(value.getParameters().containsKey("b")); //$NON-NLS-1$
+		assertEquals(Collections.singleton(foo), getChangedElements(delta));
+	}
+
+	private IModelElement getMethod(String name)
+	{
+		List<IModelElement> children = cache.getChildren(module, CLASS_NAME);
+		for (IModelElement child : children)
+		{
+			if (name.equals(child.getElementName()))
+			{
+				return child;
+			}
+		}
+		fail("No method " + name); //$NON-NLS-1$
+		return null;
+	}
+
+	/**
+	 * Re-indexes the module, the way the global indexer does, and returns the module delta.
+	 */
+	private IModelElementDelta reindex(int fooOffset, String fooParameter, int barOffset)
+	{
+		List<IModule> modules = Collections.singletonList(module);
+		cache.beginChanges(modules);
+		index.removeModuleEntries(module);
+		indexModule(fooOffset, fooParameter, barOffset);
+		cache.entriesChanged(modules);
+		return cache.takeDelta(module);
+	}
+
+	private void indexModule(int fooOffset, String fooParameter, int barOffset)
+	{
+		ClassPHPEntryValue classValue = new ClassPHPEntryValue(0, null, null,
+				PHPContentAssistProcessor.GLOBAL_NAMESPACE);
+		classValue.setStartOffset(0);
+		classValue.setEndOffset(100);
+		index.addEntry(IPHPIndexConstants.CLASS_CATEGORY, CLASS_NAME, classValue, module);
+		addMethod("foo", fooOffset, fooParameter); //$NON-NLS-1$
+		addMethod("bar", barOffset, null); //$NON-NLS-1$
+	}
+
+	private void addMethod(String name, int offset, String parameter)
+	{
+		LinkedHashMap<String, Set<Object>> parameters = new LinkedHashMap<String, Set<Object>>();
+		int[] positions = new int[0];
+		boolean[] mandatories = new boolean[0];
+		if (parameter != null)
+		{
+			parameters.put(parameter, new HashSet<Object>());
+			positions = new int[] { offset + 10 };
+			mandatories = new boolean[] { true };
+		}
+		FunctionPHPEntryValue value = new FunctionPHPEntryValue(0, true, parameters, positions, mandatories, offset,
+				PHPContentAssistProcessor.GLOBAL_NAMESPACE);
+		index.addEntry(IPHPIndexConstants.FUNCTION_CATEGORY, CLASS_NAME + IElementsIndex.DELIMITER + name, value,
+				module);
+	}
+
+	private static Set<IModelElement> getChangedElements(IModelElementDelta delta)
+	{
+		Set<IModelElement> result = new HashSet<IModelElement>();
+		collectChangedElements(delta, result);
+		return result;
+	}
+
+	private static void collectChangedElements(IModelElementDelta delta, Set<IModelElement> result)
+	{
+		for (IModelElementDelta child : delta.getAffectedChildren())
+		{
+			if ((child.getFlags() & IModelElementDelta.F_CONTENT) != 0)
+			{
+				result.add(child.getElement());
+			}
+			collectChangedElements(child, result);
+		}
+	}
+}
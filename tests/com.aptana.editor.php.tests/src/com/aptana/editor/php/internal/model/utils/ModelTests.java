@@ -0,0 +1,16 @@
+package com.aptana.editor.php.internal.model.utils;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+public class ModelTests
+{
+	public static Test suite()
+	{
+		TestSuite suite = new TestSuite(ModelTests.class.getName());
+		// $JUnit-BEGIN$
+		suite.addTestSuite(TypeHierarchyCacheTest.class);
+		// $JUnit-END$
+		return suite;
+	}
+}
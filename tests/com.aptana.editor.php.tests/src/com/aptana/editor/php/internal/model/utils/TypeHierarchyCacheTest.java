@@ -0,0 +1,172 @@
+package com.aptana.editor.php.internal.model.utils;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import com.aptana.editor.php.indexer.IElementEntry;
+import com.aptana.editor.php.indexer.IElementsIndex;
+import com.aptana.editor.php.indexer.IPHPIndexConstants;
+import com.aptana.editor.php.indexer.PHPGlobalIndexer;
+import com.aptana.editor.php.internal.builder.FileSystemModule;
+import com.aptana.editor.php.internal.builder.SingleFileBuildPath;
+import com.aptana.editor.php.internal.contentAssist.PHPContentAssistProcessor;
+import com.aptana.editor.php.internal.core.builder.IBuildPath;
+import com.aptana.editor.php.internal.core.builder.IModule;
+import com.aptana.editor.php.internal.indexer.ClassPHPEntryValue;
+import com.aptana.editor.php.internal.indexer.ComplexIndex;
+import com.aptana.editor.php.internal.indexer.FunctionPHPEntryValue;
+import com.aptana.editor.php.internal.indexer.UnpackedElementIndex;
+
+public class TypeHierarchyCacheTest extends TestCase
+{
+	private static final String BASE = "TypeHierarchyCacheTestBase"; //$NON-NLS-1$
+	private static final String CHILD = "TypeHierarchyCacheTestChild"; //$NON-NLS-1$
+	private static final String OTHER = "TypeHierarchyCacheTestOther"; //$NON-NLS-1$
+
+	private TypeHierarchyCache cache;
+	private ComplexIndex globalIndex;
+	private File file1;
+	private File file2;
+	private IBuildPath buildPath1;
+	private IBuildPath buildPath2;
+	private UnpackedElementIndex index1;
+	private UnpackedElementIndex index2;
+	private IModule module1;
+	private IModule module2;
+
+	@Override
+	protected void setUp() throws Exception
+	{
+		super.setUp();
+		cache = TypeHierarchyCache.getInstance();
+		globalIndex = (ComplexIndex) PHPGlobalIndexer.getInstance().getIndex();
+
+		file1 = File.createTempFile("hierarchy1", ".php"); //$NON-NLS-1$ //$NON-NLS-2$
+		file2 = File.createTempFile("hierarchy2", ".php"); //$NON-NLS-1$ //$NON-NLS-2$
+		buildPath1 = new SingleFileBuildPath(file1);
+		buildPath2 = new SingleFileBuildPath(file2);
+		module1 = new FileSystemModule(file1, buildPath1);
+		module2 = new FileSystemModule(file2, buildPath2);
+
+		// build path 1: Base::foo(), and Child extends Base with Child::bar()
+		index1 = new UnpackedElementIndex();
+		addClass(index1, module1, BASE, null);
+		addMethod(index1, module1, BASE, "foo"); //$NON-NLS-1$
+		addClass(index1, module1, CHILD, BASE);
+		addMethod(index1, module1, CHILD, "bar"); //$NON-NLS-1$
+
+		// build path 2: another Base, with Base::baz()
+		index2 = new UnpackedElementIndex();
+		addClass(index2, module2, BASE, null);
+		addMethod(index2, module2, BASE, "baz"); //$NON-NLS-1$
+
+		globalIndex.addIndex(buildPath1, index1);
+		globalIndex.addIndex(buildPath2, index2);
+	}
+
+	@Override
+	protected void tearDown() throws Exception
+	{
+		globalIndex.removeIndex(buildPath1);
+		globalIndex.removeIndex(buildPath2);
+		file1.delete();
+		file2.delete();
+		super.tearDown();
+	}
+
+	public void testInheritedMembers()
+	{
+		Map<String, IElementEntry> members = cache.getMembers(buildPath1, CHILD, IPHPIndexConstants.FUNCTION_CATEGORY);
+		assertEquals(2, members.size());
+		assertEquals(module1, members.get("foo").getModule()); //$NON-NLS-1$
+		assertEquals(module1, members.get("bar").getModule()); //$NON-NLS-1$
+	}
+
+	public void testMembersAreScopedByBuildPath()
+	{
+		Map<String, IElementEntry> members = cache.getMembers(buildPath1, BASE, IPHPIndexConstants.FUNCTION_CATEGORY);
+		assertEquals(Collections.singleton("foo"), members.keySet()); //$NON-NLS-1$
+
+		members = cache.getMembers(buildPath2, BASE, IPHPIndexConstants.FUNCTION_CATEGORY);
+		assertEquals(Collections.singleton("baz"), members.keySet()); //$NON-NLS-1$
+
+		members = cache.getMembers(null, BASE, IPHPIndexConstants.FUNCTION_CATEGORY);
+		assertTrue(members.containsKey("foo")); //$NON-NLS-1$
+		assertTrue(members.containsKey("baz")); //$NON-NLS-1$
+
+		assertNull(cache.getMember(buildPath2, CHILD, IPHPIndexConstants.FUNCTION_CATEGORY, "bar")); //$NON-NLS-1$
+		assertNotNull(cache.getMember(buildPath1, CHILD, IPHPIndexConstants.FUNCTION_CATEGORY, "BAR")); //$NON-NLS-1$
+	}
+
+	public void testMembersAreCached()
+	{
+		Map<String, IElementEntry> members = cache.getMembers(buildPath1, CHILD, IPHPIndexConstants.FUNCTION_CATEGORY);
+		assertSame(members, cache.getMembers(buildPath1, CHILD, IPHPIndexConstants.FUNCTION_CATEGORY));
+	}
+
+	public void testUnrelatedChangeKeepsCachedMembers()
+	{
+		Map<String, IElementEntry> members = cache.getMembers(buildPath1, CHILD, IPHPIndexConstants.FUNCTION_CATEGORY);
+
+		IModule module = new FileSystemModule(new File(file2.getParentFile(), "other.php"), buildPath2); //$NON-NLS-1$
+		addClass(index2, module, OTHER, null);
+		cache.entriesChanged(Collections.singletonList(module));
+
+		assertSame(members, cache.getMembers(buildPath1, CHILD, IPHPIndexConstants.FUNCTION_CATEGORY));
+	}
+
+	public void testModuleChangeInvalidatesMembers()
+	{
+		Map<String, IElementEntry> members = cache.getMembers(buildPath1, CHILD, IPHPIndexConstants.FUNCTION_CATEGORY);
+		assertTrue(members.containsKey("foo")); //$NON-NLS-1$
+
+		// the base class now declares qux() instead of foo()
+		index1.removeModuleEntries(module1);
+		addClass(index1, module1, BASE, null);
+		addMethod(index1, module1, BASE, "qux"); //$NON-NLS-1$
+		addClass(index1, module1, CHILD, BASE);
+		addMethod(index1, module1, CHILD, "bar"); //$NON-NLS-1$
+		cache.entriesChanged(Collections.singletonList(module1));
+
+		members = cache.getMembers(buildPath1, CHILD, IPHPIndexConstants.FUNCTION_CATEGORY);
+		assertFalse(members.containsKey("foo")); //$NON-NLS-1$
+		assertTrue(members.containsKey("qux")); //$NON-NLS-1$
+		assertTrue(members.containsKey("bar")); //$NON-NLS-1$
+	}
+
+	public void testNewSuperclassInvalidatesHierarchy()
+	{
+		assertTrue(cache.getClassAncestors(null, OTHER, globalIndex).isEmpty());
+
+		// Other is declared now, as a subclass of Base
+		IModule module = new FileSystemModule(new File(file1.getParentFile(), "other.php"), buildPath1); //$NON-NLS-1$
+		addClass(index1, module, OTHER, BASE);
+		cache.entriesChanged(Collections.singletonList(module));
+
+		assertEquals(1, cache.getClassAncestors(module, OTHER, globalIndex).size());
+	}
+
+	public void testIndexRemovalInvalidatesMembers()
+	{
+		assertNotNull(cache.getMember(null, BASE, IPHPIndexConstants.FUNCTION_CATEGORY, "baz")); //$NON-NLS-1$
+		globalIndex.removeIndex(buildPath2);
+		assertNull(cache.getMember(null, BASE, IPHPIndexConstants.FUNCTION_CATEGORY, "baz")); //$NON-NLS-1$
+	}
+
+	private static void addClass(UnpackedElementIndex index, IModule module, String name, String superClassName)
+	{
+		ClassPHPEntryValue value = new ClassPHPEntryValue(0, superClassName, null,
+				PHPContentAssistProcessor.GLOBAL_NAMESPACE);
+		index.addEntry(IPHPIndexConstants.CLASS_CATEGORY, name, value, module);
+	}
+
+	private static void addMethod(UnpackedElementIndex index, IModule module, String className, String name)
+	{
+		FunctionPHPEntryValue value = new FunctionPHPEntryValue(0, true, 0, PHPContentAssistProcessor.GLOBAL_NAMESPACE);
+		index.addEntry(IPHPIndexConstants.FUNCTION_CATEGORY, className + IElementsIndex.DELIMITER + name, value,
+				module);
+	}
+}
@@ -0,0 +1,106 @@
+package com.aptana.editor.php.internal.parser;
+
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import org.eclipse.jface.text.Document;
+
+public class CharSequenceReaderTest extends TestCase
+{
+	public void testReadCharacters() throws IOException
+	{
+		CharSequenceReader reader = new CharSequenceReader("ab", "", new StringBuilder("c")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		assertEquals('a', reader.read());
+		assertEquals('b', reader.read());
+		assertEquals('c', reader.read());
+		assertEquals(-1, reader.read());
+		assertEquals(-1, reader.read());
+	}
+
+	public void testReadAcrossSequences() throws IOException
+	{
+		CharSequenceReader reader = new CharSequenceReader("<?php ", "", "echo 1;"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		char[] buffer = new char[20];
+		assertEquals(8, reader.read(buffer, 2, 8));
+		assertEquals("<?php ec", new String(buffer, 2, 8)); //$NON-NLS-1$
+		assertEquals(5, reader.read(buffer, 0, 20));
+		assertEquals("ho 1;", new String(buffer, 0, 5)); //$NON-NLS-1$
+		assertEquals(-1, reader.read(buffer, 0, 20));
+	}
+
+	public void testReadDocumentRange() throws IOException
+	{
+		CharSequence range = DocumentCharSequence.get(new Document("<p><?php $a; ?></p>")).subSequence(3, 15); //$NON-NLS-1$
+		CharSequenceReader reader = new CharSequenceReader(range);
+		char[] buffer = new char[64];
+		assertEquals(12, reader.read(buffer, 0, buffer.length));
+		assertEquals("<?php $a; ?>", new String(buffer, 0, 12)); //$NON-NLS-1$
+		assertEquals(-1, reader.read(buffer, 0, buffer.length));
+	}
+
+	public void testReadEmpty() throws IOException
+	{
+		CharSequenceReader reader = new CharSequenceReader();
+		assertEquals(-1, reader.read());
+		assertEquals(-1, reader.read(new char[4], 0, 4));
+	}
+
+	public void testZeroLengthRead() throws IOException
+	{
+		CharSequenceReader reader = new CharSequenceReader("abc"); //$NON-NLS-1$
+		assertEquals(0, reader.read(new char[4], 4, 0));
+		assertEquals('a', reader.read());
+	}
+
+	public void testReadBounds() throws IOException
+	{
+		CharSequenceReader reader = new CharSequenceReader("abc"); //$NON-NLS-1$
+		char[] buffer = new char[4];
+		assertReadFails(reader, buffer, -1, 2);
+		assertReadFails(reader, buffer, 0, -1);
+		assertReadFails(reader, buffer, 2, 3);
+		assertReadFails(reader, buffer, 5, 0);
+		// a failed read does not consume anything
+		assertEquals(3, reader.read(buffer, 1, 3));
+		assertEquals("abc", new String(buffer, 1, 3)); //$NON-NLS-1$
+	}
+
+	public void testReadAfterClose() throws IOException
+	{
+		CharSequenceReader reader = new CharSequenceReader("abc"); //$NON-NLS-1$
+		reader.close();
+		try
+		{
+			reader.read();
+			fail("Expected an IOException"); //$NON-NLS-1$
+		}
+		catch (IOException e)
+		{
+			// expected
+		}
+		try
+		{
+			reader.read(new char[4], 0, 4);
+			fail("Expected an IOException"); //$NON-NLS-1$
+		}
+		catch (IOException e)
+		{
+			// expected
+		}
+	}
+
+	private static void assertReadFails(CharSequenceReader reader, char[] buffer, int off, int len)
+			throws IOException
+	{
+		try
+		{
+			reader.read(buffer, off, len);
+			fail("Expected an IndexOutOfBoundsException for " + off + ':' + len); //$NON-NLS-1$
+		}
+		catch (IndexOutOfBoundsException e)
+		{
+			// expected
+		}
+	}
+}
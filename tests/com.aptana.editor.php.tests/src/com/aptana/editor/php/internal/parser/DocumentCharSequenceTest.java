@@ -0,0 +1,148 @@
+package com.aptana.editor.php.internal.parser;
+
+import junit.framework.TestCase;
+
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+
+public class DocumentCharSequenceTest extends TestCase
+{
+	private static final String CONTENTS = "<?php echo $a; ?>"; //$NON-NLS-1$
+
+	private IDocument document;
+
+	@Override
+	protected void setUp() throws Exception
+	{
+		super.setUp();
+		// set the contents, so the document has a modification stamp
+		document = new Document();
+		document.set(CONTENTS);
+	}
+
+	public void testWholeDocument()
+	{
+		DocumentCharSequence sequence = DocumentCharSequence.get(document);
+		assertEquals(CONTENTS.length(), sequence.length());
+		assertEquals('<', sequence.charAt(0));
+		assertEquals('>', sequence.charAt(CONTENTS.length() - 1));
+		assertEquals(CONTENTS, sequence.toString());
+		assertSame(document, sequence.getDocument());
+	}
+
+	public void testSnapshotIsShared()
+	{
+		DocumentCharSequence sequence = DocumentCharSequence.get(document);
+		assertSame(sequence, DocumentCharSequence.get(document));
+		assertSame(DocumentCharSequence.getContents(document), DocumentCharSequence.getContents(document));
+		assertSame(sequence.toString(), DocumentCharSequence.getContents(document));
+	}
+
+	public void testSnapshotPerModification() throws BadLocationException
+	{
+		DocumentCharSequence sequence = DocumentCharSequence.get(document);
+		assertTrue(sequence.isCurrent());
+
+		document.replace(6, 4, "print"); //$NON-NLS-1$
+		assertFalse(sequence.isCurrent());
+		// the old view keeps the contents it was taken from
+		assertEquals(CONTENTS, sequence.toString());
+
+		DocumentCharSequence current = DocumentCharSequence.get(document);
+		assertNotSame(sequence, current);
+		assertTrue(current.isCurrent());
+		assertEquals("<?php print $a; ?>", current.toString()); //$NON-NLS-1$
+	}
+
+	public void testSubSequence()
+	{
+		CharSequence sequence = DocumentCharSequence.get(document).subSequence(6, 14);
+		assertEquals(8, sequence.length());
+		assertEquals('e', sequence.charAt(0));
+		assertEquals(';', sequence.charAt(7));
+		assertEquals("echo $a;", sequence.toString()); //$NON-NLS-1$
+
+		CharSequence nested = sequence.subSequence(5, 7);
+		assertEquals("$a", nested.toString()); //$NON-NLS-1$
+		assertEquals(0, sequence.subSequence(8, 8).length());
+		assertEquals("", sequence.subSequence(0, 0).toString()); //$NON-NLS-1$
+	}
+
+	public void testCharAtBounds()
+	{
+		CharSequence sequence = DocumentCharSequence.get(document).subSequence(6, 14);
+		assertCharAtFails(sequence, -1);
+		assertCharAtFails(sequence, 8);
+		assertCharAtFails(DocumentCharSequence.get(document), CONTENTS.length());
+		assertCharAtFails(DocumentCharSequence.get(new Document()), 0);
+	}
+
+	public void testSubSequenceBounds()
+	{
+		CharSequence sequence = DocumentCharSequence.get(document).subSequence(6, 14);
+		assertSubSequenceFails(sequence, -1, 2);
+		assertSubSequenceFails(sequence, 3, 2);
+		assertSubSequenceFails(sequence, 0, 9);
+		assertSubSequenceFails(DocumentCharSequence.get(document), 0, CONTENTS.length() + 1);
+	}
+
+	public void testGetChars()
+	{
+		DocumentCharSequence sequence = (DocumentCharSequence) DocumentCharSequence.get(document).subSequence(6, 14);
+		char[] buffer = new char[10];
+		sequence.getChars(5, 8, buffer, 2);
+		assertEquals("$a;", new String(buffer, 2, 3)); //$NON-NLS-1$
+		sequence.getChars(0, 0, buffer, 10);
+	}
+
+	public void testGetCharsBounds()
+	{
+		DocumentCharSequence sequence = (DocumentCharSequence) DocumentCharSequence.get(document).subSequence(6, 14);
+		char[] buffer = new char[20];
+		assertGetCharsFails(sequence, -1, 2, buffer, 0);
+		assertGetCharsFails(sequence, 3, 2, buffer, 0);
+		assertGetCharsFails(sequence, 0, 9, buffer, 0);
+		assertGetCharsFails(sequence, 0, 8, buffer, 15);
+	}
+
+	private static void assertCharAtFails(CharSequence sequence, int index)
+	{
+		try
+		{
+			sequence.charAt(index);
+			fail("Expected an IndexOutOfBoundsException for " + index); //$NON-NLS-1$
+		}
+		catch (IndexOutOfBoundsException e)
+		{
+			// expected
+		}
+	}
+
+	private static void assertSubSequenceFails(CharSequence sequence, int start, int end)
+	{
+		try
+		{
+			sequence.subSequence(start, end);
+			fail("Expected an IndexOutOfBoundsException for " + start + ':' + end); //$NON-NLS-1$
+		}
+		catch (IndexOutOfBoundsException e)
+		{
+			// expected
+		}
+	}
+
+	private static void assertGetCharsFails(DocumentCharSequence sequence, int srcBegin, int srcEnd, char[] dst,
+			int dstBegin)
+	{
+		try
+		{
+			sequence.getChars(srcBegin, srcEnd, dst, dstBegin);
+			fail("Expected an IndexOutOfBoundsException for " + srcBegin + ':' + srcEnd); //$NON-NLS-1$
+		}
+		catch (IndexOutOfBoundsException e)
+		{
+			// expected
+		}
+	}
+}
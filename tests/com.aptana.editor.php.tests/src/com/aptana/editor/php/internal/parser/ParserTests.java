@@ -0,0 +1,17 @@
+package com.aptana.editor.php.internal.parser;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+public class ParserTests
+{
+	public static Test suite()
+	{
+		TestSuite suite = new TestSuite(ParserTests.class.getName());
+		// $JUnit-BEGIN$
+		suite.addTestSuite(CharSequenceReaderTest.class);
+		suite.addTestSuite(DocumentCharSequenceTest.class);
+		// $JUnit-END$
+		return suite;
+	}
+}
@@ -0,0 +1,16 @@
+package com.aptana.editor.php.internal.ui.editor.outline;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+public class OutlineTests
+{
+	public static Test suite()
+	{
+		TestSuite suite = new TestSuite(OutlineTests.class.getName());
+		// $JUnit-BEGIN$
+		suite.addTestSuite(PHPOutlineItemTest.class);
+		// $JUnit-END$
+		return suite;
+	}
+}
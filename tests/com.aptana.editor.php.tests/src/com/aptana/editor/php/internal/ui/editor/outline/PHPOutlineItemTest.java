@@ -0,0 +1,116 @@
+package com.aptana.editor.php.internal.ui.editor.outline;
+
+import junit.framework.TestCase;
+
+import com.aptana.editor.php.internal.parser.PHPMimeType;
+import com.aptana.editor.php.internal.parser.nodes.PHPBaseParseNode;
+import com.aptana.editor.php.internal.parser.nodes.PHPClassParseNode;
+import com.aptana.editor.php.internal.parser.nodes.PHPFunctionParseNode;
+import com.aptana.parsing.ast.IParseNode;
+import com.aptana.parsing.ast.ParseNode;
+import com.aptana.parsing.ast.ParseRootNode;
+
+public class PHPOutlineItemTest extends TestCase
+{
+
+	public void testRebuiltNodeAtMovedOffsetIsEqual()
+	{
+		PHPFunctionParseNode method = addMethod(addClass(createRoot(), "A", 0), "foo", 10); //$NON-NLS-1$ //$NON-NLS-2$
+		// the same declarations, after a line was added at the top of the file
+		PHPFunctionParseNode moved = addMethod(addClass(createRoot(), "A", 20), "foo", 30); //$NON-NLS-1$ //$NON-NLS-2$
+
+		PHPOutlineItem item = createItem(method);
+		PHPOutlineItem movedItem = createItem(moved);
+		assertEquals(item, movedItem);
+		assertEquals(item.hashCode(), movedItem.hashCode());
+	}
+
+	public void testDifferentNamesAreNotEqual()
+	{
+		PHPClassParseNode classNode = addClass(createRoot(), "A", 0); //$NON-NLS-1$
+		PHPFunctionParseNode foo = addMethod(classNode, "foo", 10); //$NON-NLS-1$
+		PHPFunctionParseNode bar = addMethod(classNode, "bar", 20); //$NON-NLS-1$
+
+		assertFalse(createItem(foo).equals(createItem(bar)));
+	}
+
+	public void testDifferentParentsAreNotEqual()
+	{
+		IParseNode root = createRoot();
+		PHPFunctionParseNode inA = addMethod(addClass(root, "A", 0), "foo", 10); //$NON-NLS-1$ //$NON-NLS-2$
+		PHPFunctionParseNode inB = addMethod(addClass(root, "B", 50), "foo", 60); //$NON-NLS-1$ //$NON-NLS-2$
+
+		assertFalse(createItem(inA).equals(createItem(inB)));
+	}
+
+	public void testSameNamedSiblingsAreNotEqual()
+	{
+		// a function that is declared twice (e.g. in the branches of a condition)
+		IParseNode root = createRoot();
+		PHPFunctionParseNode first = addFunction(root, "foo", 0); //$NON-NLS-1$
+		PHPFunctionParseNode second = addFunction(root, "foo", 50); //$NON-NLS-1$
+
+		assertFalse(createItem(first).equals(createItem(second)));
+	}
+
+	public void testSameNamedSiblingsKeepTheirOrdinal()
+	{
+		IParseNode root = createRoot();
+		addFunction(root, "foo", 0); //$NON-NLS-1$
+		PHPFunctionParseNode second = addFunction(root, "foo", 50); //$NON-NLS-1$
+
+		IParseNode newRoot = createRoot();
+		addFunction(newRoot, "bar", 0); //$NON-NLS-1$
+		PHPFunctionParseNode newFirst = addFunction(newRoot, "foo", 10); //$NON-NLS-1$
+		PHPFunctionParseNode newSecond = addFunction(newRoot, "foo", 60); //$NON-NLS-1$
+
+		assertEquals(createItem(second), createItem(newSecond));
+		assertFalse(createItem(second).equals(createItem(newFirst)));
+	}
+
+	public void testOrdinalsAreComputedForAllSiblings()
+	{
+		IParseNode root = createRoot();
+		PHPFunctionParseNode first = addFunction(root, "foo", 0); //$NON-NLS-1$
+		PHPFunctionParseNode bar = addFunction(root, "bar", 10); //$NON-NLS-1$
+		PHPFunctionParseNode second = addFunction(root, "foo", 20); //$NON-NLS-1$
+		PHPClassParseNode classNode = addClass(root, "foo", 30); //$NON-NLS-1$
+
+		PHPBaseParseNode.computeOrdinals(root);
+		assertEquals(0, first.getOrdinal());
+		assertEquals(0, bar.getOrdinal());
+		assertEquals(1, second.getOrdinal());
+		assertEquals(0, classNode.getOrdinal());
+	}
+
+	private static IParseNode createRoot()
+	{
+		return new ParseRootNode(PHPMimeType.MimeType, new ParseNode[0], 0, 1000);
+	}
+
+	private static PHPClassParseNode addClass(IParseNode parent, String name, int offset)
+	{
+		PHPClassParseNode node = new PHPClassParseNode(0, offset, offset + 40, name);
+		parent.addChild(node);
+		return node;
+	}
+
+	private static PHPFunctionParseNode addMethod(IParseNode parent, String name, int offset)
+	{
+		PHPFunctionParseNode node = addFunction(parent, name, offset);
+		node.setMethod(true);
+		return node;
+	}
+
+	private static PHPFunctionParseNode addFunction(IParseNode parent, String name, int offset)
+	{
+		PHPFunctionParseNode node = new PHPFunctionParseNode(0, offset, offset + 5, name);
+		parent.addChild(node);
+		return node;
+	}
+
+	private static PHPOutlineItem createItem(IParseNode node)
+	{
+		return new PHPOutlineItem(node.getNameNode().getNameRange(), node);
+	}
+}
@@ -4,6 +4,12 @@ import junit.framework.Test;
 import junit.framework.TestSuite;
 
 import com.aptana.editor.php.core.CoreTests;
+import com.aptana.editor.php.internal.contentAssist.ContentAssistTests;
+import com.aptana.editor.php.internal.indexer.IndexerTests;
+import com.aptana.editor.php.internal.model.impl.ModelImplTests;
+import com.aptana.editor.php.internal.model.utils.ModelTests;
+import com.aptana.editor.php.internal.parser.ParserTests;
+import com.aptana.editor.php.internal.ui.editor.outline.OutlineTests;
 
 public class AllTests
 {
@@ -13,6 +19,12 @@ public class AllTests
 		TestSuite suite = new TestSuite(AllTests.class.getName());
 		// $JUnit-BEGIN$
 		suite.addTest(CoreTests.suite());
+		suite.addTest(OutlineTests.suite());
+		suite.addTest(ContentAssistTests.suite());
+		suite.addTest(IndexerTests.suite());
+		suite.addTest(ModelImplTests.suite());
+		suite.addTest(ModelTests.suite());
+		suite.addTest(ParserTests.suite());
 		// $JUnit-END$
 		return suite;
 	}